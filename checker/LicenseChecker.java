@@ -18,7 +18,16 @@
 package checker;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import javax.swing.event.EventListenerList;
 
 import checker.filepackage.FilePackage;
@@ -28,13 +37,18 @@ import checker.license.ForbiddenPhrase;
 import checker.license.License;
 import checker.license.LicenseDatabase;
 import checker.license.LicenseException;
+import checker.license.SpdxExpression;
 import checker.license.Tag;
 import checker.matching.LicenseMatch;
 import checker.matching.ForbiddenPhraseMatch;
 import checker.matching.LicenseMatcher;
+import checker.matching.WordList;
 import checker.matching.MatchPosition;
 import checker.repository.RepositoryFactory;
+import checker.sourceparser.SourceMarker;
 import checker.sourceparser.SourceParser;
+import checker.sourceparser.SourceCollector;
+import checker.sourceparser.HeaderCollector;
 import checker.sourceparser.SourceParserFactory;
 import checker.event.*;
 
@@ -52,8 +66,20 @@ public class LicenseChecker {
 	 * Filename in the main program directory where the settings are saved.
 	 */
 	private static final String settingsFileName = ".oslc2_settings";
+
+	/**
+	 * Filename in the home directory of the default result cache.
+	 */
+	private static final String resultCacheFileName = ".oslc2_cache";
 	
 	private static final double MATCH_THRESHOLD = 0.10;
+
+	/**
+	 * Default budgets of the header scan mode: number of lines of a
+	 * source file and number of comment words matched first.
+	 */
+	private static final int HEADER_MAX_LINES = 200;
+	private static final int HEADER_MAX_WORDS = 1000;
 	
 	private static Properties properties = null;
 
@@ -159,7 +185,7 @@ public class LicenseChecker {
 	/**
 	 * Is processing canceled?
 	 */
-	private boolean canceled;
+	private volatile boolean canceled;
 
 	/**
 	 * The constructor.
@@ -345,6 +371,93 @@ public class LicenseChecker {
 		return MATCH_THRESHOLD;
 	}
 	
+	/**
+	 * Load an integer setting.
+	 * 
+	 * @param settingName Name of the setting
+	 * @param defaultValue Value used if the setting is missing or invalid
+	 * @return Value of the setting
+	 */
+	private int intSetting(String settingName, int defaultValue) {
+		String s;
+		try {
+			/* this might throw */
+			s = (String) getSetting(settingName);
+			int value = Integer.parseInt(s);
+			if (value > 0) return value;
+			
+		} catch (Exception e) {
+		}
+		
+		/* reset invalid values to default */
+		setSetting(settingName, Integer.toString(defaultValue));
+		return defaultValue;
+	}
+	
+	/**
+	 * Get the number of scan threads from setting "scanThreads". The
+	 * default 0 is one thread per processor of this host. 0 is what is
+	 * saved, so the settings file does not keep the processor count of
+	 * the host that wrote it.
+	 * 
+	 * @return Number of threads
+	 */
+	private int scanThreads() {
+		String s;
+		try {
+			/* this might throw */
+			s = (String) getSetting("scanThreads");
+			int value = Integer.parseInt(s);
+			if (value > 0) return value;
+			if (value == 0) return Runtime.getRuntime().availableProcessors();
+			
+		} catch (Exception e) {
+		}
+		
+		/* reset invalid values to default */
+		setSetting("scanThreads", "0");
+		return Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Get the match algorithm from setting "matchAlgorithm": "exact"
+	 * (the default) compares with Diff, "partial" with a longest common
+	 * subsequence, which is slower but also matches repetitive text, and
+	 * "runs" aligns the runs of words shared with a suffix automaton of
+	 * all templates.
+	 * 
+	 * @return Match algorithm
+	 */
+	private LicenseMatcher.MatchAlgorithm matchAlgorithm() {
+		String s = getSetting("matchAlgorithm");
+		if ("partial".equals(s)) return LicenseMatcher.MatchAlgorithm.PARTIAL;
+		if ("runs".equals(s)) return LicenseMatcher.MatchAlgorithm.RUNS;
+		
+		/* reset invalid values to default */
+		if (!"exact".equals(s)) setSetting("matchAlgorithm", "exact");
+		return LicenseMatcher.MatchAlgorithm.EXACT;
+	}
+	
+	/**
+	 * Check if source files are scanned in header mode. In header mode
+	 * only the comments at the beginning of each source file are matched;
+	 * all comments are matched if no license is found in the header or
+	 * if a license is found only partially. A file without references
+	 * or MODULE_LICENSE lines in its header is read only up to the end of
+	 * the header, other files are parsed to the end, so their references
+	 * and markers are the same as in a full scan.
+	 * 
+	 * @return true if setting "scanMode" is "header"
+	 */
+	private boolean headerScan() {
+		String s = getSetting("scanMode");
+		if ("header".equals(s)) return true;
+		
+		/* reset invalid values to default */
+		if (!"full".equals(s)) setSetting("scanMode", "full");
+		return false;
+	}
+	
 	/**
 	 * Gets a list of all supported package type id:s.
 	 * 
@@ -382,7 +495,7 @@ public class LicenseChecker {
 	 * 
 	 * If file loading fails, start with no saved settings.
 	 */
-	private static void loadSettings()  {
+	private static synchronized void loadSettings()  {
 		if(properties != null) return;
 		
 		/* load settings */
@@ -412,7 +525,7 @@ public class LicenseChecker {
 	 * @param settingName Name of the setting to read
 	 * @return Value of the setting
 	 */
-	public static String getSetting(String settingName) {
+	public static synchronized String getSetting(String settingName) {
 		if(properties == null) loadSettings();
 		
 		return properties.getProperty(settingName);
@@ -424,7 +537,7 @@ public class LicenseChecker {
 	 * @param settingName Name of the setting to set
 	 * @param value New value of the setting
 	 */
-	public static void setSetting(String settingName, String value) {
+	public static synchronized void setSetting(String settingName, String value) {
 		if(properties == null) loadSettings();
 		
 		properties.setProperty(settingName, value);
@@ -435,7 +548,7 @@ public class LicenseChecker {
 	 * Saves the settings to a setting file.
 	 * 
 	 */
-	public static void saveSettings() {
+	public static synchronized void saveSettings() {
 		if(properties == null) return;
 
 		try {
@@ -781,268 +894,1024 @@ public class LicenseChecker {
 	 */
 	private ArrayList<License> allLicenses;
 
-	private void processSourceFile(PackageFile pf) {
-		FileID file = pf.getFileID();
-		
-		try {
-			
-			Log.log(LogEntry.VERBOSE, "Processing file: " + file);
+	/**
+	 * Results of earlier runs, null if not used
+	 */
+	private ResultCache resultCache;
 
-			SourceParser parser = SourceParserFactory.createSourceParser(file);
+	/**
+	 * Length of the scanning queues per worker thread
+	 */
+	private static final int QUEUE_LENGTH_PER_THREAD = 4;
 
-			// Scan the file
-			ArrayList<String> fileContent = pf.getContents();
-			//Log.log(LogEntry.DEBUG, "file:" + fileContent);
-			parser.scanFile(file, fileContent); 
-			
-			// Match the licenses
-			ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+	/**
+	 * How often the collecting thread checks for cancel and failed
+	 * threads when no results arrive
+	 */
+	private static final long POLL_INTERVAL_MS = 100;
 
-			/*
-			 * for (LicenseMatcher.MatchAlgorithm algorithm :
-			 * LicenseMatcher.MatchAlgorithm .values()) for (License
-			 * license : licenseDatabase.getLicenses())
-			 * matches.add(LicenseMatcher.match(parser .getComments(),
-			 * license, algorithm));
-			 */
-
-			matches.addAll(LicenseMatcher.match(parser.getComments(),
-					allLicenses,
-					LicenseMatcher.MatchAlgorithm.EXACT,
-					matchThreshold()));
+	/**
+	 * A source or license file in the scanning queues, and the results
+	 * of scanning it. A task without a file ends the queue.
+	 */
+	private static class FileTask {
+		PackageFile packageFile;
+		FileID file;
+		boolean licenseFile;
 
-			/*for (License license : licenseDatabase.getLicenses()) {
-				LicenseMatch match = LicenseMatcher.match(parser.getComments(),
-						license, LicenseMatcher.MatchAlgorithm.EXACT);
-				if(match != null) {
-					matches.add(match);
-				}
-			}*/
+		/**
+		 * Position among the scanned files
+		 */
+		int sequence;
 
-			matches.addAll(processModuleLicense(fileContent));
+		/**
+		 * Position among all files, for progress events
+		 */
+		int index;
 
-			licenseMatches.put(file, matches);
+		ArrayList<LicenseMatch> matches;
+		ArrayList<Reference> references;
+		ScanState.FileState state;
+		boolean reused;
+		Exception exception;
 
-			// Get references from scanned source files
-			if(references == null) {
-				references = referencesToMap(parser.getReferences());
-			} else {
-				references.putAll(referencesToMap(parser.getReferences()));
-			}
-			
-		} catch (Exception e) {
-        	/* if this is the first exception for this file,
-        	 * create a new exception list */
-			if (!fileExceptions.containsKey(file))
-				fileExceptions.put(file, new ArrayList<Exception>());
-			
-			fileExceptions.get(file).add(e);
+		FileTask(PackageFile packageFile, boolean licenseFile) {
+			this.packageFile = packageFile;
+			this.file = (packageFile == null) ? null : packageFile.getFileID();
+			this.licenseFile = licenseFile;
 		}
 	}
 
-    private final static String MODULE_LICENSE_START = "MODULE_LICENSE(\"";
-    private final static String MODULE_LICENSE_END = "\")";
-    
-    private ArrayList<LicenseMatch> processModuleLicense(ArrayList<String> fileContent)
-    {
-		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+	/**
+	 * Values of the settings that affect matching in the current scan
+	 */
+	private String[] matchSettings;
 
-        /* This code supports only one MODULE_LICENSE texts per line */
-	    for (int l = 0; l < fileContent.size(); l++) {
-            String line = fileContent.get(l);
-            int modStart = line.indexOf(MODULE_LICENSE_START);
-            if(modStart >= 0) {
-                int modEnd = line.indexOf(MODULE_LICENSE_END, modStart+MODULE_LICENSE_START.length());
-                if(modEnd >= 0) {
-                    String modText = line.subSequence(modStart+MODULE_LICENSE_START.length(), modEnd).toString();
-                    Log.log(LogEntry.DEBUG, "Found MODULE_LICENSE: " + modText);                    
-                    License license = licenseDatabase.getModuleLicense(modText);
-                    if (license != null) {
-                        MatchPosition mp = new MatchPosition(l, modStart,
-                                                             l, modEnd+MODULE_LICENSE_END.length(),
-                                                             0, 0,
-                                                             0, 0,
-                                                             0, 0
-                                                             );
-                        
-                        ArrayList<MatchPosition> positions  = new ArrayList<MatchPosition>();
-                        positions.add(mp);
-                        
-                        LicenseMatch m = null;
-                        
-                        if (license instanceof ForbiddenPhrase) {
-                            m = new ForbiddenPhraseMatch(license, mp);
-                        }
-                        else {
-                            m = new LicenseMatch(license, positions);
-                        }
-                        
-                        m.setMatchPr(1.0f);
-                        matches.add(m);
-
-                        Log.log(LogEntry.DEBUG, "Added match: " + m);                    
-                    }
-                }
-            }
-        }
-        return matches;
-    }
-    
-    
-	private void processLicenseFile(PackageFile pf) {
-		FileID file = pf.getFileID();
+	/**
+	 * Digest of the license database and matchSettings, null if it
+	 * could not be computed
+	 */
+	private byte[] databaseDigest;
+
+	/**
+	 * Previous scan of the package, null if all files are scanned
+	 */
+	private ScanState previousState;
+
+	/**
+	 * Size, modification time and references of the files scanned so far
+	 */
+	private HashMap<FileID, ScanState.FileState> fileStates;
+
+	/**
+	 * Files whose results were taken from previousState
+	 */
+	private HashSet<FileID> reusedFiles;
+
+	/**
+	 * Files whose "*" references are expanded, null for all files
+	 */
+	private HashSet<FileID> expandedFiles;
+
+	/**
+	 * State of the last finished scan
+	 */
+	private ScanState scanState;
+
+	/**
+	 * Get the state of the previous scan of a file.
+	 * 
+	 * @param file The file
+	 * @return File state or null
+	 */
+	private ScanState.FileState previousFileState(FileID file) {
+		if (previousState == null) return null;
+		return previousState.files.get(file);
+	}
+
+	/**
+	 * Use the results of the previous scan for an unchanged file.
+	 * 
+	 * @param task The file
+	 * @param old Previous state of the file
+	 * @param size Current size of the file
+	 * @param lastModified Current modification time of the file
+	 */
+	private void reuseFileState(FileTask task, ScanState.FileState old,
+			long size, long lastModified) {
+		Log.log(LogEntry.DEBUG, task.file + ": unchanged");
+		
+		ScanState.FileState state = new ScanState.FileState(size,
+				lastModified, old.key);
+		state.rawReferences = old.rawReferences;
+		
+		task.matches = old.matches;
+		task.state = state;
+		task.reused = true;
+	}
+
+	/**
+	 * Get the references from a file.
+	 * 
+	 * @param file The file
+	 * @param refList References found by a parser
+	 * @return References whose source is the file
+	 */
+	private static ArrayList<Reference> ownReferences(FileID file,
+			ArrayList<Reference> refList) {
+		ArrayList<Reference> own = new ArrayList<Reference>();
+		for (Reference r : refList) {
+			if (file.equals(r.sourceFile)) own.add(r);
+		}
+		return own;
+	}
+
+	/**
+	 * Get the values of the settings that affect the results of a file.
+	 * Missing settings are set to their default values first.
+	 * 
+	 * @return Setting values
+	 */
+	private String[] loadMatchSettings() {
+		LicenseMatcher.loadSettings();
+		matchThreshold();
+		matchAlgorithm();
+		headerScan();
+		intSetting("headerMaxLines", HEADER_MAX_LINES);
+		intSetting("headerMaxWords", HEADER_MAX_WORDS);
+		
+		String[] settingNames = { "matchThreshold", "minMatchLengthWords",
+				"maxMatchCandidates", "matchAlgorithm", "scanMode",
+				"headerMaxLines", "headerMaxWords" };
+		String[] settings = new String[settingNames.length];
+		for (int i = 0; i < settingNames.length; i++)
+			settings[i] = getSetting(settingNames[i]);
+		return settings;
+	}
+
+	/**
+	 * Get the result cache file given by setting "resultCache": "off" (the
+	 * default), "home" for a cache file in the home directory, or the
+	 * path of a cache file.
+	 * 
+	 * @return Cache file, null if not used
+	 */
+	private File resultCacheFile() {
+		String s = getSetting("resultCache");
+		if ((s == null) || (s.length() == 0)) {
+			setSetting("resultCache", "off");
+			return null;
+		}
+		if (s.equals("off")) return null;
+		
+		if (s.equals("home")) {
+			return new File(getHomeDir() + resultCacheFileName);
+		} else {
+			return new File(s);
+		}
+	}
+
+	/**
+	 * Compute the digest of the license database and matchSettings.
+	 * 
+	 * @return Digest, null if the license directory cannot be read
+	 */
+	private byte[] computeDatabaseDigest() {
+		try {
+			return ResultCache.databaseDigest(new File(licenseDirectory),
+					matchSettings);
+		} catch (IOException e) {
+			Log.log(LogEntry.ERROR, "Cannot read license directory: "
+					+ e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Open the result cache, see resultCacheFile().
+	 * 
+	 * @return Result cache, null if not used
+	 */
+	private ResultCache openResultCache() {
+		File cacheFile = resultCacheFile();
+		if ((cacheFile == null) || (databaseDigest == null)) return null;
 		
 		try {
+			return new ResultCache(cacheFile, databaseDigest, allLicenses);
 			
-			// Get file contents and turn them into CommentLine:s
-			ArrayList<String> fileContent = pf.getContents();
-			ArrayList<CommentLine> fileContentAsComments = new ArrayList<CommentLine>();
-			int lineNumber = 0;
-			for (String line : fileContent)
-				fileContentAsComments.add(new CommentLine(line,
-						lineNumber++, 0));
+		} catch (Exception e) {
+			Log.log(LogEntry.ERROR, "Result cache not used: " + e.getMessage());
+			return null;
+		}
+	}
 
-			// Match the licenses
-			ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
-			// for (AlgorithmDescription algorithm : algorithms)
-			/*
-			for (LicenseMatcher.MatchAlgorithm algorithm : LicenseMatcher.MatchAlgorithm
-					.values())
-				for (License license : licenseDatabase.getLicenses())
-					matches.add(LicenseMatcher.match(
-                        fileContentAsComments, license, algorithm));
-			licenseMatches.put(file, matches);
-			*/
+	/**
+	 * Add references of a file to the found references.
+	 * 
+	 * @param refList References
+	 */
+	private void addReferences(ArrayList<Reference> refList) {
+		if(references == null) {
+			references = referencesToMap(refList);
+		} else {
+			references.putAll(referencesToMap(refList));
+		}
+	}
 
-			matches.addAll(LicenseMatcher.match(fileContentAsComments,
-					allLicenses,
-					LicenseMatcher.MatchAlgorithm.EXACT,
-					matchThreshold()));
-/*					for (License license : licenseDatabase.getLicenses()) {
-				LicenseMatch match = LicenseMatcher.match(fileContentAsComments,
-						license, LicenseMatcher.MatchAlgorithm.EXACT);
-				if(match != null) {
-					matches.add(match);
-				}
-			}*/
-			
-			licenseMatches.put(file, matches);
-			
-        } catch (Exception e) {
+	/**
+	 * Store the results of a scanned file.
+	 * 
+	 * @param task The scanned file
+	 */
+	private void storeResult(FileTask task) {
+		FileID file = task.file;
+		
+		if (task.matches != null)
+			licenseMatches.put(file, task.matches);
+		if (task.references != null)
+			addReferences(task.references);
+		if (task.state != null)
+			fileStates.put(file, task.state);
+		if (task.reused)
+			reusedFiles.add(file);
+		
+		if (task.exception != null) {
         	/* if this is the first exception for this file,
         	 * create a new exception list */
 			if (!fileExceptions.containsKey(file))
 				fileExceptions.put(file, new ArrayList<Exception>());
 			
-			fileExceptions.get(file).add(e); 
-        }
+			fileExceptions.get(file).add(task.exception);
+		}
 	}
-
+	
 	/**
-	 * Runs all processing steps for the package.
-	 * <li>Sort files to source files,license files and unknown files
-	 * <li>Scan source files
-	 * <li>Scan license files
-	 * <li>Determine references
-	 * <li>Determine license conflicts
+	 * Scan the source and license files of the package. One thread
+	 * iterates the package and sorts the files, a number of worker
+	 * threads (setting "scanThreads", 0 for the number of processors,
+	 * the default) parse and match them, and the calling thread stores
+	 * the results. The results are stored in package order, so they do
+	 * not depend on the number of threads. A file that takes long keeps
+	 * the results after it waiting, so the number of files read but not
+	 * stored is limited to the length of a queue.
 	 * 
+	 * @param count Number of files in the package for progress events,
+	 *            0 if not known
+	 * @return false if processing was canceled
+	 * @throws Exception if iterating the package fails
 	 */
-	public void processPackage() {
+	private boolean scanFiles(int count) throws Exception {
+		final int threads = scanThreads();
 		
-		int index = 0, count = 0;
+		/* the queues are bounded so that reading cannot run far ahead
+		 * of matching */
+		final BlockingQueue<FileTask> tasks =
+			new ArrayBlockingQueue<FileTask>(threads * QUEUE_LENGTH_PER_THREAD);
+		final BlockingQueue<FileTask> results =
+			new ArrayBlockingQueue<FileTask>(threads * QUEUE_LENGTH_PER_THREAD);
 		
-		// reset cancel state
-		canceled = false;
-
-		// hack
-		if(licenseDatabase == null)
-			buildLicenseDatabase();
+		/* a permit for each file that is read but not stored */
+		final Semaphore inFlight =
+			new Semaphore(threads * QUEUE_LENGTH_PER_THREAD);
 		
-		// hack2?
-		reset();
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		ArrayList<Future<Void>> stages = new ArrayList<Future<Void>>();
 		
 		try {
-			files = new ArrayList<FileID>();
-
-			/* numFiles() will take a while so hack-optimize it away */
-			if(listenerList.getListenerCount() > 0) {
-				count = numFiles(filePackage);
-				if(canceled) {
-					fireProcessCanceledEvent();
-					return;
+			stages.add(executor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					readFiles(tasks, results, inFlight, threads);
+					return null;
 				}
-				index = 0;
-				Log.log(LogEntry.VERBOSE, "Found " + count + " files.");
+			}));
+			for (int i = 0; i < threads; i++) {
+				stages.add(executor.submit(new Callable<Void>() {
+					public Void call() throws Exception {
+						processFiles(tasks, results);
+						return null;
+					}
+				}));
 			}
-
-			fireProcessBegunEvent();
 			
-			Iterator<PackageFile> i = filePackage.iterator();
-
-			while(i.hasNext()) {
-				
-				if(canceled) {
-					// TODO: need to clear some state before canceling?
-					fireProcessCanceledEvent();
-					return;
-				}
+			/* results that arrived before the files preceding them */
+			HashMap<Integer, FileTask> waiting = new HashMap<Integer, FileTask>();
+			int next = 0;
+			int total = -1;
+			
+			while ((total < 0) || (next < total)) {
 				
-				PackageFile pf = i.next();
-				FileID file = pf.getFileID();
+				if (canceled) return false;
 				
-				/* ignore files in excluded directories */
-				if(isExcluded(file)) {
-					Log.log(LogEntry.DEBUG, file + ": excluded");
+				FileTask task = results.poll(POLL_INTERVAL_MS,
+						TimeUnit.MILLISECONDS);
+				if (task == null) {
+					/* rethrow the exceptions of failed threads */
+					for (Future<Void> stage : stages) {
+						if (stage.isDone()) stage.get();
+					}
 					continue;
 				}
 				
-				files.add(file);
-			
-				// Is the file a source file?
-				if (SourceParserFactory.isSourceFile(file)) {
-					Log.log(LogEntry.DEBUG, file + ": source file");
-					
-					sourceFiles.add(file);
-					
-					fireProcessEvent(file, index, count);
-					processSourceFile(pf);
-					index++;
-					
+				/* the reader is done */
+				if (task.file == null) {
+					total = task.sequence;
 					continue;
 				}
-					
-				// Is it license file?
-				boolean known = false;
-				for (String licenseFileName : licenseFileNames) {
-					// Use HashSet if licenseFileNames is longer
-					if (file.name.equalsIgnoreCase(licenseFileName)) {
-						Log.log(LogEntry.DEBUG, file + ": license file");
-						
-						licenseFiles.add(file);
-
-						fireProcessEvent(file, index, count);
-						processLicenseFile(pf);
-						index++;
-						known = true;
-						break;
-					}
-				}
-			
-				if(!known) {
-			
-					// It must be unknown file
-					Log.log(LogEntry.DEBUG, file + ": unknown file"); 
-			
-					unknownFiles.add(file);
-					index++;
-				}
 				
+				waiting.put(Integer.valueOf(task.sequence), task);
+				
+				FileTask t;
+				while ((t = waiting.remove(Integer.valueOf(next))) != null) {
+					fireProcessEvent(t.file, t.index, count);
+					storeResult(t);
+					inFlight.release();
+					next++;
+				}
 			}
 			
-			if(files.size() == 0) {
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Iterate the package, sort the files to source files, license files
+	 * and unknown files, and queue the source and license files for
+	 * scanning.
+	 * 
+	 * @param tasks Queue for the files to scan
+	 * @param results Queue for the results, gets the number of queued
+	 *            files when the package has been iterated
+	 * @param inFlight Permits for the files that are read but not
+	 *            stored, one is taken for each queued file
+	 * @param workers Number of worker threads
+	 * @throws InterruptedException if the scan is stopped
+	 */
+	private void readFiles(BlockingQueue<FileTask> tasks,
+			BlockingQueue<FileTask> results, Semaphore inFlight, int workers)
+			throws InterruptedException {
+		
+		int index = 0, sequence = 0;
+		
+		Iterator<PackageFile> i = filePackage.iterator();
+
+		while(i.hasNext() && !canceled) {
+			
+			PackageFile pf = i.next();
+			FileID file = pf.getFileID();
+			
+			/* ignore files in excluded directories */
+			if(isExcluded(file)) {
+				Log.log(LogEntry.DEBUG, file + ": excluded");
+				continue;
+			}
+			
+			files.add(file);
+			
+			FileTask task = null;
+		
+			// Is the file a source file?
+			if (SourceParserFactory.isSourceFile(file)) {
+				Log.log(LogEntry.DEBUG, file + ": source file");
+				
+				sourceFiles.add(file);
+				task = new FileTask(pf, false);
+				
+			} else {
+				
+				// Is it license file?
+				for (String licenseFileName : licenseFileNames) {
+					// Use HashSet if licenseFileNames is longer
+					if (file.name.equalsIgnoreCase(licenseFileName)) {
+						Log.log(LogEntry.DEBUG, file + ": license file");
+						
+						licenseFiles.add(file);
+						task = new FileTask(pf, true);
+						break;
+					}
+				}
+			}
+		
+			if (task != null) {
+				task.sequence = sequence++;
+				task.index = index;
+				inFlight.acquire();
+				tasks.put(task);
+			} else {
+				// It must be unknown file
+				Log.log(LogEntry.DEBUG, file + ": unknown file"); 
+		
+				unknownFiles.add(file);
+			}
+			index++;
+		}
+		
+		/* stop the workers and tell the collector the number of files */
+		for (int w = 0; w < workers; w++)
+			tasks.put(new FileTask(null, false));
+		
+		FileTask last = new FileTask(null, false);
+		last.sequence = sequence;
+		results.put(last);
+	}
+	
+	/**
+	 * Scan queued files until an empty task is found.
+	 * 
+	 * @param tasks Queue of files to scan
+	 * @param results Queue for the scanned files
+	 * @throws InterruptedException if the scan is stopped
+	 */
+	private void processFiles(BlockingQueue<FileTask> tasks,
+			BlockingQueue<FileTask> results) throws InterruptedException {
+		
+		while (true) {
+			FileTask task = tasks.take();
+			if (task.file == null) return;
+			
+			if (task.licenseFile) {
+				processLicenseFile(task);
+			} else {
+				processSourceFile(task);
+			}
+			
+			/* the contents are not needed any more */
+			task.packageFile = null;
+			
+			results.put(task);
+		}
+	}
+
+	private void processSourceFile(FileTask task) {
+		PackageFile pf = task.packageFile;
+		FileID file = task.file;
+		
+		try {
+			
+			Log.log(LogEntry.VERBOSE, "Processing file: " + file);
+
+			/* results of the previous scan */
+			long size = pf.getSize();
+			long lastModified = pf.getLastModified();
+			ScanState.FileState old = previousFileState(file);
+			if ((old != null) && old.isUnchanged(size, lastModified)) {
+				reuseFileState(task, old, size, lastModified);
+				return;
+			}
+			
+			ArrayList<String> fileContent = null;
+			ResultCache.Key cacheKey = null;
+			if ((resultCache != null) || (old != null)) {
+				fileContent = pf.getContents();
+				cacheKey = ResultCache.key(file, fileContent);
+				
+				if ((old != null) && cacheKey.equals(old.key)) {
+					reuseFileState(task, old, size, lastModified);
+					return;
+				}
+			}
+			
+			ScanState.FileState state = new ScanState.FileState(size,
+					lastModified, cacheKey);
+			
+			/* results of an earlier run */
+			if (resultCache != null) {
+				ResultCache.Result cached = resultCache.get(cacheKey, file);
+				if (cached != null) {
+					task.matches = cached.matches;
+					task.references = cached.references;
+					state.rawReferences = cached.references;
+					task.state = state;
+					return;
+				}
+			}
+
+			SourceParser parser = SourceParserFactory.getSourceParser(file);
+			boolean header = headerScan();
+			int maxLines = intSetting("headerMaxLines", HEADER_MAX_LINES);
+			int maxWords = intSetting("headerMaxWords", HEADER_MAX_WORDS);
+			ByteBuffer bytes = null;
+			boolean stopped = false;
+			ArrayList<CommentLine> comments;
+			ArrayList<SourceMarker> markers;
+			ArrayList<Reference> references;
+
+			if (fileContent != null) {
+				// Scan the file
+				parser.scanFile(file, fileContent);
+				comments = parser.getComments();
+				markers = parser.getMarkers();
+				references = parser.getReferences();
+			} else {
+				// Scan the bytes of the file, only the comments are decoded.
+				// There is no cache and no previous scan to use a key.
+				bytes = pf.getBytes();
+				
+				SourceCollector collector;
+				if (header) {
+					/* the bytes after the header are not decoded unless
+					 * the header has references or markers */
+					HeaderCollector headerCollector =
+						new HeaderCollector(maxLines, maxWords);
+					parser.scanFile(file, bytesReader(bytes), headerCollector);
+					stopped = headerCollector.isStopped();
+					collector = headerCollector;
+				} else {
+					collector = new SourceCollector();
+					parser.scanFile(file, bytes, collector);
+				}
+				comments = collector.getComments();
+				markers = collector.getMarkers();
+				references = collector.getReferences();
+			}
+			
+			ArrayList<LicenseMatch> matches = null;
+			if (header) {
+				ArrayList<CommentLine> headerLines = headerComments(comments,
+						maxLines, maxWords);
+				matches = matchComments(file, headerLines, markers);
+				
+				if ((stopped || (headerLines.size() < comments.size()))
+						&& !isCompleteHeaderMatch(matches)) {
+					Log.log(LogEntry.VERBOSE,
+							"No complete license in header, matching all comments: "
+							+ file);
+					matches = null;
+				}
+			}
+			if ((matches == null) && stopped) {
+				/* the rest of the file is in the same buffer */
+				SourceCollector collector = new SourceCollector();
+				parser.scanFile(file, bytes, collector);
+				comments = collector.getComments();
+				markers = collector.getMarkers();
+				references = collector.getReferences();
+			}
+			if (matches == null) {
+				matches = matchComments(file, comments, markers);
+			}
+
+			task.matches = matches;
+
+			// Get references from scanned source files
+			task.references = references;
+			
+			state.rawReferences = ownReferences(file, references);
+			task.state = state;
+			
+			if (resultCache != null) {
+				resultCache.put(cacheKey, file, matches, references);
+			}
+			
+		} catch (Exception e) {
+			task.exception = e;
+		}
+	}
+
+	/**
+	 * Open a reader of bytes in the platform charset. The bytes are
+	 * decoded as they are read, so the bytes after the point where the
+	 * reader is no longer read are not decoded.
+	 * 
+	 * @param bytes Contents from the position to the limit of the buffer
+	 * @return Reader of the contents
+	 */
+	private static Reader bytesReader(ByteBuffer bytes) {
+		final ByteBuffer in = bytes.duplicate();
+		return new InputStreamReader(new InputStream() {
+			public int read() {
+				return in.hasRemaining() ? (in.get() & 0xff) : -1;
+			}
+			
+			public int read(byte[] b, int off, int len) {
+				if (len == 0) return 0;
+				if (!in.hasRemaining()) return -1;
+				len = Math.min(len, in.remaining());
+				in.get(b, off, len);
+				return len;
+			}
+		});
+	}
+
+	/**
+	 * Match the comments of a source file.
+	 * 
+	 * @param file The file
+	 * @param comments Comments of the file
+	 * @param markers Markers found outside the comments
+	 * @return Found matches
+	 */
+	private ArrayList<LicenseMatch> matchComments(FileID file,
+			ArrayList<CommentLine> comments, ArrayList<SourceMarker> markers)
+			throws Exception {
+
+		// Match the licenses
+		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+
+		/*
+		 * for (LicenseMatcher.MatchAlgorithm algorithm :
+		 * LicenseMatcher.MatchAlgorithm .values()) for (License
+		 * license : licenseDatabase.getLicenses())
+		 * matches.add(LicenseMatcher.match(parser .getComments(),
+		 * license, algorithm));
+		 */
+
+		/* SPDX identifiers, the other comments are matched only if
+		 * they contain license-like text */
+		ArrayList<LicenseMatch> spdxMatches = new ArrayList<LicenseMatch>();
+		ArrayList<CommentLine> otherComments = new ArrayList<CommentLine>();
+		boolean spdxResolved = processSpdxIdentifiers(comments,
+				spdxMatches, otherComments);
+		
+		if (spdxMatches.isEmpty() || !spdxResolved
+				|| LicenseMatcher.hasLicenseText(otherComments,
+						licenseDatabase.getIndex())) {
+			matches.addAll(LicenseMatcher.match(comments,
+					licenseDatabase.getIndex(),
+					matchAlgorithm(),
+					matchThreshold()));
+		} else {
+			Log.log(LogEntry.DEBUG, "Only SPDX identifiers, not matching: " + file);
+		}
+		matches.addAll(spdxMatches);
+
+		/*for (License license : licenseDatabase.getLicenses()) {
+			LicenseMatch match = LicenseMatcher.match(parser.getComments(),
+					license, LicenseMatcher.MatchAlgorithm.EXACT);
+			if(match != null) {
+				matches.add(match);
+			}
+		}*/
+
+		matches.addAll(processModuleLicense(markers));
+		
+		return matches;
+	}
+	
+	/**
+	 * Get the comment lines of the file header: the lines that contain
+	 * the first words of the comments, on the first lines of the file.
+	 * 
+	 * @param comments Comment lines
+	 * @param maxLines Number of lines of the file
+	 * @param maxWords Number of words
+	 * @return The first lines that contain at least maxWords words, or
+	 *         all lines before line maxLines
+	 */
+	private static ArrayList<CommentLine> headerComments(
+			ArrayList<CommentLine> comments, int maxLines, int maxWords) {
+		
+		ArrayList<CommentLine> first = new ArrayList<CommentLine>();
+		int words = 0;
+		for (CommentLine line : comments) {
+			if ((words >= maxWords)
+					|| (line.getSourceLineNumber() >= maxLines)) break;
+			
+			first.add(line);
+			words += WordList.countWords(line.getContent());
+		}
+		return first;
+	}
+	
+	/**
+	 * Check if the matches of a file header can be used as the result
+	 * for the whole file: a license was found and every license was
+	 * found completely.
+	 * 
+	 * @param matches Matches found in the header
+	 * @return true if the header result is unambiguous
+	 */
+	private static boolean isCompleteHeaderMatch(ArrayList<LicenseMatch> matches) {
+		boolean found = false;
+		for (LicenseMatch m : matches) {
+			if (m instanceof ForbiddenPhraseMatch) continue;
+			
+			if (m.getMatchPr() < 1.0f) return false;
+			found = true;
+		}
+		return found;
+	}
+
+	private final static String SPDX_IDENTIFIER = "SPDX-License-Identifier:";
+
+	/**
+	 * Find SPDX-License-Identifier lines in comments. The expression of
+	 * each line is looked up in the license database as a whole, and if
+	 * it is not there, it is parsed and its parts are looked up. The
+	 * exception of a WITH operator is added if it is in the database.
+	 * <p>
+	 * Licenses that are alternatives of each other in an OR expression
+	 * get each other as alternatives of their matches, so they are not
+	 * reported as conflicts.
+	 * 
+	 * @param comments Comments of a file
+	 * @param matches Found licenses are added here with matchPr 1.0
+	 * @param otherComments The comments that have no identifier are
+	 *            added here
+	 * @return false if an identifier was not in the database or an
+	 *         expression could not be parsed
+	 */
+	private boolean processSpdxIdentifiers(ArrayList<CommentLine> comments,
+			ArrayList<LicenseMatch> matches,
+			ArrayList<CommentLine> otherComments) {
+		boolean resolved = true;
+		
+		for (CommentLine line : comments) {
+			String content = line.getContent();
+			int start = content.indexOf(SPDX_IDENTIFIER);
+			if (start < 0) {
+				otherComments.add(line);
+				continue;
+			}
+			
+			/* the expression ends at the end of the comment */
+			String expression = content.substring(start + SPDX_IDENTIFIER.length());
+			int end = expression.indexOf("*/");
+			if (end >= 0) expression = expression.substring(0, end);
+			expression = expression.trim();
+			Log.log(LogEntry.DEBUG, "Found SPDX-License-Identifier: " + expression);
+			
+			ArrayList<ArrayList<License>> choices = new ArrayList<ArrayList<License>>();
+			License license = licenseDatabase.getSpdxLicense(expression);
+			if (license != null) {
+				choices.add(new ArrayList<License>());
+				choices.get(0).add(license);
+			} else {
+				SpdxExpression parsed = SpdxExpression.parse(expression);
+				if (parsed == null) {
+					Log.log(LogEntry.DEBUG, "Invalid SPDX expression: " + expression);
+					resolved = false;
+					continue;
+				}
+				
+				ArrayList<String> unknown = new ArrayList<String>();
+				choices = parsed.getChoices(licenseDatabase, unknown);
+				for (String id : unknown) {
+					Log.log(LogEntry.DEBUG, "SPDX identifier not found: " + id);
+					resolved = false;
+				}
+			}
+			
+			/* every license once, in the order of the expression */
+			ArrayList<License> licenses = new ArrayList<License>();
+			for (ArrayList<License> choice : choices) {
+				for (License l : choice) {
+					if (!licenses.contains(l)) licenses.add(l);
+				}
+			}
+			
+			int row = line.getSourceLineNumber();
+			int col = line.getCommentStartColumn() + start;
+			for (License l : licenses) {
+				MatchPosition mp = new MatchPosition(row, col,
+						row, line.getCommentStartColumn() + content.length() - 1,
+						0, 0, 0, 0, 0, 0);
+				
+				LicenseMatch m;
+				if (l instanceof ForbiddenPhrase) {
+					m = new ForbiddenPhraseMatch(l, mp);
+				} else {
+					ArrayList<MatchPosition> positions = new ArrayList<MatchPosition>();
+					positions.add(mp);
+					m = new LicenseMatch(l, positions);
+				}
+				m.setMatchPr(1.0f);
+				
+				/* licenses that are never in the same choice as l */
+				for (License other : licenses) {
+					boolean together = false;
+					for (ArrayList<License> choice : choices) {
+						if (choice.contains(l) && choice.contains(other)) {
+							together = true;
+							break;
+						}
+					}
+					if (!together) m.addAlternative(other);
+				}
+				matches.add(m);
+			}
+		}
+		
+		return resolved;
+	}
+
+    /**
+     * Get the licenses of MODULE_LICENSE markers. The parser finds the
+     * markers while it extracts the comments, so the file content is not
+     * scanned again.
+     * 
+     * @param markers Markers found by the source parser
+     * @return Found matches
+     */
+    private ArrayList<LicenseMatch> processModuleLicense(ArrayList<SourceMarker> markers)
+    {
+		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+
+        /* The parser supports only one MODULE_LICENSE texts per line */
+	    for (SourceMarker marker : markers) {
+            String modText = marker.getValue();
+            Log.log(LogEntry.DEBUG, "Found MODULE_LICENSE: " + modText);                    
+            License license = licenseDatabase.getModuleLicense(modText);
+            if (license != null) {
+                int l = marker.getLineNumber();
+                MatchPosition mp = new MatchPosition(l, marker.getStartColumn(),
+                                                     l, marker.getEndColumn(),
+                                                     0, 0,
+                                                     0, 0,
+                                                     0, 0
+                                                     );
+                
+                ArrayList<MatchPosition> positions  = new ArrayList<MatchPosition>();
+                positions.add(mp);
+                
+                LicenseMatch m = null;
+                
+                if (license instanceof ForbiddenPhrase) {
+                    m = new ForbiddenPhraseMatch(license, mp);
+                }
+                else {
+                    m = new LicenseMatch(license, positions);
+                }
+                
+                m.setMatchPr(1.0f);
+                matches.add(m);
+
+                Log.log(LogEntry.DEBUG, "Added match: " + m);                    
+            }
+        }
+        return matches;
+    }    
+    
+	private void processLicenseFile(FileTask task) {
+		PackageFile pf = task.packageFile;
+		FileID file = task.file;
+		
+		try {
+			
+			/* results of the previous scan */
+			long size = pf.getSize();
+			long lastModified = pf.getLastModified();
+			ScanState.FileState old = previousFileState(file);
+			if ((old != null) && old.isUnchanged(size, lastModified)) {
+				reuseFileState(task, old, size, lastModified);
+				return;
+			}
+			
+			// Get file contents and turn them into CommentLine:s
+			ArrayList<String> fileContent = pf.getContents();
+			
+			ResultCache.Key cacheKey = null;
+			if ((resultCache != null) || (old != null)) {
+				cacheKey = ResultCache.key(file, fileContent);
+				
+				if ((old != null) && cacheKey.equals(old.key)) {
+					reuseFileState(task, old, size, lastModified);
+					return;
+				}
+			}
+			
+			ScanState.FileState state = new ScanState.FileState(size,
+					lastModified, cacheKey);
+			state.rawReferences = new ArrayList<Reference>();
+			
+			/* results of an earlier run */
+			if (resultCache != null) {
+				ResultCache.Result cached = resultCache.get(cacheKey, file);
+				if (cached != null) {
+					task.matches = cached.matches;
+					task.state = state;
+					return;
+				}
+			}
+			
+			ArrayList<CommentLine> fileContentAsComments = new ArrayList<CommentLine>();
+			int lineNumber = 0;
+			for (String line : fileContent)
+				fileContentAsComments.add(new CommentLine(line,
+						lineNumber++, 0));
+
+			// Match the licenses
+			ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+			// for (AlgorithmDescription algorithm : algorithms)
+			/*
+			for (LicenseMatcher.MatchAlgorithm algorithm : LicenseMatcher.MatchAlgorithm
+					.values())
+				for (License license : licenseDatabase.getLicenses())
+					matches.add(LicenseMatcher.match(
+                        fileContentAsComments, license, algorithm));
+			licenseMatches.put(file, matches);
+			*/
+
+			matches.addAll(LicenseMatcher.match(fileContentAsComments,
+					licenseDatabase.getIndex(),
+					matchAlgorithm(),
+					matchThreshold()));
+/*					for (License license : licenseDatabase.getLicenses()) {
+				LicenseMatch match = LicenseMatcher.match(fileContentAsComments,
+						license, LicenseMatcher.MatchAlgorithm.EXACT);
+				if(match != null) {
+					matches.add(match);
+				}
+			}*/
+			
+			task.matches = matches;
+			task.state = state;
+			
+			if (resultCache != null) {
+				resultCache.put(cacheKey, file, matches,
+						new ArrayList<Reference>());
+			}
+			
+        } catch (Exception e) {
+			task.exception = e;
+        }
+	}
+
+	/**
+	 * Runs all processing steps for the package.
+	 * <li>Sort files to source files,license files and unknown files
+	 * <li>Scan source files
+	 * <li>Scan license files
+	 * <li>Determine references
+	 * <li>Determine license conflicts
+	 * 
+	 */
+	public void processPackage() {
+		processPackage(null);
+	}
+
+	/**
+	 * Runs all processing steps for the package, like processPackage(),
+	 * but reuses the results of the files that have not changed since
+	 * a previous scan of the same package. The post-processing steps
+	 * are repeated only for the files that changed and for the files
+	 * that refer to them.
+	 * 
+	 * @param previous State of the previous scan from getScanState(),
+	 *            null to scan all files
+	 */
+	public void processPackage(ScanState previous) {
+		
+		int count = 0;
+		
+		// reset cancel state
+		canceled = false;
+
+		// hack
+		if(licenseDatabase == null)
+			buildLicenseDatabase();
+		
+		// hack2?
+		reset();
+		
+		matchSettings = loadMatchSettings();
+		databaseDigest = computeDatabaseDigest();
+		previousState = null;
+		if ((previous != null) && previous.isCompatible(
+				filePackage.getRootFile(), databaseDigest)) {
+			previousState = previous.forLicenses(allLicenses);
+		}
+		fileStates = new HashMap<FileID, ScanState.FileState>();
+		reusedFiles = new HashSet<FileID>();
+		expandedFiles = null;
+		scanState = null;
+		
+		resultCache = openResultCache();
+		
+		try {
+			files = new ArrayList<FileID>();
+
+			/* numFiles() will take a while so hack-optimize it away */
+			if(listenerList.getListenerCount() > 0) {
+				count = numFiles(filePackage);
+				if(canceled) {
+					fireProcessCanceledEvent();
+					return;
+				}
+				Log.log(LogEntry.VERBOSE, "Found " + count + " files.");
+			}
+
+			fireProcessBegunEvent();
+			
+			if (!scanFiles(count)) {
+				// TODO: need to clear some state before canceling?
+				fireProcessCanceledEvent();
+				return;
+			}
+			
+			if(files.size() == 0) {
 				Log.log(LogEntry.ERROR, "No source files found");
 			}
 			
+			Log.log(LogEntry.VERBOSE, "Match cache: "
+					+ licenseDatabase.getIndex().getMatchCacheHits() + " hits, "
+					+ licenseDatabase.getIndex().getMatchCacheMisses() + " misses");
+			
+			// Restore references of unchanged files
+			restoreReferences();
+			
 			// Clean found license info
 			processFoundLicenses();
 			
@@ -1054,6 +1923,13 @@ public class LicenseChecker {
 			
 			// Collect statistics
 			countLicenses();
+			
+			saveScanState();
+			if (previousState != null) {
+				Log.log(LogEntry.VERBOSE, "Reused results of "
+						+ reusedFiles.size() + " unchanged files");
+			}
+			previousState = null;
 
 		} catch (Exception e) {
 			ErrorManager.error(e); // TODO This kills the program
@@ -1062,9 +1938,204 @@ public class LicenseChecker {
 			// be implemented.
 		}
 		
+		if (resultCache != null) {
+			try {
+				resultCache.close();
+			} catch (Exception e) {
+				Log.log(LogEntry.ERROR, "Cannot write result cache: "
+						+ e.getMessage());
+			}
+			resultCache = null;
+		}
+		
 		fireProcessEndedEvent();
 	}
 
+	/**
+	 * Put the references of the reused files back to the found
+	 * references. The expanded references of the previous scan are used
+	 * unless a "*" reference points to a directory whose source files
+	 * changed; those are expanded again.
+	 */
+	private void restoreReferences() {
+		if (previousState == null) return;
+		
+		/* directories where source files were added or removed */
+		HashSet<String> changedDirs = new HashSet<String>();
+		HashSet<FileID> current = new HashSet<FileID>(sourceFiles);
+		for (FileID f : sourceFiles) {
+			if (!previousState.sourceFiles.contains(f)) changedDirs.add(f.path);
+		}
+		for (FileID f : previousState.sourceFiles) {
+			if (!current.contains(f)) changedDirs.add(f.path);
+		}
+		
+		expandedFiles = new HashSet<FileID>();
+		for (FileID f : fileStates.keySet()) {
+			if (!reusedFiles.contains(f)) {
+				expandedFiles.add(f);
+				continue;
+			}
+			
+			ScanState.FileState old = previousState.files.get(f);
+			
+			boolean expand = false;
+			for (Reference r : old.rawReferences) {
+				if ((r.targetFile != null) && (r.targetFile.name != null)
+						&& r.targetFile.name.startsWith("*")
+						&& changedDirs.contains(r.targetFile.path)) {
+					expand = true;
+					break;
+				}
+			}
+			
+			ArrayList<Reference> refList = expand
+				? new ArrayList<Reference>(old.rawReferences) : old.references;
+			if (expand) expandedFiles.add(f);
+			
+			if (refList == null) continue;
+			if (references == null)
+				references = new HashMap<FileID, ArrayList<Reference>>();
+			references.put(f, refList);
+		}
+	}
+	
+	/**
+	 * Store the results of the scan for getScanState().
+	 */
+	private void saveScanState() {
+		ScanState state = new ScanState(filePackage.getRootFile(),
+				allLicenses, databaseDigest, sourceFiles);
+		
+		for (FileID f : fileStates.keySet()) {
+			ScanState.FileState fs = fileStates.get(f);
+			fs.matches = licenseMatches.get(f);
+			if (fs.matches == null) continue;
+			
+			fs.references = (references == null) ? null : references.get(f);
+			fs.internalConflicts = internalLicenseConflicts.get(f);
+			if (fs.references != null) {
+				for (Reference r : fs.references) {
+					ArrayList<Pair<License, License>> conflicts =
+						licenseConflicts.get(r);
+					if (conflicts != null) fs.referenceConflicts.put(r, conflicts);
+				}
+			}
+			
+			state.files.put(f, fs);
+		}
+		
+		scanState = state;
+	}
+	
+	/**
+	 * Get the results of the last finished scan, for scanning the same
+	 * package again with processPackage(ScanState).
+	 * 
+	 * @return Scan state, null if no scan has finished
+	 */
+	public ScanState getScanState() {
+		return scanState;
+	}
+	
+	/**
+	 * Get the number of files whose results were reused from the
+	 * previous scan in the last processPackage().
+	 * 
+	 * @return Number of unchanged files
+	 */
+	public int getNumReusedFiles() {
+		return (reusedFiles == null) ? 0 : reusedFiles.size();
+	}
+	
+	/**
+	 * Get the file of the scan state of the open package, next to the
+	 * result cache.
+	 * 
+	 * @return State file, null if the result cache is not used
+	 */
+	private File scanStateFile() {
+		File cacheFile = resultCacheFile();
+		if ((cacheFile == null) || (filePackage == null)) return null;
+		return ScanState.getFile(cacheFile, filePackage.getRootFile());
+	}
+	
+	/**
+	 * Read the state of the previous scan of the open package, written
+	 * by writeScanState() of an earlier run. States are only kept when
+	 * the result cache is used.
+	 * 
+	 * @return Scan state for processPackage(ScanState), null if there is
+	 *         no state for the current licenses and settings
+	 */
+	public ScanState readScanState() {
+		File stateFile = scanStateFile();
+		if ((stateFile == null) || !stateFile.exists()) return null;
+		
+		if (licenseDatabase == null)
+			buildLicenseDatabase();
+		matchSettings = loadMatchSettings();
+		databaseDigest = computeDatabaseDigest();
+		
+		try {
+			ScanState state = ScanState.read(stateFile, allLicenses);
+			if ((state != null) && state.isCompatible(
+					filePackage.getRootFile(), databaseDigest)) {
+				return state;
+			}
+		} catch (IOException e) {
+			Log.log(LogEntry.ERROR, "Cannot read scan state " + stateFile
+					+ ": " + e.getMessage());
+		}
+		return null;
+	}
+	
+	/**
+	 * Write the state of the last finished scan next to the result
+	 * cache, for readScanState() of a later run. Does nothing if the
+	 * result cache is not used.
+	 */
+	public void writeScanState() {
+		File stateFile = scanStateFile();
+		if ((stateFile == null) || (scanState == null)) return;
+		
+		try {
+			scanState.write(stateFile);
+		} catch (IOException e) {
+			Log.log(LogEntry.ERROR, "Cannot write scan state " + stateFile
+					+ ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Check if the conflicts of a file can be taken from the previous
+	 * scan: the file and its references are unchanged and so are the
+	 * files it refers to.
+	 * 
+	 * @param f The file
+	 * @return true if the conflicts of the previous scan are valid
+	 */
+	private boolean hasUnchangedConflicts(FileID f) {
+		if ((previousState == null) || !reusedFiles.contains(f)
+				|| expandedFiles.contains(f)) {
+			return false;
+		}
+		
+		ArrayList<Reference> refList = getReferences(f);
+		if (refList == null) return true;
+		
+		for (Reference ref : refList) {
+			if ((ref.referenceType != Reference.ReferenceType.IMPORT
+					&& ref.referenceType != Reference.ReferenceType.STATIC_INCLUDE)) {
+				continue;
+			}
+			if (ref.targetFile == null) continue;
+			
+			if (!reusedFiles.contains(ref.targetFile)) return false;
+		}
+		return true;
+	}
+	
 	/**
 	 * Determine best found licenses for all files.
 	 */
@@ -1078,6 +2149,9 @@ public class LicenseChecker {
 		 * remove duplicate licenses */
 		
 		for (FileID f : files) {
+			/* reused results have been cleaned already */
+			if (reusedFiles.contains(f)) continue;
+			
 			ArrayList<LicenseMatch> matches = getLicenseMatches(f);
 			if(matches == null) continue;
 
@@ -1205,8 +2279,25 @@ public class LicenseChecker {
 		
 		if (references == null) return;
 		
-		for (ArrayList<Reference> refList : references.values()) {
+		/* source files by directory */
+		HashMap<String, ArrayList<FileID>> sourceDirs =
+			new HashMap<String, ArrayList<FileID>>();
+		for (FileID f : sourceFiles) {
+			ArrayList<FileID> dir = sourceDirs.get(f.path);
+			if (dir == null) {
+				dir = new ArrayList<FileID>();
+				sourceDirs.put(f.path, dir);
+			}
+			dir.add(f);
+		}
+		
+		for (Map.Entry<FileID, ArrayList<Reference>> entry : references.entrySet()) {
+			
+			/* the references of unchanged files were expanded already */
+			if ((expandedFiles != null) && !expandedFiles.contains(entry.getKey()))
+				continue;
 			
+			ArrayList<Reference> refList = entry.getValue();
 			ArrayList<Reference> addList = null;
 			ArrayList<Reference> delList = null;
 			
@@ -1223,7 +2314,11 @@ public class LicenseChecker {
 					
 					boolean foundTarget = false;
 					
-					for (FileID f : sourceFiles) {
+					/* only files in the target directory can match */
+					ArrayList<FileID> dir = sourceDirs.get(r.targetFile.path);
+					if (dir == null) dir = new ArrayList<FileID>();
+					
+					for (FileID f : dir) {
 						/* the complex if says:
 						 * (if both paths are null
 						 *    or path equals target path)
@@ -1285,6 +2380,20 @@ public class LicenseChecker {
 			
 			if(matches == null) continue;
 			
+			/* conflicts of unchanged files */
+			if (hasUnchangedConflicts(f)) {
+				ScanState.FileState old = previousState.files.get(f);
+				if (old.internalConflicts != null)
+					internalLicenseConflicts.put(f, old.internalConflicts);
+				for (Reference ref : old.referenceConflicts.keySet()) {
+					ArrayList<Pair<License, License>> conflicts =
+						old.referenceConflicts.get(ref);
+					licenseConflicts.put(ref, conflicts);
+					numRefConflicts += conflicts.size();
+				}
+				continue;
+			}
+			
 			for(LicenseMatch m : matches) {
 				
 				License l = m.getLicense();
@@ -1297,6 +2406,11 @@ public class LicenseChecker {
 						/* license is always compatible with itself */
 						continue;
 					}
+					
+					if(m.isAlternative(l2)) {
+						/* only one of the alternatives is used */
+						continue;
+					}
 
 					if(!l2.isCompatible(l,
 							Reference.ReferenceType.IMPORT)) {
@@ -1340,6 +2454,11 @@ public class LicenseChecker {
 							/* license is always compatible with itself */
 							continue;
 						}
+						
+						if(hasCompatibleChoice(m, refmatch)) {
+							/* an alternative license can be used */
+							continue;
+						}
 
 						if(!refmatch.getLicense().isCompatible(l,
 								Reference.ReferenceType.IMPORT)) {
@@ -1365,7 +2484,10 @@ public class LicenseChecker {
 
 		/* Find global conflicts */
 		
-		/* collect licenses found in all files */
+		/* collect licenses found in all files, and the licenses that
+		 * are alternatives of each other */
+		HashMap<License, HashSet<License>> alternatives =
+			new HashMap<License, HashSet<License>>();
 		for(FileID f : files) {
 
 			ArrayList<LicenseMatch>	matches = getLicenseMatches(f);
@@ -1373,6 +2495,14 @@ public class LicenseChecker {
 
 			for(LicenseMatch m : matches) {
 				foundLicenses.add(m.getLicense());
+				
+				if(m.getAlternatives() == null) continue;
+				HashSet<License> a = alternatives.get(m.getLicense());
+				if(a == null) {
+					a = new HashSet<License>();
+					alternatives.put(m.getLicense(), a);
+				}
+				a.addAll(m.getAlternatives());
 			}
 		}
 		
@@ -1380,6 +2510,12 @@ public class LicenseChecker {
 			for(License l2 : foundLicenses) {
 				if(l1 == l2) continue;
 				
+				/* only one of the alternatives is used */
+				if((alternatives.get(l1) != null)
+						&& alternatives.get(l1).contains(l2)) {
+					continue;
+				}
+				
 				if(!l1.isCompatible(l2, Reference.ReferenceType.IMPORT)) {
 					globalLicenseConflicts.add(
 							new Pair<License, License>(l1, l2));
@@ -1390,6 +2526,37 @@ public class LicenseChecker {
 		//globalLicenseConflicts;
 	}
 
+	/**
+	 * Check if either side of a reference can use an alternative license
+	 * of its match that is compatible with the other side.
+	 * 
+	 * @param m Match of the referring file
+	 * @param refmatch Match of the referenced file
+	 * @return True if an alternative avoids the conflict
+	 */
+	private static boolean hasCompatibleChoice(LicenseMatch m,
+			LicenseMatch refmatch) {
+		if(m.getAlternatives() != null) {
+			for(License a : m.getAlternatives()) {
+				if((a == refmatch.getLicense())
+						|| refmatch.getLicense().isCompatible(a,
+								Reference.ReferenceType.IMPORT)) {
+					return true;
+				}
+			}
+		}
+		if(refmatch.getAlternatives() != null) {
+			for(License a : refmatch.getAlternatives()) {
+				if((a == m.getLicense())
+						|| a.isCompatible(m.getLicense(),
+								Reference.ReferenceType.IMPORT)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Collect license statistics
 	 */
@@ -1740,7 +2907,8 @@ public class LicenseChecker {
 		doExcludePaths(lc);
 		
 		Log.log(LogEntry.DEBUG, "Processing...");
-		lc.processPackage();
+		lc.processPackage(lc.readScanState());
+		lc.writeScanState();
 
 		/* combine source and license file list */
 		ArrayList<FileID> files = (ArrayList<FileID>) lc.getSourceFiles().clone();
@@ -67,7 +67,7 @@ public class Log {
 	 *             or LogEntry.DEBUG
 	 * @param text Log entry string
 	 */
-	public static void log(int priority, String text) {
+	public static synchronized void log(int priority, String text) {
 		
 		/* don't log debug messages if not requested */
 		if((priority >= LogEntry.DEBUG) && (outputVerbosity < LogEntry.DEBUG)) {
@@ -86,7 +86,7 @@ public class Log {
 	/**
 	 * Clear log.
 	 */
-	public static void clear() {
+	public static synchronized void clear() {
 		logTexts = new ArrayList<LogEntry>();
 	}
 
@@ -95,7 +95,7 @@ public class Log {
 	 * 
 	 * @return number of entries in log
 	 */
-	public static int size() {
+	public static synchronized int size() {
 		return logTexts.size();
 	}
 	
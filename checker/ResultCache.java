@@ -0,0 +1,801 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+
+import checker.license.ForbiddenPhrase;
+import checker.license.KeyPhrase;
+import checker.license.License;
+import checker.license.Tag;
+import checker.matching.ForbiddenPhraseMatch;
+import checker.matching.LicenseMatch;
+import checker.matching.MatchPosition;
+
+/**
+ * Persistent cache of the results of source and license files. Maps the
+ * path and contents of a file to its license matches and references.
+ * <p>
+ * Every record also holds a digest of the license database and the
+ * matching settings, records written with other licenses or settings are
+ * ignored. The cache file is only appended to: a record is a key, the
+ * time the record was last used, the payload length, the payload and a
+ * CRC32 of the record, so a partly written record at the end of the file
+ * is detected and skipped by readers. Writers lock the file while
+ * appending.
+ * <p>
+ * A record of old file contents is never used again, so records that
+ * were not used in this run and are older than the maximum age expire.
+ * When most of the file is stale or expired records, the live records
+ * are written to a new file that replaces the old one, with the current
+ * time for the records used in this run.
+ * <p>
+ * The cache can be used by several threads.
+ */
+public class ResultCache {
+
+	/**
+	 * First bytes of a cache file
+	 */
+	private static final byte[] MAGIC = { 'O', 'S', 'L', 'C', 'R', 'C', '0', '3' };
+
+	/**
+	 * Length of the digests
+	 */
+	private static final int DIGEST_LENGTH = 20;
+
+	/**
+	 * Bytes of a record in addition to the payload: two digests, the
+	 * time, the payload length and the CRC
+	 */
+	private static final int RECORD_OVERHEAD = 2 * DIGEST_LENGTH + 8 + 4 + 4;
+
+	/**
+	 * Default maximum age of unused records, 30 days in milliseconds
+	 */
+	public static final long MAX_AGE = 30L * 24 * 60 * 60 * 1000;
+
+	/**
+	 * Cache file
+	 */
+	private File file;
+
+	/**
+	 * Digest of the license database and settings of this run
+	 */
+	private byte[] databaseDigest;
+
+	/**
+	 * Licenses and forbidden phrases by id
+	 */
+	private HashMap<String, License> licenses = new HashMap<String, License>();
+
+	/**
+	 * Live records by key
+	 */
+	private HashMap<Key, Record> records = new HashMap<Key, Record>();
+
+	/**
+	 * Records added in this run, not yet written
+	 */
+	private ByteArrayOutputStream added = new ByteArrayOutputStream();
+
+	/**
+	 * Number of bytes of stale and duplicate records in the file
+	 */
+	private long staleBytes = 0;
+
+	/**
+	 * Number of bytes of the live records
+	 */
+	private long liveBytes = 0;
+
+	private boolean validFile = false;
+
+	/**
+	 * Maximum age of unused records in milliseconds
+	 */
+	private long maxAge;
+
+	/**
+	 * Time of this run
+	 */
+	private long now = System.currentTimeMillis();
+
+	/**
+	 * A live record
+	 */
+	private static class Record {
+		byte[] payload;
+
+		/**
+		 * Time the record was written, or the time of the last run that
+		 * used it and rewrote the file
+		 */
+		long time;
+
+		/**
+		 * True if the record was used or added in this run
+		 */
+		boolean used;
+
+		Record(byte[] payload, long time) {
+			this.payload = payload;
+			this.time = time;
+		}
+
+		int size() {
+			return RECORD_OVERHEAD + payload.length;
+		}
+	}
+
+	/**
+	 * File key, a digest of the file path and contents
+	 */
+	public static class Key {
+		private byte[] digest;
+
+		private int hash;
+
+		Key(byte[] digest) {
+			this.digest = digest;
+			hash = Arrays.hashCode(digest);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof Key) && Arrays.equals(digest, ((Key) o).digest);
+		}
+	}
+
+	/**
+	 * Results of one file
+	 */
+	public static class Result {
+		public ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+
+		public ArrayList<Reference> references = new ArrayList<Reference>();
+	}
+
+	/**
+	 * Open a cache file and read the records written with the same
+	 * licenses and settings. A missing or broken file is treated as an
+	 * empty cache.
+	 *
+	 * @param file Cache file
+	 * @param databaseDigest Digest of the license database and settings
+	 * @param licenseList Licenses and forbidden phrases of the database
+	 */
+	public ResultCache(File file, byte[] databaseDigest,
+			Collection<License> licenseList) {
+		this(file, databaseDigest, licenseList, MAX_AGE);
+	}
+
+	/**
+	 * Open a cache file with a maximum age for unused records.
+	 *
+	 * @param file Cache file
+	 * @param databaseDigest Digest of the license database and settings
+	 * @param licenseList Licenses and forbidden phrases of the database
+	 * @param maxAge Records not used in this run are dropped when the
+	 *            file is rewritten, if they are older than this many
+	 *            milliseconds
+	 */
+	public ResultCache(File file, byte[] databaseDigest,
+			Collection<License> licenseList, long maxAge) {
+		this.file = file;
+		this.databaseDigest = databaseDigest;
+		this.maxAge = maxAge;
+		for (License l : licenseList)
+			licenses.put(l.getId(), l);
+
+		if (!file.exists()) return;
+
+		try {
+			load();
+		} catch (IOException e) {
+			Log.log(LogEntry.ERROR, "Cannot read result cache " + file + ": "
+					+ e.getMessage());
+		}
+	}
+
+	/**
+	 * Read the records of the cache file. Reading stops at the first
+	 * broken record.
+	 */
+	private void load() throws IOException {
+		FileInputStream fis = new FileInputStream(file);
+		try {
+			FileLock lock = fis.getChannel().lock(0, Long.MAX_VALUE, true);
+			try {
+				long size = fis.getChannel().size();
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(fis));
+
+				byte[] magic = new byte[MAGIC.length];
+				if (size >= MAGIC.length) in.readFully(magic);
+				if (!Arrays.equals(MAGIC, magic)) {
+					staleBytes = size;
+					return;
+				}
+				validFile = true;
+
+				long position = MAGIC.length;
+				while (size - position >= RECORD_OVERHEAD) {
+					byte[] db = new byte[DIGEST_LENGTH];
+					byte[] key = new byte[DIGEST_LENGTH];
+					in.readFully(db);
+					in.readFully(key);
+					long time = in.readLong();
+					int length = in.readInt();
+					if ((length < 0)
+							|| (length > size - position - RECORD_OVERHEAD)) {
+						break;
+					}
+
+					byte[] payload = new byte[length];
+					in.readFully(payload);
+					if (in.readInt() != crc(db, key, time, payload)) break;
+
+					Record record = new Record(payload, time);
+					position += record.size();
+					if (Arrays.equals(db, databaseDigest)) {
+						Record old = records.put(new Key(key), record);
+						if (old != null) {
+							staleBytes += old.size();
+							liveBytes -= old.size();
+						}
+						liveBytes += record.size();
+					} else {
+						staleBytes += record.size();
+					}
+				}
+
+				/* a broken record and everything after it */
+				staleBytes += size - position;
+			} finally {
+				lock.release();
+			}
+		} finally {
+			fis.close();
+		}
+	}
+
+	/**
+	 * Compute the CRC of a record.
+	 */
+	private static int crc(byte[] db, byte[] key, long time, byte[] payload) {
+		CRC32 c = new CRC32();
+		c.update(db);
+		c.update(key);
+		for (int i = 56; i >= 0; i -= 8)
+			c.update((int) (time >>> i));
+		c.update(payload);
+		return (int) c.getValue();
+	}
+
+	private static MessageDigest sha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Compute the digest of the license database and the settings that
+	 * affect the results.
+	 *
+	 * @param licenseDirectory Directory of the license files
+	 * @param settings Values of the settings
+	 * @return Digest
+	 */
+	public static byte[] databaseDigest(File licenseDirectory, String[] settings)
+			throws IOException {
+		MessageDigest md = sha1();
+
+		File[] files = licenseDirectory.listFiles();
+		if (files != null) {
+			String[] names = new String[files.length];
+			for (int i = 0; i < files.length; i++)
+				names[i] = files[i].getName();
+			Arrays.sort(names);
+
+			byte[] buffer = new byte[8192];
+			for (String name : names) {
+				File f = new File(licenseDirectory, name);
+				if (!f.isFile()) continue;
+
+				md.update(name.getBytes("UTF-8"));
+				md.update((byte) 0);
+				FileInputStream in = new FileInputStream(f);
+				try {
+					int n;
+					while ((n = in.read(buffer)) > 0)
+						md.update(buffer, 0, n);
+				} finally {
+					in.close();
+				}
+				md.update((byte) 0);
+			}
+		}
+
+		for (String s : settings) {
+			md.update(String.valueOf(s).getBytes("UTF-8"));
+			md.update((byte) 0);
+		}
+
+		return md.digest();
+	}
+
+	/**
+	 * Compute the key of a file.
+	 *
+	 * @param fileId The file
+	 * @param content Lines of the file
+	 * @return Key
+	 */
+	public static Key key(FileID fileId, ArrayList<String> content) {
+		KeyDigest digest = new KeyDigest(fileId);
+		for (String line : content)
+			digest.addLine(line);
+		return digest.getKey();
+	}
+
+	/**
+	 * Computes the key of a file line by line. The key is the same as 
+	 * from key().
+	 */
+	static class KeyDigest {
+		private MessageDigest md = sha1();
+
+		/**
+		 * @param fileId The file
+		 */
+		KeyDigest(FileID fileId) {
+			update(fileId.toString());
+			md.update((byte) 0);
+		}
+
+		/**
+		 * Add the next line of the file.
+		 *
+		 * @param line Line without the line terminator
+		 */
+		void addLine(String line) {
+			update(line);
+			md.update((byte) '\n');
+		}
+
+		/**
+		 * @return Key of the file and the added lines
+		 */
+		Key getKey() {
+			return new Key(md.digest());
+		}
+
+		private void update(String s) {
+			try {
+				md.update(s.getBytes("UTF-8"));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Get the results of a file.
+	 *
+	 * @param key Key of the file
+	 * @param fileId The file, source of the references
+	 * @return Results, null if not cached or if a license is no longer
+	 *         in the database
+	 */
+	public synchronized Result get(Key key, FileID fileId) {
+		Record record = records.get(key);
+		if (record == null) return null;
+
+		try {
+			Result result = decode(record.payload, fileId);
+			if (result != null) record.used = true;
+			return result;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Add the results of a file. The results are written to the cache
+	 * file by close().
+	 *
+	 * @param key Key of the file
+	 * @param fileId The file, only references from this file are stored
+	 * @param matches License matches of the file
+	 * @param references References found while scanning the file
+	 */
+	public synchronized void put(Key key, FileID fileId,
+			ArrayList<LicenseMatch> matches, ArrayList<Reference> references) {
+		Record old = records.get(key);
+		if (old != null) {
+			old.used = true;
+			return;
+		}
+
+		try {
+			Record record = new Record(encode(fileId, matches, references), now);
+			record.used = true;
+			records.put(key, record);
+			liveBytes += record.size();
+			write(new DataOutputStream(added), key, record);
+		} catch (IOException e) {
+			/* not cached */
+		}
+	}
+
+	private void write(DataOutputStream out, Key key, Record record)
+			throws IOException {
+		out.write(databaseDigest);
+		out.write(key.digest);
+		out.writeLong(record.time);
+		out.writeInt(record.payload.length);
+		out.write(record.payload);
+		out.writeInt(crc(databaseDigest, key.digest, record.time, record.payload));
+		out.flush();
+	}
+
+	/**
+	 * Check if a record is dropped when the file is rewritten.
+	 */
+	private boolean isExpired(Record record) {
+		return !record.used && (now - record.time > maxAge);
+	}
+
+	/**
+	 * Write the added records to the cache file. The file is rewritten
+	 * if more than half of it is stale or expired.
+	 */
+	public synchronized void close() throws IOException {
+		long expiredBytes = 0;
+		for (Record record : records.values()) {
+			if (isExpired(record)) expiredBytes += record.size();
+		}
+
+		if ((staleBytes + expiredBytes > liveBytes - expiredBytes)
+				|| (!validFile && (added.size() > 0))) {
+			rewrite();
+		} else if (added.size() > 0) {
+			append();
+		}
+		added.reset();
+	}
+
+	private void append() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			FileLock lock = channel.lock();
+			try {
+				channel.position(channel.size());
+				channel.write(ByteBuffer.wrap(added.toByteArray()));
+			} finally {
+				lock.release();
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void rewrite() throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+
+		/* expired records are dropped, used records get the current time */
+		Iterator<Record> i = records.values().iterator();
+		while (i.hasNext()) {
+			Record record = i.next();
+			if (isExpired(record)) {
+				liveBytes -= record.size();
+				i.remove();
+			} else if (record.used) {
+				record.time = now;
+			}
+		}
+
+		DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmp)));
+		try {
+			out.write(MAGIC);
+			for (Key key : records.keySet())
+				write(out, key, records.get(key));
+		} finally {
+			out.close();
+		}
+
+		/* keep other writers out while the file is replaced */
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileLock lock = raf.getChannel().lock();
+			try {
+				if (!tmp.renameTo(file)) {
+					/* rename does not replace files on all platforms */
+					file.delete();
+					if (!tmp.renameTo(file)) {
+						tmp.delete();
+						throw new IOException("Cannot replace " + file);
+					}
+				}
+			} finally {
+				lock.release();
+			}
+		} finally {
+			raf.close();
+		}
+		validFile = true;
+		staleBytes = 0;
+	}
+
+	private static void writeString(DataOutputStream out, String s)
+			throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) out.writeUTF(s);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static byte[] encode(FileID fileId, ArrayList<LicenseMatch> matches,
+			ArrayList<Reference> references) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		writeMatches(out, matches);
+
+		int count = 0;
+		for (Reference r : references) {
+			if (fileId.equals(r.sourceFile)) count++;
+		}
+		out.writeInt(count);
+		for (Reference r : references) {
+			if (fileId.equals(r.sourceFile)) writeReference(out, r);
+		}
+
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private Result decode(byte[] payload, FileID fileId) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		Result result = new Result();
+
+		result.matches = readMatches(in, licenses);
+		if (result.matches == null) return null;
+
+		int referenceCount = in.readInt();
+		for (int i = 0; i < referenceCount; i++)
+			result.references.add(readReference(in, fileId));
+
+		return result;
+	}
+
+	/**
+	 * Write license matches, for the cache and ScanState.
+	 */
+	static void writeMatches(DataOutputStream out,
+			ArrayList<LicenseMatch> matches) throws IOException {
+		out.writeInt(matches.size());
+		for (LicenseMatch m : matches) {
+			out.writeUTF(m.getLicense().getId());
+			out.writeBoolean(m instanceof ForbiddenPhraseMatch);
+			out.writeFloat(m.getMatchPr());
+
+			out.writeInt(m.getMatchPositions().size());
+			for (MatchPosition p : m.getMatchPositions()) {
+				out.writeInt(p.getStartLine());
+				out.writeInt(p.getStartCol());
+				out.writeInt(p.getEndLine());
+				out.writeInt(p.getEndCol());
+				out.writeInt(p.getTemplateStartLine());
+				out.writeInt(p.getTemplateStartCol());
+				out.writeInt(p.getTemplateEndLine());
+				out.writeInt(p.getTemplateEndCol());
+				out.writeInt(p.getCommentStartCol());
+				out.writeInt(p.getNumWords());
+				out.writeInt(p.getOrigMatchLength());
+			}
+
+			if (m.getTags() == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(m.getTags().size());
+				for (Tag t : m.getTags().keySet()) {
+					out.writeUTF(t.getId());
+					out.writeUTF(m.getTags().get(t));
+					out.writeInt(m.getTagStart(t));
+				}
+			}
+
+			if (m.getKeyPhrases() == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(m.getKeyPhrases().size());
+				for (KeyPhrase k : m.getKeyPhrases())
+					out.writeUTF(k.getPhrase());
+			}
+
+			if (m.getAlternatives() == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(m.getAlternatives().size());
+				for (License a : m.getAlternatives())
+					out.writeUTF(a.getId());
+			}
+		}
+	}
+
+	/**
+	 * Read license matches written by writeMatches().
+	 *
+	 * @param in Input
+	 * @param licenses Licenses and forbidden phrases by id
+	 * @return Matches, null if a license or tag is not in the database
+	 */
+	static ArrayList<LicenseMatch> readMatches(DataInputStream in,
+			HashMap<String, License> licenses) throws IOException {
+		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+
+		int matchCount = in.readInt();
+		for (int i = 0; i < matchCount; i++) {
+			License license = licenses.get(in.readUTF());
+			if (license == null) return null;
+			boolean forbidden = in.readBoolean();
+			float matchPr = in.readFloat();
+
+			ArrayList<MatchPosition> positions = new ArrayList<MatchPosition>();
+			int positionCount = in.readInt();
+			for (int j = 0; j < positionCount; j++) {
+				MatchPosition p = new MatchPosition(in.readInt(), in.readInt(),
+						in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+						in.readInt(), in.readInt(), in.readInt(), in.readInt());
+				p.setOrigMatchLength(in.readInt());
+				positions.add(p);
+			}
+
+			LicenseMatch m;
+			if (forbidden && (license instanceof ForbiddenPhrase)
+					&& (positions.size() == 1)) {
+				m = new ForbiddenPhraseMatch(license, positions.get(0));
+			} else {
+				m = new LicenseMatch(license, positions);
+			}
+			m.setMatchPr(matchPr);
+
+			int tagCount = in.readInt();
+			for (int j = 0; j < tagCount; j++) {
+				String id = in.readUTF();
+				String value = in.readUTF();
+				int start = in.readInt();
+
+				Tag tag = null;
+				if (license.getTags() != null) {
+					for (Tag t : license.getTags()) {
+						if (t.getId().equals(id)) tag = t;
+					}
+				}
+				if (tag == null) return null;
+				m.addTag(tag, value, start);
+			}
+
+			int phraseCount = in.readInt();
+			for (int j = 0; j < phraseCount; j++)
+				m.addKeyPhrase(new KeyPhrase(in.readUTF(), license));
+
+			int alternativeCount = in.readInt();
+			for (int j = 0; j < alternativeCount; j++) {
+				License alternative = licenses.get(in.readUTF());
+				if (alternative == null) return null;
+				m.addAlternative(alternative);
+			}
+
+			matches.add(m);
+		}
+		return matches;
+	}
+
+	/**
+	 * Write a reference without its source file.
+	 */
+	static void writeReference(DataOutputStream out, Reference r)
+			throws IOException {
+		out.writeBoolean(r.targetFile != null);
+		if (r.targetFile != null) writeFileID(out, r.targetFile);
+		out.writeInt((r.referenceType == null) ? -1 : r.referenceType.ordinal());
+		writeString(out, r.declaration);
+		writeString(out, r.information);
+	}
+
+	/**
+	 * Read a reference written by writeReference().
+	 *
+	 * @param in Input
+	 * @param source Source file of the reference
+	 * @return Reference
+	 */
+	static Reference readReference(DataInputStream in, FileID source)
+			throws IOException {
+		FileID target = in.readBoolean() ? readFileID(in) : null;
+
+		Reference r = new Reference(source, target);
+		Reference.ReferenceType[] types = Reference.ReferenceType.values();
+		int type = in.readInt();
+		if (type >= types.length) throw new IOException("Bad reference type");
+		r.referenceType = (type < 0) ? null : types[type];
+		r.declaration = readString(in);
+		r.information = readString(in);
+		return r;
+	}
+
+	static void writeFileID(DataOutputStream out, FileID f) throws IOException {
+		writeString(out, f.path);
+		writeString(out, f.name);
+	}
+
+	static FileID readFileID(DataInputStream in) throws IOException {
+		String path = readString(in);
+		return new FileID(path, readString(in));
+	}
+
+	/**
+	 * Write a key, null for no key.
+	 */
+	static void writeKey(DataOutputStream out, Key key) throws IOException {
+		out.writeBoolean(key != null);
+		if (key != null) out.write(key.digest);
+	}
+
+	static Key readKey(DataInputStream in) throws IOException {
+		if (!in.readBoolean()) return null;
+		byte[] digest = new byte[DIGEST_LENGTH];
+		in.readFully(digest);
+		return new Key(digest);
+	}
+}
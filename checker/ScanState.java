@@ -0,0 +1,402 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import checker.license.License;
+import checker.matching.LicenseMatch;
+
+/**
+ * Results of a finished scan. Given to LicenseChecker.processPackage(), the
+ * results of the files that have not changed since the scan are reused.
+ * <p>
+ * A file has not changed if its size and modification time are the same,
+ * or if its contents are the same. A state can be used while the license
+ * database and the settings that affect matching stay the same, they are
+ * identified by the same digest as in the result cache. A state can be
+ * written to a file next to the result cache and read by a later run.
+ */
+public class ScanState {
+
+	/**
+	 * Start of a scan state file, the version of the format
+	 */
+	private static final byte[] MAGIC = { 'O', 'S', 'L', 'C', 'S', 'S', '0', '1' };
+
+	/**
+	 * Results of one file
+	 */
+	static class FileState {
+		long size;
+		long lastModified;
+
+		/**
+		 * Digest of the contents, null if the contents were not read
+		 */
+		ResultCache.Key key;
+
+		ArrayList<LicenseMatch> matches;
+
+		/**
+		 * References found in the file, before "*" targets were expanded
+		 */
+		ArrayList<Reference> rawReferences;
+
+		/**
+		 * References after expanding "*" targets, null if none
+		 */
+		ArrayList<Reference> references;
+
+		ArrayList<Pair<License, License>> internalConflicts;
+
+		HashMap<Reference, ArrayList<Pair<License, License>>> referenceConflicts =
+			new HashMap<Reference, ArrayList<Pair<License, License>>>();
+
+		FileState(long size, long lastModified, ResultCache.Key key) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.key = key;
+		}
+
+		/**
+		 * Check if the file has the same size and modification time.
+		 */
+		boolean isUnchanged(long newSize, long newLastModified) {
+			return (size >= 0) && (lastModified >= 0)
+				&& (size == newSize) && (lastModified == newLastModified);
+		}
+	}
+
+	/**
+	 * Root of the scanned package
+	 */
+	File root;
+
+	/**
+	 * Licenses the files were matched against
+	 */
+	ArrayList<License> licenses;
+
+	/**
+	 * Digest of the license database and the settings that affect
+	 * matching
+	 */
+	byte[] databaseDigest;
+
+	/**
+	 * Source files of the package
+	 */
+	HashSet<FileID> sourceFiles;
+
+	/**
+	 * Results of the source and license files
+	 */
+	HashMap<FileID, FileState> files = new HashMap<FileID, FileState>();
+
+	ScanState(File root, ArrayList<License> licenses, byte[] databaseDigest,
+			ArrayList<FileID> sourceFiles) {
+		this.root = root;
+		this.licenses = licenses;
+		this.databaseDigest = databaseDigest;
+		this.sourceFiles = new HashSet<FileID>(sourceFiles);
+	}
+
+	/**
+	 * Check if this state can be used for a new scan.
+	 */
+	boolean isCompatible(File newRoot, byte[] newDigest) {
+		return (root != null) && (newRoot != null) && (databaseDigest != null)
+			&& root.getAbsoluteFile().equals(newRoot.getAbsoluteFile())
+			&& Arrays.equals(databaseDigest, newDigest);
+	}
+
+	/**
+	 * Get this state for other license objects of the same database.
+	 *
+	 * @param newLicenses Licenses and forbidden phrases of the new scan
+	 * @return State whose matches and conflicts refer to newLicenses,
+	 *         null if a license is missing
+	 */
+	ScanState forLicenses(ArrayList<License> newLicenses) {
+		if (licenses == newLicenses) return this;
+
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			write(bytes);
+			return read(new ByteArrayInputStream(bytes.toByteArray()),
+					newLicenses);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Get the number of files in the state.
+	 *
+	 * @return Number of source and license files
+	 */
+	public int size() {
+		return files.size();
+	}
+
+	/**
+	 * Get the file of the state of a package, next to the result cache.
+	 *
+	 * @param cacheFile Result cache file
+	 * @param root Root of the package
+	 * @return State file
+	 */
+	static File getFile(File cacheFile, File root) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			byte[] digest = md.digest(
+					root.getAbsolutePath().getBytes("UTF-8"));
+			
+			StringBuffer sb = new StringBuffer(cacheFile.getPath());
+			sb.append('.');
+			for (int i = 0; i < 8; i++)
+				sb.append(String.format("%02x", Integer.valueOf(digest[i] & 0xff)));
+			return new File(sb.toString());
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Write the state to a file. The file is replaced only when the
+	 * whole state has been written.
+	 *
+	 * @param file State file
+	 */
+	void write(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+		try {
+			write(out);
+		} finally {
+			out.close();
+		}
+
+		if (!tmp.renameTo(file)) {
+			/* rename does not replace files on all platforms */
+			file.delete();
+			if (!tmp.renameTo(file)) {
+				tmp.delete();
+				throw new IOException("Cannot replace " + file);
+			}
+		}
+	}
+
+	/**
+	 * Read a state written by write().
+	 *
+	 * @param file State file
+	 * @param licenses Licenses and forbidden phrases of the new scan
+	 * @return State, null if the file is broken or a license is missing
+	 */
+	static ScanState read(File file, ArrayList<License> licenses)
+			throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file));
+		try {
+			return read(in, licenses);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void write(OutputStream stream) throws IOException {
+		CheckedOutputStream checked = new CheckedOutputStream(stream, new CRC32());
+		DataOutputStream out = new DataOutputStream(checked);
+		
+		out.write(MAGIC);
+		out.write(databaseDigest);
+		out.writeUTF(root.getAbsolutePath());
+		
+		out.writeInt(sourceFiles.size());
+		for (FileID f : sourceFiles)
+			ResultCache.writeFileID(out, f);
+		
+		out.writeInt(files.size());
+		for (FileID f : files.keySet()) {
+			FileState fs = files.get(f);
+			ResultCache.writeFileID(out, f);
+			out.writeLong(fs.size);
+			out.writeLong(fs.lastModified);
+			ResultCache.writeKey(out, fs.key);
+			ResultCache.writeMatches(out, fs.matches);
+			
+			writeReferences(out, fs.rawReferences);
+			writeReferences(out, fs.references);
+			writeConflicts(out, fs.internalConflicts);
+			
+			/* reference conflicts by the position of the reference */
+			out.writeInt(fs.referenceConflicts.size());
+			for (Reference r : fs.referenceConflicts.keySet()) {
+				out.writeInt(fs.references.indexOf(r));
+				writeConflicts(out, fs.referenceConflicts.get(r));
+			}
+		}
+		
+		out.flush();
+		out.writeInt((int) checked.getChecksum().getValue());
+		out.flush();
+	}
+
+	private static ScanState read(InputStream stream,
+			ArrayList<License> licenses) throws IOException {
+		CheckedInputStream checked = new CheckedInputStream(stream, new CRC32());
+		DataInputStream in = new DataInputStream(checked);
+		
+		HashMap<String, License> licenseMap = new HashMap<String, License>();
+		for (License l : licenses)
+			licenseMap.put(l.getId(), l);
+		
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(MAGIC, magic)) return null;
+		
+		byte[] digest = new byte[20];
+		in.readFully(digest);
+		File root = new File(in.readUTF());
+		
+		int sourceCount = in.readInt();
+		ArrayList<FileID> sourceFiles = new ArrayList<FileID>();
+		for (int i = 0; i < sourceCount; i++)
+			sourceFiles.add(ResultCache.readFileID(in));
+		
+		ScanState state = new ScanState(root, licenses, digest, sourceFiles);
+		
+		int fileCount = in.readInt();
+		for (int i = 0; i < fileCount; i++) {
+			FileID f = ResultCache.readFileID(in);
+			long size = in.readLong();
+			long lastModified = in.readLong();
+			FileState fs = new FileState(size, lastModified,
+					ResultCache.readKey(in));
+			
+			fs.matches = ResultCache.readMatches(in, licenseMap);
+			if (fs.matches == null) return null;
+			fs.rawReferences = readReferences(in, f);
+			fs.references = readReferences(in, f);
+			fs.internalConflicts = readConflicts(in, licenseMap);
+			
+			int conflictCount = in.readInt();
+			for (int j = 0; j < conflictCount; j++) {
+				int index = in.readInt();
+				ArrayList<Pair<License, License>> conflicts =
+					readConflicts(in, licenseMap);
+				if ((fs.references == null) || (index < 0)
+						|| (index >= fs.references.size())) {
+					return null;
+				}
+				fs.referenceConflicts.put(fs.references.get(index), conflicts);
+			}
+			
+			state.files.put(f, fs);
+		}
+		
+		int crc = (int) checked.getChecksum().getValue();
+		if (in.readInt() != crc) return null;
+		
+		return state;
+	}
+
+	/**
+	 * Write a list of references, null for no list.
+	 */
+	private static void writeReferences(DataOutputStream out,
+			ArrayList<Reference> refList) throws IOException {
+		if (refList == null) {
+			out.writeInt(-1);
+			return;
+		}
+		
+		out.writeInt(refList.size());
+		for (Reference r : refList)
+			ResultCache.writeReference(out, r);
+	}
+
+	private static ArrayList<Reference> readReferences(DataInputStream in,
+			FileID source) throws IOException {
+		int count = in.readInt();
+		if (count < 0) return null;
+		
+		ArrayList<Reference> refList = new ArrayList<Reference>();
+		for (int i = 0; i < count; i++)
+			refList.add(ResultCache.readReference(in, source));
+		return refList;
+	}
+
+	/**
+	 * Write a list of conflicts, null for no list.
+	 */
+	private static void writeConflicts(DataOutputStream out,
+			ArrayList<Pair<License, License>> conflicts) throws IOException {
+		if (conflicts == null) {
+			out.writeInt(-1);
+			return;
+		}
+		
+		out.writeInt(conflicts.size());
+		for (Pair<License, License> p : conflicts) {
+			out.writeUTF(p.e1.getId());
+			out.writeUTF(p.e2.getId());
+		}
+	}
+
+	private static ArrayList<Pair<License, License>> readConflicts(
+			DataInputStream in, HashMap<String, License> licenses)
+			throws IOException {
+		int count = in.readInt();
+		if (count < 0) return null;
+		
+		ArrayList<Pair<License, License>> conflicts =
+			new ArrayList<Pair<License, License>>();
+		for (int i = 0; i < count; i++) {
+			License l1 = licenses.get(in.readUTF());
+			License l2 = licenses.get(in.readUTF());
+			if ((l1 == null) || (l2 == null))
+				throw new IOException("Unknown license in scan state");
+			conflicts.add(new Pair<License, License>(l1, l2));
+		}
+		return conflicts;
+	}
+}
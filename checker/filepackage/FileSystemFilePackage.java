@@ -22,7 +22,11 @@ package checker.filepackage;
 import java.io.BufferedReader;
 import java.io.File;
 import java.util.ArrayList;
+import java.io.FileInputStream;
 import java.io.FileReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Stack;
 import java.util.NoSuchElementException;
@@ -50,10 +54,34 @@ class FSPackageFile implements PackageFile
     {
 		return iterator.getContents(id);
     }
+
+	public Reader getReader() throws Exception
+    {
+		return new FileReader(iterator.getFile(id));
+    }
+
+	public ByteBuffer getBytes() throws Exception
+    {
+		return iterator.getBytes(id);
+    }
+
+	public long getSize()
+    {
+		return iterator.getFile(id).length();
+    }
+
+	public long getLastModified()
+    {
+		return iterator.getFile(id).lastModified();
+    }
 }
 
 class FSIterator implements Iterator<PackageFile>
 {
+    /* Smaller files are read instead of mapped, mapping costs more
+     * than reading them and the mapping is only released by GC */
+    private static final int MAP_MIN_SIZE = 16 * 1024;
+
     private File curr;
     private File next;
 	private String rootDir;
@@ -143,21 +171,61 @@ class FSIterator implements Iterator<PackageFile>
     }
     
         
+    /**
+     * Get the file of a FileID.
+     * 
+     * @param file FileID relative to the package root
+     * @return The file
+     */
+    protected File getFile(FileID file)
+    {
+        String fname = file.toString();
+        if((rootDir != null) && (rootDir.length() > 0)) {
+            fname = rootDir + File.separator + fname;
+        }
+        return new File(fname);
+    }
+
+    /**
+     * Get the contents of a file as bytes. Large files are memory mapped,
+     * so only the pages that are read are loaded.
+     * 
+     * @param file File to read
+     * @return Read only buffer of the contents
+     */
+	protected ByteBuffer getBytes(FileID file) throws Exception
+    {
+        FileInputStream in = new FileInputStream(getFile(file));
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size >= MAP_MIN_SIZE) {
+                /* the mapping stays valid after the channel is closed */
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && (channel.read(bytes) >= 0))
+                ;
+            bytes.flip();
+            return bytes.asReadOnlyBuffer();
+        } finally {
+            in.close();
+        }
+    }
+
 	protected ArrayList<String> getContents(FileID file) throws Exception
     {
         ArrayList<String> rows = new ArrayList<String>();
+
+        BufferedReader reader = new BufferedReader(new FileReader(getFile(file)));
         try {
-        	String fname = file.toString();
-        	if((rootDir != null) && (rootDir.length() > 0)) {
-        		fname = rootDir + File.separator + fname;
-        	}
-            BufferedReader reader = new BufferedReader(new FileReader(fname));
             String row;
             while ((row = reader.readLine()) != null) {
                 rows.add(row);
             }
-        } catch (Exception e) {
-            throw e;
+        } finally {
+            reader.close();
         }
 
         return rows;
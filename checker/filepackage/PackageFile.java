@@ -21,10 +21,42 @@ package checker.filepackage;
 
 import java.util.ArrayList;
 import java.io.File;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 
 import checker.FileID;
 
 public interface PackageFile {
     public FileID getFileID();
 	public ArrayList<String> getContents() throws Exception;
+
+	/**
+	 * Open a reader of the contents, for reading the file without 
+	 * splitting it into lines first. The caller closes the reader.
+	 * 
+	 * @return Reader of the file
+	 */
+	public Reader getReader() throws Exception;
+
+	/**
+	 * Get the contents as bytes in the platform charset, for scanning
+	 * the file without decoding all of it. The buffer is read only.
+	 * 
+	 * @return Contents from the position to the limit of the buffer
+	 */
+	public ByteBuffer getBytes() throws Exception;
+
+	/**
+	 * Get the size of the file.
+	 * 
+	 * @return Size in bytes, -1 if not known
+	 */
+	public long getSize();
+
+	/**
+	 * Get the modification time of the file.
+	 * 
+	 * @return Modification time in milliseconds, -1 if not known
+	 */
+	public long getLastModified();
 }
@@ -25,7 +25,11 @@ import com.ice.tar.TarEntry;
 
 import java.io.File;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
@@ -38,9 +42,9 @@ import checker.LogEntry;
 class TarPackageFile implements PackageFile
 {
     FileID id;
-    ArrayList<String> contents;
+    byte[] contents; // bytes of the entry, decoded when read
     
-    TarPackageFile(FileID i, ArrayList<String> cont)
+    TarPackageFile(FileID i, byte[] cont)
     {
         id = i;
         contents = cont;
@@ -53,7 +57,33 @@ class TarPackageFile implements PackageFile
     
 	public ArrayList<String> getContents() throws Exception
     {
-		return contents;
+        ArrayList<String> rows = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(getReader());
+        String row;
+        while ((row = reader.readLine()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+	public Reader getReader() throws Exception
+    {
+		return new InputStreamReader(new ByteArrayInputStream(contents));
+    }
+
+	public ByteBuffer getBytes() throws Exception
+    {
+		return ByteBuffer.wrap(contents).asReadOnlyBuffer();
+    }
+
+	public long getSize()
+    {
+		return -1;
+    }
+
+	public long getLastModified()
+    {
+		return -1;
     }
 }
 
@@ -105,7 +135,7 @@ class TarIterator implements Iterator<PackageFile>
             throw new NoSuchElementException();
 
         curr = next;
-        ArrayList<String> contents = getContents();
+        byte[] contents = getContents();
 
         String path = curr.getName();
         String name;
@@ -128,14 +158,14 @@ class TarIterator implements Iterator<PackageFile>
 		return new TarPackageFile(id, contents);
 	}
 
-	private ArrayList<String> getContents()
+	private byte[] getContents()
     {
-        ArrayList<String> rows = new ArrayList<String>();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(tis));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
         try {
-        	String row;
-        	while ((row = reader.readLine()) != null) {
-        		rows.add(row);
+        	int n;
+        	while ((n = tis.read(buffer)) > 0) {
+        		bytes.write(buffer, 0, n);
         	}
         } 
         catch(Exception e)
@@ -143,7 +173,7 @@ class TarIterator implements Iterator<PackageFile>
             // The exception cannot be reported from next anyway so we will catch it here.
             Log.log(LogEntry.ERROR, "Error reading contents of : "+curr.getName());
         }
-        return rows;
+        return bytes.toByteArray();
     }    
     
 	public void remove()
@@ -21,7 +21,11 @@ package checker.filepackage;
 
 import java.io.File;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.zip.*;
 import java.util.Iterator;
@@ -35,9 +39,9 @@ import checker.LogEntry;
 class ZipPackageFile implements PackageFile
 {
     FileID id;
-    ArrayList<String> contents;
+    byte[] contents; // bytes of the entry, decoded when read
     
-    ZipPackageFile(FileID i, ArrayList<String> cont)
+    ZipPackageFile(FileID i, byte[] cont)
     {
         id = i;
         contents = cont;
@@ -50,7 +54,33 @@ class ZipPackageFile implements PackageFile
     
 	public ArrayList<String> getContents() throws Exception
     {
-		return contents;
+        ArrayList<String> rows = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(getReader());
+        String row;
+        while ((row = reader.readLine()) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
+	public Reader getReader() throws Exception
+    {
+		return new InputStreamReader(new ByteArrayInputStream(contents));
+    }
+
+	public ByteBuffer getBytes() throws Exception
+    {
+		return ByteBuffer.wrap(contents).asReadOnlyBuffer();
+    }
+
+	public long getSize()
+    {
+		return -1;
+    }
+
+	public long getLastModified()
+    {
+		return -1;
     }
 }
 
@@ -103,7 +133,7 @@ class ZipIterator implements Iterator<PackageFile>
             throw new NoSuchElementException();
 
         curr = next;
-        ArrayList<String> contents = getContents();
+        byte[] contents = getContents();
 
         String path = curr.getName();
         String name;
@@ -126,14 +156,14 @@ class ZipIterator implements Iterator<PackageFile>
 		return new ZipPackageFile(id, contents);
 	}
 
-	private ArrayList<String> getContents()
+	private byte[] getContents()
     {
-        ArrayList<String> rows = new ArrayList<String>();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(zis));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
         try {
-        	String row;
-        	while ((row = reader.readLine()) != null) {
-        		rows.add(row);
+        	int n;
+        	while ((n = zis.read(buffer)) > 0) {
+        		bytes.write(buffer, 0, n);
         	}
         } 
         catch(Exception e)
@@ -141,7 +171,7 @@ class ZipIterator implements Iterator<PackageFile>
             // The exception cannot be reported from next anyway so we will catch it here.
             Log.log(LogEntry.ERROR, "Error reading contents of : "+curr.getName());
         }
-        return rows;
+        return bytes.toByteArray();
     }    
     
 	public void remove()
@@ -300,7 +300,7 @@ public class LicenseMain extends javax.swing.JFrame implements LicenseProcessLis
             /* Continue processing. Exceptions occurring here
              * are caught in 'done'
              */
-            lc.processPackage();
+            lc.processPackage(lc.getScanState());
             
         	ArrayList<FileID> sourceFiles = lc.getSourceFiles();
         	ArrayList<FileID> licenseFiles = lc.getLicenseFiles();
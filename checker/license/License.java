@@ -21,6 +21,7 @@ import java.util.Iterator;
 
 import checker.Pair;
 import checker.Reference;
+import checker.matching.LicenseTemplate;
 
 /**
  * Information about single license.
@@ -79,10 +80,39 @@ public class License implements Comparable {
 
     private License sisterLicense;
 
+    /**
+     * Compiled license text for matching. Built by the license database,
+     * or on first use for licenses created elsewhere.
+     */
+    private volatile LicenseTemplate template;
+
     // TODO create get/set for all private variables
 
     public void setLicenseText(ArrayList<String> licenseText) {
         this.licenseText = licenseText;
+        this.template = null;
+    }
+
+    /**
+     * Gets the compiled template of this license, compiling it if needed.
+     * Templates are immutable and can be shared between threads.
+     */
+    public LicenseTemplate getTemplate() {
+        LicenseTemplate t = template;
+        if (t == null) {
+            t = compileTemplate();
+        }
+        return t;
+    }
+
+    /**
+     * Compiles the license text and tags into a template.
+     */
+    synchronized LicenseTemplate compileTemplate() {
+        if (template == null) {
+            template = new LicenseTemplate(this);
+        }
+        return template;
     }
 
     public ArrayList<String> getLicenseText() {
@@ -195,6 +225,7 @@ public class License implements Comparable {
 
     protected void setTags(ArrayList<Tag> tags) {
 	this.tags = tags;
+        this.template = null;
     }
 
     protected void setSisterLicense(License sisterLicense) {
@@ -15,6 +15,8 @@
 package checker.license;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Properties;
 import java.util.Enumeration;
@@ -26,6 +28,8 @@ import checker.Log;
 import checker.LogEntry;
 import checker.Reference;
 import checker.Pair;
+import checker.matching.LicenseIndex;
+import checker.matching.LicenseMatcher;
 
 /**
  * Container for all license information. Also handles loading of license data
@@ -39,6 +43,24 @@ public class LicenseDatabase {
 
     private String licenseDirectory;
 
+    /**
+     * Licenses by their MODULE_LICENSE abbreviation, from the
+     * "moduleLicense" property of the meta files
+     */
+    private HashMap<String, License> moduleLicenses;
+
+    /**
+     * Licenses by their SPDX license identifier or expression, from the
+     * "spdx" property of the meta files. The keys are made with spdxKey().
+     */
+    private HashMap<String, License> spdxLicenses;
+
+    /**
+     * Matcher indices of the licenses and forbidden phrases, built with
+     * the database
+     */
+    private LicenseIndex index;
+
     /**
      * 
      * @param licenseDirectory
@@ -47,6 +69,8 @@ public class LicenseDatabase {
     public LicenseDatabase(String licenseDirectory) {
         licenses = new HashSet<License>();
         forbiddenPhrases = new HashSet<ForbiddenPhrase>();
+        moduleLicenses = new HashMap<String, License>();
+        spdxLicenses = new HashMap<String, License>();
         this.licenseDirectory = licenseDirectory;
         Log.log(LogEntry.VERBOSE, "licenseDirectory: " + licenseDirectory);        
     }
@@ -131,31 +155,19 @@ public class LicenseDatabase {
         return getItem(licenses, licenseId);
     }
 
+    /**
+     * Gets the license of a MODULE_LICENSE abbreviation. Unknown
+     * abbreviations give the module_license-f forbidden phrase.
+     * 
+     * @param ModuleLicenseId The abbreviation
+     * @return License, null if module_license-f is not in the database
+     */
     public License getModuleLicense(String ModuleLicenseId) {
-        // TODO: This is hard coded due to late requirement. The kernel
-        // MODULE_LICENSE abreviations should be stored in the lincense
-        // database files.
-
         License license = null;
         
         Log.log(LogEntry.DEBUG, "Mod lic abreviation: " + ModuleLicenseId);                    
-        if(ModuleLicenseId.equals("GPL")) {
-            license = getItem(licenses, "gpl-2.0-s");
-        }
-        else if(ModuleLicenseId.equals("GPL v2"))
-            license = getItem(licenses, "gpl-2.0-only-s");
-        else if(ModuleLicenseId.equals("GPL and additional rights"))
-            license = getItem(forbiddenPhrases, "gpl-2.0-LK-+-k");
-        else if(ModuleLicenseId.equals("Dual BSD/GPL"))
-        {
-            license = getItem(forbiddenPhrases, "dual-bsd-gpl-k");
-        }
-        else if(ModuleLicenseId.equals("Dual MPL/GPL"))
-        {
-            license = getItem(forbiddenPhrases, "dual-mpl-gpl-k");
-        }
-        else
-        {
+        license = moduleLicenses.get(ModuleLicenseId);
+        if (license == null) {
             Log.log(LogEntry.DEBUG, "Abreviation not found.");                    
             license = getItem(forbiddenPhrases, "module_license-f");
         }        
@@ -163,6 +175,40 @@ public class LicenseDatabase {
         return license;
     }
 
+    /**
+     * Gets the license of an SPDX license identifier or expression.
+     * 
+     * @param expression The identifier or expression
+     * @return License, null if the expression is not in the database
+     */
+    public License getSpdxLicense(String expression) {
+        return spdxLicenses.get(spdxKey(expression));
+    }
+
+    /**
+     * Makes the lookup key of an SPDX license expression. Case and spacing
+     * are ignored, and the alternatives of an expression that only has OR
+     * operators may be in any order.
+     * 
+     * @param expression The expression
+     * @return Lookup key
+     */
+    static String spdxKey(String expression) {
+        String key = expression.trim().toLowerCase().replaceAll("\\s+", " ");
+        if ((key.indexOf(" and ") >= 0) || (key.indexOf(" with ") >= 0)) {
+            return key;
+        }
+
+        String[] items = key.replaceAll("[()]", " ").trim().split("\\s+or\\s+");
+        Arrays.sort(items);
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < items.length; i++) {
+            if (i > 0) sb.append(" or ");
+            sb.append(items[i].trim());
+        }
+        return sb.toString();
+    }
+
     public ForbiddenPhrase getForbiddenPhrase(String phraseId) {
         return (ForbiddenPhrase)getItem(forbiddenPhrases, phraseId);
     }
@@ -180,6 +226,15 @@ public class LicenseDatabase {
         return licenses;
     }
 
+    /**
+     * Gets the matcher indices of the licenses and forbidden phrases.
+     * 
+     * @return Indices, null if the database has not been built
+     */
+    public LicenseIndex getIndex() {
+        return index;
+    }
+
     /**
      * Gets the list of forbidden phrases. (common to all licenses)
      * 
@@ -380,6 +435,17 @@ public class LicenseDatabase {
                         tags.add(tag);
                     }
                     license.setTags(tags);
+                } else if (propertyName.equals("moduleLicense")) {
+                    /* abbreviations may contain spaces, separated by commas */
+                    for (String item : propertyValue.split(",")) {
+                        if (item.trim().length() > 0)
+                            moduleLicenses.put(item.trim(), license);
+                    }
+                } else if (propertyName.equals("spdx")) {
+                    for (String item : propertyValue.split(",")) {
+                        if (item.trim().length() > 0)
+                            spdxLicenses.put(spdxKey(item), license);
+                    }
                 }
 	    }
 
@@ -410,6 +476,21 @@ public class LicenseDatabase {
         }
         
         linkExceptionsAndTheirParentLicenses();
+
+        // compile the license texts once, the templates are shared by
+        // all matcher threads
+        for (License license : licenses) {
+            license.compileTemplate();
+        }
+        for (License license : forbiddenPhrases) {
+            license.compileTemplate();
+        }
+
+        // and the matcher indices, shared by all matcher threads
+        ArrayList<License> all = new ArrayList<License>(licenses);
+        all.addAll(forbiddenPhrases);
+        index = LicenseMatcher.compile(all);
+
         Log.log(LogEntry.VERBOSE, "License database loaded");
     }
 }
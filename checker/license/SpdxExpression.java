@@ -0,0 +1,292 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.license;
+
+import java.util.ArrayList;
+
+/**
+ * Parsed SPDX license expression, as in the value of an
+ * SPDX-License-Identifier line. The grammar is
+ * <pre>
+ *   or-expression   = and-expression *( "OR" and-expression )
+ *   and-expression  = with-expression *( "AND" with-expression )
+ *   with-expression = primary [ "WITH" exception-id ]
+ *   primary         = license-id | "(" or-expression ")"
+ * </pre>
+ * Operators are not case sensitive. A chain of the same operator is one
+ * node with all the operands.
+ */
+public class SpdxExpression {
+
+    public enum Operator { AND, OR, WITH };
+
+    /**
+     * AND expressions with more choices than this are not expanded, all
+     * their licenses are taken as one choice
+     */
+    private static final int MAX_CHOICES = 64;
+
+    /**
+     * Operator of the node, null for a license identifier
+     */
+    private Operator operator;
+
+    /**
+     * License identifier of a license node or a WITH node
+     */
+    private String id;
+
+    /**
+     * Exception identifier of a WITH node
+     */
+    private String exception;
+
+    /**
+     * Operands of an AND or OR node
+     */
+    private ArrayList<SpdxExpression> operands;
+
+    private SpdxExpression(Operator operator, String id, String exception,
+            ArrayList<SpdxExpression> operands) {
+        this.operator = operator;
+        this.id = id;
+        this.exception = exception;
+        this.operands = operands;
+    }
+
+    /**
+     * Parse an expression.
+     * 
+     * @param expression The expression
+     * @return Parsed expression, null if it is empty or not well formed
+     */
+    public static SpdxExpression parse(String expression) {
+        String[] tokens = expression.replace("(", " ( ").replace(")", " ) ")
+                .trim().split("\\s+");
+        if ((tokens.length == 1) && (tokens[0].length() == 0)) return null;
+
+        int[] position = { 0 };
+        SpdxExpression e = parseOr(tokens, position);
+        if ((e == null) || (position[0] != tokens.length)) return null;
+        return e;
+    }
+
+    private static SpdxExpression parseOr(String[] tokens, int[] position) {
+        return parseChain(tokens, position, Operator.OR);
+    }
+
+    private static SpdxExpression parseChain(String[] tokens, int[] position,
+            Operator op) {
+        ArrayList<SpdxExpression> list = new ArrayList<SpdxExpression>();
+        while (true) {
+            SpdxExpression e = (op == Operator.OR)
+                    ? parseChain(tokens, position, Operator.AND)
+                    : parseWith(tokens, position);
+            if (e == null) return null;
+            list.add(e);
+
+            if ((position[0] < tokens.length)
+                    && tokens[position[0]].equalsIgnoreCase(op.name())) {
+                position[0]++;
+            } else {
+                break;
+            }
+        }
+
+        if (list.size() == 1) return list.get(0);
+        return new SpdxExpression(op, null, null, list);
+    }
+
+    private static SpdxExpression parseWith(String[] tokens, int[] position) {
+        if (position[0] >= tokens.length) return null;
+        String token = tokens[position[0]++];
+
+        SpdxExpression e;
+        if (token.equals("(")) {
+            e = parseOr(tokens, position);
+            if ((e == null) || (position[0] >= tokens.length)
+                    || !tokens[position[0]].equals(")")) {
+                return null;
+            }
+            position[0]++;
+        } else if (isIdentifier(token)) {
+            e = new SpdxExpression(null, token, null, null);
+        } else {
+            return null;
+        }
+
+        if ((position[0] < tokens.length)
+                && tokens[position[0]].equalsIgnoreCase("WITH")) {
+            /* only a license identifier can have an exception */
+            if ((e.operator != null) || (position[0] + 1 >= tokens.length)
+                    || !isIdentifier(tokens[position[0] + 1])) {
+                return null;
+            }
+            e = new SpdxExpression(Operator.WITH, e.id,
+                    tokens[position[0] + 1], null);
+            position[0] += 2;
+        }
+        return e;
+    }
+
+    private static boolean isIdentifier(String token) {
+        return !token.equals("(") && !token.equals(")")
+                && !token.equalsIgnoreCase("AND")
+                && !token.equalsIgnoreCase("OR")
+                && !token.equalsIgnoreCase("WITH");
+    }
+
+    /**
+     * @return Operator of the expression, null for a license identifier
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return License identifier of a license identifier or WITH
+     *         expression, null otherwise
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return Exception identifier of a WITH expression, null otherwise
+     */
+    public String getException() {
+        return exception;
+    }
+
+    /**
+     * @return Operands of an AND or OR expression, null otherwise
+     */
+    public ArrayList<SpdxExpression> getOperands() {
+        return operands;
+    }
+
+    /**
+     * Get the licenses of the expression as alternative choices. Each
+     * choice is a list of licenses that apply together, and any one of
+     * the choices may be used: "A OR (B AND C)" gives the choices [A] and
+     * [B, C].
+     * <p>
+     * Every subexpression is first looked up in the database as a whole,
+     * so combinations such as dual licenses can have their own entry. An
+     * unknown exception of a WITH expression does not change the license.
+     * Unknown license identifiers are left out of the choices.
+     * 
+     * @param database License database
+     * @param unknownIds Unknown license identifiers are added here
+     * @return Choices, in the order of the expression
+     */
+    public ArrayList<ArrayList<License>> getChoices(LicenseDatabase database,
+            ArrayList<String> unknownIds) {
+        ArrayList<ArrayList<License>> choices = new ArrayList<ArrayList<License>>();
+
+        License whole = database.getSpdxLicense(toString());
+        if (whole != null) {
+            choices.add(choice(whole));
+            return choices;
+        }
+
+        if (operator == null) {
+            unknownIds.add(id);
+            choices.add(new ArrayList<License>());
+        } else if (operator == Operator.WITH) {
+            ArrayList<License> c = new ArrayList<License>();
+            License license = database.getSpdxLicense(id);
+            if (license == null) {
+                unknownIds.add(id);
+            } else {
+                c.add(license);
+            }
+            License e = database.getSpdxLicense(exception);
+            if (e != null) c.add(e);
+            choices.add(c);
+        } else if (operator == Operator.OR) {
+            for (SpdxExpression e : operands)
+                choices.addAll(e.getChoices(database, unknownIds));
+        } else {
+            choices.add(new ArrayList<License>());
+            for (SpdxExpression e : operands) {
+                ArrayList<ArrayList<License>> right = e.getChoices(database, unknownIds);
+                if (choices.size() * right.size() > MAX_CHOICES) {
+                    /* too many to expand, all licenses apply */
+                    choices = merge(choices);
+                    right = merge(right);
+                }
+
+                ArrayList<ArrayList<License>> product = new ArrayList<ArrayList<License>>();
+                for (ArrayList<License> a : choices) {
+                    for (ArrayList<License> b : right) {
+                        ArrayList<License> c = new ArrayList<License>(a);
+                        for (License l : b) {
+                            if (!c.contains(l)) c.add(l);
+                        }
+                        product.add(c);
+                    }
+                }
+                choices = product;
+            }
+        }
+        return choices;
+    }
+
+    private static ArrayList<License> choice(License license) {
+        ArrayList<License> c = new ArrayList<License>();
+        c.add(license);
+        return c;
+    }
+
+    /**
+     * Merge choices to one choice that has all their licenses.
+     */
+    private static ArrayList<ArrayList<License>> merge(ArrayList<ArrayList<License>> choices) {
+        ArrayList<License> all = new ArrayList<License>();
+        for (ArrayList<License> c : choices) {
+            for (License l : c) {
+                if (!all.contains(l)) all.add(l);
+            }
+        }
+        ArrayList<ArrayList<License>> merged = new ArrayList<ArrayList<License>>();
+        merged.add(all);
+        return merged;
+    }
+
+    /**
+     * Get the expression in a canonical form: operators in upper case,
+     * single spaces, and parentheses only around operands that have a
+     * lower precedence operator.
+     */
+    public String toString() {
+        if (operator == null) return id;
+        if (operator == Operator.WITH) return id + " WITH " + exception;
+
+        StringBuffer sb = new StringBuffer();
+        for (SpdxExpression e : operands) {
+            if (sb.length() > 0) sb.append(' ').append(operator.name()).append(' ');
+            boolean nested = (operator == Operator.AND) && (e.operator == Operator.OR);
+            if (nested) sb.append('(');
+            sb.append(e.toString());
+            if (nested) sb.append(')');
+        }
+        return sb.toString();
+    }
+}
@@ -18,64 +18,66 @@
 
 package checker.matching;
 
-import java.lang.*;
-import java.util.*;
-
 /**
  * Produces a diff of two texts.
  * <p>
  * P. Heckel. A technique for Isolating Differences Between Files.<br>
  * _Communications of the ACM_ 21(4), April 1978, pp. 264-268.
+ * <p>
+ * Both texts are handled as WordDictionary IDs. The symbol table is not
+ * built here: the template side (copies and last position of each word,
+ * indexed by word ID) is cached in the template WordList, and the text
+ * side (copies and first position of each word, indexed by word position)
+ * is built once per comment WordList and shared by all licenses.
  * 
  * @author Lauri Koponen
  */
 public class Diff {
 
 	/**
-	 * Entry for diff symbol table.
+	 * Original old text (template)
 	 */
-	class SymbolTableEntry {
-
-		/** number of copies of this symbol in "old" data */
-		public int oc;
-
-		/** number of copies of this symbol in "new" data */
-		public int nc;
-
-		/** line number in "old" data */
-		public int olno;
+	int[] O;
 
-		/** line number in "new" data */
-		public int nwno;
-	};
+	/**
+	 * Original new text (text to be matched)
+	 */
+	int[] N;
 
 	/**
-	 * Symbol table that contains an entry for each word.
+	 * OA[i] contains information attached to O[i]. A value &gt;= 0 is an
+	 * index to N[], a negative value -1-id is the symbol of word id.
+	 * The array may be longer than O[], it is reused between diffs.
 	 */
-	Dictionary<String, SymbolTableEntry> symbolTable;
+	int[] OA;
 
 	/**
-	 * Original old text (template)
+	 * NA[i] contains information attached to N[i]. A value &gt;= 0 is an
+	 * index to O[], a negative value -1-id is the symbol of word id.
+	 * The array may be longer than N[], it is reused between diffs.
+	 */
+	int[] NA;
+	
+	/**
+	 * Number of copies of each word in O, indexed by word ID
 	 */
-	String[] O;
+	private int[] oc;
 
 	/**
-	 * Original new text (text to be matched)
+	 * Last position of each word in O, indexed by word ID
 	 */
-	String[] N;
+	private int[] olno;
 
 	/**
-	 * OA[i] contains information attached to O[i], either a SymbolTableEntry or
-	 * an Integer index to N[].
+	 * First position of the word N[i] in N
 	 */
-	Object[] OA;
+	private int[] nwno;
 
 	/**
-	 * NA[i] contains information attached to N[i], either a SymbolTableEntry or
-	 * an Integer index to O[].
+	 * Number of copies of the word N[i] in N
 	 */
-	Object[] NA;
-	
+	private int[] nc;
+
 	/**
 	 * foundNoneUnique is true if and only if a word was found for
 	 * which oc=1 and nc>1 AND no words were found for which oc=1 and nc=1.    
@@ -90,79 +92,92 @@ public class Diff {
 	 * @param N
 	 *            new text (text to be matched)
 	 */
-	Diff(String[] O, String[] N) {
+	Diff(WordList O, WordList N) {
 		diff(O, N);
 	}
 
 	/**
-	 * Produce a diff of two texts. This function creates the symbol table and
-	 * fills the arrays OA and NA and creates the symbol table.
+	 * Class constructor for an empty diff, to be filled with diff().
+	 * Used by MatchContext to reuse the work arrays for all licenses.
+	 */
+	Diff() {
+		OA = new int[0];
+		NA = new int[0];
+	}
+
+	/**
+	 * Get the line number in "old" data of the symbol of N[i].
+	 * Words that do not appear in the old data have line number 0.
 	 * 
-	 * @param O
+	 * @param i Index to N[]
+	 * @return Last index of the word in O[]
+	 */
+	int olno(int i) {
+		int id = N[i];
+		if (id >= olno.length) return 0;
+		return olno[id];
+	}
+
+	/**
+	 * Get the line number in "new" data of the symbol of N[i].
+	 * 
+	 * @param i Index to N[]
+	 * @return First index of the word in N[]
+	 */
+	int nwno(int i) {
+		return nwno[i];
+	}
+
+	/**
+	 * Produce a diff of two texts. This function fills the arrays OA
+	 * and NA, replacing the results of the previous diff. The arrays are
+	 * reallocated only if they are too short.
+	 * 
+	 * @param template
 	 *            old text (template)
-	 * @param N
+	 * @param text
 	 *            new text (text to be matched)
 	 */
-	private void diff(String[] O, String[] N) {
+	void diff(WordList template, WordList text) {
 		int i;
 
-		this.O = O;
-		this.N = N;
-		symbolTable = new Hashtable<String, SymbolTableEntry>();
-		OA = new Object[O.length];
-		NA = new Object[N.length];
-
-		/* Pass 1: create symbols for N */
+		O = template.getTokens();
+		N = text.getTokens();
+		oc = template.getOccurrences();
+		olno = template.getLastPositions();
+		nwno = text.getFirstPositions();
+		nc = text.getPositionCounts();
+		if ((OA == null) || (OA.length < O.length))
+			OA = new int[O.length];
+		if ((NA == null) || (NA.length < N.length))
+			NA = new int[N.length];
 
-		for (i = 0; i < N.length; i++) {
-
-			/* Create a new symbolTable entry if one doesn't exist */
-			SymbolTableEntry symbol = (SymbolTableEntry) symbolTable.get(N[i]);
-			if (symbol == null) {
-				symbol = new SymbolTableEntry();
-				symbolTable.put(N[i], symbol);
-				symbol.nwno = i;
-			}
+		/* Pass 1 and 2: attach symbols */
 
-			symbol.nc++;
-			NA[i] = symbol;
-		}
-
-		/* Pass 2: Create symbols for O */
+		for (i = 0; i < N.length; i++)
+			NA[i] = -1 - N[i];
 
-		for (i = 0; i < O.length; i++) {
-
-			/* Create a new symbolTable entry if one doesn't exist */
-			SymbolTableEntry symbol = (SymbolTableEntry) symbolTable.get(O[i]);
-			if (symbol == null) {
-				symbol = new SymbolTableEntry();
-				symbolTable.put(O[i], symbol);
-			}
-
-			symbol.oc++;
-			symbol.olno = i;
-			OA[i] = symbol;
-		}
+		for (i = 0; i < O.length; i++)
+			OA[i] = -1 - O[i];
 
 		/* Pass 3: Match unique lines */
 
-		/*
-		 * we could get rid of symbol.nwno by scanning through NA instead of
-		 * symbolTable. 
-		 */
+		/* each symbol is visited once, at its first position in N */
 		
 		foundNoneUnique = false;
 		boolean foundUnique = false;
 
-		for (Enumeration<SymbolTableEntry> e = symbolTable.elements(); e
-				.hasMoreElements();) {
-			SymbolTableEntry symbol = e.nextElement();
+		for (i = 0; i < N.length; i++) {
+			if (nwno[i] != i) continue;
+
+			int id = N[i];
+			if ((id >= oc.length) || (oc[id] != 1)) continue;
 
-			if ((symbol.nc == 1) && (symbol.oc == 1)) {
-				OA[symbol.olno] = new Integer(symbol.nwno);
-				NA[symbol.nwno] = new Integer(symbol.olno);
+			if (nc[i] == 1) {
+				OA[olno[id]] = i;
+				NA[i] = olno[id];
 				foundUnique = true;
-			} else if ((symbol.nc > 1) && (symbol.oc == 1)) {
+			} else {
 				foundNoneUnique = true;
 			}
 		}
@@ -171,11 +186,11 @@ public class Diff {
 		/* Pass 4: Extend common lines forwards */
 
 		for (i = 0; i < N.length - 1; i++) {
-			Object naEntry = NA[i];
+			int naEntry = NA[i];
 
 			/* If an index to O */
-			if (naEntry instanceof Integer) {
-				int j = ((Integer) naEntry).intValue();
+			if (naEntry >= 0) {
+				int j = naEntry;
 
 				/* Must not exceed array bounds */
 				if (j + 1 >= O.length) {
@@ -183,12 +198,12 @@ public class Diff {
 				}
 
 				/*
-				 * Are the symbols the same? same integer cannot be in both
-				 * arrays.
+				 * Are the symbols the same? indices are never equal
+				 * symbols.
 				 */
-				if (NA[i + 1] == OA[j + 1]) {
-					OA[j + 1] = new Integer(i + 1);
-					NA[i + 1] = new Integer(j + 1);
+				if ((NA[i + 1] < 0) && (NA[i + 1] == OA[j + 1])) {
+					OA[j + 1] = i + 1;
+					NA[i + 1] = j + 1;
 				}
 			}
 		}
@@ -196,11 +211,11 @@ public class Diff {
 		/* Pass 5: Extend common lines backwards */
 
 		for (i = N.length - 1; i >= 1; i--) {
-			Object naEntry = NA[i];
+			int naEntry = NA[i];
 
 			/* If an index to O */
-			if (naEntry instanceof Integer) {
-				int j = ((Integer) naEntry).intValue();
+			if (naEntry >= 0) {
+				int j = naEntry;
 
 				/* Must not exceed array bounds */
 				if (j - 1 < 0) {
@@ -208,12 +223,12 @@ public class Diff {
 				}
 
 				/*
-				 * Are the symbols the same? same integer cannot be in both
-				 * arrays.
+				 * Are the symbols the same? indices are never equal
+				 * symbols.
 				 */
-				if (NA[i - 1] == OA[j - 1]) {
-					OA[j - 1] = new Integer(i - 1);
-					NA[i - 1] = new Integer(j - 1);
+				if ((NA[i - 1] < 0) && (NA[i - 1] == OA[j - 1])) {
+					OA[j - 1] = i - 1;
+					NA[i - 1] = j - 1;
 				}
 			}
 		}
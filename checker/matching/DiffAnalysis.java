@@ -60,7 +60,17 @@ public class DiffAnalysis {
 	 */
 	private float match;
 	
-	ArrayList<MatchPosition> foundPositions = null;
+	ArrayList<MatchPosition> foundPositions = new ArrayList<MatchPosition>();
+
+	/**
+	 * Result of scanBackwards(): start index in diff.N[] and diff.O[]
+	 */
+	private int scanText, scanTemplate;
+
+	/**
+	 * Buffer for building tag values
+	 */
+	private StringBuffer tagValue = new StringBuffer();
 
 	/**
 	 * Get the match percentage.
@@ -72,7 +82,8 @@ public class DiffAnalysis {
 	}
 
 	/**
-	 * Get the found matches.
+	 * Get the found matches. The list is reused by the next analysis
+	 * done with this instance.
 	 * 
 	 * @return list of found matches
 	 */
@@ -109,14 +120,46 @@ public class DiffAnalysis {
 	 */
 	public DiffAnalysis(Diff diff, WordList template, WordList text,
 			double minMatch, ArrayList<Tag> tags) {
+		this();
+		analyse(diff, template, text, minMatch, tags);
+	}
+	
+	/**
+	 * Class constructor for an empty analysis, to be filled with
+	 * analyse(). Used by MatchContext to reuse one instance for all
+	 * licenses.
+	 */
+	DiffAnalysis() {
+		this.tags = new HashMap<String, String>();
+		this.tagStart = new HashMap<String, Integer>();
+	}
+	
+	/**
+	 * Analyze a Diff result, replacing the results of the previous
+	 * analysis.
+	 * 
+	 * @param diff
+	 *            Diff to be analysed
+	 * @param template
+	 *            license template used in matching
+	 * @param text
+	 *            comments used in matching
+	 * @param minMatch
+	 *            Minimum matched substring length,
+	 *            percentage of total length in range 0.0 .. 1.0
+	 * @param tags
+	 *            tags of the license
+	 */
+	void analyse(Diff diff, WordList template, WordList text,
+			double minMatch, ArrayList<Tag> tags) {
 		this.diff = diff;
 		this.templatewords = template;
 		this.textwords = text;
 		
 		this.licenseTags = tags;
-		this.tags = new HashMap<String, String>();
-		this.tagStart = new HashMap<String, Integer>();
-
+		this.tags.clear();
+		this.tagStart.clear();
+		
 		analysis(minMatch);
 	}
 	
@@ -144,15 +187,17 @@ public class DiffAnalysis {
 	{
 		/* diff.O[oi] is the "<tag>" and diff.N[i] is the last word of the tag value */
 		
-		String tag = diff.O[oi];
-		StringBuffer sb = new StringBuffer();
+		String tag = WordDictionary.getWord(diff.O[oi]);
+		StringBuffer sb = tagValue;
 		int length = 0;
 
 		/* check for overflow */
 		if(oi - 1 < 0) return -1;
 		
+		sb.setLength(0);
+		
 		while((i >= 0) && (length < MAX_TAG_LENGTH)) {
-			if (diff.N[i].equals(diff.O[oi - 1])) {
+			if (diff.N[i] == diff.O[oi - 1]) {
 				storeTag(tag, sb.toString(), i + 1);
 				
 				/* scanned one too far in loop */
@@ -162,7 +207,7 @@ public class DiffAnalysis {
 			/* add this word to the tag */
 			if(length != 0)
 				sb.insert(0, ' '); /* words separated by spaces */
-			sb.insert(0, diff.N[i]);
+			sb.insert(0, textwords.getWord(i));
 			i--;
 			length++;
 		}
@@ -183,15 +228,17 @@ public class DiffAnalysis {
 		/* diff.O[oi] is the "<tag>" and diff.N[i] is the first word of the tag value */
 		
 		int si = i; /* tag start index */
-		String tag = diff.O[oi];
-		StringBuffer sb = new StringBuffer();
+		String tag = WordDictionary.getWord(diff.O[oi]);
+		StringBuffer sb = tagValue;
 		int length = 0;
 		
 		/* check for overflow */
 		if(oi + 1 >= diff.O.length) return -1;
 		
+		sb.setLength(0);
+		
 		while((i < diff.N.length) && (length < MAX_TAG_LENGTH)) {
-			if (diff.N[i].equals(diff.O[oi + 1])) {
+			if (diff.N[i] == diff.O[oi + 1]) {
 				storeTag(tag, sb.toString(), si);
 				
 				/* scanned one too far in loop */
@@ -201,7 +248,7 @@ public class DiffAnalysis {
 			/* add this word to the tag */
 			if(length != 0)
 				sb.append(' '); /* words separated by spaces */
-			sb.append(diff.N[i]);
+			sb.append(textwords.getWord(i));
 			i++;
 			length++;
 		}
@@ -214,16 +261,16 @@ public class DiffAnalysis {
 	 * Scan backwards from a found it at diff.N[i] and locate the real
 	 * start of the matching substring.
 	 * 
-	 * @param i  Found location of a match. diff.NA[i] must be an Integer
+	 * @param i  Found location of a match. diff.NA[i] must be an index
 	 * @param oi Index in diff.O[] that matches diff.NA[i]
-	 * @return
+	 * @return The start indices are stored in scanText and scanTemplate
 	 */
-	private int[] scanBackwards(int i, int oi) {
+	private void scanBackwards(int i, int oi) {
 		
 		boolean dobreak = false;
 
 		/* index in diff.O[] */
-		//int oi = ((Integer) diff.NA[i]).intValue();
+		//int oi = diff.NA[i];
 		
 		do {
 		
@@ -248,7 +295,7 @@ public class DiffAnalysis {
 			if((i == 0) || (oi == 0)) break;
 			
 			/* scan as long as words match */
-			while (diff.O[oi - 1].equals(diff.N[i - 1])) {
+			while (diff.O[oi - 1] == diff.N[i - 1]) {
 	
 				/* scan backwards */
 				oi--;
@@ -264,33 +311,21 @@ public class DiffAnalysis {
 			}
 		} while(!dobreak);
 		
-		int result[] = new int[2];
-		result[0] = i;
-		result[1] = oi;
-		return result;
+		scanText = i;
+		scanTemplate = oi;
 	}
 
 	/**
 	 * Check if a word is a tag. If the word starts with a "&lt;" and ends
 	 * with "&gt;", it is assumed to be a tag.
 	 * 
-	 * @param word Word to check
+	 * @param word ID of the word to check
 	 * @return True if the word is a tag, false otherwise
 	 */
-	private boolean isTag(String word) {
+	private boolean isTag(int word) {
 		
 		/* TODO: add tag checking from license info */
-		if (word.startsWith("<") && word.endsWith(">")) {
-			
-			for (Tag t : licenseTags) {
-				if (t.getId().equals(word)) {
-					return true;
-				}
-			}
-			return true;
-		}
-		
-		return false;
+		return WordDictionary.isTag(word);
 	}
 	
 	/**
@@ -301,7 +336,8 @@ public class DiffAnalysis {
 	private void findPositions(double minMatch) {
 		int i;
 
-		ArrayList<MatchPosition> pos = new ArrayList<MatchPosition>();
+		ArrayList<MatchPosition> pos = foundPositions;
+		pos.clear();
 		
 		/* position in source code */
 		int start_row = -1, start_col = 0;
@@ -315,7 +351,11 @@ public class DiffAnalysis {
 		int match_length = 0;
 		int best_length = 0;
 		int total_length = 0; /* total number of matched words */
-		MatchPosition bestMatch = null;
+		
+		/* best match so far, the MatchPosition is created at the end */
+		boolean bestFound = false;
+		int b_start_row = 0, b_start_col = 0, b_end_row = 0, b_end_col = 0;
+		int b_t_start_row = 0, b_t_start_col = 0, b_t_end_row = 0, b_t_end_col = 0;
 		
 		boolean continuous = false;
 		int oi = 0; /* found index in diff.O[] */
@@ -326,26 +366,25 @@ public class DiffAnalysis {
 			 * word in template, found a match.
 			 */ 
 			
-			if (diff.NA[i] instanceof Integer
-					&& (diff.NA[i + 1] instanceof Integer)) {
+			if ((diff.NA[i] >= 0) && (diff.NA[i + 1] >= 0)) {
 
-				int oi1 = ((Integer) diff.NA[i]).intValue();
-				int oi2 = ((Integer) diff.NA[i + 1]).intValue();
+				int oi1 = diff.NA[i];
+				int oi2 = diff.NA[i + 1];
 
 				if ((oi1 + 1) == oi2) {
 					/* words are sequential in template */
 
 					if (start_row == -1) {
-						int start[] = scanBackwards(i, oi1);
+						scanBackwards(i, oi1);
 						/* start a new match */
-						start_row = textwords.row.get(start[0]);
-						start_col = textwords.col.get(start[0]);
-						t_start_row = templatewords.row.get(start[1]);
-						t_start_col = templatewords.col.get(start[1]);
+						start_row = textwords.getRow(scanText);
+						start_col = textwords.getCol(scanText);
+						t_start_row = templatewords.getRow(scanTemplate);
+						t_start_col = templatewords.getCol(scanTemplate);
 						
 						/* count the words already found in new match */
 						/* using the template is safer for counting words */
-						match_length = (oi1 + 1 - start[1]); 
+						match_length = (oi1 + 1 - scanTemplate); 
 					}
 					
 					/* current found match ends at the next word */
@@ -367,28 +406,28 @@ public class DiffAnalysis {
 			
 			/* or if foundNoneUnique is set, also consider first instance of each word */
 			else if (diff.foundNoneUnique
-				&& ((diff.NA[i] instanceof Diff.SymbolTableEntry)
-						&& (((Diff.SymbolTableEntry)diff.NA[i]).nwno == i)
-						&& (diff.NA[i + 1] instanceof Diff.SymbolTableEntry)
-						&& (((Diff.SymbolTableEntry)diff.NA[i + 1])).nwno == i + 1)) {
+				&& ((diff.NA[i] < 0)
+						&& (diff.nwno(i) == i)
+						&& (diff.NA[i + 1] < 0)
+						&& (diff.nwno(i + 1) == i + 1))) {
 
-				int oi1 =((Diff.SymbolTableEntry)diff.NA[i]).olno; 
-				int oi2 =((Diff.SymbolTableEntry)diff.NA[i + 1]).olno;
+				int oi1 = diff.olno(i); 
+				int oi2 = diff.olno(i + 1);
 
 				if ((oi1 + 1) == oi2) {
 					/* words are sequential in template */
 				
 					if (start_row == -1) {
-						int start[] = scanBackwards(i, oi1);
+						scanBackwards(i, oi1);
 						/* start a new match */
-						start_row = textwords.row.get(start[0]);
-						start_col = textwords.col.get(start[0]);
-						t_start_row = templatewords.row.get(start[1]);
-						t_start_col = templatewords.col.get(start[1]);
+						start_row = textwords.getRow(scanText);
+						start_col = textwords.getCol(scanText);
+						t_start_row = templatewords.getRow(scanTemplate);
+						t_start_col = templatewords.getCol(scanTemplate);
 						
 						/* count the words already found in new match */
 						/* using the template is safer for counting words */
-						match_length = (oi1 + 1 - start[1]); 
+						match_length = (oi1 + 1 - scanTemplate); 
 					}
 					
 					/* current found match ends at the next word */
@@ -423,13 +462,13 @@ public class DiffAnalysis {
 					continuous = true;
 				}
 				
-			} else if(continuous && (diff.NA[i + 1] instanceof Diff.SymbolTableEntry)) {
+			} else if(continuous && (diff.NA[i + 1] < 0)) {
 				/* found a word that has more than one hit in either the
 				 * source text or the template.
 				 */
 
 				/* if the words match, continue found hit */
-				if((oi + 1 < diff.O.length) && diff.N[i + 1].equals(diff.O[oi + 1])) {
+				if((oi + 1 < diff.O.length) && (diff.N[i + 1] == diff.O[oi + 1])) {
 					/* words match */
 					
 					oi++;
@@ -445,20 +484,22 @@ public class DiffAnalysis {
 				if (start_row != -1) {
 					/* found match ends */
 					
-					end_row = textwords.row.get(i);
-					end_col = textwords.col.get(i)
-						+ textwords.len.get(i) - 1;
+					end_row = textwords.getRow(i);
+					end_col = textwords.getCol(i)
+						+ textwords.getLength(i) - 1;
 
-					t_end_row = templatewords.row.get(oi);
-					t_end_col = templatewords.col.get(oi)
-						+ templatewords.len.get(oi) - 1;
+					t_end_row = templatewords.getRow(oi);
+					t_end_col = templatewords.getCol(oi)
+						+ templatewords.getLength(oi) - 1;
 					
 					total_length += match_length;
 					if(match_length > best_length) {
 						best_length = match_length;
-						bestMatch = new MatchPosition(start_row, start_col,
-								end_row, end_col, t_start_row, t_start_col,
-								t_end_row, t_end_col, 0, match_length); 
+						bestFound = true;
+						b_start_row = start_row; b_start_col = start_col;
+						b_end_row = end_row; b_end_col = end_col;
+						b_t_start_row = t_start_row; b_t_start_col = t_start_col;
+						b_t_end_row = t_end_row; b_t_end_col = t_end_col;
 					}
 					start_row = -1;
 				}
@@ -468,33 +509,35 @@ public class DiffAnalysis {
 		/* check if a match is still open */
 		if (start_row != -1) {
 			
-			end_row = textwords.row.get(i);
-			end_col = textwords.col.get(i)
-				+ textwords.len.get(i) - 1;
+			end_row = textwords.getRow(i);
+			end_col = textwords.getCol(i)
+				+ textwords.getLength(i) - 1;
 
-			t_end_row = templatewords.row.get(oi);
-			t_end_col = templatewords.col.get(oi)
-				+ templatewords.len.get(oi) - 1;
+			t_end_row = templatewords.getRow(oi);
+			t_end_col = templatewords.getCol(oi)
+				+ templatewords.getLength(oi) - 1;
 			
 			total_length += match_length;
 			if(match_length > best_length) {
 				best_length = match_length;
-				bestMatch = new MatchPosition(start_row, start_col,
-						end_row, end_col, t_start_row, t_start_col,
-						t_end_row, t_end_col, 0, match_length);
+				bestFound = true;
+				b_start_row = start_row; b_start_col = start_col;
+				b_end_row = end_row; b_end_col = end_col;
+				b_t_start_row = t_start_row; b_t_start_col = t_start_col;
+				b_t_end_row = t_end_row; b_t_end_col = t_end_col;
 			}
 		}
 
-		if ((bestMatch != null) &&
+		if (bestFound &&
 			((double)best_length / (double)diff.O.length)
 				>= minMatch) {
 			
+			MatchPosition bestMatch = new MatchPosition(b_start_row, b_start_col,
+					b_end_row, b_end_col, b_t_start_row, b_t_start_col,
+					b_t_end_row, b_t_end_col, 0, best_length);
 			bestMatch.setOrigMatchLength(total_length);
 			pos.add(bestMatch);
 		}
-		
-		
-		foundPositions = pos;
 	}
 
 	/**
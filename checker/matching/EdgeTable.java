@@ -0,0 +1,155 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+/**
+ * Transition table of a word automaton. Maps (state, word) pairs to
+ * the next state in an open addressing table of primitive keys, so
+ * building and running the automaton does not box anything.
+ * <p>
+ * States are positive integers, except for the start state 0 which is
+ * never the target of an edge. A stored target of 0 marks an empty slot.
+ */
+class EdgeTable {
+
+	/**
+	 * Edge keys, (state &lt;&lt; 32 | word)
+	 */
+	private long[] keys;
+
+	/**
+	 * Target state of each slot, 0 if the slot is empty
+	 */
+	private int[] targets;
+
+	/**
+	 * Number of edges in the table
+	 */
+	private int size;
+
+	/**
+	 * Create an empty table.
+	 *
+	 * @param edges Expected number of edges
+	 */
+	EdgeTable(int edges) {
+		int capacity = 16;
+		while (capacity < edges * 2)
+			capacity *= 2;
+		keys = new long[capacity];
+		targets = new int[capacity];
+	}
+
+	private static long key(int state, int word) {
+		return ((long) state << 32) | (word & 0xffffffffL);
+	}
+
+	private static int slot(long key, int mask) {
+		int h = (int) (key ^ (key >>> 32)) * 0x9e3779b9;
+		h ^= (h >>> 16);
+		return h & mask;
+	}
+
+	/**
+	 * Get the target of an edge.
+	 *
+	 * @return Next state or -1 if there is no edge
+	 */
+	int get(int state, int word) {
+		long key = key(state, word);
+		int mask = keys.length - 1;
+		for (int s = slot(key, mask); targets[s] != 0; s = (s + 1) & mask) {
+			if (keys[s] == key) return targets[s];
+		}
+		return -1;
+	}
+
+	/**
+	 * Add an edge or change the target of an existing edge.
+	 *
+	 * @param next Target state, must be positive
+	 */
+	void put(int state, int word, int next) {
+		if ((size + 1) * 2 > keys.length)
+			grow();
+
+		long key = key(state, word);
+		int mask = keys.length - 1;
+		int s = slot(key, mask);
+		while (targets[s] != 0) {
+			if (keys[s] == key) {
+				targets[s] = next;
+				return;
+			}
+			s = (s + 1) & mask;
+		}
+		keys[s] = key;
+		targets[s] = next;
+		size++;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldTargets = targets;
+
+		keys = new long[oldKeys.length * 2];
+		targets = new int[oldKeys.length * 2];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldTargets[i] == 0) continue;
+			int s = slot(oldKeys[i], mask);
+			while (targets[s] != 0)
+				s = (s + 1) & mask;
+			keys[s] = oldKeys[i];
+			targets[s] = oldTargets[i];
+		}
+	}
+
+	/**
+	 * @return Number of edges
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return Number of slots, for iterating over the edges with
+	 *         {@link #isEdge(int)}, {@link #source(int)},
+	 *         {@link #word(int)} and {@link #target(int)}
+	 */
+	int slots() {
+		return keys.length;
+	}
+
+	boolean isEdge(int slot) {
+		return targets[slot] != 0;
+	}
+
+	int source(int slot) {
+		return (int) (keys[slot] >>> 32);
+	}
+
+	int word(int slot) {
+		return (int) keys[slot];
+	}
+
+	int target(int slot) {
+		return targets[slot];
+	}
+}
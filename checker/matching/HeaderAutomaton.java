@@ -0,0 +1,245 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import checker.license.ForbiddenPhrase;
+import checker.license.License;
+import checker.license.Tag;
+
+/**
+ * Recognizes comments that are a license template exactly, with any words
+ * in place of the tags. Each template is compiled to a state machine over
+ * word IDs: a word state accepts its word, a tag state accepts 1 ..
+ * MAX_TAG_LENGTH - 1 words up to the next word of the template. The
+ * machines are indexed by their first word, so the comments are read once
+ * by each template that starts like them.
+ * <p>
+ * A machine accepts only input that Diff and DiffAnalysis would match
+ * completely, and gives the same MatchPosition and tags. Templates that
+ * start or end with a tag or have two tags in a row are not compiled, and
+ * a tag value must not contain the words around the tag or other tags.
+ * Other comments are left to Diff.
+ */
+class HeaderAutomaton {
+
+	/**
+	 * Longest tag value in words, as in DiffAnalysis
+	 */
+	private static final int MAX_TAG_WORDS = DiffAnalysis.MAX_TAG_LENGTH - 1;
+
+	/**
+	 * Compiled templates
+	 */
+	private License[] licenses;
+	private LicenseTemplate[] templates;
+
+	/**
+	 * Number of words and number of tags in each template
+	 */
+	private int[] words;
+	private int[] tags;
+
+	/**
+	 * Templates by their first word
+	 */
+	private HashMap<Integer, int[]> byFirstWord = new HashMap<Integer, int[]>();
+
+	/**
+	 * Compile the templates of a list of licenses.
+	 *
+	 * @param licenseList Licenses, forbidden phrases are skipped
+	 */
+	HeaderAutomaton(ArrayList<License> licenseList) {
+		ArrayList<License> list = new ArrayList<License>();
+		ArrayList<LicenseTemplate> listTemplates = new ArrayList<LicenseTemplate>();
+
+		for (License license : licenseList) {
+			if (license instanceof ForbiddenPhrase) continue;
+			LicenseTemplate template = license.getTemplate();
+			if (!isCompilable(template)) continue;
+			list.add(license);
+			listTemplates.add(template);
+		}
+
+		licenses = list.toArray(new License[list.size()]);
+		templates = listTemplates.toArray(new LicenseTemplate[listTemplates.size()]);
+		words = new int[licenses.length];
+		tags = new int[licenses.length];
+
+		HashMap<Integer, ArrayList<Integer>> first =
+			new HashMap<Integer, ArrayList<Integer>>();
+		for (int l = 0; l < licenses.length; l++) {
+			tags[l] = templates[l].getTagCount();
+			words[l] = templates[l].size() - tags[l];
+
+			Integer key = Integer.valueOf(templates[l].words.getToken(0));
+			ArrayList<Integer> a = first.get(key);
+			if (a == null) {
+				a = new ArrayList<Integer>();
+				first.put(key, a);
+			}
+			a.add(Integer.valueOf(l));
+		}
+
+		for (Integer key : first.keySet()) {
+			ArrayList<Integer> a = first.get(key);
+			int[] b = new int[a.size()];
+			for (int i = 0; i < b.length; i++)
+				b[i] = a.get(i).intValue();
+			byFirstWord.put(key, b);
+		}
+	}
+
+	/**
+	 * Check if a template can be compiled: at least two words, no tag at
+	 * either end and no two tags in a row.
+	 */
+	private static boolean isCompilable(LicenseTemplate template) {
+		int size = template.size();
+		if (size < 2) return false;
+
+		int previous = -1;
+		for (int k = 0; k < template.getTagCount(); k++) {
+			int position = template.getTagPosition(k);
+			if ((position == 0) || (position == size - 1)
+					|| (position == previous + 1)) {
+				return false;
+			}
+			previous = position;
+		}
+		return true;
+	}
+
+	/**
+	 * Find the templates the comments are exactly.
+	 *
+	 * @param comments Comment words
+	 * @return Match of each accepting license, empty if none
+	 */
+	HashMap<License, LicenseMatch> match(WordList comments) {
+		HashMap<License, LicenseMatch> found = new HashMap<License, LicenseMatch>();
+
+		int[] n = comments.getTokens();
+		if (n.length < 2) return found;
+
+		int[] candidates = byFirstWord.get(Integer.valueOf(n[0]));
+		if (candidates == null) return found;
+
+		for (int l : candidates) {
+			/* every tag takes 1 .. MAX_TAG_WORDS words */
+			if ((n.length < words[l] + tags[l])
+					|| (n.length > words[l] + tags[l] * MAX_TAG_WORDS)) {
+				continue;
+			}
+
+			LicenseMatch m = run(l, comments);
+			if (m != null) found.put(licenses[l], m);
+		}
+		return found;
+	}
+
+	/**
+	 * Run the machine of one template over the comments.
+	 *
+	 * @param l Index of the template
+	 * @param comments Comment words
+	 * @return Match covering all comments, null if not accepted
+	 */
+	private LicenseMatch run(int l, WordList comments) {
+		int[] n = comments.getTokens();
+		LicenseTemplate compiled = templates[l];
+		WordList template = compiled.words;
+		int[] t = template.getTokens();
+
+		/* value and first comment word of each tag */
+		String[] values = null;
+		int[] starts = null;
+
+		int j = 0;
+		int tag = 0;
+		for (int k = 0; k < t.length; k++) {
+			if (!WordDictionary.isTag(t[k])) {
+				if ((j >= n.length) || (n[j] != t[k])) return null;
+				j++;
+				continue;
+			}
+
+			/* the tag ends at the next template word */
+			int start = j;
+			while ((j < n.length) && (n[j] != t[k + 1])) {
+				if ((n[j] == t[k - 1]) || WordDictionary.isTag(n[j])
+						|| (j - start >= MAX_TAG_WORDS)) {
+					return null;
+				}
+				j++;
+			}
+			if ((j == start) || (j >= n.length)) return null;
+
+			StringBuffer sb = new StringBuffer();
+			for (int i = start; i < j; i++) {
+				if (i != start)
+					sb.append(' '); /* words separated by spaces */
+				sb.append(comments.getWord(i));
+			}
+
+			if (values == null) {
+				values = new String[compiled.getTagCount()];
+				starts = new int[values.length];
+			}
+			values[tag] = sb.toString();
+			starts[tag] = start;
+			tag++;
+		}
+		if (j != n.length) return null;
+
+		int last = n.length - 1;
+		int tlast = t.length - 1;
+		MatchPosition mp = new MatchPosition(
+				comments.getRow(0), comments.getCol(0),
+				comments.getRow(last), comments.getCol(last) + comments.getLength(last) - 1,
+				template.getRow(0), template.getCol(0),
+				template.getRow(tlast), template.getCol(tlast) + template.getLength(tlast) - 1,
+				0, t.length);
+		mp.setOrigMatchLength(t.length);
+
+		ArrayList<MatchPosition> positions = new ArrayList<MatchPosition>();
+		positions.add(mp);
+		License license = licenses[l];
+		LicenseMatch match = new LicenseMatch(license, positions);
+
+		if ((values != null) && (license.getTags() != null)) {
+			for (Tag licenseTag : license.getTags()) {
+				/* the last tag of the template with this ID gives the value */
+				for (int k = values.length - 1; k >= 0; k--) {
+					Tag slot = compiled.getTagSlot(k);
+					if ((slot != null) && slot.getId().equals(licenseTag.getId())) {
+						match.addTag(licenseTag, values[k], starts[k]);
+						break;
+					}
+				}
+			}
+		}
+		match.setMatchPr(1.0f);
+
+		return match;
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+/**
+ * Produces a diff of two texts from a longest common subsequence, computed
+ * with a bit-parallel algorithm in O(n*m/64) time.
+ * <p>
+ * H. Hyyr&ouml;. Bit-parallel LCS-length computation revisited.<br>
+ * _Proc. 15th Australasian Workshop on Combinatorial Algorithms_, 2004,
+ * pp. 16-27.
+ * <p>
+ * The template is the bit vector side: for each comment word, the vector V
+ * gets a bit for every template position, and bit i is 0 if the LCS of
+ * the template up to i and the comments so far grows at i. The vectors of
+ * all comment words that appear in the template are kept, and the LCS is
+ * traced back from them. The result is stored in OA and NA like the
+ * results of Diff, so DiffAnalysis reads it unchanged.
+ * <p>
+ * Unlike Diff, words that occur many times are matched as well as unique
+ * words, so repetitive text does not defeat the match. Inputs whose
+ * vectors would take more than MAX_CELLS longs are matched with Diff.
+ */
+class LcsDiff extends Diff {
+
+	/**
+	 * Maximum number of 64-bit words kept for the traceback
+	 */
+	static final int MAX_CELLS = 1 << 21;
+
+	/**
+	 * Row of each template word ID in peq, -1 if not in the template
+	 */
+	private int[] rowOf = new int[0];
+
+	/**
+	 * Match vectors: bit i of row r is set if the template word at i is
+	 * the word of row r
+	 */
+	private long[] peq = new long[0];
+
+	/**
+	 * The current vector V
+	 */
+	private long[] v = new long[0];
+
+	/**
+	 * Stored vectors of the comment words that appear in the template
+	 */
+	private long[] columns = new long[0];
+
+	/**
+	 * Index of the stored vector of each comment word, in columns[]
+	 */
+	private int[] columnOf = new int[0];
+
+	/**
+	 * Class constructor for an empty diff, to be filled with diff().
+	 */
+	LcsDiff() {
+		super();
+	}
+
+	/**
+	 * Produce a diff of two texts. This function fills the arrays OA
+	 * and NA, replacing the results of the previous diff.
+	 *
+	 * @param template
+	 *            old text (template)
+	 * @param text
+	 *            new text (text to be matched)
+	 */
+	void diff(WordList template, WordList text) {
+		int[] o = template.getTokens();
+		int[] n = text.getTokens();
+		int m = o.length;
+		int blocks = (m + 63) >>> 6;
+
+		if ((long) blocks * (long) n.length > MAX_CELLS) {
+			super.diff(template, text);
+			return;
+		}
+
+		O = o;
+		N = n;
+		foundNoneUnique = false;
+		if (OA.length < m) OA = new int[m];
+		if (NA.length < n.length) NA = new int[n.length];
+
+		for (int i = 0; i < n.length; i++)
+			NA[i] = -1 - n[i];
+		for (int i = 0; i < m; i++)
+			OA[i] = -1 - o[i];
+
+		if ((m == 0) || (n.length == 0)) return;
+
+		/* match vectors of the template words */
+		int rows = 0;
+		for (int i = 0; i < m; i++) {
+			int id = o[i];
+			if (id >= rowOf.length) growRows(id + 1);
+			if (rowOf[id] < 0) rowOf[id] = rows++;
+		}
+		if (peq.length < rows * blocks) peq = new long[rows * blocks];
+		for (int i = 0; i < rows * blocks; i++)
+			peq[i] = 0;
+		for (int i = 0; i < m; i++)
+			peq[rowOf[o[i]] * blocks + (i >>> 6)] |= 1L << (i & 63);
+
+		if (v.length < blocks) v = new long[blocks];
+		for (int k = 0; k < blocks; k++)
+			v[k] = -1L;
+		if (columnOf.length < n.length) columnOf = new int[n.length];
+
+		/* count the stored vectors first to size columns[] */
+		int stored = 0;
+		for (int j = 0; j < n.length; j++) {
+			if ((n[j] < rowOf.length) && (rowOf[n[j]] >= 0)) stored++;
+		}
+		if (columns.length < (stored + 1) * blocks)
+			columns = new long[(stored + 1) * blocks];
+
+		/* column 0 of columns[] is the initial vector */
+		for (int k = 0; k < blocks; k++)
+			columns[k] = -1L;
+		int last = 0;
+
+		for (int j = 0; j < n.length; j++) {
+			int id = n[j];
+			int r = (id < rowOf.length) ? rowOf[id] : -1;
+			if (r < 0) {
+				/* the vector does not change */
+				columnOf[j] = last;
+				continue;
+			}
+
+			/* V = (V + U) | (V - U), U = V & peq; V - U is V & ~U */
+			int p = r * blocks;
+			long carry = 0;
+			for (int k = 0; k < blocks; k++) {
+				long x = v[k];
+				long u = x & peq[p + k];
+				long sum = x + u + carry;
+				carry = ((x & u) | ((x | u) & ~sum)) >>> 63;
+				v[k] = sum | (x & ~u);
+			}
+
+			last += blocks;
+			System.arraycopy(v, 0, columns, last, blocks);
+			columnOf[j] = last;
+		}
+
+		/* trace back: take equal words, otherwise go up if the LCS does
+		 * not grow at template position i, left if it does */
+		int i = m - 1;
+		int j = n.length - 1;
+		while ((i >= 0) && (j >= 0)) {
+			if (o[i] == n[j]) {
+				OA[i] = j;
+				NA[j] = i;
+				i--;
+				j--;
+			} else if (((columns[columnOf[j] + (i >>> 6)] >>> (i & 63)) & 1) != 0) {
+				i--;
+			} else {
+				j--;
+			}
+		}
+
+		/* clear the rows for the next template */
+		for (int k = 0; k < m; k++)
+			rowOf[o[k]] = -1;
+	}
+
+	/**
+	 * Grow rowOf to hold a word ID.
+	 */
+	private void growRows(int size) {
+		int[] r = new int[Math.max(size, rowOf.length * 2)];
+		System.arraycopy(rowOf, 0, r, 0, rowOf.length);
+		for (int k = rowOf.length; k < r.length; k++)
+			r[k] = -1;
+		rowOf = r;
+	}
+}
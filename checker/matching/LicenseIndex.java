@@ -0,0 +1,174 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+
+import checker.license.License;
+
+/**
+ * Compiled indices of one license collection: the shingle index, the
+ * forbidden phrase automaton, the compiled templates, the template suffix
+ * automaton and the match cache. All of them are built from the same
+ * licenses, so a match that uses one index object never mixes structures
+ * of different collections.
+ * <p>
+ * The indices are not modified after they are built, and the match cache
+ * synchronizes itself, so an index can be used by any number of matching
+ * threads. The suffix automaton is only used by the RUNS algorithm. It is
+ * built with the other indices when RUNS is the selected algorithm, and
+ * otherwise on first use, if the algorithm is changed later.
+ */
+public final class LicenseIndex {
+
+	/**
+	 * The licenses in collection order
+	 */
+	private final License[] licenses;
+
+	/**
+	 * Shingle index, null if the collection is too small to be indexed
+	 */
+	private final ShingleIndex shingleIndex;
+
+	/**
+	 * Forbidden phrases of the collection
+	 */
+	private final PhraseAutomaton phraseAutomaton;
+
+	/**
+	 * Compiled templates of the collection
+	 */
+	private final HeaderAutomaton headerAutomaton;
+
+	/**
+	 * Suffix automaton of the templates, null until it is built
+	 */
+	private volatile TemplateAutomaton templateAutomaton = null;
+
+	/**
+	 * Results of earlier matches against the collection, null if caching
+	 * is disabled
+	 */
+	private final MatchCache matchCache;
+
+	/**
+	 * Build the indices of a license collection.
+	 *
+	 * @param list Licenses in collection order
+	 * @param shingles True to build the shingle index
+	 * @param cacheSize Maximum number of cached match results, 0 to
+	 *            disable the match cache
+	 * @param runs True to build the template suffix automaton now
+	 */
+	LicenseIndex(ArrayList<License> list, boolean shingles, int cacheSize,
+			boolean runs) {
+		licenses = list.toArray(new License[list.size()]);
+
+		ArrayList<WordList> words = new ArrayList<WordList>();
+		for (License l : list)
+			words.add(l.getTemplate().words);
+
+		shingleIndex = shingles ? new ShingleIndex(list, words) : null;
+		phraseAutomaton = new PhraseAutomaton(list, words);
+		headerAutomaton = new HeaderAutomaton(list);
+		matchCache = (cacheSize > 0) ? new MatchCache(cacheSize) : null;
+		if (runs) templateAutomaton = new TemplateAutomaton(list, words);
+	}
+
+	/**
+	 * Get the licenses of the collection.
+	 *
+	 * @return Licenses in collection order. The array is shared and must
+	 *         not be modified.
+	 */
+	License[] getLicenses() {
+		return licenses;
+	}
+
+	/**
+	 * @return Shingle index, null if the collection is too small to
+	 *         benefit from indexing
+	 */
+	ShingleIndex getShingleIndex() {
+		return shingleIndex;
+	}
+
+	/**
+	 * @return Forbidden phrase automaton
+	 */
+	PhraseAutomaton getPhraseAutomaton() {
+		return phraseAutomaton;
+	}
+
+	/**
+	 * @return Compiled templates
+	 */
+	HeaderAutomaton getHeaderAutomaton() {
+		return headerAutomaton;
+	}
+
+	/**
+	 * @return Template suffix automaton
+	 */
+	TemplateAutomaton getTemplateAutomaton() {
+		TemplateAutomaton automaton = templateAutomaton;
+		if (automaton != null) return automaton;
+		
+		synchronized (this) {
+			if (templateAutomaton == null) {
+				ArrayList<License> list = new ArrayList<License>();
+				ArrayList<WordList> words = new ArrayList<WordList>();
+				for (License l : licenses) {
+					list.add(l);
+					words.add(l.getTemplate().words);
+				}
+				templateAutomaton = new TemplateAutomaton(list, words);
+			}
+			return templateAutomaton;
+		}
+	}
+
+	/**
+	 * @return Match cache, null if caching is disabled
+	 */
+	MatchCache getMatchCache() {
+		return matchCache;
+	}
+
+	/**
+	 * Get the number of match() calls that were answered from the
+	 * match cache.
+	 * 
+	 * @return Number of cache hits
+	 */
+	public long getMatchCacheHits() {
+		return (matchCache == null) ? 0 : matchCache.getHits();
+	}
+
+	/**
+	 * Get the number of match() calls that were not found in the match
+	 * cache.
+	 * 
+	 * @return Number of cache misses
+	 */
+	public long getMatchCacheMisses() {
+		return (matchCache == null) ? 0 : matchCache.getMisses();
+	}
+}
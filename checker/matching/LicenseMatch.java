@@ -64,6 +64,12 @@ public class LicenseMatch implements Comparable<LicenseMatch> {
 	 */
 	private HashMap<Tag, Integer> tagStart;
 
+	/**
+	 * Licenses that may be used instead of this one, from the OR
+	 * operators of an SPDX license expression. null if there is no choice.
+	 */
+	private ArrayList<License> alternatives;
+
 	
 	public LicenseMatch() {
 	}
@@ -158,12 +164,43 @@ public class LicenseMatch implements Comparable<LicenseMatch> {
 	 * @param t Tag to get.
 	 * @return Index of first word
 	 */
-	int getTagStart(Tag t) {
+	public int getTagStart(Tag t) {
 		Integer i = tagStart.get(t);
 		if (i != null) return i.intValue();
 		return -1;
 	}
 	
+	/**
+	 * Add a license that may be used instead of the matched license.
+	 * 
+	 * @param license The alternative license
+	 */
+	public void addAlternative(License license) {
+		if (alternatives == null) {
+			alternatives = new ArrayList<License>();
+		}
+		alternatives.add(license);
+	}
+
+	/**
+	 * Get the licenses that may be used instead of the matched license.
+	 * 
+	 * @return Alternative licenses, null if there are none
+	 */
+	public ArrayList<License> getAlternatives() {
+		return alternatives;
+	}
+
+	/**
+	 * Check if a license may be used instead of the matched license.
+	 * 
+	 * @param license License to check
+	 * @return True if the license is an alternative of this match
+	 */
+	public boolean isAlternative(License license) {
+		return (alternatives != null) && alternatives.contains(license);
+	}
+
 	public ArrayList<MatchPosition> getMatchPositions() {
 		return positions;
 	}
@@ -20,15 +20,27 @@ package checker.matching;
 
 import java.util.ArrayList;
 import java.util.AbstractCollection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import checker.CommentLine;
 import checker.FileID;
 import checker.LicenseChecker;
 import checker.license.ForbiddenPhrase;
+import checker.license.KeyPhrase;
 import checker.license.License;
 import checker.license.LicenseDatabase;
 import checker.license.Tag;
@@ -52,21 +64,46 @@ public class LicenseMatcher {
 	private static int minMatchLengthWords;
 	
 	/**
-	 * Run garbage collector every gcInterval matchings.
+	 * Default maximum number of candidate licenses per file that are
+	 * compared with Diff.
 	 */
-	private static final int gcInterval = 2000; 
+	private static final int MAX_MATCH_CANDIDATES = 20;
 
 	/**
-	 * List of match algorithms.
-	 *
+	 * Collections with fewer licenses than this are matched without
+	 * the shingle index.
 	 */
-	public enum MatchAlgorithm { EXACT,PARTIAL };
-	
+	private static final int MIN_INDEXED_LICENSES = 10;
+
+	/**
+	 * Default maximum number of cached match results.
+	 */
+	private static final int MATCH_CACHE_SIZE = 1000;
+
 	/**
-	 * License->WordList cache
+	 * Default number of comment words from which the licenses are
+	 * compared in parallel.
 	 */
-	static Map<License, WordList> licenseCache = null;
+	private static final int PARALLEL_MATCH_WORDS = 2000;
 
+	/**
+	 * Default number of threads comparing licenses at the same time
+	 */
+	private static final int MATCH_THREADS =
+		Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * List of match algorithms. EXACT compares with Diff, which matches
+	 * words that are unique in both texts and extends the matches to
+	 * their neighbours. PARTIAL compares with LcsDiff, a longest common
+	 * subsequence that matches repeated words too. It is slower but finds
+	 * matches in repetitive text. RUNS streams the comments once through
+	 * a suffix automaton of all templates, compares only the licenses that
+	 * share runs of words with the comments, and aligns those runs.
+	 *
+	 */
+	public enum MatchAlgorithm { EXACT,PARTIAL,RUNS };
+	
 	/**
 	 * Load value of MIN_MATCH_LENGTH_WORDS from settings
 	 */
@@ -76,6 +113,7 @@ public class LicenseMatcher {
 			/* this might throw */
 			s = (String) LicenseChecker.getSetting("minMatchLengthWords");
 			minMatchLengthWords = Integer.valueOf(s);
+			return;
 			
 		} catch (Exception e) {
 		}
@@ -87,52 +125,226 @@ public class LicenseMatcher {
 	}
 
 	/**
-	 * Convert given License to WordList and cache the results.
+	 * Maximum number of license collections whose indices are kept
+	 */
+	private static final int MAX_INDEXED_COLLECTIONS = 8;
+
+	/**
+	 * Indices of the license collections given to match() as
+	 * collections, keyed by the licenses of each collection in order.
+	 * The least recently used collection is dropped first. The license
+	 * database compiles its own index, see compile().
+	 */
+	private static LinkedHashMap<ArrayList<License>, LicenseIndex> indices =
+		new LinkedHashMap<ArrayList<License>, LicenseIndex>(16, 0.75f, true) {
+			protected boolean removeEldestEntry(
+					Map.Entry<ArrayList<License>, LicenseIndex> eldest) {
+				return size() > MAX_INDEXED_COLLECTIONS;
+			}
+		};
+
+	/**
+	 * Number of files each license has been found in. Licenses found
+	 * often are compared first.
+	 */
+	private static ConcurrentHashMap<License, AtomicInteger> hitCounts =
+		new ConcurrentHashMap<License, AtomicInteger>();
+
+	/**
+	 * Load the maximum number of candidate licenses from settings.
 	 * 
-	 * @param license License to convert
-	 * @return WordList containing all the words from the license
+	 * @return Maximum number of candidates, 0 for no limit
 	 */
-	static private WordList cacheLicense(License license) {
-		if (licenseCache == null) {
-			licenseCache = new HashMap<License, WordList>();
+	private static int loadMaxMatchCandidates() {
+		try {
+			/* this might throw */
+			String s = LicenseChecker.getSetting("maxMatchCandidates");
+			int n = Integer.parseInt(s);
+			if (n >= 0) return n;
+			
+		} catch (Exception e) {
+		}
+		
+		/* reset invalid values to default */
+		LicenseChecker.setSetting("maxMatchCandidates",
+				Integer.toString(MAX_MATCH_CANDIDATES));
+		return MAX_MATCH_CANDIDATES;
+	}
+
+	/**
+	 * Load the number of comment words from which the licenses are
+	 * compared in parallel.
+	 * 
+	 * @return Number of words, 0 to always compare in one thread
+	 */
+	private static int loadParallelMatchWords() {
+		try {
+			/* this might throw */
+			String s = LicenseChecker.getSetting("parallelMatchWords");
+			int n = Integer.parseInt(s);
+			if (n >= 0) return n;
+			
+		} catch (Exception e) {
 		}
 		
-		WordList licWords = licenseCache.get(license);
-		if (licWords == null) {
-			/* generate WordList and put it in cache */
-			licWords = WordList.licenseToWords(license);
-			licenseCache.put(license, licWords);
+		/* reset invalid values to default */
+		LicenseChecker.setSetting("parallelMatchWords",
+				Integer.toString(PARALLEL_MATCH_WORDS));
+		return PARALLEL_MATCH_WORDS;
+	}
+
+	/**
+	 * Load the maximum number of threads comparing licenses at the same
+	 * time from settings. The threads of a parallel scan count too.
+	 * 
+	 * @return Number of threads, at least 1
+	 */
+	private static int loadMatchThreads() {
+		try {
+			/* this might throw */
+			String s = LicenseChecker.getSetting("matchThreads");
+			int n = Integer.parseInt(s);
+			if (n >= 1) return n;
+			
+		} catch (Exception e) {
 		}
 		
-		return licWords;
+		/* reset invalid values to default */
+		LicenseChecker.setSetting("matchThreads",
+				Integer.toString(MATCH_THREADS));
+		return MATCH_THREADS;
 	}
 
 	/**
-	 * WordList->String[] cache
+	 * Load the settings used by match(). Missing settings are set to
+	 * their default values.
 	 */
-	static Map<WordList, String[]> licenseStringCache = null;
-	
+	public static void loadSettings() {
+		loadMinMatchLengthWords();
+		loadMaxMatchCandidates();
+		loadMatchCacheSize();
+		loadParallelMatchWords();
+		loadMatchThreads();
+	}
+
 	/**
-	 * Convert given WordList to String[] and cache the results.
+	 * Load the maximum number of cached match results from settings.
 	 * 
-	 * @param license WordList to convert
-	 * @return Words from WordList stored in a String[]
+	 * @return Maximum number of cached results, 0 to disable the cache
 	 */
-	static private String[] cacheLicenseStrings(WordList license) {
-		if (licenseStringCache == null) {
-			licenseStringCache = new HashMap<WordList, String[]>();
+	private static int loadMatchCacheSize() {
+		try {
+			/* this might throw */
+			String s = LicenseChecker.getSetting("matchCacheSize");
+			int n = Integer.parseInt(s);
+			if (n >= 0) return n;
+			
+		} catch (Exception e) {
 		}
 		
-		String[] licStrings = licenseStringCache.get(license);
-		if (licStrings == null) {
-			/* generate WordList and put it in cache */
-			licStrings = license.words.toArray(new String[1]);
-			licenseStringCache.put(license, licStrings);
+		/* reset invalid values to default */
+		LicenseChecker.setSetting("matchCacheSize",
+				Integer.toString(MATCH_CACHE_SIZE));
+		return MATCH_CACHE_SIZE;
+	}
+
+	/**
+	 * Build the indices of a license collection. The caller keeps the
+	 * result and gives it to match() and hasLicenseText() for every file.
+	 * The template automaton of RUNS is built now if setting
+	 * "matchAlgorithm" is "runs".
+	 * 
+	 * @param licenses Licenses and forbidden phrases to index
+	 * @return Indices of the collection
+	 */
+	public static LicenseIndex compile(AbstractCollection<License> licenses) {
+		ArrayList<License> list = new ArrayList<License>(licenses);
+		return new LicenseIndex(list, list.size() >= MIN_INDEXED_LICENSES,
+				loadMatchCacheSize(),
+				"runs".equals(LicenseChecker.getSetting("matchAlgorithm")));
+	}
+
+	/**
+	 * Get the indices of a license collection given to match() as a
+	 * collection. They are built on first use and shared by all
+	 * collections that hold the same licenses in the same order.
+	 * 
+	 * @param licenses Licenses to index
+	 * @return Indices of the collection
+	 */
+	private static synchronized LicenseIndex getIndex(
+			AbstractCollection<License> licenses) {
+		ArrayList<License> list = new ArrayList<License>(licenses);
+		LicenseIndex index = indices.get(list);
+		if (index == null) {
+			index = compile(list);
+			indices.put(list, index);
 		}
-		
-		return licStrings;
+		return index;
 	}
-	
+
+	/**
+	 * Threads helping to compare licenses with large comments, created
+	 * on first use
+	 */
+	private static ExecutorService matchPool = null;
+
+	/**
+	 * Number of threads comparing licenses: the threads in match() and
+	 * the pool threads helping them. Helpers are only started while this
+	 * is below the matchThreads setting, so a parallel scan does not
+	 * multiply the threads.
+	 */
+	private static final AtomicInteger matchingThreads = new AtomicInteger();
+
+	/**
+	 * Get the thread pool for comparing licenses in parallel.
+	 * 
+	 * @return Thread pool
+	 */
+	private static synchronized ExecutorService getMatchPool() {
+		if (matchPool == null) {
+			matchPool = Executors.newCachedThreadPool(
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "LicenseMatcher");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+		}
+		return matchPool;
+	}
+
+	/**
+	 * Reserve helper threads for a parallel comparison. The reserved
+	 * threads are counted in matchingThreads until they finish.
+	 * 
+	 * @param wanted Number of helpers wanted
+	 * @param limit Maximum number of threads comparing licenses
+	 * @return Number of helpers reserved, 0 if all threads are busy
+	 */
+	private static int reserveHelpers(int wanted, int limit) {
+		while (true) {
+			int busy = matchingThreads.get();
+			int n = Math.min(wanted, limit - busy);
+			if (n <= 0) return 0;
+			if (matchingThreads.compareAndSet(busy, busy + n)) return n;
+		}
+	}
+
+
+	/**
+	 * Get the words of a License from its compiled template.
+	 * 
+	 * @param license License to convert
+	 * @return WordList containing all the words from the license. The
+	 *         list is shared and must not be modified.
+	 */
+	static private WordList templateWords(License license) {
+		return license.getTemplate().words;
+	}
+
 	/**
 	 * Performs an exact match against given comments.
 	 * 
@@ -165,61 +377,28 @@ public class LicenseMatcher {
 		return null;
 	}
 
-	static int gcCount = 0;
-	
 	/**
-	 * Perform exact string matching for given comments.
-	 * Arguments l, license and licenseWords must be the same License.
-	 * They are separated only to allow proper caching.
-	 * Same with comments and commentsWords.
+	 * Compute an upper bound for the length of the longest match Diff can
+	 * find between a license and comments. Every matched template word
+	 * equals a comment word, so the bound is the size of the word multiset
+	 * intersection. Tags match any words and are added as such, plus one
+	 * word for a match that starts at a word not in the template.
 	 * 
-	 * @param l License (forbidden phrase) to compare
+	 * @param license Compiled license template
 	 * @param comments Source file comments in a WordList
-	 * @param license License words in a WordList
-	 * @param commentWords Source file comment words in a String[]
-	 * @param licenseWords License words in a String[]
-	 * 
-	 * @return List of found matches
+	 * @return Upper bound in template words
 	 */
-	private static ArrayList<LicenseMatch> matchLicenseExact(
-			License l,
-			WordList comments,
-			WordList license) {
-		
-		ArrayList<LicenseMatch> list = null;
+	private static int overlapBound(LicenseTemplate license, WordList comments) {
+		int[] ids = comments.getDistinctTokens();
+		int[] nc = comments.getDistinctCounts();
 		
-		/* this is slow */
-		for (int i = 0; i < comments.words.size() - license.words.size() + 1; i++) {
-			int j = 0; 
-			for (; j < license.words.size(); j++) {
-				if (!comments.words.get(i + j).equals(license.words.get(j)))
-					break;
-			}
-			
-			if (j == license.words.size()) {
-				/* all words matched! */
-				
-				MatchPosition mp = 
-						new MatchPosition(
-								comments.row.get(i), comments.col.get(i),
-								comments.row.get(i + j - 1), comments.col.get(i + j - 1) + comments.len.get(i + j - 1) - 1,
-								license.row.get(0), license.col.get(0),
-								license.row.get(j - 1), license.col.get(j - 1) + license.len.get(j - 1),
-								0, j - 1);
-				mp.setOrigMatchLength(j - 1);
-				LicenseMatch m = new ForbiddenPhraseMatch(l, mp);
-				
-				if (list == null)
-					list = new ArrayList<LicenseMatch>();
-				
-				list.add(m);
-				
-				/* return m;*/
-				i += j - 1;
-			}
+		int bound = license.getTagCount() + 1;
+		for (int i = 0; i < ids.length; i++) {
+			int oc = license.getWordCount(ids[i]);
+			bound += (oc < nc[i]) ? oc : nc[i];
 		}
 		
-		return list;
+		return bound;
 	}
 
 	/**
@@ -229,32 +408,46 @@ public class LicenseMatcher {
 	 * They are separated only to allow proper caching.
 	 * Same with comments and commentsWords.
 	 * 
+	 * @param context Match context of this thread
+	 * @param algorithm EXACT to use Diff, PARTIAL to use LcsDiff, RUNS to
+	 *            align the runs of the license
 	 * @param l License to compare 
 	 * @param comments Source file comments in a WordList
 	 * @param license License words in a WordList
-	 * @param commentsWords Source file comment words in a String[]
-	 * @param licenseWords License words in a String[]
 	 * @param minMatch Minimum match percentage (0.0 .. 1.0)
+	 * @param runs Common runs of the license and the comments, used by
+	 *            RUNS
 	 * @return Found match or null
 	 */
 	private static LicenseMatch matchLicenseDiff(
+			MatchContext context,
+			MatchAlgorithm algorithm,
 			License l,
 			WordList comments,
 			WordList license,
-			String[] commentsWords,
-			String[] licenseWords,
-			double minMatch) {
+			double minMatch,
+			int[] runs) {
 
-		/* diff and analysis */
-		Diff d = new Diff(licenseWords, commentsWords);
-		DiffAnalysis a = new DiffAnalysis(d, license, comments,
-				minMatch, l.getTags());
+		/* diff and analysis, reusing the work arrays of this thread */
+		Diff d;
+		if (algorithm == MatchAlgorithm.RUNS) {
+			context.runDiff.align(license, comments, runs);
+			d = context.runDiff;
+		} else {
+			d = (algorithm == MatchAlgorithm.PARTIAL) ? context.lcsDiff
+					: context.diff;
+			d.diff(license, comments);
+		}
+		DiffAnalysis a = context.analysis;
+		a.analyse(d, license, comments, minMatch, l.getTags());
 		
 		/* get analysis results */
 		ArrayList<MatchPosition> positions = a.getPositions();
+		if (positions.isEmpty()) return null;
 		
 		/* put results in a LicenseMatch */
-		LicenseMatch match = new LicenseMatch(l, positions);
+		LicenseMatch match = new LicenseMatch(l,
+				new ArrayList<MatchPosition>(positions));
 		
 		if (!a.tags.isEmpty()) {
 			for (Tag t : l.getTags()) {
@@ -265,16 +458,6 @@ public class LicenseMatcher {
 		}
 		match.setMatchPr(a.getMatchPr());
 
-		/* drop diff and analysis objects */
-		d = null;
-		a = null;
-		
-		gcCount++;
-		if (gcCount > gcInterval) {
-			gcCount = 0;
-			System.gc();
-		}
-
 		return match;
 	}
 			
@@ -298,7 +481,7 @@ public class LicenseMatcher {
 		 * the cut includes freeform fields. */
 		
 		/* Convert License to WordList */
-		WordList licenseWords = cacheLicense(match.getLicense());
+		WordList licenseWords = templateWords(match.getLicense());
 		
 		
 		if (match.getMatchPositions().size() != 1) {
@@ -362,14 +545,14 @@ public class LicenseMatcher {
 				int c_start_i =
 					commentWords.findWordAt(c.getStartLine(), c.getStartCol());
 				
-				int endrow = commentWords.row.get(c_start_i - 1);
-				int endcol = commentWords.col.get(c_start_i - 1) + commentWords.len.get(c_start_i - 1) - 1;
+				int endrow = commentWords.getRow(c_start_i - 1);
+				int endcol = commentWords.getCol(c_start_i - 1) + commentWords.getLength(c_start_i - 1) - 1;
 
 				int new_word_count = commentWords.countWordsBetween(
 						m.getStartLine(), m.getStartCol(), endrow, endcol + 1);
 				int end_word_i = templstart_i + new_word_count - 1;
-				int templ_end_row = licenseWords.row.get(end_word_i);
-				int templ_end_col = licenseWords.col.get(end_word_i) + licenseWords.len.get(end_word_i) - 1;
+				int templ_end_row = licenseWords.getRow(end_word_i);
+				int templ_end_col = licenseWords.getCol(end_word_i) + licenseWords.getLength(end_word_i) - 1;
 				
 				MatchPosition newpos = new MatchPosition(
 						m.getStartLine(), m.getStartCol(),
@@ -383,7 +566,7 @@ public class LicenseMatcher {
 				ArrayList<MatchPosition> newposlist = new ArrayList<MatchPosition>();
 				newposlist.add(newpos);
 				match.setMatchPositions(newposlist);
-				match.setMatchPr((float)new_word_count / (float)licenseWords.words.size());
+				match.setMatchPr((float)new_word_count / (float)licenseWords.size());
 
 			} else {
 				/*
@@ -410,8 +593,8 @@ public class LicenseMatcher {
 			int m_start_i = commentWords.findWordAt(m.getStartLine(), m.getStartCol());
 			int c_end_i = commentWords.findWordAt(c.getEndLine(), c.getEndCol());
 			
-			int startrow = commentWords.row.get(c_end_i + 1); 
-			int startcol = commentWords.col.get(c_end_i + 1); 
+			int startrow = commentWords.getRow(c_end_i + 1); 
+			int startcol = commentWords.getCol(c_end_i + 1); 
 			
 			int new_word_count =
 				commentWords.countWordsBetween(
@@ -424,8 +607,8 @@ public class LicenseMatcher {
 			
 			int start_word_i = templstart_i + c_end_i - m_start_i;
 			
-			int templ_start_row = licenseWords.row.get(start_word_i);
-			int templ_start_col = licenseWords.col.get(start_word_i);
+			int templ_start_row = licenseWords.getRow(start_word_i);
+			int templ_start_col = licenseWords.getCol(start_word_i);
 			
 			MatchPosition newpos = new MatchPosition(
 					startrow, startcol,
@@ -438,7 +621,7 @@ public class LicenseMatcher {
 			ArrayList<MatchPosition> newposlist = new ArrayList<MatchPosition>();
 			newposlist.add(newpos);
 			match.setMatchPositions(newposlist);
-			match.setMatchPr((float)new_word_count / (float)licenseWords.words.size());
+			match.setMatchPr((float)new_word_count / (float)licenseWords.size());
 			
 		}
 
@@ -456,6 +639,11 @@ public class LicenseMatcher {
 	/**
 	 * Filter found License matches. Remove overlapping matches and too
 	 * short fragments.
+	 * <p>
+	 * The best remaining match is taken from a priority queue and cut
+	 * away from the matches that overlap it. The overlapping matches are
+	 * found with an interval tree over the comment spans; cutting only
+	 * shrinks the spans, so the tree is built once.
 	 *  
 	 * @param matchList Input, list of matches
 	 * @param commentWords Source data for calculating match locations
@@ -471,71 +659,324 @@ public class LicenseMatcher {
 		/* get setting */
 		loadMinMatchLengthWords();
 		
+		final LicenseMatch[] list =
+			matchList.toArray(new LicenseMatch[matchList.size()]);
+		
+		/* sort keys, updated when a match is cut */
+		final int[] length = new int[list.length];
+		final int[] origLength = new int[list.length];
+		
+		long[] start = new long[list.length];
+		long[] end = new long[list.length];
+		for (int i = 0; i < list.length; i++) {
+			length[i] = list[i].getLongestLength();
+			origLength[i] = list[i].getOrigLength();
+			
+			MatchPosition p = list[i].getMatchPositions().get(0);
+			start[i] = SpanIndex.position(p.getStartLine(), p.getStartCol());
+			end[i] = SpanIndex.position(p.getEndLine(), p.getEndCol());
+		}
+		
+		/* 'best' match first: longest, then longest total length,
+		 * then the first in matchList */
+		TreeSet<Integer> queue = new TreeSet<Integer>(new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int i = a.intValue(), j = b.intValue();
+				if (length[i] != length[j]) return length[j] - length[i];
+				if (origLength[i] != origLength[j])
+					return (origLength[j] < origLength[i]) ? -1 : 1;
+				return i - j;
+			}
+		});
+		for (int i = 0; i < list.length; i++)
+			queue.add(Integer.valueOf(i));
+		
+		SpanIndex spans = new SpanIndex(start, end);
 		ArrayList<LicenseMatch> filtered = new ArrayList<LicenseMatch>();
+		ArrayList<Integer> overlapping = new ArrayList<Integer>();
+		boolean first = true;
 		
-		while (!matchList.isEmpty()) {
-			ArrayList<LicenseMatch> matchListTmp = new ArrayList<LicenseMatch>();
+		while (!queue.isEmpty()) {
+			Integer best = queue.first();
+			LicenseMatch bestMatch = list[best.intValue()];
+			
+			queue.remove(best);
+			spans.remove(best.intValue());
+			filtered.add(bestMatch);
+			
+			/* cut best match from the matches that overlap it and
+			 * filter out short fragments */
+			MatchPosition p = bestMatch.getMatchPositions().get(0);
+			overlapping.clear();
+			spans.overlapping(
+					SpanIndex.position(p.getStartLine(), p.getStartCol()),
+					SpanIndex.position(p.getEndLine(), p.getEndCol()),
+					overlapping);
 			
-			/* find 'best' match */
-			LicenseMatch bestMatch = null;
-			int bestMatchLen = 0;
-			for (LicenseMatch m : matchList) {
-				if (bestMatch == null) {
-					bestMatch = m;
-					bestMatchLen = m.getLongestLength();
+			for (Integer i : overlapping) {
+				LicenseMatch m = list[i.intValue()];
+				
+				/* the sort keys change, remove before cutting */
+				queue.remove(i);
+				
+				LicenseMatch f = cutMatch(m, bestMatch, commentWords);
+				if ((f != null) && ((f instanceof ForbiddenPhraseMatch)
+						|| (f.getLongestLength() > minMatchLengthWords))) {
+					length[i.intValue()] = f.getLongestLength();
+					origLength[i.intValue()] = f.getOrigLength();
+					queue.add(i);
 				} else {
-					int mlen = m.getLongestLength();
-					
-					if(bestMatchLen < mlen) {
-						bestMatch = m;
-						bestMatchLen = mlen;
-					} else if (bestMatchLen == mlen) {
-						if (bestMatch.getOrigLength() < m.getOrigLength()) {
-							bestMatch = m;
-							bestMatchLen = mlen;
-						}
-					}
+					spans.remove(i.intValue());
 				}
 			}
 			
-			matchList.remove(bestMatch); /* TBD: use index instead */
-			filtered.add(bestMatch);
-		
-			/* cut best match from the other matches
-			 * and filter out short fragments */
-			for (LicenseMatch m : matchList) {
-				LicenseMatch f = cutMatch(m, bestMatch, commentWords);
-				if (f != null) {
-					if (f instanceof ForbiddenPhraseMatch) {
-						matchListTmp.add(f);
-					} else if (f.getLongestLength() > minMatchLengthWords) {
-						matchListTmp.add(f);
+			/* filter out short fragments that were not cut */
+			if (first) {
+				for (int i = 0; i < list.length; i++) {
+					if ((i != best.intValue())
+							&& !(list[i] instanceof ForbiddenPhraseMatch)
+							&& (length[i] <= minMatchLengthWords)) {
+						queue.remove(Integer.valueOf(i));
+						spans.remove(i);
 					}
 				}
+				first = false;
 			}
-			
-			/* swap lists */
-			matchList = matchListTmp;
 		}
 		
 		/* insert first of each license in 'matches', ignore duplicate
 		 * licenses */
 		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+		HashSet<License> foundAlready = new HashSet<License>();
 		for (LicenseMatch m : filtered) {
-			boolean foundAlready = false;
-			for (LicenseMatch i : matches) {
-				if (i.getLicense().equals(m.getLicense())) {
-					/* ignore this license */
-					foundAlready = true;
-					break;
+			if (foundAlready.add(m.getLicense())) matches.add(m);
+		}
+		
+		return matches;
+	}
+	
+	/**
+	 * Get the number of files a license has been found in.
+	 * 
+	 * @param license License
+	 * @return Number of hits
+	 */
+	private static int getHitCount(License license) {
+		AtomicInteger n = hitCounts.get(license);
+		return (n == null) ? 0 : n.get();
+	}
+
+	/**
+	 * Count a hit for each license in a match result.
+	 * 
+	 * @param matches Found matches
+	 */
+	private static void countHits(ArrayList<LicenseMatch> matches) {
+		for (LicenseMatch m : matches) {
+			if (m instanceof ForbiddenPhraseMatch) continue;
+			
+			AtomicInteger n = hitCounts.get(m.getLicense());
+			if (n == null) {
+				hitCounts.putIfAbsent(m.getLicense(), new AtomicInteger());
+				n = hitCounts.get(m.getLicense());
+			}
+			n.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Check if a match would be chosen before another by filterMatches():
+	 * longer matches first, then longer total length, then the one found
+	 * first.
+	 * 
+	 * @param a Match
+	 * @param aIndex Position of the license of a in the license collection
+	 * @param b Match
+	 * @param bIndex Position of the license of b in the license collection
+	 * @return True if a is chosen before b
+	 */
+	private static boolean isBetterMatch(LicenseMatch a, int aIndex,
+			LicenseMatch b, int bIndex) {
+		if (a.getLongestLength() != b.getLongestLength())
+			return a.getLongestLength() > b.getLongestLength();
+		if (a.getOrigLength() != b.getOrigLength())
+			return a.getOrigLength() > b.getOrigLength();
+		return aIndex < bIndex;
+	}
+
+	/**
+	 * Add the key phrases found in the comments to a match.
+	 */
+	private static void addKeyPhrases(LicenseMatch match, License license,
+			HashMap<License, ArrayList<String>> candidates) {
+		if ((candidates != null)
+				&& (candidates.get(license) != null)) {
+			for (String phrase : candidates.get(license))
+				match.addKeyPhrase(new KeyPhrase(phrase, license));
+		}
+	}
+	
+	/**
+	 * Compare licenses with the same comments in several threads. The
+	 * threads take the next license from the list until none are left.
+	 * The calling thread takes part too, so the comparison finishes even
+	 * if the other threads are busy.
+	 * <p>
+	 * The comments are a copy with their tables built here, because the
+	 * WordList of the MatchContext belongs to the calling thread and
+	 * builds its tables on first use.
+	 * <p>
+	 * All licenses that can reach minMatch are compared: which license
+	 * is the best match so far depends on the order the threads finish
+	 * in, so it is not used to skip licenses.
+	 * 
+	 * @param list Licenses in collection order
+	 * @param pending Indices of the licenses to compare
+	 * @param candidates Candidate licenses and their key phrase hits,
+	 *            null if all licenses are candidates
+	 * @param commentWords Comment words of the calling thread
+	 * @param algorithm The algorithm that will be used
+	 * @param minMatch Minimum match percentage
+	 * @param runs Common runs of each license, null unless algorithm is
+	 *            RUNS
+	 * @param found Found match of each license, by index in list
+	 * @param helpers Number of pool threads reserved with reserveHelpers()
+	 */
+	private static void matchParallel(final License[] list,
+			final ArrayList<Integer> pending,
+			final HashMap<License, ArrayList<String>> candidates,
+			WordList commentWords, final MatchAlgorithm algorithm,
+			final double minMatch, final HashMap<License, int[]> runs,
+			final LicenseMatch[] found, int helpers) {
+		
+		final WordList comments = commentWords.readOnlyCopy();
+		final AtomicInteger next = new AtomicInteger();
+		final CountDownLatch remaining = new CountDownLatch(pending.size());
+		final AtomicReference<RuntimeException> failure =
+			new AtomicReference<RuntimeException>();
+		
+		final Runnable compare = new Runnable() {
+			public void run() {
+				MatchContext context = MatchContext.get();
+				
+				int k;
+				while ((k = next.getAndIncrement()) < pending.size()) {
+					try {
+						int i = pending.get(k).intValue();
+						License license = list[i];
+						WordList licenseWords = templateWords(license);
+						
+						/* skip licenses that cannot reach minMatch */
+						int bound = overlapBound(license.getTemplate(), comments);
+						if (((double) bound / (double) licenseWords.size()) < minMatch) {
+							continue;
+						}
+						
+						LicenseMatch match = matchLicenseDiff(context,
+								algorithm, license, comments, licenseWords,
+								minMatch, (runs == null) ? null : runs.get(license));
+						if (match == null) continue;
+						
+						addKeyPhrases(match, license, candidates);
+						found[i] = match;
+						
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						remaining.countDown();
+					}
 				}
 			}
-			if (!foundAlready) matches.add(m);
+		};
+		
+		Runnable help = new Runnable() {
+			public void run() {
+				try {
+					compare.run();
+				} finally {
+					matchingThreads.decrementAndGet();
+				}
+			}
+		};
+		
+		ExecutorService pool = getMatchPool();
+		for (int t = 0; t < helpers; t++)
+			pool.execute(help);
+		compare.run();
+		
+		/* wait for the licenses taken by the other threads */
+		try {
+			remaining.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
 		}
 		
-		return matches;
+		if (failure.get() != null) throw failure.get();
 	}
 	
+	/**
+	 * Check if a match covers all comment words.
+	 * 
+	 * @param match Match with one MatchPosition
+	 * @param comments Comment words
+	 * @return True if the match starts at the first word and ends at the
+	 *         last word
+	 */
+	private static boolean coversAll(LicenseMatch match, WordList comments) {
+		MatchPosition p = match.getMatchPositions().get(0);
+		int last = comments.size() - 1;
+		
+		return (p.getStartLine() == comments.getRow(0))
+			&& (p.getStartCol() == comments.getCol(0))
+			&& (p.getEndLine() == comments.getRow(last))
+			&& (p.getEndCol() == comments.getCol(last) + comments.getLength(last) - 1);
+	}
+
+	/**
+	 * Check if comments contain text that match() could report as a
+	 * license: a forbidden phrase, a key phrase, or a run of more than
+	 * minMatchLengthWords words that appears in the templates. Used to
+	 * skip matching when a file is known to be licensed otherwise.
+	 * 
+	 * @param comments List of comments.
+	 * @param licenses Licenses that the match would be done against.
+	 * @return True if license-like text was found. Always true if the
+	 *         collection is too small to be indexed.
+	 */
+	public static boolean hasLicenseText(
+			ArrayList<CommentLine> comments,
+			AbstractCollection<License> licenses) {
+		return hasLicenseText(comments, getIndex(licenses));
+	}
+
+	/**
+	 * Check if comments contain license-like text, like
+	 * hasLicenseText(ArrayList, AbstractCollection).
+	 * 
+	 * @param comments List of comments.
+	 * @param compiled Indices of the licenses, from compile()
+	 * @return True if license-like text was found
+	 */
+	public static boolean hasLicenseText(
+			ArrayList<CommentLine> comments,
+			LicenseIndex compiled) {
+		
+		WordList commentWords = MatchContext.get().setComments(comments);
+		if (commentWords.size() < 1) return false;
+		
+		loadMinMatchLengthWords();
+		
+		PhraseAutomaton phrases = compiled.getPhraseAutomaton();
+		if (!phrases.match(commentWords, 0, commentWords.size()).isEmpty())
+			return true;
+		
+		ShingleIndex index = compiled.getShingleIndex();
+		if (index == null) return true;
+		
+		return index.hasLicenseText(commentWords, minMatchLengthWords);
+	}
+
 	/**
 	 * Performs a match for multiple licenses agains given comments.
 	 * 
@@ -544,7 +985,7 @@ public class LicenseMatcher {
 	 * @param licenses
 	 *            Licenses that the match will be done against.
 	 * @param algorithmID
-	 *            The algorithm that will be used (ignored)
+	 *            The algorithm that will be used
 	 * @param minMatch
 	 *            Minimum match percentage to include in matches,
 	 *            in range 0.0 .. 1.0 
@@ -555,50 +996,260 @@ public class LicenseMatcher {
 			AbstractCollection<License> licenses,
 			MatchAlgorithm algorithmID,
 			double minMatch) {
+		return match(comments, getIndex(licenses), algorithmID, minMatch);
+	}
+
+	/**
+	 * Performs a match for multiple licenses against given comments,
+	 * like match(ArrayList, AbstractCollection, MatchAlgorithm, double).
+	 * 
+	 * @param comments
+	 *            List of comments.
+	 * @param compiled
+	 *            Indices of the licenses, from compile()
+	 * @param algorithmID
+	 *            The algorithm that will be used
+	 * @param minMatch
+	 *            Minimum match percentage to include in matches,
+	 *            in range 0.0 .. 1.0 
+	 * @return Found matches, never null.
+	 */
+	public static ArrayList<LicenseMatch> match(
+			ArrayList<CommentLine> comments,
+			LicenseIndex compiled,
+			MatchAlgorithm algorithmID,
+			double minMatch) {
+		matchingThreads.incrementAndGet();
+		try {
+			return matchCompiled(comments, compiled, algorithmID, minMatch);
+		} finally {
+			matchingThreads.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Performs a match for multiple licenses against given comments in
+	 * a thread counted in matchingThreads.
+	 * 
+	 * @param comments
+	 *            List of comments.
+	 * @param compiled
+	 *            Indices of the licenses, from compile()
+	 * @param algorithmID
+	 *            The algorithm that will be used
+	 * @param minMatch
+	 *            Minimum match percentage to include in matches,
+	 *            in range 0.0 .. 1.0 
+	 * @return Found matches, never null.
+	 */
+	private static ArrayList<LicenseMatch> matchCompiled(
+			ArrayList<CommentLine> comments,
+			LicenseIndex compiled,
+			MatchAlgorithm algorithmID,
+			double minMatch) {
 		
 		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
 		
 		/* convert inputs to WordLists */
-		WordList commentWords = WordList.commentsToWords(comments);
-		String[] commentStrings = commentWords.words.toArray(new String[1]);
+		MatchContext context = MatchContext.get();
+		WordList commentWords = context.setComments(comments);
 
 		/* check if comments are empty */
-		if (commentWords.words.size() < 1) return matches;
+		if (commentWords.size() < 1) return matches;
 		
-		LicenseMatch bestMatch = null;
-		for (License license : licenses) {
-
-			/* Convert License to WordList */
-			WordList licenseWords = cacheLicense(license);
+		/* get settings */
+		loadMinMatchLengthWords();
+		int maxCandidates = loadMaxMatchCandidates();
+		int parallelWords = loadParallelMatchWords();
+		
+		/* comments seen before only need new positions */
+		MatchCache cache = compiled.getMatchCache();
+		MatchCache.Fingerprint key = null;
+		if (cache != null) {
+			key = MatchCache.fingerprint(commentWords, new long[] {
+					Double.doubleToLongBits(minMatch),
+					minMatchLengthWords, maxCandidates,
+					algorithmID.ordinal() });
+		}
+		if (key != null) {
+			ArrayList<LicenseMatch> cached = cache.get(key, commentWords);
+			if (cached != null) {
+				countHits(cached);
+				return cached;
+			}
+		}
+		
+		/* select candidates for Diff */
+		ShingleIndex index = compiled.getShingleIndex();
+		HashMap<License, ArrayList<String>> candidates = null;
+		if (index != null) {
+			candidates = index.candidates(commentWords, minMatch,
+					maxCandidates);
+		}
+		
+		/* find all forbidden phrases in one pass */
+		PhraseAutomaton phrases = compiled.getPhraseAutomaton();
+		HashMap<License, ArrayList<LicenseMatch>> phraseMatches =
+			phrases.match(commentWords, 0, commentWords.size());
+		
+		/* find the runs shared with all templates in one pass */
+		HashMap<License, int[]> runs = null;
+		if (algorithmID == MatchAlgorithm.RUNS) {
+			runs = compiled.getTemplateAutomaton().runs(commentWords);
+		}
 		
-			/* get words as a String array from WordLists */
-			String[] licenseStrings = cacheLicenseStrings(licenseWords);
+		/* licenses to compare with Diff, and the results of each
+		 * license by its position in the collection */
+		License[] list = compiled.getLicenses();
+		LicenseMatch[] found = new LicenseMatch[list.length];
+		HashMap<License, Integer> position = new HashMap<License, Integer>();
+		ArrayList<Integer> pending = new ArrayList<Integer>();
+		
+		/* best match so far in the order used by filterMatches() */
+		LicenseMatch best = null;
+		int bestIndex = -1;
+		
+		for (int i = 0; i < list.length; i++) {
+			License license = list[i];
 			
 			if (license instanceof ForbiddenPhrase) {
+				ArrayList<LicenseMatch> fpmatch = phraseMatches.get(license);
+				if (fpmatch == null) continue;
 				
-				ArrayList<LicenseMatch> fpmatch = matchLicenseExact(license,
-						commentWords, licenseWords);
-				
-				if(fpmatch != null)
-					matches.addAll(fpmatch);
-				
-			} else { 
+				for (LicenseMatch m : fpmatch) {
+					if ((best == null) || isBetterMatch(m, i, best, bestIndex)) {
+						best = m;
+						bestIndex = i;
+					}
+				}
+				continue;
+			}
+
+			/* skip indexed licenses that were not selected */
+			if ((index != null) && index.contains(license)
+					&& !candidates.containsKey(license)) {
+				continue;
+			}
+			
+			/* skip licenses that share no runs with the comments */
+			if ((runs != null) && !runs.containsKey(license)) continue;
+			
+			position.put(license, Integer.valueOf(i));
+			pending.add(Integer.valueOf(i));
+		}
+		
+		/* comments that are a template exactly need no Diff: the match
+		 * covers all comments, so every other match would be cut away */
+		HashMap<License, LicenseMatch> exact =
+			compiled.getHeaderAutomaton().match(commentWords);
+		boolean exactFound = false;
+		for (Integer i : pending) {
+			LicenseMatch match = exact.get(list[i.intValue()]);
+			if (match == null) continue;
+			
+			addKeyPhrases(match, list[i.intValue()], candidates);
+			found[i.intValue()] = match;
+			exactFound = true;
+		}
+		if (exactFound) pending.clear();
+		
+		/* licenses found most often first, keep collection order on ties */
+		final int[] hits = new int[list.length];
+		for (Integer i : pending)
+			hits[i.intValue()] = getHitCount(list[i.intValue()]);
+		Collections.sort(pending, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (hits[a.intValue()] != hits[b.intValue()])
+					return hits[b.intValue()] - hits[a.intValue()];
+				return a.intValue() - b.intValue();
+			}
+		});
+		
+		int helpers = 0;
+		if ((parallelWords > 0) && (commentWords.size() >= parallelWords)
+				&& (pending.size() > 1)) {
+			helpers = reserveHelpers(pending.size() - 1, loadMatchThreads());
+		}
+		if (helpers > 0) {
+			/* large comments are compared in several threads */
+			matchParallel(list, pending, candidates, commentWords,
+					algorithmID, minMatch, runs, found, helpers);
+		} else {
+			boolean[] done = new boolean[list.length];
+			int next = 0;
+			int sister = -1;
+		
+			while (true) {
+			
+				/* the sister of a found license is compared next */
+				int i;
+				if (sister >= 0) {
+					i = sister;
+					sister = -1;
+				} else {
+					while ((next < pending.size())
+							&& done[pending.get(next).intValue()])
+						next++;
+					if (next >= pending.size()) break;
+					i = pending.get(next++).intValue();
+				}
+				done[i] = true;
+			
+				License license = list[i];
+			
+				/* Convert License to WordList */
+				WordList licenseWords = templateWords(license);
 			
+				int bound = overlapBound(license.getTemplate(), commentWords);
+			
+				/* skip licenses that cannot reach minMatch */
+				if (((double) bound / (double) licenseWords.size()) < minMatch) {
+					continue;
+				}
+			
+				/* if the best match covers all comments, a shorter match
+				 * would be cut away entirely by filterMatches() */
+				if ((best != null) && !(best instanceof ForbiddenPhraseMatch)
+						&& (bound < best.getLongestLength())
+						&& coversAll(best, commentWords)) {
+					continue;
+				}
+		
 				/* analysis */
-				LicenseMatch match = matchLicenseDiff(license,
-						commentWords, licenseWords, commentStrings, licenseStrings,
-						minMatch);
-				if (match.getMatchPositions().size() > 0) {
-					if (bestMatch == null
-							|| (match.getMatchPr() > bestMatch.getMatchPr()))
-						bestMatch = match;
-					
-					matches.add(match);
+				LicenseMatch match = matchLicenseDiff(context, algorithmID,
+						license, commentWords, licenseWords, minMatch,
+						(runs == null) ? null : runs.get(license));
+				if (match == null) continue;
+			
+				addKeyPhrases(match, license, candidates);
+			
+				found[i] = match;
+				if ((best == null) || isBetterMatch(match, i, best, bestIndex)) {
+					best = match;
+					bestIndex = i;
+				}
+			
+				Integer s = position.get(license.getSisterLicense());
+				if ((s != null) && !done[s.intValue()]) {
+					sister = s.intValue();
 				}
 			}
+		
+		}
+		
+		/* collect the matches in collection order */
+		for (int i = 0; i < list.length; i++) {
+			if (list[i] instanceof ForbiddenPhrase) {
+				ArrayList<LicenseMatch> fpmatch = phraseMatches.get(list[i]);
+				if (fpmatch != null)
+					matches.addAll(fpmatch);
+			} else if (found[i] != null) {
+				matches.add(found[i]);
+			}
 		}
 		
 		ArrayList<LicenseMatch> filtered = filterMatches(matches, commentWords);
+		countHits(filtered);
 		ArrayList<LicenseMatch> newMatches = new ArrayList<LicenseMatch>();
 		
 		/* re-check tags for forbidden phrases */
@@ -609,36 +1260,42 @@ public class LicenseMatcher {
 			for (Tag t : tags.keySet()) {
 				String value = tags.get(t);
 				
-				/* split tag to get number of words */
-				WordList tagTempWords = WordList.splitWords(value, 0, 0);
+				/* count the words of the tag, they are comment words
+				 * and are not added to the WordDictionary */
+				int tagWords = WordList.countWords(value);
+				int tagStart = match.getTagStart(t);
 
-				WordList tagWords = commentWords.substring(match.getTagStart(t), tagTempWords.words.size());
+				/* check forbidden phrases inside the tag */
+				HashMap<License, ArrayList<LicenseMatch>> tagMatches =
+					phrases.match(commentWords, tagStart,
+							tagStart + tagWords);
 				
-				/* check forbidden phrases */
-				for (License license : licenses) {
-					if (license instanceof ForbiddenPhrase) {
-
-						/* Convert License to WordList */
-						WordList licenseWords = cacheLicense(license);
+				for (License license : tagMatches.keySet()) {
+					/* if this forbidden phrase was already
+					 * found, ignore it */
 					
-						ArrayList<LicenseMatch> fpmatch = matchLicenseExact(license,
-								commentWords, licenseWords);
-						
-						if(fpmatch != null) {
-							/* if this forbidden phrase was already
-							 * found, ignore it */
-							
-							boolean alreadyFound = false;
-							for(LicenseMatch m : filtered) {
-								if (m.getLicense().equals(license)) {
-									alreadyFound = true;
-									break;
-								}
+					boolean alreadyFound = false;
+					for(LicenseMatch m : filtered) {
+						if (m.getLicense().equals(license)) {
+							alreadyFound = true;
+							break;
+						}
+					}
+					if (alreadyFound) continue;
+					
+					/* the same words may be in more than one tag */
+					for (LicenseMatch fp : tagMatches.get(license)) {
+						MatchPosition pos = fp.getMatchPositions().get(0);
+						boolean duplicate = false;
+						for (LicenseMatch m : newMatches) {
+							if (m.getLicense().equals(license)
+									&& m.getMatchPositions().get(0).equals(pos)) {
+								duplicate = true;
+								break;
 							}
-							
-							if (!alreadyFound)
-								newMatches.addAll(fpmatch);
 						}
+						if (!duplicate)
+							newMatches.add(fp);
 					}
 				}
 			}
@@ -646,6 +1303,8 @@ public class LicenseMatcher {
 		
 		filtered.addAll(newMatches);
 		
+		if (key != null) cache.put(key, filtered, commentWords);
+		
 		return filtered;
 	}
 
@@ -0,0 +1,142 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+
+import checker.license.License;
+import checker.license.Tag;
+
+/**
+ * Compiled license template: the words of the license text with their
+ * positions, the positions of the tags and the word counts used by Diff.
+ * <p>
+ * A template is built once, normally when the license database is loaded,
+ * and is never modified afterwards. All tables are computed in the
+ * constructor and the fields are final, so a template can be shared by any
+ * number of matching threads without locking.
+ */
+public final class LicenseTemplate {
+
+	/**
+	 * Words of the license text. All cached tables of the list are built
+	 * in the constructor and the list is not modified after that.
+	 */
+	final WordList words;
+
+	/**
+	 * Word indices of the tags in the template
+	 */
+	private final int[] tagPositions;
+
+	/**
+	 * License tag of each entry in tagPositions, null if the license
+	 * meta file does not declare the tag
+	 */
+	private final Tag[] tagSlots;
+
+	/**
+	 * Compile a license.
+	 *
+	 * @param license License to compile
+	 */
+	public LicenseTemplate(License license) {
+		WordList w = WordList.licenseToWords(license);
+
+		/* build the cached tables now, they are read-only afterwards */
+		w.getTokens();
+		w.getOccurrences();
+		w.getLastPositions();
+		w.getTagCount();
+
+		int[] t = w.getTokens();
+		int[] positions = new int[w.getTagCount()];
+		Tag[] slots = new Tag[positions.length];
+		ArrayList<Tag> tags = license.getTags();
+		int n = 0;
+		for (int i = 0; i < t.length; i++) {
+			if (!WordDictionary.isTag(t[i])) continue;
+
+			positions[n] = i;
+			if (tags != null) {
+				for (Tag tag : tags) {
+					if (WordDictionary.getWord(t[i]).equals(tag.getId())) {
+						slots[n] = tag;
+						break;
+					}
+				}
+			}
+			n++;
+		}
+
+		words = w;
+		tagPositions = positions;
+		tagSlots = slots;
+	}
+
+	/**
+	 * Get the number of words in the template.
+	 *
+	 * @return Number of words
+	 */
+	public int size() {
+		return words.size();
+	}
+
+	/**
+	 * Get the number of tags in the template.
+	 *
+	 * @return Number of tags
+	 */
+	public int getTagCount() {
+		return tagPositions.length;
+	}
+
+	/**
+	 * Get the word index of a tag.
+	 *
+	 * @param i Tag number, 0 .. getTagCount() - 1
+	 * @return Index of the tag in the template words
+	 */
+	public int getTagPosition(int i) {
+		return tagPositions[i];
+	}
+
+	/**
+	 * Get the license tag of a tag.
+	 *
+	 * @param i Tag number, 0 .. getTagCount() - 1
+	 * @return The tag, null if the license does not declare it
+	 */
+	public Tag getTagSlot(int i) {
+		return tagSlots[i];
+	}
+
+	/**
+	 * Get the number of copies of a word in the template.
+	 *
+	 * @param token WordDictionary ID of the word
+	 * @return Number of copies
+	 */
+	public int getWordCount(int token) {
+		int[] oc = words.getOccurrences();
+		if ((token < 0) || (token >= oc.length)) return 0;
+		return oc[token];
+	}
+}
@@ -0,0 +1,312 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import checker.license.KeyPhrase;
+import checker.license.License;
+import checker.license.Tag;
+
+/**
+ * Cache of match results keyed by a fingerprint of the comment words.
+ * <p>
+ * The fingerprint is a SHA-1 digest of the word IDs, the row of each word
+ * relative to the first word, and the match parameters. Columns and the
+ * first row are not included: match results depend only on the order of
+ * the words and on which words share a line. Positions are stored as word
+ * indices and mapped back to rows and columns of the comments of each file
+ * on a hit.
+ * <p>
+ * The cache holds at most a given number of results, the oldest results
+ * are dropped first. It can be used by any number of threads.
+ */
+class MatchCache {
+
+	/**
+	 * Cached results
+	 */
+	private ConcurrentHashMap<Fingerprint, CachedMatch[]> results =
+		new ConcurrentHashMap<Fingerprint, CachedMatch[]>();
+
+	/**
+	 * Keys in insertion order, for dropping the oldest results
+	 */
+	private ConcurrentLinkedQueue<Fingerprint> order =
+		new ConcurrentLinkedQueue<Fingerprint>();
+
+	/**
+	 * Maximum number of results
+	 */
+	private int maxSize;
+
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	private static ThreadLocal<MessageDigest> digests = new ThreadLocal<MessageDigest>() {
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("SHA-1");
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+	};
+
+	/**
+	 * Digest of the comment words and the match parameters
+	 */
+	static class Fingerprint {
+		private byte[] digest;
+		private int hash;
+
+		Fingerprint(byte[] digest) {
+			this.digest = digest;
+			hash = Arrays.hashCode(digest);
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof Fingerprint)
+				&& Arrays.equals(digest, ((Fingerprint) o).digest);
+		}
+	}
+
+	/**
+	 * A match with positions as comment word indices
+	 */
+	private static class CachedMatch {
+		License license;
+		boolean forbiddenPhrase;
+		float matchPr;
+		int startWord, endWord;
+		int templateStartLine, templateStartCol;
+		int templateEndLine, templateEndCol;
+		int commentStartCol, numWords, origMatchLength;
+		Tag[] tags;
+		String[] tagValues;
+		int[] tagStarts;
+		ArrayList<KeyPhrase> keyPhrases;
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSize Maximum number of cached results
+	 */
+	MatchCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Compute the fingerprint of comments.
+	 *
+	 * @param comments Comment words
+	 * @param params Match parameters that affect the results
+	 * @return Fingerprint, null if the comments cannot be cached
+	 */
+	static Fingerprint fingerprint(WordList comments, long[] params) {
+		if (!comments.isSorted()) return null;
+
+		int n = comments.size();
+		byte[] b = new byte[8 * params.length + 8 * n];
+		int j = 0;
+		for (int i = 0; i < params.length; i++) {
+			for (int k = 56; k >= 0; k -= 8)
+				b[j++] = (byte) (params[i] >>> k);
+		}
+		for (int i = 0; i < n; i++) {
+			int t = comments.getToken(i);
+			int r = comments.getRow(i) - comments.getRow(0);
+			b[j++] = (byte) (t >>> 24);
+			b[j++] = (byte) (t >>> 16);
+			b[j++] = (byte) (t >>> 8);
+			b[j++] = (byte) t;
+			b[j++] = (byte) (r >>> 24);
+			b[j++] = (byte) (r >>> 16);
+			b[j++] = (byte) (r >>> 8);
+			b[j++] = (byte) r;
+		}
+
+		MessageDigest md = digests.get();
+		md.reset();
+		md.update(b);
+		
+		/* words that are not in the WordDictionary have the same ID,
+		 * their text tells them apart */
+		for (int i = 0; i < n; i++) {
+			if (comments.getToken(i) != WordDictionary.UNKNOWN) continue;
+			
+			String w = comments.getWord(i);
+			for (int k = 0; k < w.length(); k++) {
+				char c = w.charAt(k);
+				md.update((byte) (c >>> 8));
+				md.update((byte) c);
+			}
+			md.update((byte) 0);
+			md.update((byte) 0);
+		}
+		return new Fingerprint(md.digest());
+	}
+
+	/**
+	 * Get cached results.
+	 *
+	 * @param key Fingerprint of the comments
+	 * @param comments Comment words, the positions of the results are
+	 *            mapped to these
+	 * @return New copies of the cached matches, null if not cached
+	 */
+	ArrayList<LicenseMatch> get(Fingerprint key, WordList comments) {
+		CachedMatch[] cached = results.get(key);
+		if (cached == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+
+		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+		for (CachedMatch c : cached) {
+			MatchPosition mp = new MatchPosition(
+					comments.getRow(c.startWord), comments.getCol(c.startWord),
+					comments.getRow(c.endWord),
+					comments.getCol(c.endWord) + comments.getLength(c.endWord) - 1,
+					c.templateStartLine, c.templateStartCol,
+					c.templateEndLine, c.templateEndCol,
+					c.commentStartCol, c.numWords);
+			mp.setOrigMatchLength(c.origMatchLength);
+
+			LicenseMatch m;
+			if (c.forbiddenPhrase) {
+				m = new ForbiddenPhraseMatch(c.license, mp);
+			} else {
+				ArrayList<MatchPosition> positions = new ArrayList<MatchPosition>();
+				positions.add(mp);
+				m = new LicenseMatch(c.license, positions);
+			}
+			m.setMatchPr(c.matchPr);
+
+			for (int i = 0; i < c.tags.length; i++)
+				m.addTag(c.tags[i], c.tagValues[i], c.tagStarts[i]);
+			if (c.keyPhrases != null) {
+				for (KeyPhrase k : c.keyPhrases)
+					m.addKeyPhrase(k);
+			}
+
+			matches.add(m);
+		}
+		return matches;
+	}
+
+	/**
+	 * Store results. Results whose positions are not at word boundaries
+	 * are not stored.
+	 *
+	 * @param key Fingerprint of the comments
+	 * @param matches Found matches
+	 * @param comments Comment words the matches refer to
+	 */
+	void put(Fingerprint key, ArrayList<LicenseMatch> matches,
+			WordList comments) {
+
+		CachedMatch[] cached = new CachedMatch[matches.size()];
+		for (int i = 0; i < cached.length; i++) {
+			LicenseMatch m = matches.get(i);
+			if (m.getMatchPositions().size() != 1) return;
+			MatchPosition p = m.getMatchPositions().get(0);
+
+			CachedMatch c = new CachedMatch();
+			c.license = m.getLicense();
+			c.forbiddenPhrase = m instanceof ForbiddenPhraseMatch;
+			c.matchPr = m.getMatchPr();
+
+			c.startWord = comments.findWordAt(p.getStartLine(), p.getStartCol());
+			c.endWord = comments.findWordEndingAt(p.getEndLine(), p.getEndCol());
+			if ((c.startWord < 0) || (c.endWord < 0)
+					|| (comments.getRow(c.startWord) != p.getStartLine())
+					|| (comments.getCol(c.startWord) != p.getStartCol())) {
+				return;
+			}
+
+			c.templateStartLine = p.getTemplateStartLine();
+			c.templateStartCol = p.getTemplateStartCol();
+			c.templateEndLine = p.getTemplateEndLine();
+			c.templateEndCol = p.getTemplateEndCol();
+			c.commentStartCol = p.getCommentStartCol();
+			c.numWords = p.getNumWords();
+			c.origMatchLength = p.getOrigMatchLength();
+
+			int tagCount = (m.getTags() == null) ? 0 : m.getTags().size();
+			c.tags = new Tag[tagCount];
+			c.tagValues = new String[tagCount];
+			c.tagStarts = new int[tagCount];
+			if (tagCount > 0) {
+				int j = 0;
+				for (Tag t : m.getTags().keySet()) {
+					c.tags[j] = t;
+					c.tagValues[j] = m.getTags().get(t);
+					c.tagStarts[j] = m.getTagStart(t);
+					j++;
+				}
+			}
+
+			if (m.getKeyPhrases() != null)
+				c.keyPhrases = new ArrayList<KeyPhrase>(m.getKeyPhrases());
+
+			cached[i] = c;
+		}
+
+		if (results.putIfAbsent(key, cached) == null) {
+			order.add(key);
+
+			/* drop the oldest results */
+			while (results.size() > maxSize) {
+				Fingerprint oldest = order.poll();
+				if (oldest == null) break;
+				results.remove(oldest);
+			}
+		}
+	}
+
+	/**
+	 * Get the number of lookups that found a result.
+	 *
+	 * @return Number of hits
+	 */
+	long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Get the number of lookups that did not find a result.
+	 *
+	 * @return Number of misses
+	 */
+	long getMisses() {
+		return misses.get();
+	}
+}
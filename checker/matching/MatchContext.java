@@ -0,0 +1,90 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+
+import checker.CommentLine;
+
+/**
+ * Working state of one matching thread. Holds the comment words, the Diff,
+ * the LcsDiff, the RunDiff and the DiffAnalysis, which are reset for every
+ * file and license. Their arrays grow to the largest input seen and are
+ * then reused, so matching a license that is not found allocates nothing.
+ * <p>
+ * Results that outlive the match (MatchPositions, LicenseMatches) must not
+ * refer to the arrays held here.
+ */
+class MatchContext {
+
+	private static ThreadLocal<MatchContext> contexts = new ThreadLocal<MatchContext>() {
+		protected MatchContext initialValue() {
+			return new MatchContext();
+		}
+	};
+
+	/**
+	 * Words of the comments being matched
+	 */
+	final WordList comments = new WordList(256);
+
+	/**
+	 * Diff work arrays
+	 */
+	final Diff diff = new Diff();
+
+	/**
+	 * LcsDiff work arrays
+	 */
+	final LcsDiff lcsDiff = new LcsDiff();
+
+	/**
+	 * RunDiff work arrays
+	 */
+	final RunDiff runDiff = new RunDiff();
+
+	/**
+	 * DiffAnalysis work state
+	 */
+	final DiffAnalysis analysis = new DiffAnalysis();
+
+	private MatchContext() {
+	}
+
+	/**
+	 * Get the context of the current thread.
+	 *
+	 * @return Match context
+	 */
+	static MatchContext get() {
+		return contexts.get();
+	}
+
+	/**
+	 * Convert comments to words, replacing the previous comments.
+	 *
+	 * @param lines Comments to convert
+	 * @return The comment WordList of this context
+	 */
+	WordList setComments(ArrayList<CommentLine> lines) {
+		comments.clear();
+		comments.appendComments(lines);
+		return comments;
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import checker.license.ForbiddenPhrase;
+import checker.license.License;
+
+/**
+ * Aho-Corasick automaton over word IDs. Finds all occurrences of all
+ * forbidden phrases in one pass over the comment words.
+ * <p>
+ * A. V. Aho, M. J. Corasick. Efficient string matching: an aid to
+ * bibliographic search.<br>
+ * _Communications of the ACM_ 18(6), June 1975, pp. 333-340.
+ */
+class PhraseAutomaton {
+
+	/**
+	 * The phrases, in the order they were given
+	 */
+	private License[] phrases;
+
+	/**
+	 * Words of each phrase
+	 */
+	private WordList[] phraseWords;
+
+	/**
+	 * Failure link of each state
+	 */
+	private int[] fail;
+
+	/**
+	 * Phrases that end in each state, not including the phrases of the
+	 * failure states
+	 */
+	private int[][] output;
+
+	/**
+	 * Nearest state in the failure chain that has output, -1 if none
+	 */
+	private int[] outputLink;
+
+	/**
+	 * Goto function
+	 */
+	private EdgeTable edges;
+
+	/**
+	 * Build the automaton from the forbidden phrases in a list of licenses.
+	 *
+	 * @param licenseList Licenses, all but forbidden phrases are ignored
+	 * @param words WordList of each license, in the same order
+	 */
+	PhraseAutomaton(ArrayList<License> licenseList, ArrayList<WordList> words) {
+		ArrayList<License> list = new ArrayList<License>();
+		ArrayList<WordList> listWords = new ArrayList<WordList>();
+
+		for (int i = 0; i < licenseList.size(); i++) {
+			if (!(licenseList.get(i) instanceof ForbiddenPhrase)) continue;
+			list.add(licenseList.get(i));
+			listWords.add(words.get(i));
+		}
+
+		phrases = list.toArray(new License[list.size()]);
+		phraseWords = listWords.toArray(new WordList[list.size()]);
+
+		/* build the trie */
+		edges = new EdgeTable(16);
+		ArrayList<ArrayList<Integer>> out = new ArrayList<ArrayList<Integer>>();
+		out.add(null);
+
+		for (int p = 0; p < phrases.length; p++) {
+			int[] t = phraseWords[p].getTokens();
+			if (t.length == 0) continue;
+
+			int state = 0;
+			for (int i = 0; i < t.length; i++) {
+				int next = edges.get(state, t[i]);
+				if (next < 0) {
+					next = out.size();
+					out.add(null);
+					edges.put(state, t[i], next);
+				}
+				state = next;
+			}
+
+			if (out.get(state) == null)
+				out.set(state, new ArrayList<Integer>());
+			out.get(state).add(Integer.valueOf(p));
+		}
+
+		int states = out.size();
+		output = new int[states][];
+		for (int s = 0; s < states; s++) {
+			if (out.get(s) == null) continue;
+			output[s] = new int[out.get(s).size()];
+			for (int i = 0; i < output[s].length; i++)
+				output[s][i] = out.get(s).get(i).intValue();
+		}
+
+		/* children of each state, for the breadth first traversal */
+		int[] childCount = new int[states];
+		for (int e = 0; e < edges.slots(); e++) {
+			if (edges.isEdge(e)) childCount[edges.source(e)]++;
+		}
+		int[][] children = new int[states][];
+		int[][] childWords = new int[states][];
+		for (int s = 0; s < states; s++) {
+			children[s] = new int[childCount[s]];
+			childWords[s] = new int[childCount[s]];
+			childCount[s] = 0;
+		}
+		for (int e = 0; e < edges.slots(); e++) {
+			if (!edges.isEdge(e)) continue;
+			int s = edges.source(e);
+			children[s][childCount[s]] = edges.target(e);
+			childWords[s][childCount[s]] = edges.word(e);
+			childCount[s]++;
+		}
+
+		/* failure links */
+		fail = new int[states];
+		outputLink = new int[states];
+		outputLink[0] = -1;
+
+		int[] queue = new int[states];
+		int head = 0, tail = 0;
+		for (int i = 0; i < children[0].length; i++) {
+			int c = children[0][i];
+			fail[c] = 0;
+			outputLink[c] = -1;
+			queue[tail++] = c;
+		}
+
+		while (head < tail) {
+			int s = queue[head++];
+
+			for (int i = 0; i < children[s].length; i++) {
+				int c = children[s][i];
+				int word = childWords[s][i];
+
+				int f = fail[s];
+				int next = transition(f, word);
+				while ((next < 0) && (f != 0)) {
+					f = fail[f];
+					next = transition(f, word);
+				}
+				fail[c] = (next < 0) ? 0 : next;
+
+				outputLink[c] = (output[fail[c]] != null) ? fail[c]
+						: outputLink[fail[c]];
+
+				queue[tail++] = c;
+			}
+		}
+	}
+
+	/**
+	 * Get the goto function value.
+	 *
+	 * @return Next state or -1 if there is no edge
+	 */
+	private int transition(int state, int word) {
+		return edges.get(state, word);
+	}
+
+	/**
+	 * Find the forbidden phrases in a range of comment words. Overlapping
+	 * occurrences of the same phrase are not reported, the leftmost one
+	 * wins.
+	 *
+	 * @param comments Comment words
+	 * @param start First word to scan
+	 * @param end End of the scanned range (exclusive)
+	 * @return Found matches of each phrase in text order. Phrases that
+	 *         were not found are not in the map.
+	 */
+	HashMap<License, ArrayList<LicenseMatch>> match(WordList comments,
+			int start, int end) {
+
+		HashMap<License, ArrayList<LicenseMatch>> found =
+			new HashMap<License, ArrayList<LicenseMatch>>();
+
+		int[] n = comments.getTokens();
+		if (end > n.length) end = n.length;
+		if (phrases.length == 0) return found;
+
+		int[] lastEnd = new int[phrases.length];
+		for (int j = 0; j < lastEnd.length; j++)
+			lastEnd[j] = -1;
+
+		int state = 0;
+		for (int i = start; i < end; i++) {
+			int next = transition(state, n[i]);
+			while ((next < 0) && (state != 0)) {
+				state = fail[state];
+				next = transition(state, n[i]);
+			}
+			state = (next < 0) ? 0 : next;
+
+			for (int s = (output[state] != null) ? state : outputLink[state];
+					s >= 0; s = outputLink[s]) {
+
+				for (int k = 0; k < output[s].length; k++) {
+					int p = output[s][k];
+					int length = phraseWords[p].size();
+					int first = i - length + 1;
+
+					/* skip overlapping occurrences */
+					if (first <= lastEnd[p]) continue;
+					lastEnd[p] = i;
+
+					ArrayList<LicenseMatch> list = found.get(phrases[p]);
+					if (list == null) {
+						list = new ArrayList<LicenseMatch>();
+						found.put(phrases[p], list);
+					}
+					list.add(phraseMatch(p, comments, first, length));
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Create a match for a found phrase.
+	 */
+	private LicenseMatch phraseMatch(int p, WordList comments, int i, int j) {
+		WordList license = phraseWords[p];
+
+		MatchPosition mp =
+				new MatchPosition(
+						comments.getRow(i), comments.getCol(i),
+						comments.getRow(i + j - 1), comments.getCol(i + j - 1) + comments.getLength(i + j - 1) - 1,
+						license.getRow(0), license.getCol(0),
+						license.getRow(j - 1), license.getCol(j - 1) + license.getLength(j - 1),
+						0, j - 1);
+		mp.setOrigMatchLength(j - 1);
+
+		return new ForbiddenPhraseMatch(phrases[p], mp);
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Produces a diff of two texts from the common runs found by
+ * TemplateAutomaton.
+ * <p>
+ * The runs are taken longest first. A run is kept if it does not overlap
+ * or cross the runs kept before it, so the kept runs are in the same
+ * order in both texts. The result is stored in OA and NA like the results
+ * of Diff, so DiffAnalysis reads it unchanged.
+ */
+class RunDiff extends Diff {
+
+	/**
+	 * Kept runs by their first text word, as (first text word, first
+	 * template word, length)
+	 */
+	private TreeMap<Integer, int[]> kept = new TreeMap<Integer, int[]>();
+
+	/**
+	 * Run order, longest first
+	 */
+	private Integer[] order = new Integer[0];
+
+	/**
+	 * Class constructor for an empty diff, to be filled with align().
+	 */
+	RunDiff() {
+		super();
+	}
+
+	/**
+	 * Produce a diff of two texts from their common runs. This function
+	 * fills the arrays OA and NA, replacing the results of the previous
+	 * diff.
+	 *
+	 * @param template
+	 *            old text (template)
+	 * @param text
+	 *            new text (text to be matched)
+	 * @param runs
+	 *            Common runs as triples (first text word, first template
+	 *            word, length)
+	 */
+	void align(WordList template, WordList text, final int[] runs) {
+		int[] o = template.getTokens();
+		int[] n = text.getTokens();
+
+		O = o;
+		N = n;
+		foundNoneUnique = false;
+		if (OA.length < o.length) OA = new int[o.length];
+		if (NA.length < n.length) NA = new int[n.length];
+
+		for (int i = 0; i < n.length; i++)
+			NA[i] = -1 - n[i];
+		for (int i = 0; i < o.length; i++)
+			OA[i] = -1 - o[i];
+
+		/* longest runs first, earlier in the text on ties */
+		int count = runs.length / 3;
+		if (order.length < count) order = new Integer[count];
+		for (int i = 0; i < count; i++)
+			order[i] = Integer.valueOf(3 * i);
+		Arrays.sort(order, 0, count, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int x = a.intValue();
+				int y = b.intValue();
+				if (runs[x + 2] != runs[y + 2])
+					return runs[y + 2] - runs[x + 2];
+				if (runs[x] != runs[y])
+					return runs[x] - runs[y];
+				return runs[x + 1] - runs[y + 1];
+			}
+		});
+
+		kept.clear();
+		for (int i = 0; i < count; i++) {
+			int r = order[i].intValue();
+			int textStart = runs[r];
+			int templateStart = runs[r + 1];
+			int length = runs[r + 2];
+
+			/* the kept neighbours must be before and after the run in
+			 * both texts */
+			SortedMap<Integer, int[]> head = kept.headMap(Integer.valueOf(textStart + 1));
+			if (!head.isEmpty()) {
+				int[] before = head.get(head.lastKey());
+				if ((before[0] + before[2] > textStart)
+						|| (before[1] + before[2] > templateStart)) {
+					continue;
+				}
+			}
+			SortedMap<Integer, int[]> tail = kept.tailMap(Integer.valueOf(textStart + 1));
+			if (!tail.isEmpty()) {
+				int[] after = tail.get(tail.firstKey());
+				if ((textStart + length > after[0])
+						|| (templateStart + length > after[1])) {
+					continue;
+				}
+			}
+
+			kept.put(Integer.valueOf(textStart),
+					new int[] { textStart, templateStart, length });
+			for (int k = 0; k < length; k++) {
+				NA[textStart + k] = templateStart + k;
+				OA[templateStart + k] = textStart + k;
+			}
+		}
+	}
+}
@@ -0,0 +1,336 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import checker.license.ForbiddenPhrase;
+import checker.license.License;
+
+/**
+ * Inverted index from word n-grams (shingles) to license templates. Used to
+ * select the licenses that are worth a full Diff against given comments.
+ * <p>
+ * For each template the index gives the number of template positions whose
+ * shingle also appears in the comments. A matched substring of L template
+ * words that contains T tags is split by the tags into at most T+1 pieces,
+ * and a piece of m words contains m-(SHINGLE_LENGTH-1) shingles. The score
+ * of a template is therefore an upper estimate of the longest match that
+ * Diff can find.
+ * <p>
+ * Key phrases of the licenses are indexed too. A license whose key phrase
+ * appears in the comments is always a candidate.
+ */
+class ShingleIndex {
+
+	/**
+	 * Number of words in a shingle
+	 */
+	static final int SHINGLE_LENGTH = 3;
+
+	/**
+	 * Indexed licenses. Forbidden phrases are not indexed.
+	 */
+	private License[] licenses;
+
+	/**
+	 * License -> index in licenses[]
+	 */
+	private HashMap<License, Integer> licenseIndex;
+
+	/**
+	 * Number of words in each template
+	 */
+	private int[] templateLength;
+
+	/**
+	 * Number of tags in each template
+	 */
+	private int[] tagCount;
+
+	/**
+	 * Open addressing table of shingle keys. Slot i is used if
+	 * values[i] != null.
+	 */
+	private long[] keys;
+
+	/**
+	 * Postings for each slot: pairs of (license index, number of
+	 * positions with this shingle in the template)
+	 */
+	private int[][] values;
+
+	/**
+	 * Key phrases of each license as word ID sequences, null if none
+	 */
+	private int[][][] keyPhrases;
+
+	/**
+	 * Build the index.
+	 *
+	 * @param licenseList Licenses to index, forbidden phrases are skipped
+	 * @param words WordList of each license, in the same order
+	 */
+	ShingleIndex(ArrayList<License> licenseList, ArrayList<WordList> words) {
+		ArrayList<License> indexed = new ArrayList<License>();
+		ArrayList<WordList> indexedWords = new ArrayList<WordList>();
+
+		for (int i = 0; i < licenseList.size(); i++) {
+			if (licenseList.get(i) instanceof ForbiddenPhrase) continue;
+			indexed.add(licenseList.get(i));
+			indexedWords.add(words.get(i));
+		}
+
+		licenses = indexed.toArray(new License[indexed.size()]);
+		licenseIndex = new HashMap<License, Integer>();
+		for (int l = 0; l < licenses.length; l++)
+			licenseIndex.put(licenses[l], Integer.valueOf(l));
+		templateLength = new int[licenses.length];
+		tagCount = new int[licenses.length];
+		keyPhrases = new int[licenses.length][][];
+
+		HashMap<Long, int[]> postings = new HashMap<Long, int[]>();
+
+		for (int l = 0; l < licenses.length; l++) {
+			int[] t = indexedWords.get(l).getTokens();
+			templateLength[l] = t.length;
+
+			for (int i = 0; i < t.length; i++) {
+				if (WordDictionary.isTag(t[i])) tagCount[l]++;
+			}
+
+			for (int i = 0; i + SHINGLE_LENGTH <= t.length; i++) {
+				if (hasTag(t, i)) continue;
+
+				Long key = Long.valueOf(key(t, i));
+				int[] p = postings.get(key);
+				if (p == null) {
+					p = new int[0];
+				}
+				if ((p.length > 0) && (p[p.length - 2] == l)) {
+					p[p.length - 1]++;
+				} else {
+					int[] np = new int[p.length + 2];
+					System.arraycopy(p, 0, np, 0, p.length);
+					np[p.length] = l;
+					np[p.length + 1] = 1;
+					p = np;
+				}
+				postings.put(key, p);
+			}
+
+			ArrayList<String> phrases = licenses[l].getKeyPhrases();
+			if (phrases != null) {
+				keyPhrases[l] = new int[phrases.size()][];
+				for (int i = 0; i < phrases.size(); i++)
+					keyPhrases[l][i] = WordList.splitWords(phrases.get(i), 0, 0)
+							.getTokens();
+			}
+		}
+
+		/* copy postings to the open addressing table */
+		int size = 16;
+		while (size < postings.size() * 2)
+			size *= 2;
+
+		keys = new long[size];
+		values = new int[size][];
+		for (Long key : postings.keySet()) {
+			int s = slot(key.longValue());
+			while (values[s] != null)
+				s = (s + 1) & (size - 1);
+			keys[s] = key.longValue();
+			values[s] = postings.get(key);
+		}
+	}
+
+	private static boolean hasTag(int[] t, int i) {
+		for (int j = i; j < i + SHINGLE_LENGTH; j++) {
+			if (WordDictionary.isTag(t[j])) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Key of the shingle starting at t[i]. The key is exact for word IDs
+	 * below 2^21, larger IDs may collide. Collisions only make the scores
+	 * larger.
+	 */
+	private static long key(int[] t, int i) {
+		return ((long) t[i] << 42) ^ ((long) t[i + 1] << 21) ^ (long) t[i + 2];
+	}
+
+	private int slot(long key) {
+		int h = (int) (key ^ (key >>> 32));
+		h ^= (h >>> 16);
+		return h & (keys.length - 1);
+	}
+
+	/**
+	 * Get the postings of a shingle.
+	 *
+	 * @return Postings or null if the shingle is not indexed
+	 */
+	private int[] lookup(long key) {
+		for (int s = slot(key); values[s] != null; s = (s + 1) & (keys.length - 1)) {
+			if (keys[s] == key) return values[s];
+		}
+		return null;
+	}
+
+	/**
+	 * Select candidate licenses for given comments.
+	 *
+	 * @param comments Comment words
+	 * @param minMatch Minimum match percentage (0.0 .. 1.0)
+	 * @param maxCandidates Maximum number of candidates to return
+	 *            (0: no limit). Licenses seeded by key phrases are not
+	 *            counted.
+	 * @return Candidate licenses, and the key phrase hits of each
+	 *         candidate (may be null)
+	 */
+	HashMap<License, ArrayList<String>> candidates(WordList comments,
+			double minMatch, int maxCandidates) {
+
+		int[] n = comments.getTokens();
+
+		/* distinct shingles of the comments */
+		int count = n.length - SHINGLE_LENGTH + 1;
+		if (count < 0) count = 0;
+		long[] shingles = new long[count];
+		for (int i = 0; i < count; i++)
+			shingles[i] = key(n, i);
+		Arrays.sort(shingles);
+
+		int[] covered = new int[licenses.length];
+		for (int i = 0; i < count; i++) {
+			if ((i > 0) && (shingles[i] == shingles[i - 1])) continue;
+
+			int[] p = lookup(shingles[i]);
+			if (p == null) continue;
+
+			for (int j = 0; j < p.length; j += 2)
+				covered[p[j]] += p[j + 1];
+		}
+
+		/* score = estimated longest match / template length */
+		ArrayList<Integer> passed = new ArrayList<Integer>();
+		final double[] score = new double[licenses.length];
+		for (int l = 0; l < licenses.length; l++) {
+			int bound = covered[l] + tagCount[l]
+					+ (tagCount[l] + 1) * (SHINGLE_LENGTH - 1) + 1;
+			score[l] = (double) bound / (double) templateLength[l];
+			if (score[l] >= minMatch) passed.add(Integer.valueOf(l));
+		}
+
+		/* best scores first, keep database order on ties */
+		Collections.sort(passed, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				if (score[a.intValue()] > score[b.intValue()]) return -1;
+				if (score[a.intValue()] < score[b.intValue()]) return 1;
+				return a.intValue() - b.intValue();
+			}
+		});
+
+		HashMap<License, ArrayList<String>> result =
+			new HashMap<License, ArrayList<String>>();
+		for (int i = 0; i < passed.size(); i++) {
+			if ((maxCandidates > 0) && (i >= maxCandidates)) break;
+			result.put(licenses[passed.get(i).intValue()], null);
+		}
+
+		/* key phrases */
+		for (int l = 0; l < licenses.length; l++) {
+			if (keyPhrases[l] == null) continue;
+
+			for (int i = 0; i < keyPhrases[l].length; i++) {
+				if (contains(n, keyPhrases[l][i])) {
+					ArrayList<String> hits = result.get(licenses[l]);
+					if (hits == null) hits = new ArrayList<String>();
+					hits.add(licenses[l].getKeyPhrases().get(i));
+					result.put(licenses[l], hits);
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Check if comments contain license-like text: a key phrase, or a run
+	 * of more than minWords words whose shingles all appear in templates.
+	 *
+	 * @param comments Comment words
+	 * @param minWords Number of words a run must exceed
+	 * @return True if license-like text was found
+	 */
+	boolean hasLicenseText(WordList comments, int minWords) {
+		int[] n = comments.getTokens();
+
+		/* consecutive shingles in the index */
+		int run = 0;
+		for (int i = 0; i + SHINGLE_LENGTH <= n.length; i++) {
+			if (lookup(key(n, i)) == null) {
+				run = 0;
+				continue;
+			}
+
+			run++;
+			if (run + SHINGLE_LENGTH - 1 > minWords) return true;
+		}
+
+		for (int l = 0; l < licenses.length; l++) {
+			if (keyPhrases[l] == null) continue;
+
+			for (int i = 0; i < keyPhrases[l].length; i++) {
+				if (contains(n, keyPhrases[l][i])) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Check if a word sequence contains another.
+	 */
+	private static boolean contains(int[] text, int[] phrase) {
+		if (phrase.length == 0) return false;
+
+		for (int i = 0; i + phrase.length <= text.length; i++) {
+			int j = 0;
+			while ((j < phrase.length) && (text[i + j] == phrase[j]))
+				j++;
+			if (j == phrase.length) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Check if a license is in the index.
+	 *
+	 * @param license License to check
+	 * @return True if the license was indexed
+	 */
+	boolean contains(License license) {
+		return licenseIndex.containsKey(license);
+	}
+}
@@ -0,0 +1,158 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Static interval tree over the comment spans of a set of matches. Finds
+ * the matches that overlap a given span in O((k + 1) log m) time, removed
+ * matches are not reported.
+ * <p>
+ * Positions are encoded as (row &lt;&lt; 32 | col), so they compare in
+ * text order.
+ */
+class SpanIndex {
+
+	/**
+	 * Match numbers sorted by span start
+	 */
+	private int[] order;
+
+	/**
+	 * Position of each match in order[]
+	 */
+	private int[] slot;
+
+	/**
+	 * Span starts in sorted order
+	 */
+	private long[] starts;
+
+	/**
+	 * Maximum span end of each subtree, Long.MIN_VALUE for removed
+	 * matches. Leaves start at index size.
+	 */
+	private long[] maxEnd;
+
+	private int size;
+
+	/**
+	 * Build the index.
+	 *
+	 * @param start Start position of each match
+	 * @param end End position of each match (inclusive)
+	 */
+	SpanIndex(final long[] start, long[] end) {
+		int m = start.length;
+
+		/* sort match numbers by start, keep numbering on ties */
+		order = new int[m];
+		slot = new int[m];
+		starts = new long[m];
+		Integer[] tmp = new Integer[m];
+		for (int i = 0; i < m; i++)
+			tmp[i] = Integer.valueOf(i);
+		Arrays.sort(tmp, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				long sa = start[a.intValue()], sb = start[b.intValue()];
+				if (sa != sb) return (sa < sb) ? -1 : 1;
+				return a.intValue() - b.intValue();
+			}
+		});
+
+		size = 1;
+		while (size < m)
+			size *= 2;
+		maxEnd = new long[2 * size];
+		Arrays.fill(maxEnd, Long.MIN_VALUE);
+
+		for (int i = 0; i < m; i++) {
+			order[i] = tmp[i].intValue();
+			slot[order[i]] = i;
+			starts[i] = start[order[i]];
+			maxEnd[size + i] = end[order[i]];
+		}
+		for (int i = size - 1; i > 0; i--)
+			maxEnd[i] = Math.max(maxEnd[2 * i], maxEnd[2 * i + 1]);
+	}
+
+	/**
+	 * Encode a text position.
+	 *
+	 * @param row Row
+	 * @param col Column
+	 * @return Position key
+	 */
+	static long position(int row, int col) {
+		return ((long) row << 32) | (col & 0xffffffffL);
+	}
+
+	/**
+	 * Find the matches whose span overlaps a given span.
+	 *
+	 * @param start Start position of the span
+	 * @param end End position of the span (inclusive)
+	 * @param result List to add the match numbers to, in start order
+	 */
+	void overlapping(long start, long end, ArrayList<Integer> result) {
+
+		/* matches starting after the span cannot overlap it */
+		int lo = 0, hi = starts.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (starts[mid] <= end) lo = mid + 1;
+			else hi = mid;
+		}
+
+		collect(1, 0, size, lo, start, result);
+	}
+
+	/**
+	 * Collect the leaves below node whose index is below limit and whose
+	 * end is at least start.
+	 */
+	private void collect(int node, int nodeLo, int nodeHi, int limit,
+			long start, ArrayList<Integer> result) {
+		if ((nodeLo >= limit) || (maxEnd[node] < start)) return;
+
+		if (node >= size) {
+			result.add(Integer.valueOf(order[node - size]));
+			return;
+		}
+
+		int mid = (nodeLo + nodeHi) >>> 1;
+		collect(2 * node, nodeLo, mid, limit, start, result);
+		collect(2 * node + 1, mid, nodeHi, limit, start, result);
+	}
+
+	/**
+	 * Remove a match from the index.
+	 *
+	 * @param match Match number
+	 */
+	void remove(int match) {
+		int node = size + slot[match];
+		maxEnd[node] = Long.MIN_VALUE;
+		for (node >>>= 1; node > 0; node >>>= 1)
+			maxEnd[node] = Math.max(maxEnd[2 * node], maxEnd[2 * node + 1]);
+	}
+}
@@ -0,0 +1,502 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import checker.license.ForbiddenPhrase;
+import checker.license.License;
+
+/**
+ * Generalized suffix automaton over the words of all license templates.
+ * The comment words are streamed through it once, and every maximal run
+ * of words the comments share with a template is reported, for all
+ * templates at the same time.
+ * <p>
+ * M. Crochemore, C. Hancart, T. Lecroq. Algorithms on Strings.<br>
+ * Cambridge University Press, 2007, section 5.4.
+ * <p>
+ * Tags split the templates into pieces; a run never spans a tag. Each
+ * template position is an end position of the state its prefix reached
+ * when the automaton was built. The end positions of a state are the
+ * positions of the states below it in the suffix link tree, which are
+ * stored in preorder so that each state owns a range of them.
+ * <p>
+ * While streaming, the automaton is at the state of the longest suffix of
+ * the comments seen so far that occurs in some template. Before the next
+ * word is read, the end positions that cannot be extended by it end a
+ * run. Positions of a suffix link state that are also positions of the
+ * state left behind have been reported with a longer run and are skipped.
+ * <p>
+ * Runs shorter than MIN_RUN_LENGTH are reported only when they are a
+ * piece end before a tag or a piece start after a tag, such as
+ * "copyright c" before &lt;year_and_name&gt;. DiffAnalysis finds the tag
+ * values by scanning from the words next to the tag.
+ */
+class TemplateAutomaton {
+
+	/**
+	 * Shortest reported run in words
+	 */
+	static final int MIN_RUN_LENGTH = 3;
+
+	/**
+	 * Shortest reported run next to a tag
+	 */
+	static final int MIN_ANCHOR_LENGTH = 2;
+
+	/**
+	 * States with more end positions than this are not reported. Such
+	 * short, common phrases would only slow the search down.
+	 */
+	static final int MAX_OCCURRENCES = 256;
+
+	/**
+	 * Templates in the automaton, forbidden phrases are skipped
+	 */
+	private License[] licenses;
+
+	/**
+	 * Longest string length and suffix link of each state
+	 */
+	private int[] length;
+	private int[] link;
+
+	/**
+	 * Transitions
+	 */
+	private EdgeTable edges;
+
+	/**
+	 * Words of the transitions of each state while building, as linked
+	 * lists starting from outFirst[] and continuing in outNext[]. Used
+	 * for copying the transitions to a clone.
+	 */
+	private int[] outFirst;
+	private int[] outWord;
+	private int[] outNext;
+	private int outCount;
+
+	/**
+	 * Range of each state in occurrences[]
+	 */
+	private int[] first;
+	private int[] end;
+
+	/**
+	 * Template positions in suffix link tree preorder, as indices to
+	 * positionLicense[], positionWord[] and nextWord[]
+	 */
+	private int[] occurrences;
+
+	/**
+	 * License index and word index of each template position
+	 */
+	private int[] positionLicense;
+	private int[] positionWord;
+
+	/**
+	 * The template word after each position, -1 if the position ends a
+	 * piece
+	 */
+	private int[] nextWord;
+
+	/**
+	 * First word index of the piece of each position
+	 */
+	private int[] pieceStart;
+
+	/**
+	 * Number of words of each template
+	 */
+	private int[] templateLength;
+
+	/**
+	 * Number of the positions before each index of occurrences[] that can
+	 * end or start a run next to a tag
+	 */
+	private int[] anchorCount;
+
+	/**
+	 * Build the automaton.
+	 *
+	 * @param licenseList Licenses, forbidden phrases are skipped
+	 * @param words WordList of each license, in the same order
+	 */
+	TemplateAutomaton(ArrayList<License> licenseList, ArrayList<WordList> words) {
+		ArrayList<License> list = new ArrayList<License>();
+		ArrayList<WordList> listWords = new ArrayList<WordList>();
+
+		for (int i = 0; i < licenseList.size(); i++) {
+			if (licenseList.get(i) instanceof ForbiddenPhrase) continue;
+			list.add(licenseList.get(i));
+			listWords.add(words.get(i));
+		}
+		licenses = list.toArray(new License[list.size()]);
+
+		int total = 0;
+		for (WordList w : listWords)
+			total += w.size();
+
+		positionLicense = new int[total];
+		positionWord = new int[total];
+		nextWord = new int[total];
+		pieceStart = new int[total];
+		templateLength = new int[licenses.length];
+		int[] positionState = new int[total];
+
+		/* there are at most 2 * total + 1 states */
+		int capacity = 2 * total + 2;
+		length = new int[capacity];
+		link = new int[capacity];
+		edges = new EdgeTable(3 * total);
+		outFirst = new int[capacity];
+		outWord = new int[3 * total + 16];
+		outNext = new int[3 * total + 16];
+		outFirst[0] = -1;
+		link[0] = -1;
+		int states = 1;
+
+		int g = 0;
+		for (int l = 0; l < licenses.length; l++) {
+			int[] t = listWords.get(l).getTokens();
+			templateLength[l] = t.length;
+
+			int last = 0;
+			int start = 0;
+			for (int i = 0; i < t.length; i++) {
+				if (WordDictionary.isTag(t[i])) {
+					/* a new piece starts after the tag */
+					last = 0;
+					start = i + 1;
+					continue;
+				}
+
+				int word = t[i];
+				int q = edges.get(last, word);
+				int cur;
+
+				if (q >= 0) {
+					/* the word has been seen after this prefix in
+					 * another piece */
+					if (length[last] + 1 == length[q]) {
+						cur = q;
+					} else {
+						cur = states++;
+						copyTransitions(q, cur);
+						length[cur] = length[last] + 1;
+						link[cur] = link[q];
+						link[q] = cur;
+						for (int p = last; p != -1; p = link[p]) {
+							if (edges.get(p, word) != q) break;
+							edges.put(p, word, cur);
+						}
+					}
+				} else {
+					cur = states++;
+					outFirst[cur] = -1;
+					length[cur] = length[last] + 1;
+
+					int p = last;
+					while ((p != -1) && (edges.get(p, word) < 0)) {
+						addTransition(p, word, cur);
+						p = link[p];
+					}
+
+					if (p == -1) {
+						link[cur] = 0;
+					} else {
+						q = edges.get(p, word);
+						if (length[p] + 1 == length[q]) {
+							link[cur] = q;
+						} else {
+							int clone = states++;
+							copyTransitions(q, clone);
+							length[clone] = length[p] + 1;
+							link[clone] = link[q];
+							while ((p != -1) && (edges.get(p, word) == q)) {
+								edges.put(p, word, clone);
+								p = link[p];
+							}
+							link[q] = clone;
+							link[cur] = clone;
+						}
+					}
+				}
+
+				positionLicense[g] = l;
+				positionWord[g] = i;
+				nextWord[g] = ((i + 1 < t.length) && !WordDictionary.isTag(t[i + 1]))
+						? t[i + 1] : -1;
+				pieceStart[g] = start;
+				positionState[g] = cur;
+				g++;
+				last = cur;
+			}
+		}
+		total = g;
+
+		outFirst = null;
+		outWord = null;
+		outNext = null;
+		buildOccurrences(positionState, total, states);
+	}
+
+	/**
+	 * Add a new transition while building.
+	 */
+	private void addTransition(int state, int word, int next) {
+		if (outCount == outWord.length) {
+			int[] w = new int[outCount * 2];
+			System.arraycopy(outWord, 0, w, 0, outCount);
+			outWord = w;
+			int[] n = new int[outCount * 2];
+			System.arraycopy(outNext, 0, n, 0, outCount);
+			outNext = n;
+		}
+		outWord[outCount] = word;
+		outNext[outCount] = outFirst[state];
+		outFirst[state] = outCount++;
+		edges.put(state, word, next);
+	}
+
+	/**
+	 * Give a new state the same transitions as another state.
+	 */
+	private void copyTransitions(int from, int to) {
+		outFirst[to] = -1;
+		for (int e = outFirst[from]; e >= 0; e = outNext[e])
+			addTransition(to, outWord[e], edges.get(from, outWord[e]));
+	}
+
+	/**
+	 * Order the template positions by the suffix link tree preorder of
+	 * their states, and find the range of each state.
+	 */
+	private void buildOccurrences(int[] positionState, int total, int states) {
+		/* children of each state in the suffix link tree */
+		int[] childCount = new int[states + 1];
+		for (int s = 1; s < states; s++)
+			childCount[link[s] + 1]++;
+		for (int s = 0; s < states; s++)
+			childCount[s + 1] += childCount[s];
+		int[] children = new int[states];
+		int[] fill = new int[states];
+		for (int s = 1; s < states; s++)
+			children[childCount[link[s]] + fill[link[s]]++] = s;
+
+		/* positions of each state */
+		int[] own = new int[states + 1];
+		for (int i = 0; i < total; i++)
+			own[positionState[i] + 1]++;
+		for (int s = 0; s < states; s++)
+			own[s + 1] += own[s];
+		int[] ownPositions = new int[total];
+		int[] ownFill = new int[states];
+		for (int i = 0; i < total; i++) {
+			int s = positionState[i];
+			ownPositions[own[s] + ownFill[s]++] = i;
+		}
+
+		/* preorder traversal */
+		first = new int[states];
+		end = new int[states];
+		occurrences = new int[total];
+		int count = 0;
+
+		int[] stack = new int[states];
+		int[] childIndex = new int[states];
+		int top = 0;
+		stack[0] = 0;
+		first[0] = 0;
+		for (int k = own[0]; k < own[1]; k++)
+			occurrences[count++] = ownPositions[k];
+
+		while (top >= 0) {
+			int s = stack[top];
+			int c = childCount[s] + childIndex[s];
+			if (c < childCount[s + 1]) {
+				childIndex[s]++;
+				int child = children[c];
+				first[child] = count;
+				for (int k = own[child]; k < own[child + 1]; k++)
+					occurrences[count++] = ownPositions[k];
+				stack[++top] = child;
+			} else {
+				end[s] = count;
+				top--;
+			}
+		}
+
+		anchorCount = new int[total + 1];
+		for (int k = 0; k < total; k++) {
+			int g = occurrences[k];
+			boolean anchor = isTagEnd(g)
+					|| ((pieceStart[g] > 0)
+						&& (positionWord[g] - pieceStart[g] + 1 < MIN_RUN_LENGTH));
+			anchorCount[k + 1] = anchorCount[k] + (anchor ? 1 : 0);
+		}
+
+		/* the build arrays are not needed any more */
+		int[] l = new int[states];
+		System.arraycopy(length, 0, l, 0, states);
+		length = l;
+		l = new int[states];
+		System.arraycopy(link, 0, l, 0, states);
+		link = l;
+	}
+
+	/**
+	 * Check if a template position is the last word before a tag.
+	 */
+	private boolean isTagEnd(int g) {
+		return (nextWord[g] < 0)
+			&& (positionWord[g] + 1 < templateLength[positionLicense[g]]);
+	}
+
+	/**
+	 * Check if a run of a length ending at a template position starts
+	 * right after a tag.
+	 */
+	private boolean isTagStart(int g, int matched) {
+		return (pieceStart[g] > 0)
+			&& (positionWord[g] - matched + 1 == pieceStart[g]);
+	}
+
+	/**
+	 * Get the transition of a state by a word.
+	 *
+	 * @return Next state or -1 if there is no transition
+	 */
+	private int transition(int state, int word) {
+		return edges.get(state, word);
+	}
+
+	/**
+	 * Find the maximal runs of words the comments share with each
+	 * template.
+	 *
+	 * @param comments Comment words
+	 * @return Runs of each license as triples (first comment word, first
+	 *         template word, length). Licenses without runs are not in
+	 *         the map.
+	 */
+	HashMap<License, int[]> runs(WordList comments) {
+		int[] n = comments.getTokens();
+		RunList[] found = new RunList[licenses.length];
+
+		int state = 0;
+		int matched = 0;
+
+		for (int j = 0; j <= n.length; j++) {
+			int word = (j < n.length) ? n[j] : -1;
+
+			/* runs of the current state that end before word j */
+			report(found, state, -1, matched, j - 1, word);
+
+			if (word < 0) break;
+
+			int t = transition(state, word);
+			while ((t < 0) && (state != 0)) {
+				int previous = state;
+				state = link[state];
+				matched = length[state];
+				report(found, state, previous, matched, j - 1, word);
+				t = transition(state, word);
+			}
+
+			if (t < 0) {
+				matched = 0;
+			} else {
+				state = t;
+				matched++;
+			}
+		}
+
+		HashMap<License, int[]> result = new HashMap<License, int[]>();
+		for (int l = 0; l < licenses.length; l++) {
+			if (found[l] != null) result.put(licenses[l], found[l].toArray());
+		}
+		return result;
+	}
+
+	/**
+	 * Report the end positions of a state that are not followed by a
+	 * word.
+	 *
+	 * @param found Runs of each license
+	 * @param state The state
+	 * @param skip State whose positions were reported already, -1 if none
+	 * @param matched Length of the run
+	 * @param last Last comment word of the run
+	 * @param word Next comment word, -1 at the end of the comments
+	 */
+	private void report(RunList[] found, int state, int skip, int matched,
+			int last, int word) {
+		if ((state == 0) || (matched < MIN_ANCHOR_LENGTH)) return;
+		if (end[state] - first[state] > MAX_OCCURRENCES) return;
+
+		/* short runs only next to a tag */
+		boolean anchorsOnly = (matched < MIN_RUN_LENGTH);
+		if (anchorsOnly && (anchorCount[end[state]] == anchorCount[first[state]]))
+			return;
+
+		for (int k = first[state]; k < end[state]; k++) {
+			if ((skip >= 0) && (k >= first[skip]) && (k < end[skip])) {
+				k = end[skip] - 1;
+				continue;
+			}
+
+			int g = occurrences[k];
+			if ((word >= 0) && (nextWord[g] == word)) continue;
+			if (anchorsOnly && !isTagEnd(g) && !isTagStart(g, matched)) continue;
+
+			int l = positionLicense[g];
+			if (found[l] == null) found[l] = new RunList();
+			found[l].add(last - matched + 1, positionWord[g] - matched + 1,
+					matched);
+		}
+	}
+
+	/**
+	 * Growable list of run triples
+	 */
+	private static class RunList {
+		int[] data = new int[12];
+		int size = 0;
+
+		void add(int comment, int template, int length) {
+			if (size + 3 > data.length) {
+				int[] d = new int[data.length * 2];
+				System.arraycopy(data, 0, d, 0, size);
+				data = d;
+			}
+			data[size++] = comment;
+			data[size++] = template;
+			data[size++] = length;
+		}
+
+		int[] toArray() {
+			int[] a = new int[size];
+			System.arraycopy(data, 0, a, 0, size);
+			return a;
+		}
+	}
+}
@@ -0,0 +1,241 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.matching;
+
+/**
+ * Global token dictionary. Every normalized word of the licenses and
+ * phrases is interned here once and is afterwards represented by its
+ * integer ID. Two words are equal if and only if their IDs are equal, so
+ * the matching code never has to hash or compare strings.
+ * <p>
+ * Comment words are only looked up. A comment word that is not in the
+ * dictionary cannot match a license word, so it gets the ID UNKNOWN and
+ * the dictionary does not grow with the words of the scanned files.
+ * <p>
+ * IDs are allocated sequentially starting from 0 and are never released.
+ */
+public final class WordDictionary {
+
+	/**
+	 * Open addressing hash table, each slot holds ID + 1 or 0 if empty.
+	 * The table is replaced when it grows.
+	 */
+	private static volatile int[] table = new int[4096];
+
+	/**
+	 * ID -> word mapping. The array is replaced when it grows.
+	 */
+	private static volatile String[] words = new String[1024];
+
+	/**
+	 * ID -> "word is a tag" mapping
+	 */
+	private static volatile boolean[] tags = new boolean[1024];
+
+	/**
+	 * Number of interned words
+	 */
+	private static int count = 0;
+
+	/**
+	 * ID of the comment words that are not in the dictionary. It is the
+	 * ID of the empty word, which no text is split into, so it is not
+	 * the ID of any license word.
+	 */
+	public static final int UNKNOWN = intern("");
+
+	private WordDictionary() {
+	}
+
+	/**
+	 * Spread the bits of a String hash code over the table index.
+	 */
+	private static int slot(int hash, int mask) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * Find the ID of a word without locking.
+	 *
+	 * @return The ID or -1 if the word was not found. A word being added
+	 *         by another thread may not be found.
+	 */
+	private static int find(char[] buf, int off, int len, int hash) {
+		int[] t = table;
+		String[] w = words;
+		int mask = t.length - 1;
+
+		for (int i = slot(hash, mask); t[i] != 0; i = (i + 1) & mask) {
+			int id = t[i] - 1;
+			if (id >= w.length) return -1;
+			String s = w[id];
+			if (s == null) return -1;
+			if ((s.length() == len) && (s.hashCode() == hash)
+					&& regionEquals(s, buf, off, len))
+				return id;
+		}
+
+		return -1;
+	}
+
+	private static boolean regionEquals(String s, char[] buf, int off, int len) {
+		for (int i = 0; i < len; i++) {
+			if (s.charAt(i) != buf[off + i])
+				return false;
+		}
+		return true;
+	}
+
+	private static int hash(char[] buf, int off, int len) {
+		int h = 0;
+		for (int i = 0; i < len; i++)
+			h = 31 * h + buf[off + i];
+		return h;
+	}
+
+	/**
+	 * Get the ID of a word, adding the word to the dictionary if needed.
+	 *
+	 * @param word Normalized word
+	 * @return ID of the word
+	 */
+	public static int intern(String word) {
+		char[] buf = word.toCharArray();
+		return intern(buf, 0, buf.length);
+	}
+
+	/**
+	 * Get the ID of a word stored in a char array, adding the word to the
+	 * dictionary if needed. A String is created only for new words.
+	 *
+	 * @param buf Buffer holding the normalized word
+	 * @param off Start of the word in buf
+	 * @param len Length of the word
+	 * @return ID of the word
+	 */
+	public static int intern(char[] buf, int off, int len) {
+		int hash = hash(buf, off, len);
+		int id = find(buf, off, len, hash);
+		if (id >= 0)
+			return id;
+
+		return add(buf, off, len, hash);
+	}
+
+	/**
+	 * Get the ID of a word without adding it to the dictionary. No lock
+	 * is taken.
+	 *
+	 * @param word Normalized word
+	 * @return ID of the word, UNKNOWN if it is not in the dictionary
+	 */
+	public static int lookup(String word) {
+		char[] buf = word.toCharArray();
+		return lookup(buf, 0, buf.length);
+	}
+
+	/**
+	 * Get the ID of a word stored in a char array without adding it to
+	 * the dictionary. No lock is taken.
+	 *
+	 * @param buf Buffer holding the normalized word
+	 * @param off Start of the word in buf
+	 * @param len Length of the word
+	 * @return ID of the word, UNKNOWN if it is not in the dictionary
+	 */
+	public static int lookup(char[] buf, int off, int len) {
+		int id = find(buf, off, len, hash(buf, off, len));
+		return (id >= 0) ? id : UNKNOWN;
+	}
+
+	private static synchronized int add(char[] buf, int off, int len, int hash) {
+
+		/* check again, another thread may have added the word */
+		int id = find(buf, off, len, hash);
+		if (id >= 0)
+			return id;
+
+		String word = new String(buf, off, len);
+
+		if (count == words.length) {
+			String[] newWords = new String[count * 2];
+			boolean[] newTags = new boolean[count * 2];
+			System.arraycopy(words, 0, newWords, 0, count);
+			System.arraycopy(tags, 0, newTags, 0, count);
+			words = newWords;
+			tags = newTags;
+		}
+
+		words[count] = word;
+		tags[count] = word.startsWith("<") && word.endsWith(">");
+		id = count++;
+
+		if (count * 2 > table.length) {
+			/* rehash to a table twice as big */
+			int[] t = new int[table.length * 2];
+			int mask = t.length - 1;
+			for (int i = 0; i < count; i++) {
+				int j = slot(words[i].hashCode(), mask);
+				while (t[j] != 0)
+					j = (j + 1) & mask;
+				t[j] = i + 1;
+			}
+			table = t;
+		} else {
+			int[] t = table;
+			int mask = t.length - 1;
+			int j = slot(hash, mask);
+			while (t[j] != 0)
+				j = (j + 1) & mask;
+			t[j] = id + 1;
+		}
+
+		return id;
+	}
+
+	/**
+	 * Get the word with the given ID.
+	 *
+	 * @param id Word ID
+	 * @return The word
+	 */
+	public static String getWord(int id) {
+		return words[id];
+	}
+
+	/**
+	 * Check if a word is a tag. If the word starts with a "&lt;" and ends
+	 * with "&gt;", it is assumed to be a tag.
+	 *
+	 * @param id Word ID
+	 * @return True if the word is a tag, false otherwise
+	 */
+	public static boolean isTag(int id) {
+		return tags[id];
+	}
+
+	/**
+	 * Get the number of words in the dictionary.
+	 *
+	 * @return Number of interned words
+	 */
+	public static synchronized int size() {
+		return count;
+	}
+}
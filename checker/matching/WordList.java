@@ -1,17 +1,17 @@
 /**
- * 
+ *
  *   Copyright (C) 2007 Lauri Koponen
  *
  *   This program is free software; you can redistribute it and/or modify it under the terms of
  *   the GNU General Public License as published by the Free Software Foundation; either version 2
  *   of the License, or (at your option) any later version.
  *
- *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
- *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
  *   See the GNU General Public License for more details.
  *
  *   You should have received a copy of the GNU General Public License along with this program;
- *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
  *   MA 02111-1307 USA
  *
  */
@@ -19,6 +19,7 @@
 package checker.matching;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.regex.Pattern;
 
 import checker.CommentLine;
@@ -32,92 +33,248 @@ import checker.license.License;
  * Users of this class expect the words to appear in original order, so row and
  * column information are only used for accessing the original data. They are
  * not used for sorting.
- * 
+ * <p>
+ * Words and positions are stored in growable int arrays. Only the first
+ * size() entries of each array are valid.
+ *
  * @author Lauri Koponen
  */
 public class WordList {
 	/**
-	 * list of words in WordList
+	 * list of words in WordList, one WordDictionary ID for each word
 	 */
-	public ArrayList<String> words;
+	private int[] tokens;
 
 	/**
-	 * text row the word appears on, one Integer for each word in the same order
+	 * text row the word appears on, one entry for each word in the same order
 	 */
-	public ArrayList<Integer> row;
+	private int[] row;
 
 	/**
-	 * text column the word begins at, one Integer for each word in the same
+	 * text column the word begins at, one entry for each word in the same
 	 * order
 	 */
-	public ArrayList<Integer> col;
+	private int[] col;
+
+	/**
+	 * length of each word, one entry for each word in the same order
+	 */
+	private int[] len;
+
+	/**
+	 * number of words in the list
+	 */
+	private int count;
 
 	/**
-	 * length of each word, one Integer for each word in the same order
+	 * True if the words are in ascending (row, col) order. Binary
+	 * searches are used only when this is true.
 	 */
-	public ArrayList<Integer> len;
-	
+	private boolean sorted;
+
+	/**
+	 * Scratch buffer for building normalized words
+	 */
+	private char[] wordBuffer;
+
+	/**
+	 * Comment words that are not in the WordDictionary have the ID
+	 * WordDictionary.UNKNOWN. Their text is kept here with their
+	 * positions in the list, in ascending order.
+	 */
+	private int[] unknownPositions = new int[0];
+	private String[] unknownWords = new String[0];
+	private int unknownCount = 0;
+
+	/**
+	 * Characters removed from words that are not tags
+	 */
+	private static final Pattern nonWordChars = Pattern.compile("[^a-zA-Z0-9<>]");
+
+	/**
+	 * Cached token array and symbol tables for Diff, built on demand.
+	 * These are dropped whenever the list is modified.
+	 */
+	private int[] tokenArray = null;
+	private int[] occurrences = null;
+	private int[] lastPositions = null;
+	private int[] firstPositions = null;
+	private int[] positionCounts = null;
+	private int[] distinctTokens = null;
+	private int[] distinctCounts = null;
+	private int tagCount = 0;
+
 	/**
 	 * Class constructor.
-	 * 
+	 *
 	 */
 	public WordList() {
-		words = new ArrayList<String>();
-		row = new ArrayList<Integer>();
-		col = new ArrayList<Integer>();
-		len = new ArrayList<Integer>();
+		this(16);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param capacity Initial capacity in words
+	 */
+	public WordList(int capacity) {
+		if (capacity < 1) capacity = 1;
+		tokens = new int[capacity];
+		row = new int[capacity];
+		col = new int[capacity];
+		len = new int[capacity];
+		count = 0;
+		sorted = true;
+		wordBuffer = new char[32];
+	}
+
+	/**
+	 * Remove all words from the list. Allocated buffers are kept.
+	 */
+	public void clear() {
+		count = 0;
+		unknownCount = 0;
+		sorted = true;
+		modified();
+	}
+
+	/**
+	 * Drop cached data after the list has been modified.
+	 */
+	private void modified() {
+		tokenArray = null;
+		occurrences = null;
+		firstPositions = null;
+	}
+
+	/**
+	 * Make room for at least n words.
+	 *
+	 * @param n Required capacity
+	 */
+	private void ensureCapacity(int n) {
+		if (n <= tokens.length) return;
+
+		int newCapacity = tokens.length * 2;
+		if (newCapacity < n) newCapacity = n;
+
+		tokens = grow(tokens, newCapacity);
+		row = grow(row, newCapacity);
+		col = grow(col, newCapacity);
+		len = grow(len, newCapacity);
+	}
+
+	private int[] grow(int[] a, int capacity) {
+		int[] b = new int[capacity];
+		System.arraycopy(a, 0, b, 0, count);
+		return b;
+	}
+
+	/**
+	 * Add a word at the end of the list.
+	 *
+	 * @param token WordDictionary ID of the word
+	 * @param r Row of the word
+	 * @param c Column of the word
+	 * @param l Length of the word in the original text
+	 */
+	public void add(int token, int r, int c, int l) {
+		ensureCapacity(count + 1);
+
+		if ((count > 0) && sorted) {
+			int pr = row[count - 1];
+			if ((r < pr) || ((r == pr) && (c < col[count - 1])))
+				sorted = false;
+		}
+
+		tokens[count] = token;
+		row[count] = r;
+		col[count] = c;
+		len[count] = l;
+		count++;
+		modified();
 	}
 
 	/**
 	 * Adds the contents of another word list at the end of this list,
 	 * preserving word order.
-	 * 
+	 *
 	 * @param wordlist
 	 *            a word list to add to this list
 	 */
 	public void addAll(WordList wordlist) {
-		words.addAll(wordlist.words);
-		row.addAll(wordlist.row);
-		col.addAll(wordlist.col);
-		len.addAll(wordlist.len);
+		ensureCapacity(count + wordlist.count);
+		for (int i = 0; i < wordlist.count; i++) {
+			if (wordlist.tokens[i] == WordDictionary.UNKNOWN) {
+				addUnknown(wordlist.getWord(i), wordlist.row[i],
+						wordlist.col[i], wordlist.len[i]);
+			} else {
+				add(wordlist.tokens[i], wordlist.row[i], wordlist.col[i],
+						wordlist.len[i]);
+			}
+		}
+	}
+
+	/**
+	 * Add a word that is not in the WordDictionary at the end of the list.
+	 *
+	 * @param word The normalized word
+	 * @param r Row of the word
+	 * @param c Column of the word
+	 * @param l Length of the word in the original text
+	 */
+	private void addUnknown(String word, int r, int c, int l) {
+		if (unknownCount == unknownWords.length) {
+			int capacity = Math.max(16, unknownCount * 2);
+			int[] p = new int[capacity];
+			String[] w = new String[capacity];
+			System.arraycopy(unknownPositions, 0, p, 0, unknownCount);
+			System.arraycopy(unknownWords, 0, w, 0, unknownCount);
+			unknownPositions = p;
+			unknownWords = w;
+		}
+		unknownPositions[unknownCount] = count;
+		unknownWords[unknownCount] = word;
+		unknownCount++;
+		add(WordDictionary.UNKNOWN, r, c, l);
 	}
 
 	/**
 	 * Check if a word is a tag. If the word starts with a "&lt;" and ends
 	 * with "&gt;", it is assumed to be a tag.
-	 * 
+	 *
 	 * @param word Word to check
 	 * @return True if the word is a tag, false otherwise
 	 */
 	private static boolean isTag(String word) {
-		
+
 		/* TODO: add tag checking from license info */
 		if(word.startsWith("<") && word.endsWith(">")) return true;
-		
+
 		return false;
 	}
-	
+
 	/**
 	 * Clean up word. Removes non-alphanumeric characters if not a tag.
 	 * Words identified as tags are not processed.
-	 * 
+	 *
 	 * @param word Word to tidy
 	 * @return Cleaning result
 	 */
 	public static String tidy(String word) {
-		
+
 		if(isTag(word)) {
 			return word;
 		}
-		
-		return word.replaceAll("[^a-zA-Z0-9<>]", "");
+
+		return nonWordChars.matcher(word).replaceAll("");
 	}
-	
+
 	/**
 	 * Split a String to words and calculate word positions. The given string
 	 * appears on line 'row' in the text file and begins at column 'startcol'.
 	 * Words with no alphanumeric characters are not included in the word list.
-	 * 
+	 *
 	 * @param in
 	 *            the string to split
 	 * @param row
@@ -128,27 +285,95 @@ public class WordList {
 	 */
 	public static WordList splitWords(String in, int row, int startcol) {
 		WordList words = new WordList();
-		int i;
-		int start;
-		boolean found = false;
+		words.appendWords(in, row, startcol);
+		return words;
+	}
+
+	/**
+	 * Count the words that splitWords() would find in a String, without
+	 * looking them up in the WordDictionary.
+	 *
+	 * @param in
+	 *            the string to count
+	 * @return Number of words
+	 */
+	public static int countWords(String in) {
+		int n = in.length();
+		int count = 0;
 		boolean isword = false;
 
-		start = 0;
+		for (int i = 0; i < n; i++) {
+			char c = in.charAt(i);
 
-		for (i = 0; i < in.length(); i++) {
+			if ((c == ' ') || (c == '\n') || (c == '\t')) {
+				isword = false;
+			} else if (!isword && (((c >= 'a') && (c <= 'z'))
+					|| ((c >= 'A') && (c <= 'Z'))
+					|| ((c >= '0') && (c <= '9')))) {
 
-			char c = in.charAt(i);
+				/* first alphanumeric character of a word */
+				isword = true;
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * Split a String to words and add them at the end of this list. See
+	 * splitWords().
+	 * <p>
+	 * This is a single pass over the characters. Words that consist of
+	 * ASCII characters only are normalized in a scratch buffer and
+	 * looked up in the WordDictionary without creating Strings.
+	 *
+	 * @param in
+	 *            the string to split
+	 * @param r
+	 *            line number for this string
+	 * @param startcol
+	 *            start column for this string
+	 */
+	public void appendWords(String in, int r, int startcol) {
+		appendWords(in, r, startcol, true);
+	}
+
+	/**
+	 * Split a String to words and add them at the end of this list.
+	 *
+	 * @param in
+	 *            the string to split
+	 * @param r
+	 *            line number for this string
+	 * @param startcol
+	 *            start column for this string
+	 * @param intern
+	 *            true to add new words to the WordDictionary, false to
+	 *            give them the ID WordDictionary.UNKNOWN
+	 */
+	private void appendWords(String in, int r, int startcol, boolean intern) {
+		int n = in.length();
+		int start = 0;
+		boolean found = false;
+		boolean isword = false;
+		boolean ascii = true;
+
+		for (int i = 0; i <= n; i++) {
+
+			/* end of string works as whitespace */
+			char c = (i < n) ? in.charAt(i) : ' ';
 
 			if ((c == ' ') || (c == '\n') || (c == '\t')) {
 				/* whitespace */
 				if (found) {
-					if(isword) {
-						String word = in.substring(start, i).toLowerCase();
-						word = tidy(word);
-						words.words.add(word);
-						words.col.add(start + startcol);
-						words.row.add(row);
-						words.len.add(i - start);
+					if (isword) {
+						if (ascii) {
+							appendAscii(in, start, i, r, startcol, intern);
+						} else {
+							appendWord(tidy(in.substring(start, i).toLowerCase()),
+									r, start + startcol, i - start, intern);
+						}
 						isword = false;
 					}
 					found = false;
@@ -158,61 +383,124 @@ public class WordList {
 				if (!found) {
 					start = i;
 					found = true;
+					ascii = true;
 				}
-				if(!isword) {
+				if (c >= 0x80) {
+					ascii = false;
+				}
+				if (!isword) {
 					if (((c >= 'a') && (c <= 'z'))
 							|| ((c >= 'A') && (c <= 'Z'))
 							|| ((c >= '0') && (c <= '9'))) {
-						
+
 						/* found an alphanumeric character, this is a word */
 						isword = true;
 					}
 				}
 			}
 		}
+	}
+
+	/**
+	 * Add a normalized word at the end of the list.
+	 *
+	 * @param word The normalized word
+	 * @param r Row of the word
+	 * @param c Column of the word
+	 * @param l Length of the word in the original text
+	 * @param intern true to add a new word to the WordDictionary
+	 */
+	private void appendWord(String word, int r, int c, int l, boolean intern) {
+		if (intern || isTag(word)) {
+			add(WordDictionary.intern(word), r, c, l);
+			return;
+		}
+
+		int token = WordDictionary.lookup(word);
+		if (token == WordDictionary.UNKNOWN)
+			addUnknown(word, r, c, l);
+		else
+			add(token, r, c, l);
+	}
+
+	/**
+	 * Lowercase and tidy an ASCII word and add it at the end of the list.
+	 * A String is created only for a word that is not in the
+	 * WordDictionary and is not interned.
+	 *
+	 * @param in String containing the word
+	 * @param start Start index of the word
+	 * @param end End index of the word (exclusive)
+	 * @param r Row of the word
+	 * @param startcol Start column of the string
+	 * @param intern true to add a new word to the WordDictionary
+	 */
+	private void appendAscii(String in, int start, int end, int r,
+			int startcol, boolean intern) {
+		if (wordBuffer.length < end - start)
+			wordBuffer = new char[(end - start) * 2];
+
+		boolean tag = (in.charAt(start) == '<') && (in.charAt(end - 1) == '>');
+		int l = 0;
+
+		for (int i = start; i < end; i++) {
+			char c = in.charAt(i);
 
-		/* handle word at end of string */
-		if (found) {
-			if(isword) {
-				String word = in.substring(start).toLowerCase();
-				word = tidy(word);
-				words.words.add(word);
-				words.col.add(start + startcol);
-				words.row.add(row);
-				words.len.add(i - start);
+			if ((c >= 'A') && (c <= 'Z')) {
+				c += 'a' - 'A';
+			} else if (!tag && !(((c >= 'a') && (c <= 'z'))
+					|| ((c >= '0') && (c <= '9'))
+					|| (c == '<') || (c == '>'))) {
+				/* tidy */
+				continue;
 			}
+			wordBuffer[l++] = c;
 		}
 
-		return words;
+		int c = start + startcol;
+		if (intern || tag) {
+			add(WordDictionary.intern(wordBuffer, 0, l), r, c, end - start);
+			return;
+		}
+
+		int token = WordDictionary.lookup(wordBuffer, 0, l);
+		if (token == WordDictionary.UNKNOWN)
+			addUnknown(new String(wordBuffer, 0, l), r, c, end - start);
+		else
+			add(token, r, c, end - start);
 	}
 
 	/**
 	 * Comment an ArrayList<CommentLine> to WordList.
-	 * 
+	 *
 	 * @param comments
 	 *            the comments to convert
 	 * @return WordList containing the words of the comments
 	 */
 	public static WordList commentsToWords(ArrayList<CommentLine> comments) {
-		int i;
-
 		WordList words = new WordList();
+		words.appendComments(comments);
+		return words;
+	}
 
-		for (i = 0; i < comments.size(); i++) {
-			WordList linewords = splitWords(comments.get(i).getContent(),
-					comments.get(i).getSourceLineNumber(), comments.get(i)
-							.getCommentStartColumn());
-
-			words.addAll(linewords);
-			linewords = null;
+	/**
+	 * Add the words of comments at the end of this list. The words are
+	 * not added to the WordDictionary.
+	 *
+	 * @param comments
+	 *            the comments to convert
+	 */
+	void appendComments(ArrayList<CommentLine> comments) {
+		for (int i = 0; i < comments.size(); i++) {
+			CommentLine line = comments.get(i);
+			appendWords(line.getContent(), line.getSourceLineNumber(),
+					line.getCommentStartColumn(), false);
 		}
-
-		return words;
 	}
 
 	/**
 	 * Convert a License to a WordList.
-	 * 
+	 *
 	 * @param license
 	 *            the license to convert
 	 * @return WordList containing the words of the license
@@ -224,39 +512,359 @@ public class WordList {
 		ArrayList<String> licensetext = license.getLicenseText();
 
 		for (i = 0; i < licensetext.size(); i++) {
-			WordList linewords = splitWords(licensetext.get(i), i, 0);
-
-			words.addAll(linewords);
-			linewords = null;
+			words.appendWords(licensetext.get(i), i, 0);
 		}
 
 		return words;
 	}
 
 	/**
-	 * Find a word starting at startrow, startcol.
+	 * Get the number of words in the list.
+	 *
+	 * @return Number of words
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Get the word at the given index.
+	 *
+	 * @param i Word index
+	 * @return The normalized word
+	 */
+	public String getWord(int i) {
+		if (tokens[i] == WordDictionary.UNKNOWN) {
+			int k = Arrays.binarySearch(unknownPositions, 0, unknownCount, i);
+			return unknownWords[k];
+		}
+		return WordDictionary.getWord(tokens[i]);
+	}
+
+	/**
+	 * Get the WordDictionary ID of a word.
+	 *
+	 * @param i Word index
+	 * @return Word ID
+	 */
+	public int getToken(int i) {
+		return tokens[i];
+	}
+
+	/**
+	 * Get the text row a word appears on.
+	 *
+	 * @param i Word index
+	 * @return Row of the word
+	 */
+	public int getRow(int i) {
+		return row[i];
+	}
+
+	/**
+	 * Get the text column a word begins at.
+	 *
+	 * @param i Word index
+	 * @return Column of the word
+	 */
+	public int getCol(int i) {
+		return col[i];
+	}
+
+	/**
+	 * Get the length of a word in the original text.
+	 *
+	 * @param i Word index
+	 * @return Length of the word
+	 */
+	public int getLength(int i) {
+		return len[i];
+	}
+
+	/**
+	 * Get the words as an array of WordDictionary IDs.
+	 *
+	 * @return Word IDs in original order, the array length is size()
+	 */
+	int[] getTokens() {
+		if (tokenArray == null) {
+			int[] t = new int[count];
+			System.arraycopy(tokens, 0, t, 0, count);
+			tokenArray = t;
+		}
+		return tokenArray;
+	}
+
+	/**
+	 * Build the symbol table used when this list is the "old" text
+	 * (template) of a Diff. Both tables are indexed by word ID and
+	 * cover the IDs up to the largest ID in this list.
+	 */
+	private void buildTemplateTables() {
+		int[] t = getTokens();
+		int max = -1;
+		for (int i = 0; i < t.length; i++)
+			if (t[i] > max) max = t[i];
+
+		int[] oc = new int[max + 1];
+		int[] last = new int[max + 1];
+		int tags = 0;
+		for (int i = 0; i < t.length; i++) {
+			oc[t[i]]++;
+			last[t[i]] = i;
+			if (WordDictionary.isTag(t[i])) tags++;
+		}
+
+		tagCount = tags;
+		lastPositions = last;
+		occurrences = oc;
+	}
+
+	/**
+	 * Get the number of copies of each word in this list.
+	 *
+	 * @return Array indexed by word ID, shorter than the dictionary
+	 *         if the largest IDs do not appear in this list.
+	 */
+	int[] getOccurrences() {
+		if (occurrences == null) buildTemplateTables();
+		return occurrences;
+	}
+
+	/**
+	 * Get the number of tags in this list.
+	 * 
+	 * @return Number of words that are tags
+	 */
+	int getTagCount() {
+		if (occurrences == null) buildTemplateTables();
+		return tagCount;
+	}
+
+	/**
+	 * Get the index of the last copy of each word in this list.
+	 * Words not in this list have index 0.
+	 *
+	 * @return Array indexed by word ID, the same length as
+	 *         getOccurrences().
+	 */
+	int[] getLastPositions() {
+		if (occurrences == null) buildTemplateTables();
+		return lastPositions;
+	}
+
+	/**
+	 * Build the symbol table used when this list is the "new" text of a
+	 * Diff. Both tables are indexed by word position. Positions are
+	 * grouped by word ID by sorting (ID, position) pairs, so the table
+	 * size depends only on the length of this list.
+	 */
+	private void buildTextTables() {
+		int[] t = getTokens();
+		long[] keys = new long[t.length];
+		for (int i = 0; i < t.length; i++)
+			keys[i] = ((long) t[i] << 32) | i;
+		Arrays.sort(keys);
+
+		int[] first = new int[t.length];
+		int[] copies = new int[t.length];
+		int distinct = 0;
+		int i = 0;
+		while (i < keys.length) {
+			int id = (int) (keys[i] >>> 32);
+			int j = i;
+			while (j < keys.length && (int) (keys[j] >>> 32) == id)
+				j++;
+
+			/* keys are sorted, the first key of a group has the
+			 * smallest position */
+			int f = (int) keys[i];
+			for (int k = i; k < j; k++) {
+				first[(int) keys[k]] = f;
+				copies[(int) keys[k]] = j - i;
+			}
+
+			/* reuse keys[] for the (ID, copies) pairs */
+			keys[distinct++] = ((long) id << 32) | (j - i);
+			i = j;
+		}
+
+		int[] ids = new int[distinct];
+		int[] counts = new int[distinct];
+		for (i = 0; i < distinct; i++) {
+			ids[i] = (int) (keys[i] >>> 32);
+			counts[i] = (int) keys[i];
+		}
+
+		distinctTokens = ids;
+		distinctCounts = counts;
+		positionCounts = copies;
+		firstPositions = first;
+	}
+
+	/**
+	 * Copy this list for other threads to use as the "new" text of a
+	 * Diff. The tables are built before the copy is returned, so the
+	 * copy is only read after that.
+	 *
+	 * @return New list with the same words
+	 */
+	WordList readOnlyCopy() {
+		WordList copy = new WordList(count);
+		copy.addAll(this);
+		copy.buildTextTables();
+		return copy;
+	}
+
+	/**
+	 * Get the index of the first copy of the word at each position.
+	 *
+	 * @return Array indexed by word position
+	 */
+	int[] getFirstPositions() {
+		if (firstPositions == null) buildTextTables();
+		return firstPositions;
+	}
+
+	/**
+	 * Get the number of copies of the word at each position.
+	 *
+	 * @return Array indexed by word position
+	 */
+	int[] getPositionCounts() {
+		if (firstPositions == null) buildTextTables();
+		return positionCounts;
+	}
+
+	/**
+	 * Get the distinct words in this list.
 	 * 
+	 * @return Word IDs in ascending order
+	 */
+	int[] getDistinctTokens() {
+		if (firstPositions == null) buildTextTables();
+		return distinctTokens;
+	}
+
+	/**
+	 * Get the number of copies of each distinct word.
+	 * 
+	 * @return Array parallel to getDistinctTokens()
+	 */
+	int[] getDistinctCounts() {
+		if (firstPositions == null) buildTextTables();
+		return distinctCounts;
+	}
+
+	/**
+	 * Find the first word that starts at or after startrow, startcol.
+	 *
+	 * @param startrow Row
+	 * @param startcol Column
+	 * @return Index of the first word at or after the given position,
+	 *         size() if there is none
+	 */
+	private int lowerBound(int startrow, int startcol) {
+		if (!sorted) {
+			for (int i = 0; i < count; i++) {
+				if (row[i] > startrow
+					|| ((row[i] == startrow) && (col[i] >= startcol))) {
+					return i;
+				}
+			}
+			return count;
+		}
+
+		int lo = 0, hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (row[mid] < startrow
+				|| ((row[mid] == startrow) && (col[mid] < startcol))) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Find the last word that starts at or before endrow, endcol.
+	 *
+	 * @param endrow Row
+	 * @param endcol Column
+	 * @return Index of the last word at or before the given position,
+	 *         -1 if there is none
+	 */
+	private int lastAtOrBefore(int endrow, int endcol) {
+		if (!sorted) {
+			for (int i = count - 1; i >= 0; i--) {
+				if (row[i] < endrow
+					|| ((row[i] == endrow) && (col[i] <= endcol))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		int lo = 0, hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (row[mid] < endrow
+				|| ((row[mid] == endrow) && (col[mid] <= endcol))) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo - 1;
+	}
+
+	/**
+	 * Find a word starting at startrow, startcol.
+	 *
 	 * @param startrow Word starting row
 	 * @param startcol Word starting column
 	 * @return Index into words array.
 	 */
 	public int findWordAt(int startrow, int startcol) {
-		int i;
-		
-		for(i = 0; i < words.size(); i++) {
-			if(row.get(i) > startrow
-				|| ((row.get(i) == startrow) && (col.get(i) >= startcol))) {
-				
-				return i;
-			}
+		int i = lowerBound(startrow, startcol);
+
+		if (i == count) return -1;
+
+		return i;
+	}
+
+	/**
+	 * Find a word ending at endrow, endcol.
+	 *
+	 * @param endrow Word ending row
+	 * @param endcol Column of the last character of the word
+	 * @return Index into words array, -1 if no word ends there
+	 */
+	int findWordEndingAt(int endrow, int endcol) {
+		int i = lastAtOrBefore(endrow, endcol);
+
+		if ((i < 0) || (row[i] != endrow)
+				|| (col[i] + len[i] - 1 != endcol)) {
+			return -1;
 		}
-		
-		return -1;
+
+		return i;
 	}
-	
+
+	/**
+	 * Check if the words are in text order.
+	 *
+	 * @return True if every word starts after the previous one
+	 */
+	boolean isSorted() {
+		return sorted;
+	}
+
 	/**
 	 * Count the number of words between startrow,startcol and endrow,endcol.
-	 * 
+	 *
 	 * @param startrow Starting row
 	 * @param startcol Starting column
 	 * @param endrow Ending row
@@ -266,50 +874,28 @@ public class WordList {
 	public int countWordsBetween(int startrow, int startcol,
 		int endrow, int endcol) {
 
-		int i;
-		
-		int first_i = words.size() - 1;
-		int last_i = 0;
-		
 		/* find first word inside given range */
-		for(i = 0; i < words.size(); i++) {
-			if(row.get(i) > startrow) {
-				first_i = i;
-				break;
-			} else if((row.get(i) == startrow) && (col.get(i) >= startcol)) {
-				first_i = i;
-				break;
-			}
-		}
-		
+		int first_i = lowerBound(startrow, startcol);
+		if (first_i == count) first_i = count - 1;
+
 		/* find last word inside given range */
-		for(i = words.size() - 1; i >= 0; i--) {
-			if(row.get(i) < endrow) {
-				last_i = i;
-				break;
-			} else if((row.get(i) == endrow) && (col.get(i) <= endcol)) {
-				last_i = i;
-				break;
-			}
-		}
-		
+		int last_i = lastAtOrBefore(endrow, endcol);
+		if (last_i < 0) last_i = 0;
+
 		int count = last_i - first_i + 1;
-		
+
 		if(count < 0) count = 0;
-		
+
 		return count;
 	}
 
 	WordList substring(int start, int length) {
-		WordList w = new WordList();
-		
+		WordList w = new WordList(length);
+
 		for(int i = start; i < start+length; i++) {
-			w.words.add(words.get(i));
-			w.row.add(row.get(i));
-			w.col.add(col.get(i));
-			w.len.add(len.get(i));
+			w.add(tokens[i], row[i], col[i], len[i]);
 		}
-		
+
 		return w;
 	}
 }
@@ -0,0 +1,879 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+
+import checker.CommentLine;
+import checker.Reference;
+
+/**
+ * CommentLexer goes through source code lines one character at a time
+ * and keeps track of code, line comment, block comment, string literal
+ * and here document states. Comments are written to the comment array
+ * as spans of the line, key words found in code are given to a
+ * KeyWordHandler and MODULE_LICENSE markers are written to the marker
+ * array, all in the same forward pass.
+ * <p>
+ * The rules of the language come from its SourceSyntax, so the same
+ * loop lexes all languages. Block comment lines that start with a star
+ * have the star removed in the languages with C style block comments,
+ * as does the second star of a doc comment.
+ */
+public class CommentLexer {
+
+    /**
+     * Handler for key words found in code, for example #include or
+     * import.
+     */
+    public interface KeyWordHandler {
+
+	/**
+	 * Key word was found in code.
+	 * 
+	 * @param word Index of the key word
+	 * @param pLine Line with charPosition at the key word
+	 * @return pLine with charPosition at the last character handled,
+	 * 		lexing continues after it
+	 */
+	SourceParserLine keyWord(int word, SourceParserLine pLine) throws Exception;
+    }
+
+    /* States of the lexer */
+    private final static int CODE = 0;
+    private final static int BLOCK_COMMENT = 1;
+    private final static int STRING = 2;
+    private final static int HEREDOC = 3;
+
+    /* Start of the MODULE_LICENSE marker */
+    private final static String MODULE_LICENSE_START = "MODULE_LICENSE(\"";
+
+    /* End of the MODULE_LICENSE marker */
+    private final static String MODULE_LICENSE_END = "\")";
+
+    /* Syntax rules of the language */
+    private SourceSyntax syntax;
+
+    /* Key words to find in code */
+    private String[] words;
+
+    /* Line comment marks */
+    private String[] lineComments;
+
+    /* Block comment delimiters, null if none are found in the loop */
+    private String blockStart;
+    private String blockEnd;
+
+    /* Block comment delimiters that start a line, null if none */
+    private String lineBlockStart;
+    private String lineBlockEnd;
+
+    /* Characters of a two character block comment end mark that is 
+     * found without nesting, 0 if the mark is other */
+    private char endFirst;
+    private char endSecond;
+
+    /* Are block comment lines C style, with stars at the start */
+    private boolean stars;
+
+    /* Flags of the syntax */
+    private boolean nested;
+    private boolean tripleQuotes;
+    private boolean escapes;
+    private boolean wordStartComments;
+
+    /* ASCII characters that may change the state or start a key word 
+     * in code, other characters are passed over */
+    private boolean[] special = new boolean[128];
+
+    /* ASCII characters that start a string */
+    private boolean[] quoteChars = new boolean[128];
+
+    /* ASCII bytes of a code line that need the line to be lexed: the 
+     * special characters, the start of the line block delimiters and of
+     * MODULE_LICENSE */
+    private boolean[] byteSpecial = new boolean[128];
+
+    /* Decoder of the lines that are not ASCII, created when needed */
+    private CharsetDecoder decoder;
+
+    /* Characters of the current line, reused between lines */
+    private char[] buffer = new char[256];
+
+    /* Bytes read from a file in lexLines(ByteBuffer), reused between 
+     * files */
+    private byte[] byteBuffer = new byte[16 * 1024];
+
+    /* Current state */
+    private int state = CODE;
+
+    /* Depth of the nested block comments */
+    private int depth;
+
+    /* Quotation or apostrophe mark that ends the current string */
+    private char quote;
+
+    /* Does the current string end at three quotes */
+    private boolean triple;
+
+    /* End word of the current here document, or of the one that starts
+     * at the next line */
+    private String heredocEnd;
+
+    /* Array list for extracted comments, one line per object */
+    private ArrayList<CommentLine> commentArray = new ArrayList<CommentLine>();
+
+    /* Array list for markers found outside comments */
+    private ArrayList<SourceMarker> markerArray = new ArrayList<SourceMarker>();
+
+    /**
+     * @param syntax Syntax rules and key words of the language
+     */
+    public CommentLexer(SourceSyntax syntax) {
+	this.syntax = syntax;
+	this.words = syntax.keyWords;
+	this.lineComments = syntax.lineComments;
+	if (syntax.has(SourceSyntax.Flags.LINE_START_BLOCKS)) {
+	    lineBlockStart = syntax.blockStart;
+	    lineBlockEnd = syntax.blockEnd;
+	} else {
+	    blockStart = syntax.blockStart;
+	    blockEnd = syntax.blockEnd;
+	}
+	stars = "*/".equals(blockEnd);
+	if ( (blockEnd != null) && (blockEnd.length() == 2) 
+		&& !syntax.has(SourceSyntax.Flags.NESTED_BLOCKS) ) {
+	    endFirst = blockEnd.charAt(0);
+	    endSecond = blockEnd.charAt(1);
+	}
+	nested = syntax.has(SourceSyntax.Flags.NESTED_BLOCKS);
+	tripleQuotes = syntax.has(SourceSyntax.Flags.TRIPLE_QUOTES);
+	escapes = !syntax.has(SourceSyntax.Flags.NO_ESCAPES);
+	wordStartComments = syntax.has(SourceSyntax.Flags.WORD_START_COMMENTS);
+
+	if (blockStart != null) {
+	    setSpecial(blockStart);
+	}
+	for (int w = 0; w < lineComments.length; w++) {
+	    setSpecial(lineComments[w]);
+	}
+	for (int q = 0; q < syntax.quotes.length(); q++) {
+	    setSpecial(syntax.quotes.substring(q, q + 1));
+	    quoteChars[syntax.quotes.charAt(q)] = true;
+	}
+	if (syntax.heredoc != null) {
+	    setSpecial(syntax.heredoc);
+	}
+	for (int w = 0; w < words.length; w++) {
+	    setSpecial(words[w]);
+	}
+
+	System.arraycopy(special, 0, byteSpecial, 0, special.length);
+	byteSpecial[MODULE_LICENSE_START.charAt(0)] = true;
+	if (lineBlockStart != null) {
+	    byteSpecial[lineBlockStart.charAt(0)] = true;
+	}
+    }
+
+    /**
+     * Mark the first character of the text special.
+     */
+    private void setSpecial(String text) {
+	char c = text.charAt(0);
+	if (c < special.length) {
+	    special[c] = true;
+	}
+    }
+
+    /**
+     * getSyntax returns the syntax rules of the lexer.
+     */
+    public SourceSyntax getSyntax() {
+	return syntax;
+    }
+
+    /**
+     * getComments returns the comments of the lexed lines.
+     */
+    public ArrayList<CommentLine> getComments() {
+	return commentArray;
+    }
+
+    /**
+     * getMarkers returns the markers of the lexed lines.
+     */
+    public ArrayList<SourceMarker> getMarkers() {
+	return markerArray;
+    }
+
+    /**
+     * Start a new file. The comment and marker arrays of the previous 
+     * file are left to their users, the buffers are kept.
+     */
+    public void reset() {
+	resetState();
+	commentArray = new ArrayList<CommentLine>();
+	markerArray = new ArrayList<SourceMarker>();
+    }
+
+    /**
+     * Return to the code state, for example when a code section ends.
+     */
+    public void resetState() {
+	state = CODE;
+	heredocEnd = null;
+    }
+
+    /**
+     * Lex the lines of a file from the start.
+     * 
+     * @param lines Lines of the file
+     * @param handler Handler for the key words, null if there are none
+     */
+    public void lexLines(ArrayList<String> lines, KeyWordHandler handler)
+    	throws Exception {
+
+	SourceParserLine pLine = new SourceParserLine();
+	for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
+	    pLine.line = lines.get(lineNumber);
+	    pLine.charPosition = 0;
+	    lexLine(pLine, handler);
+	    pLine.lineNumber++;
+	}
+    }
+
+    /**
+     * Lex the lines of a file as they are read and give the comments, 
+     * markers and references of each line to the sink. Only one line is
+     * kept in memory.
+     * 
+     * @param reader Contents of the file
+     * @param handler Handler for the key words, null if there are none
+     * @param references Array where the handler writes the references
+     * @param sink Receiver of the results, lexing stops if it returns false
+     */
+    public void lexLines(Reader reader, KeyWordHandler handler, 
+	    ArrayList<Reference> references, SourceSink sink) throws Exception {
+
+	BufferedReader lines = (reader instanceof BufferedReader) 
+		? (BufferedReader) reader : new BufferedReader(reader);
+	SourceParserLine pLine = new SourceParserLine();
+	String line;
+	while ((line = lines.readLine()) != null) {
+	    pLine.line = line;
+	    pLine.charPosition = 0;
+	    lexLine(pLine, handler);
+	    if ( !feed(references, sink) || !sink.line(pLine.lineNumber) ) {
+		return;
+	    }
+	    pLine.lineNumber++;
+	}
+    }
+
+    /**
+     * Lex the lines of a file from its bytes and give the comments, 
+     * markers and references of each line to the sink. The bytes are in
+     * the platform charset, which must be ASCII compatible.
+     * <p>
+     * The bytes are read in blocks and the lines are found on them. A 
+     * code line that has no byte where a comment, string or key word may
+     * start is passed over without decoding. Other ASCII lines are copied
+     * to the character buffer as they are, and only the lines with other
+     * bytes are decoded. Strings are created for the comments and for the
+     * lines with key words, not for every line.
+     * 
+     * @param bytes Contents of the file from the position to the limit
+     * @param handler Handler for the key words, null if there are none
+     * @param references Array where the handler writes the references
+     * @param sink Receiver of the results, lexing stops if it returns false
+     */
+    public void lexLines(ByteBuffer bytes, KeyWordHandler handler, 
+	    ArrayList<Reference> references, SourceSink sink) throws Exception {
+
+	ByteBuffer in = bytes.duplicate();
+	boolean[] byteSpecial = this.byteSpecial;
+	SourceParserLine pLine = new SourceParserLine();
+	byte[] data = byteBuffer;
+	int count = 0;
+	int start = 0;
+	boolean cr = false;
+	while (true) {
+	    if ( (start == count) && in.hasRemaining() ) {
+		count = fill(in, start, count);
+		data = byteBuffer;
+		start = 0;
+	    }
+	    if (start == count) {
+		return;
+	    }
+	    if (cr) {
+		/* \r\n ends one line */
+		cr = false;
+		if (data[start] == '\n') {
+		    start++;
+		    continue;
+		}
+	    }
+
+	    /* Find the end of the line, and whether the line needs lexing */
+	    boolean skip = (state == CODE);
+	    boolean ascii = true;
+	    int i = start;
+	    while (i < count) {
+		byte b = data[i];
+		if ( (b == '\n') || (b == '\r') ) {
+		    break;
+		}
+		if (b < 0) {
+		    ascii = false;
+		} else if (byteSpecial[b]) {
+		    skip = false;
+		}
+		i++;
+	    }
+	    if ( (i == count) && in.hasRemaining() ) {
+		/* Rest of the line has not been read yet */
+		count = fill(in, start, count);
+		data = byteBuffer;
+		start = 0;
+		continue;
+	    }
+
+	    if (!skip) {
+		int length = ascii ? copy(data, start, i) : decode(data, start, i);
+		pLine.line = null;
+		pLine.charPosition = 0;
+		lexChars(pLine, length, handler);
+		if (!feed(references, sink)) {
+		    return;
+		}
+	    }
+	    if (!sink.line(pLine.lineNumber)) {
+		return;
+	    }
+	    pLine.lineNumber++;
+
+	    if (i == count) {
+		/* Last line has no line terminator */
+		return;
+	    }
+	    cr = (data[i] == '\r');
+	    start = i + 1;
+	}
+    }
+
+    /**
+     * Move the bytes from start to count to the beginning of the byte 
+     * buffer and read more bytes after them. The buffer grows if it is
+     * full.
+     * 
+     * @return Number of bytes in the buffer
+     */
+    private int fill(ByteBuffer in, int start, int count) {
+	count -= start;
+	if (count == byteBuffer.length) {
+	    byte[] larger = new byte[count * 2];
+	    System.arraycopy(byteBuffer, start, larger, 0, count);
+	    byteBuffer = larger;
+	} else {
+	    System.arraycopy(byteBuffer, start, byteBuffer, 0, count);
+	}
+	int n = Math.min(in.remaining(), byteBuffer.length - count);
+	in.get(byteBuffer, count, n);
+	return count + n;
+    }
+
+    /**
+     * Copy ASCII bytes to the character buffer.
+     * 
+     * @return Number of characters
+     */
+    private int copy(byte[] data, int start, int end) {
+	int length = end - start;
+	ensureBuffer(length);
+	char[] chars = buffer;
+	for (int k = 0; k < length; k++) {
+	    chars[k] = (char) data[start + k];
+	}
+	return length;
+    }
+
+    /**
+     * Decode bytes in the platform charset to the character buffer. 
+     * Malformed input is replaced, as when the file is read with a 
+     * FileReader.
+     * 
+     * @return Number of characters
+     */
+    private int decode(byte[] data, int start, int end) {
+	if (decoder == null) {
+	    decoder = Charset.defaultCharset().newDecoder()
+	    	.onMalformedInput(CodingErrorAction.REPLACE)
+	    	.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+	ensureBuffer((int) ((end - start) * decoder.maxCharsPerByte()) + 1);
+	CharBuffer out = CharBuffer.wrap(buffer);
+	decoder.reset();
+	decoder.decode(ByteBuffer.wrap(data, start, end - start), out, true);
+	decoder.flush(out);
+	return out.position();
+    }
+
+    /**
+     * Make the character buffer hold at least length characters.
+     */
+    private void ensureBuffer(int length) {
+	if (buffer.length < length) {
+	    buffer = new char[Math.max(length, buffer.length * 2)];
+	}
+    }
+
+    /**
+     * Give the comments, markers and references found so far to the sink
+     * in line order, with the lines of the file. This is for the parsers
+     * that lex the whole file before the results are known.
+     * 
+     * @param lines Lines of the file
+     * @param references References of the file, given after the lines
+     * @param sink Receiver of the results
+     */
+    public void feed(ArrayList<String> lines, ArrayList<Reference> references,
+	    SourceSink sink) {
+
+	int comment = 0;
+	int marker = 0;
+	for (int lineNumber = 0; lineNumber < lines.size(); lineNumber++) {
+	    while ( (comment < commentArray.size()) && (commentArray.get(
+		    comment).getSourceLineNumber() <= lineNumber) ) {
+		if (!sink.comment(commentArray.get(comment++))) {
+		    return;
+		}
+	    }
+	    while ( (marker < markerArray.size()) && (markerArray.get(
+		    marker).getLineNumber() <= lineNumber) ) {
+		if (!sink.marker(markerArray.get(marker++))) {
+		    return;
+		}
+	    }
+	    if (!sink.line(lineNumber)) {
+		return;
+	    }
+	}
+	for (Reference reference : references) {
+	    if (!sink.reference(reference)) {
+		return;
+	    }
+	}
+    }
+
+    /**
+     * Give the comments, markers and references found since the last 
+     * call to the sink and remove them from the arrays.
+     * 
+     * @return false if the sink stopped the scan
+     */
+    private boolean feed(ArrayList<Reference> references, SourceSink sink) {
+	boolean more = true;
+	for (int i = 0; more && (i < commentArray.size()); i++) {
+	    more = sink.comment(commentArray.get(i));
+	}
+	for (int i = 0; more && (i < markerArray.size()); i++) {
+	    more = sink.marker(markerArray.get(i));
+	}
+	for (int i = 0; more && (i < references.size()); i++) {
+	    more = sink.reference(references.get(i));
+	}
+	commentArray.clear();
+	markerArray.clear();
+	references.clear();
+	return more;
+    }
+
+    /**
+     * Lex the line from charPosition to the end. The state is kept for
+     * the next line. Only the first MODULE_LICENSE of the line is checked.
+     * 
+     * @param pLine Line with the line number and start position
+     * @param handler Handler for the key words, null if there are none
+     */
+    public void lexLine(SourceParserLine pLine, KeyWordHandler handler)
+    	throws Exception {
+
+	/* Copy the characters once, the loop reads them from the array */
+	int length = pLine.line.length();
+	ensureBuffer(length);
+	pLine.line.getChars(0, length, buffer, 0);
+	lexChars(pLine, length, handler);
+    }
+
+    /**
+     * Lex the characters of the line in the buffer from charPosition to
+     * the end. The line string of pLine may be null, it is created from
+     * the buffer if a key word handler needs it.
+     * 
+     * @param pLine Line with the line number and start position
+     * @param length Number of characters in the buffer
+     * @param handler Handler for the key words, null if there are none
+     */
+    private void lexChars(SourceParserLine pLine, int length, 
+	    KeyWordHandler handler) throws Exception {
+
+	char[] chars = buffer;
+	int i = pLine.charPosition;
+	pLine.charPosition = length;
+
+	if (state == HEREDOC) {
+	    /* The whole line is string, the end word ends it */
+	    if (equalsTrimmed(chars, length, heredocEnd)) {
+		resetState();
+	    }
+	    return;
+	}
+
+	if ( (lineBlockStart != null) && (i == 0) ) {
+	    if (state == BLOCK_COMMENT) {
+		if (matches(chars, 0, length, lineBlockEnd)) {
+		    state = CODE;
+		} else {
+		    writeComment(chars, 0, length, pLine.lineNumber);
+		}
+		return;
+	    }
+	    if (matches(chars, 0, length, lineBlockStart)) {
+		state = BLOCK_COMMENT;
+		writeComment(chars, lineBlockStart.length(), length, 
+			pLine.lineNumber);
+		return;
+	    }
+	}
+
+	int marker = indexOf(chars, i, length, MODULE_LICENSE_START);
+	if (marker >= 0) {
+	    addMarker(chars, marker, length, pLine.lineNumber);
+	}
+
+	boolean[] special = this.special;
+	int state = this.state;
+
+	scan:
+	while (i < length) {
+
+	    if (state == BLOCK_COMMENT) {
+		/* Find the comment end, exclude star at the start of 
+		 * the line */
+		int start = stars ? commentStart(chars, i, length) : i;
+		int end = (endFirst != 0) 
+			? commentEnd(chars, i, length, endFirst, endSecond)
+			: commentEnd(chars, i, length);
+		if (end < 0) {
+		    /* Comment continues to the next line */
+		    writeComment(chars, start, length, pLine.lineNumber);
+		    break;
+		}
+		writeComment(chars, start, end, pLine.lineNumber);
+		state = CODE;
+		i = end + blockEnd.length();
+		continue;
+	    }
+
+	    if (state == STRING) {
+		i = stringEnd(chars, i, length);
+		if (i < 0) {
+		    /* String continues to the next line */
+		    break;
+		}
+		state = CODE;
+		continue;
+	    }
+
+	    /* Pass over the characters where nothing starts */
+	    char c = chars[i];
+	    while ( (c < special.length) && !special[c] ) {
+		if (++i == length) {
+		    break scan;
+		}
+		c = chars[i];
+	    }
+
+	    if ( (blockStart != null) && (c == blockStart.charAt(0))
+		    && matches(chars, i, length, blockStart) ) {
+		state = BLOCK_COMMENT;
+		depth = 1;
+		i += blockStart.length();
+		/* Exclude the second star of a doc comment */
+		if ( stars && (i < length) && (chars[i] == '*') 
+			&& !( (i + 1 < length) && (chars[i + 1] == '/') ) ) {
+		    i++;
+		}
+		continue;
+	    }
+
+	    for (int w = 0; w < lineComments.length; w++) {
+		String mark = lineComments[w];
+		if ( (c == mark.charAt(0)) && matches(chars, i, length, mark) 
+			&& !( wordStartComments 
+			&& (i > 0) && (chars[i - 1] > ' ') ) ) {
+		    /* Rest of the line is comment */
+		    writeComment(chars, i + mark.length(), length, 
+			    pLine.lineNumber);
+		    break scan;
+		}
+	    }
+
+	    if ( (c < quoteChars.length) && quoteChars[c] ) {
+		state = STRING;
+		quote = c;
+		triple = tripleQuotes && (i + 2 < length) 
+			&& (chars[i + 1] == c) && (chars[i + 2] == c);
+		i += triple ? 3 : 1;
+		continue;
+	    }
+
+	    if ( (syntax.heredoc != null) 
+		    && matches(chars, i, length, syntax.heredoc) ) {
+		i = heredocStart(chars, i + syntax.heredoc.length(), length);
+		continue;
+	    }
+
+	    if (handler != null) {
+		for (int w = 0; w < words.length; w++) {
+		    if ( (c == words[w].charAt(0)) 
+			    && matches(chars, i, length, words[w]) ) {
+			if (pLine.line == null) {
+			    pLine.line = new String(chars, 0, length);
+			}
+			pLine.charPosition = i;
+			pLine = handler.keyWord(w, pLine);
+			i = pLine.charPosition;
+			break;
+		    }
+		}
+	    }
+	    i++;
+	}
+
+	/* Strings end at the end of the line */
+	if ( (state == STRING) && !triple 
+		&& (syntax.multiLineQuotes.indexOf(quote) < 0) ) {
+	    state = CODE;
+	}
+
+	/* Here document starts at the next line */
+	if ( (state == CODE) && (heredocEnd != null) ) {
+	    state = HEREDOC;
+	}
+	this.state = state;
+	pLine.charPosition = length;
+    }
+
+    /**
+     * Does the text start at the index of the characters?
+     */
+    private static boolean matches(char[] chars, int index, int length, 
+	    String text) {
+	int n = text.length();
+	if (index + n > length) {
+	    return false;
+	}
+	for (int k = 0; k < n; k++) {
+	    if (chars[index + k] != text.charAt(k)) {
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * Read the end word of a here document that follows the start mark,
+     * for example EOF in &lt;&lt;-'EOF'. The document starts at the next
+     * line.
+     * 
+     * @return Index after the end word, or the index if there is none
+     */
+    private int heredocStart(char[] chars, int index, int length) {
+	int i = index;
+	if ( (i < length) && ((chars[i] == '-') || (chars[i] == '~')) ) {
+	    i++;
+	}
+	char q = (i < length) ? chars[i] : ' ';
+	boolean quoted = (q == '\'') || (q == '"');
+	if (quoted) {
+	    i++;
+	}
+	int start = i;
+	while ( (i < length) && (Character.isLetterOrDigit(chars[i]) 
+		|| (chars[i] == '_')) ) {
+	    i++;
+	}
+	if ( (i == start) || Character.isDigit(chars[start]) ) {
+	    return index;
+	}
+	heredocEnd = new String(chars, start, i - start);
+	if (quoted && (i < length) && (chars[i] == q)) {
+	    i++;
+	}
+	return i;
+    }
+
+    /**
+     * Find the end of the current string.
+     * 
+     * @return Index after the closing quote, -1 if the line has none
+     */
+    private int stringEnd(char[] chars, int from, int length) {
+	char quote = this.quote;
+	boolean escapes = this.escapes;
+	for (int i = from; i < length; i++) {
+	    char c = chars[i];
+	    if ( (c == '\\') && escapes ) {
+		/* Jump over the escaped character */
+		i++;
+	    } else if (c == quote) {
+		if (!triple) {
+		    return i + 1;
+		}
+		if ( (i + 2 < length) && (chars[i + 1] == c) 
+			&& (chars[i + 2] == c) ) {
+		    return i + 3;
+		}
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Find the start of the text of a block comment. White space and the
+     * first star are excluded if the star does not end the comment.
+     */
+    private static int commentStart(char[] chars, int from, int length) {
+	for (int i = from; i < length; i++) {
+	    char c = chars[i];
+	    if (c == '*') {
+		if ( (i + 1 < length) && (chars[i + 1] == '/') ) {
+		    return from;
+		}
+		return i + 1;
+	    }
+	    if (c > ' ') {
+		return from;
+	    }
+	}
+	return from;
+    }
+
+    /**
+     * Find the two character end mark of a block comment that does not
+     * nest, as in C. Returns -1 if the line has none.
+     */
+    private static int commentEnd(char[] chars, int from, int length, 
+	    char first, char second) {
+	for (int i = from + 1; i < length; i++) {
+	    if ( (chars[i] == second) && (chars[i - 1] == first) ) {
+		return i - 1;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Find the end mark of a block comment, -1 if the line has none.
+     * Nested comments are counted in the depth.
+     */
+    private int commentEnd(char[] chars, int from, int length) {
+	String end = blockEnd;
+	char first = end.charAt(0);
+	for (int i = from; i < length; i++) {
+	    if ( nested && matches(chars, i, length, blockStart) ) {
+		depth++;
+		i += blockStart.length() - 1;
+	    } else if ( (chars[i] == first) && matches(chars, i, length, end) ) {
+		if (!nested || (--depth == 0)) {
+		    return i;
+		}
+		i += end.length() - 1;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Find the text in the characters, -1 if it is not found.
+     */
+    private static int indexOf(char[] chars, int from, int length, 
+	    String text) {
+	char first = text.charAt(0);
+	int last = length - text.length();
+	for (int i = from; i <= last; i++) {
+	    if ( (chars[i] == first) && matches(chars, i, length, text) ) {
+		return i;
+	    }
+	}
+	return -1;
+    }
+
+    /**
+     * Are the characters the text when white space is trimmed from 
+     * both ends, as in String.trim()?
+     */
+    private static boolean equalsTrimmed(char[] chars, int length, 
+	    String text) {
+	int start = 0;
+	while ( (start < length) && (chars[start] <= ' ') ) {
+	    start++;
+	}
+	while ( (length > start) && (chars[length - 1] <= ' ') ) {
+	    length--;
+	}
+	return (length - start == text.length()) 
+		&& matches(chars, start, length, text);
+    }
+
+    /**
+     * Write a span of the line to the comment array if it is not empty.
+     */
+    private void writeComment(char[] chars, int start, int end, 
+	    int lineNumber) {
+	if (start < end) {
+	    commentArray.add(new CommentLine(new String(chars, start, 
+		    end - start), lineNumber, start));
+	}
+    }
+
+    /**
+     * Write a MODULE_LICENSE marker starting at the index to the marker
+     * array, if it has an end.
+     */
+    private void addMarker(char[] chars, int index, int length, 
+	    int lineNumber) {
+	int valueStart = index + MODULE_LICENSE_START.length();
+	int end = indexOf(chars, valueStart, length, MODULE_LICENSE_END);
+	if (end >= 0) {
+	    markerArray.add(new SourceMarker("MODULE_LICENSE", 
+		    new String(chars, valueStart, end - valueStart), 
+		    lineNumber, index, end + MODULE_LICENSE_END.length()));
+	}
+    }
+}
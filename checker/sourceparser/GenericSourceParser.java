@@ -0,0 +1,247 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+import java.io.File;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import checker.CommentLine;
+import checker.FileID;
+import checker.Reference;
+
+/**
+ * GenericSourceParser parses the languages that have no parser of their
+ * own, with the rules of their SourceSyntax.
+ * <p>
+ * The argument of an include or import key word is the reference: a
+ * quoted file name, or a word that is a module name if the language has
+ * a module separator. Module names are turned into paths, for example
+ * Foo::Bar into Foo/Bar.pm in Perl, and references are relative to the
+ * directory of the source file.
+ */
+public class GenericSourceParser implements SourceParser {
+
+    /* Syntax rules of the language */
+    private SourceSyntax syntax;
+
+    /* Array list for extracted references, one variable per object */
+    private ArrayList<Reference> referenceArray;
+
+    /* CommentLexer object for comment operations */
+    private CommentLexer lexer;
+
+    /* ReferenceProcessing object for reference path processing */
+    private ReferenceProcessing refProc;
+
+    /**
+     * @param syntax Syntax rules of the language
+     */
+    public GenericSourceParser(SourceSyntax syntax) {
+	this.syntax = syntax;
+	referenceArray = new ArrayList<Reference>();
+	lexer = new CommentLexer(syntax);
+	refProc = new ReferenceProcessing();
+    }
+
+    /**
+     * getComments returns the source file's comments.
+     */
+    public ArrayList<CommentLine> getComments() {
+	return lexer.getComments();
+    }
+
+    /**
+     * getMarkers returns the markers found outside the comments.
+     */
+    public ArrayList<SourceMarker> getMarkers() {
+	return lexer.getMarkers();
+    }
+
+    /**
+     * getReferences return the detected references.
+     */
+    public ArrayList<Reference> getReferences() {
+	return referenceArray;
+    }
+
+    /**
+     * Start a new file: reset the lexer and the references, and create
+     * the handler of the key words found in the file.
+     */
+    private CommentLexer.KeyWordHandler startFile(final FileID sourceFile) {
+
+	/* Start a new file with the lexer and references of this parser */
+	lexer.reset();
+	referenceArray = new ArrayList<Reference>();
+
+	return new CommentLexer.KeyWordHandler() {
+	    public SourceParserLine keyWord(int word, SourceParserLine pLine) {
+		return parseReference(syntax.keyWords[word], pLine, sourceFile);
+	    }
+	};
+    }
+
+    /**
+     * scanFile extracts comments and references from given source file.
+     *
+     * See SourceParser interface
+     */
+    public void scanFile(FileID sourceFile, ArrayList<String> fileContent)
+	    throws Exception {
+	lexer.lexLines(fileContent, startFile(sourceFile));
+    }
+
+    /**
+     * scanFile extracts comments and references from the reader and gives
+     * them to the sink line by line.
+     *
+     * See SourceParser interface
+     */
+    public void scanFile(FileID sourceFile, Reader reader, SourceSink sink)
+	    throws Exception {
+	CommentLexer.KeyWordHandler handler = startFile(sourceFile);
+	lexer.lexLines(reader, handler, referenceArray, sink);
+    }
+
+    /**
+     * scanFile extracts comments and references from the bytes and gives
+     * them to the sink line by line.
+     *
+     * See SourceParser interface
+     */
+    public void scanFile(FileID sourceFile, ByteBuffer bytes, SourceSink sink)
+	    throws Exception {
+	CommentLexer.KeyWordHandler handler = startFile(sourceFile);
+	lexer.lexLines(bytes, handler, referenceArray, sink);
+    }
+
+    /**
+     * Read the argument of the key word at charPosition and write it to
+     * the reference array.
+     *
+     * @return pLine with charPosition at the last character of the
+     * 		argument, or at the key word if it has none
+     */
+    private SourceParserLine parseReference(String word, SourceParserLine pLine,
+	    FileID sourceFile) {
+
+	String line = pLine.line;
+	int start = pLine.charPosition;
+	int i = start + word.length();
+
+	/* The key word must be a whole word */
+	if ( ( (start > 0) && isWordChar(line.charAt(start - 1)) )
+		|| ( (i < line.length()) && isWordChar(line.charAt(i)) ) ) {
+	    return pLine;
+	}
+
+	while ( (i < line.length())
+		&& ((line.charAt(i) == ' ') || (line.charAt(i) == '\t')
+			|| (line.charAt(i) == '(')) ) {
+	    i++;
+	}
+	if (i >= line.length()) {
+	    return pLine;
+	}
+
+	String target;
+	char c = line.charAt(i);
+	if ( (c == '"') || (c == '\'') || (c == '`') ) {
+	    int end = line.indexOf(c, i + 1);
+	    if (end < 0) {
+		return pLine;
+	    }
+	    target = line.substring(i + 1, end);
+	    pLine.charPosition = end;
+	} else {
+	    int end = i;
+	    while ( (end < line.length()) && (isWordChar(line.charAt(end))
+		    || ("./:-".indexOf(line.charAt(end)) >= 0)) ) {
+		end++;
+	    }
+	    if ( (end == i) || ((end < line.length()) && (line.charAt(end) == '$')) ) {
+		/* Nothing or a variable */
+		return pLine;
+	    }
+	    target = line.substring(i, end);
+	    pLine.charPosition = end - 1;
+
+	    if (syntax.moduleSeparator != null) {
+		/* Leading dots of a relative module are the directory of
+		 * the source file */
+		while (target.startsWith(".")) {
+		    target = target.substring(1);
+		}
+		target = target.replace(syntax.moduleSeparator, "/");
+	    }
+	}
+
+	writeToReferenceArray(sourceFile, target);
+	return pLine;
+    }
+
+    /**
+     * Write a reference to the target path relative to the source file.
+     */
+    private void writeToReferenceArray(FileID sourceFile, String target) {
+
+	while (target.startsWith("./")) {
+	    target = target.substring(2);
+	}
+	if (target.length() == 0) {
+	    return;
+	}
+
+	/* Add the extension if the file name has none */
+	if ( (syntax.moduleSuffix != null)
+		&& (target.lastIndexOf('.') <= target.lastIndexOf('/')) ) {
+	    target = target + syntax.moduleSuffix;
+	}
+
+	Reference reference = new Reference(sourceFile, new FileID(null, null));
+	reference.declaration = target;
+	reference.referenceType = syntax.has(SourceSyntax.Flags.INCLUDES)
+		? Reference.ReferenceType.STATIC_INCLUDE
+		: Reference.ReferenceType.IMPORT;
+
+	/* Process path in reference, the type may change */
+	refProc.setReference(reference);
+	String path = refProc.processPath(target, sourceFile.path);
+	reference = refProc.getReference();
+
+	File tFile = new File(path);
+	reference.targetFile.path = tFile.getParent();
+	reference.targetFile.name = tFile.getName();
+
+	referenceArray.add(reference);
+    }
+
+    private static boolean isWordChar(char c) {
+	return Character.isLetterOrDigit(c) || (c == '_');
+    }
+
+    /**
+     * See SourceParser interface
+     */
+    public boolean isSourceFile(FileID file) {
+	return SourceSyntax.forFile(file) == syntax;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+import checker.CommentLine;
+import checker.matching.WordList;
+
+/**
+ * SourceCollector for the header scan mode. The scan stops after the
+ * header, the first maxLines lines or the lines with the first maxWords
+ * comment words, if no references or markers have been found by then.
+ * References and markers may continue after the header, so a file that
+ * has them in its header is scanned to the end.
+ */
+public class HeaderCollector extends SourceCollector {
+
+    /* Budgets of the header */
+    private int maxLines;
+    private int maxWords;
+
+    /* Number of comment words collected so far */
+    private int words = 0;
+
+    /* Did the scan stop before the end of the file */
+    private boolean stopped = false;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxLines Number of lines in the header
+     * @param maxWords Number of comment words in the header
+     */
+    public HeaderCollector(int maxLines, int maxWords) {
+	this.maxLines = maxLines;
+	this.maxWords = maxWords;
+    }
+
+    public boolean comment(CommentLine comment) {
+	words += WordList.countWords(comment.getContent());
+	return super.comment(comment);
+    }
+
+    public boolean line(int lineNumber) {
+	if ((words >= maxWords) || (lineNumber + 1 >= maxLines)) {
+	    if (getReferences().isEmpty() && getMarkers().isEmpty()) {
+		stopped = true;
+		return false;
+	    }
+	}
+	return true;
+    }
+
+    /**
+     * isStopped tells if the scan stopped after the header. The collected
+     * comments are then the comments of the header only.
+     */
+    public boolean isStopped() {
+	return stopped;
+    }
+}
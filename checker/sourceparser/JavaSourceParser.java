@@ -20,6 +20,8 @@
 
 package checker.sourceparser;
 
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import checker.FileID;
 import checker.CommentLine;
@@ -41,23 +43,14 @@ import java.io.File;
  */
 public class JavaSourceParser implements SourceParser {
 
-    /* Start of the comment line */
-    private final static String COMMENT_LINE = "//"; 
-
-    /* Start of the block comment */
-    private final static String COMMENT_BEGIN = "/*";  
-
-    /* Length of the comment marks in characters*/
-    private final static int COMMENT_LEN = 2; 
-
     /* Name for reference searching */
     private String parseWord = "import ";
 
     /* Array list for extracted references, one variable per object */
     private ArrayList<Reference> referenceArray; 
 
-    /* ParserComments object for comment operations */		
-    private ParserComments pComments = null;
+    /* CommentLexer object for comment operations */		
+    private CommentLexer lexer;
 
     /* Package name, unNamed if none found */
     private String packageName;
@@ -69,9 +62,13 @@ public class JavaSourceParser implements SourceParser {
     public JavaSourceParser() {
 
 	/* Construct JavaSourseParser with reference array
-	 * This array stores all references 
+	 * This array stores the references of the scanned file 
 	 */
 	referenceArray = new ArrayList<Reference>();
+
+	/* CommentLexer is kept for all files, the package declaration 
+	 * is the second key word */
+	lexer = new CommentLexer(SourceSyntax.JAVA);
     }
 
     /**
@@ -83,10 +80,19 @@ public class JavaSourceParser implements SourceParser {
 	/* Array list for extracted comments */
 	ArrayList<CommentLine> commentArray; 
 
-	commentArray = pComments.getComments();
+	commentArray = lexer.getComments();
 	return commentArray;
     }
 
+    /**
+     * getMarkers returns the markers found outside the comments.
+     */
+
+    public ArrayList<SourceMarker> getMarkers()  {
+
+	return lexer.getMarkers();
+    }
+
     /**
      * getReferences return the detected references.
      */
@@ -379,16 +385,15 @@ public class JavaSourceParser implements SourceParser {
     }
 
     /**
-     * scanFile extracts comments and references from given source file.
-     * 
-     * See SourceParser interface
-     * 
+     * Start a new file: reset the lexer and the references, and create 
+     * the handler of the key words found in the file.
      */
 
-    public void scanFile(FileID sourceFile, ArrayList<String> fileContent) throws Exception{
+    private CommentLexer.KeyWordHandler startFile(final FileID sourceFile) {
 
-	/* Initialize new ParserComments object */
-	pComments = new ParserComments();
+	/* Start a new file with the lexer and references of this parser */
+	lexer.reset();
+	referenceArray = new ArrayList<Reference>();
 
 	/* Package name, unNamed if none found */
 	packageName = "unNamed";
@@ -396,96 +401,69 @@ public class JavaSourceParser implements SourceParser {
 	/* Package root name, unNamed if none found */
 	packageRootName = "unNamed";
 
-	/* Create object containing line information */
-	SourceParserLine pLine;
-
-	pLine = new SourceParserLine();
+	/* Parse references and the package declaration where the lexer 
+	 * finds the key words in code */
+	return new CommentLexer.KeyWordHandler() {
+	    public SourceParserLine keyWord(int word, SourceParserLine pLine) 
+	    	throws Exception {
 
+		if (word == 0) {
+		    /* Parse and write references from the line */
+		    return parseJavaRefenceFromLine(pLine, sourceFile);
+		}
 
-	try {
-	    /* Read one object (source code pLine.line) at the time */
-	    for (int objectNumber = 0; objectNumber < fileContent.size(); objectNumber++) {
-		/* Get source code line from array */
-		pLine.line = fileContent.get(objectNumber);
-
-		if( ( ( ( pLine.line.contains(COMMENT_BEGIN) 
-			|| pLine.line.contains(COMMENT_LINE) )
-			|| pLine.commentSection ) 
-			|| pLine.line.contains(parseWord) )
-			|| pLine.line.contains("package ") ){
-
-		    /* Line contains comments or references, parse source code line */
-
-		    for (pLine.charPosition = 0; 
-		    pLine.charPosition < (pLine.line.length()); pLine.charPosition++) {
-
-			/* Search quotation and apostrophe marks.
-			 * If either is found, section is set to true
-			 * and no comments or references are parsed
-			 */
-			pLine = pComments.findVariableSection(pLine);
-
-			if ( ( (  pLine.commentSection 
-				&& !pLine.quotationSection) 
-				&& !pLine.apostropheSection)
-				&& (pLine.charPosition < pLine.line.length() ) ) {
-
-			    /* Scan comment section */
-			    pLine = pComments.scanCommentSection(pLine);
-			}
-
-
-			/* Nothing found in this line, try to find comment marks */
-			if ( ( (!pLine.commentSection 
-				&& !pLine.quotationSection) 
-				&& !pLine.apostropheSection)
-				&& (pLine.charPosition <= (pLine.line.length() - COMMENT_LEN))) {
-
-			    /* Scan line for comments */
-			    pLine = pComments.scanLine( pLine );
-
-			    /* Try to find given refences */
-			    if(pLine.line.contains(parseWord) && !pLine.commentSection ){
-
-				/* Parse and write references from the line */
-				pLine = parseJavaRefenceFromLine(pLine, sourceFile);
-
-			    }
-			    /* Try to find package declaration  */
-			    if(pLine.line.contains("package ") && packageName.equals("unNamed") ){
+		if ( packageName.equals("unNamed") ) {
+		    /* Parse and store package declaration */
+		    return scanPackageFromLine(pLine);
+		}
+		return pLine;
+	    }
+	};
+    }
 
-				if ( ( pLine.charPosition <= (pLine.line.length() - 8) )
-					&& !pLine.commentSection ){
+    /**
+     * scanFile extracts comments and references from given source file.
+     * 
+     * See SourceParser interface
+     * 
+     */
 
-				    /* Parse and store package declaration */
-				    pLine = scanPackageFromLine(pLine);
+    public void scanFile(FileID sourceFile, ArrayList<String> fileContent) throws Exception{
 
-				}
+	/* Find comments, references and markers in one pass */
+	lexer.lexLines(fileContent, startFile(sourceFile));
+    }
 
-			    }
-			}
+    /**
+     * scanFile extracts comments and references from the reader and gives 
+     * them to the sink line by line.
+     * 
+     * See SourceParser interface
+     * 
+     */
 
-			/* Search quotation and apostrophe second mark.
-			 * If either is found, section is ended and reset to false
-			 */
-			pLine = pComments.endVariableSection( pLine);
+    public void scanFile(FileID sourceFile, Reader reader, SourceSink sink) 
+    	throws Exception{
 
-		    }
-		}
-		/* Update pLine.line number, position is needed for Comment object */
-		pLine.lineNumber++; 	
-		/* move comment start position back to start of the line */
-		pLine.startPosition = 0; 
-		/* Set sections false */
-		pLine.quotationSection = false; 
-		pLine.apostropheSection = false;
+	/* The handler writes the references of each line to the new 
+	 * reference array, the lexer gives them to the sink */
+	CommentLexer.KeyWordHandler handler = startFile(sourceFile);
+	lexer.lexLines(reader, handler, referenceArray, sink);
+    }
 
-	    }
+    /**
+     * scanFile extracts comments and references from the bytes and gives 
+     * them to the sink line by line.
+     * 
+     * See SourceParser interface
+     * 
+     */
 
-	} catch (Exception e) {
-	    throw e;
-	} 
+    public void scanFile(FileID sourceFile, ByteBuffer bytes, SourceSink sink) 
+    	throws Exception{
 
+	CommentLexer.KeyWordHandler handler = startFile(sourceFile);
+	lexer.lexLines(bytes, handler, referenceArray, sink);
     }
 
     /** Method isSourceFile
@@ -495,14 +473,8 @@ public class JavaSourceParser implements SourceParser {
 
     public boolean isSourceFile(FileID file) {
 
-	/* Make sure that all letters are lower case */
-	String fName = file.name.toLowerCase();
-
-	if( fName.endsWith(".java") ){
-	    return true;
-	}else {
-	    return false;
-	}
+	/* The extensions are in the syntax table */
+	return SourceSyntax.forFile(file) == SourceSyntax.JAVA;
     }
 
 }
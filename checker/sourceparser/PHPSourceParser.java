@@ -20,8 +20,15 @@
 
 package checker.sourceparser;
 
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
 import java.io.File;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import checker.FileID;
 import checker.CommentLine;
 import checker.Reference;
@@ -45,20 +52,6 @@ import checker.Reference;
 
 public class PHPSourceParser implements SourceParser {
 
-    /* Start of the comment line*/
-    private final static String COMMENT_LINE = "//"; 
-
-    /* Start of the unix-style comment 
-     * This comment either ends when line ends or block ends (?>)
-     */ 
-    private final static char COMMENT_MARK = '#'; 
-
-    /* Start of the block comment */
-    private final static String COMMENT_BEGIN = "/*"; 
-
-    /* Length of the comment marks in characters*/
-    private final static int COMMENT_LEN = 2; 
-
     /*
      * PHP code section marks: (note that ASP-style is not supported)
      * 
@@ -89,10 +82,10 @@ public class PHPSourceParser implements SourceParser {
 
 
     /* Array list for extracted references, one variable per object */
-    private static ArrayList<Reference> referenceArray; 
+    private ArrayList<Reference> referenceArray; 
 
-    /* ParserComments object for comment operations */		
-    private ParserComments pComments = null;
+    /* CommentLexer object for comment operations */		
+    private CommentLexer lexer;
 
     /* ReferenecProcessing object for reference path processing */
     private ReferenceProcessing refProc;
@@ -101,10 +94,14 @@ public class PHPSourceParser implements SourceParser {
     public PHPSourceParser() {
 
 	/* Construct PHPSourseParser with reference array
-	 * This array stores all references 
+	 * This array stores the references of the scanned file 
 	 */
 	referenceArray = new ArrayList<Reference>();
 
+	/* CommentLexer is kept for all files, # starts a comment 
+	 * and strings may continue to the next line */
+	lexer = new CommentLexer(SourceSyntax.PHP);
+
 	refProc = new ReferenceProcessing();
     }
 
@@ -117,55 +114,28 @@ public class PHPSourceParser implements SourceParser {
 	/* Array list for extracted comments */
 	ArrayList<CommentLine> commentArray; 
 
-	commentArray = pComments.getComments();
+	commentArray = lexer.getComments();
 	return commentArray;
     }
 
     /**
-     * getReferences return the detected references.
+     * getMarkers returns the markers found outside the comments.
      */
 
-    public ArrayList<Reference> getReferences() {
-	return referenceArray;
+    public ArrayList<SourceMarker> getMarkers()  {
 
+	return lexer.getMarkers();
     }
 
     /**
-     * This private method is for searching unix style comment from the line
-     *  
-     *  @param SourceParserLine
-     *  		pLine is code line object that includes line and positions
-     *  
-     *  @return SourceParserLine
-     * 		  pLine with new values
+     * getReferences return the detected references.
      */
 
-    private SourceParserLine scanCommentMark(SourceParserLine pLine) throws Exception{
-
-	try{
-
-	    if(pLine.line.charAt(pLine.charPosition) == COMMENT_MARK){
-
-		/* Found unix style comment */
-
-		pLine.startPosition = pLine.charPosition + 1;
-		pLine.charPosition = pLine.line.length();
-
-		pComments.writeToCommentArray( pLine );
-		pLine.charPosition = pLine.line.length() - 1;
-
-	    }
-
-	} catch (RuntimeException e) {
-	    throw e;
-	} 
-
-	return pLine;
+    public ArrayList<Reference> getReferences() {
+	return referenceArray;
 
     }
 
-
-
     /**
      * This private method is for writing reference to arraylist 
      * 
@@ -460,10 +430,11 @@ public class PHPSourceParser implements SourceParser {
      * 
      */
 
-    public void scanFile(FileID sourceFile, ArrayList<String> fileContent) throws Exception{
+    public void scanFile(final FileID sourceFile, ArrayList<String> fileContent) throws Exception{
 
-	/* Initialize new ParserComments object */
-	pComments = new ParserComments(); 
+	/* Start a new file with the lexer and references of this parser */
+	lexer.reset();
+	referenceArray = new ArrayList<Reference>();
 
 	/* Create object containing line information */
 	SourceParserLine pLine;
@@ -480,9 +451,20 @@ public class PHPSourceParser implements SourceParser {
 	/* This sets character position */
 	int lineIndex = 0;
 
+	/* Last line that contains each PHP code section end mark */
+	HashMap<String, Integer> lastEndLines = new HashMap<String, Integer>();
 
 	pLine = new SourceParserLine();
 
+	/* Parse references where the lexer finds a key word in code */
+	CommentLexer.KeyWordHandler handler = new CommentLexer.KeyWordHandler() {
+	    public SourceParserLine keyWord(int word, SourceParserLine pLine) 
+	    	throws Exception {
+		parseWord = parseWordsArray[word];
+		return parsePHPReferenceFromLine(pLine, sourceFile);
+	    }
+	};
+
 	try {
 	    /* Read one object (source code pLine.line) at the time */
 	    for (int objectNumber = 0; objectNumber < fileContent.size(); 
@@ -501,9 +483,7 @@ public class PHPSourceParser implements SourceParser {
 		    pLine.line = fileContent.get(objectNumber);
 
 		    /* Reset sections */
-		    pLine.quotationSection = false;
-		    pLine.apostropheSection = false;
-		    pLine.commentSection = false;
+		    lexer.resetState();
 
 		} else { /* Normal case */
 
@@ -514,32 +494,34 @@ public class PHPSourceParser implements SourceParser {
 
 		}
 
-		parseWord = "<nothingFoundSoFar>";	/* Reset parseWord */
-
-		/* Try find reference from the line */
-		for(int i=0; i < parseWordsArray.length; i++){
-		    if( pLine.line.contains(parseWordsArray[i]) ){
-			parseWord = parseWordsArray[i];
-		    }
-		}
-
 		if( !phpSection ){
 		    /* Find PHP code section start mark from the line */
 		    pLine = findPHPSection( pLine, lineIndex );
 		    lineIndex = pLine.charPosition;
 
-		    /* Find end mark from lines that are left in the file */
-		    for (int oNumber = objectNumber; oNumber < fileContent.size(); 
-		    oNumber++){
+		    /* Find the last line of the file with this end mark once, 
+		     * searching from the end of the file */
+		    Integer lastEndLine = lastEndLines.get(phpEnd);
+		    if( lastEndLine == null ){
+			lastEndLine = Integer.valueOf(-1);
+			for (int oNumber = fileContent.size() - 1; oNumber >= 0; 
+			oNumber--){
+
+			    if( fileContent.get(oNumber).contains(phpEnd) ){
+				lastEndLine = Integer.valueOf(oNumber);
+				break;
+			    }
 
-			if( fileContent.get(oNumber).contains(phpEnd) ){
-			    /* PHP code section end mark found. */
-			    /* Approve PHP code section 
-			     * and set section started */
-			    phpSection = true;
-			    oNumber = fileContent.size();
 			}
+			lastEndLines.put(phpEnd, lastEndLine);
+		    }
 
+		    if( objectNumber <= lastEndLine.intValue() ){
+			/* PHP code section end mark found in lines that are 
+			 * left in the file. */
+			/* Approve PHP code section 
+			 * and set section started */
+			phpSection = true;
 		    }
 
 		}
@@ -569,69 +551,9 @@ public class PHPSourceParser implements SourceParser {
 		    }
 
 
-		    if( ( ( ( pLine.line.contains(COMMENT_BEGIN) 
-			    || pLine.line.contains(COMMENT_LINE) )
-			    || pLine.line.contains("#") )
-			    || pLine.commentSection ) 
-			    || ( pLine.quotationSection || pLine.apostropheSection )
-			    || pLine.line.contains(parseWord) ) {
-
-			/* Line contains comments or references
-			 * or some of the sections is set,
-			 * parse source code line */
-
-
-			for (pLine.charPosition = lineIndex; 
-			pLine.charPosition < (pLine.line.length()); 
-			pLine.charPosition++) {
-
-			    /* Search quotation and apostrophe marks.
-			     * If either is found, section is set to true
-			     * and no comments or references are parsed
-			     */
-			    pLine = pComments.findVariableSection(pLine);
-
-			    if ( ( (  pLine.commentSection 
-				    && !pLine.quotationSection) 
-				    && !pLine.apostropheSection)
-				    && (pLine.charPosition < pLine.line.length() ) ) {
-
-				/* Scan comment section */
-				pLine = pComments.scanCommentSection(pLine);
-			    }
-
-			    /* Nothing found in this line, try to find comment marks 
-			     * of references */
-			    if ( ( (!pLine.commentSection 
-				    && !pLine.quotationSection) 
-				    && !pLine.apostropheSection)
-				    && (pLine.charPosition 
-					    <= (pLine.line.length() - COMMENT_LEN))) {
-
-				/* Scan line for comments */
-				pLine = scanCommentMark( pLine );
-
-				pLine = pComments.scanLine( pLine );
-
-				if(pLine.line.contains(parseWord) 
-					&& !pLine.commentSection){
-
-				    /* Search and write reference to the array */
-				    pLine = parsePHPReferenceFromLine(pLine, 
-					    sourceFile);
-
-				}
-
-			    } 
-
-			    /* Search quotation and apostrophe second mark.
-			     * If either is found, section is ended and reset to false
-			     */
-			    pLine = pComments.endVariableSection( pLine);
-
-			}
-
-		    }
+		    /* Find comments, references and markers in one pass */
+		    pLine.charPosition = lineIndex;
+		    lexer.lexLine(pLine, handler);
 
 		}
 		/* Update pLine.line number, position is needed for Comment object */
@@ -648,6 +570,47 @@ public class PHPSourceParser implements SourceParser {
 
     }
 
+    /**
+     * scanFile extracts comments and references from the reader and gives 
+     * them to the sink line by line. A PHP code section is only approved
+     * if a later line of the file ends it, so the whole file is read 
+     * before the results are given.
+     * 
+     * See SourceParser interface
+     * 
+     */
+
+    public void scanFile(FileID sourceFile, Reader reader, SourceSink sink) 
+    	throws Exception{
+
+	BufferedReader lines = new BufferedReader(reader);
+	ArrayList<String> fileContent = new ArrayList<String>();
+	String line;
+	while ((line = lines.readLine()) != null) {
+	    fileContent.add(line);
+	}
+
+	scanFile(sourceFile, fileContent);
+	lexer.feed(fileContent, referenceArray, sink);
+    }
+
+    /**
+     * scanFile extracts comments and references from the bytes and gives 
+     * them to the sink. The whole file is needed to approve the code 
+     * sections, so it is decoded and read as lines.
+     * 
+     * See SourceParser interface
+     * 
+     */
+
+    public void scanFile(FileID sourceFile, ByteBuffer bytes, SourceSink sink) 
+    	throws Exception{
+
+	CharBuffer chars = Charset.defaultCharset().decode(bytes.duplicate());
+	scanFile(sourceFile, new CharArrayReader(chars.array(), 
+		chars.arrayOffset() + chars.position(), chars.remaining()), sink);
+    }
+
     /**
      * See SourceParser interface 
      * 
@@ -655,15 +618,8 @@ public class PHPSourceParser implements SourceParser {
 
     public boolean isSourceFile(FileID file) {
 
-	/* Make sure that all letters are lower case */
-	String fName = file.name.toLowerCase();
-
-	if( fName.endsWith(".php") ){
-	    return true;
-	}
-	else {
-	    return false;
-	}
+	/* The extensions are in the syntax table */
+	return SourceSyntax.forFile(file) == SourceSyntax.PHP;
 
     }
 
@@ -0,0 +1,80 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+import java.util.ArrayList;
+
+import checker.CommentLine;
+import checker.Reference;
+
+/**
+ * SourceSink that keeps the comments, markers and references of the file
+ * and reads the whole file. Subclasses may stop the scan early.
+ */
+public class SourceCollector implements SourceSink {
+
+    /* Comments of the file, one line per object */
+    private ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+
+    /* Markers found outside the comments */
+    private ArrayList<SourceMarker> markers = new ArrayList<SourceMarker>();
+
+    /* References of the file */
+    private ArrayList<Reference> references = new ArrayList<Reference>();
+
+    public boolean comment(CommentLine comment) {
+	comments.add(comment);
+	return true;
+    }
+
+    public boolean marker(SourceMarker marker) {
+	markers.add(marker);
+	return true;
+    }
+
+    public boolean reference(Reference reference) {
+	references.add(reference);
+	return true;
+    }
+
+    public boolean line(int lineNumber) {
+	return true;
+    }
+
+    /**
+     * getComments returns the collected comments.
+     */
+    public ArrayList<CommentLine> getComments() {
+	return comments;
+    }
+
+    /**
+     * getMarkers returns the collected markers.
+     */
+    public ArrayList<SourceMarker> getMarkers() {
+	return markers;
+    }
+
+    /**
+     * getReferences returns the collected references.
+     */
+    public ArrayList<Reference> getReferences() {
+	return references;
+    }
+}
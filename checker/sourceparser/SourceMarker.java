@@ -0,0 +1,93 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+/**
+ * License marker found in source code outside comments, for example
+ * MODULE_LICENSE("GPL") of a Linux kernel module. Markers are found by
+ * the source parsers in the same pass as the comments.
+ */
+public class SourceMarker {
+
+    /* Marker name, for example MODULE_LICENSE */
+    private String name;
+
+    /* Value of the marker without quotes */
+    private String value;
+
+    /* Number of the line, starting from 0 */
+    private int lineNumber;
+
+    /* Column where the marker starts */
+    private int startColumn;
+
+    /* Column after the end of the marker */
+    private int endColumn;
+
+    /**
+     * @param name Marker name
+     * @param value Value of the marker
+     * @param lineNumber Line number in the source file
+     * @param startColumn Column where the marker starts
+     * @param endColumn Column after the end of the marker
+     */
+    public SourceMarker(String name, String value, int lineNumber,
+	    int startColumn, int endColumn) {
+	this.name = name;
+	this.value = value;
+	this.lineNumber = lineNumber;
+	this.startColumn = startColumn;
+	this.endColumn = endColumn;
+    }
+
+    /**
+     * @return Marker name
+     */
+    public String getName() {
+	return name;
+    }
+
+    /**
+     * @return Value of the marker
+     */
+    public String getValue() {
+	return value;
+    }
+
+    /**
+     * @return Line number in the source file
+     */
+    public int getLineNumber() {
+	return lineNumber;
+    }
+
+    /**
+     * @return Column where the marker starts
+     */
+    public int getStartColumn() {
+	return startColumn;
+    }
+
+    /**
+     * @return Column after the end of the marker
+     */
+    public int getEndColumn() {
+	return endColumn;
+    }
+}
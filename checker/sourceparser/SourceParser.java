@@ -20,6 +20,8 @@
 
 package checker.sourceparser;
 
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import checker.CommentLine;
@@ -49,14 +51,46 @@ public interface SourceParser {
      */
     public void scanFile(FileID file, ArrayList<String> fileContent) throws Exception;
 
+    /**
+     * Scans a file as it is read from the reader. The comments, markers 
+     * and references are given to the sink line by line instead of being
+     * kept by the parser, and the scan stops at the end of the reader or
+     * when the sink returns false. The reader is not closed.
+     * 
+     * @param reader Contents of the file
+     * @param sink Receiver of the comments, markers and references
+     */
+    public void scanFile(FileID file, Reader reader, SourceSink sink) 
+    	throws Exception;
+
+    /**
+     * Scans a file from its bytes in the platform charset, as 
+     * scanFile(FileID, Reader, SourceSink) does. Only the parts of the 
+     * file that are needed are decoded to characters. The position and
+     * limit of the buffer are not changed.
+     * 
+     * @param bytes Contents of the file from the position to the limit
+     * @param sink Receiver of the comments, markers and references
+     */
+    public void scanFile(FileID file, ByteBuffer bytes, SourceSink sink) 
+    	throws Exception;
+
     /**
      * Returns the source file's comments. Must be called after scanFile().
      */
     public ArrayList<CommentLine> getComments();
 
     /**
-     * Gets the detected references. Must be called only after all source files
-     * in the package have been processed by scanFile().
+     * Returns the markers found outside the comments, for example
+     * MODULE_LICENSE. They are found in the same pass as the comments.
+     * Must be called after scanFile().
+     */
+    public ArrayList<SourceMarker> getMarkers();
+
+    /**
+     * Gets the references detected in the file of the last scanFile().
+     * A parser may be reused for other files: scanFile() starts new
+     * lists, so the returned lists stay valid for the caller.
      * 
      * 
      * @return List of found references.
@@ -32,15 +32,38 @@ import checker.FileID;
  */
 public class SourceParserFactory {
 
+    /* Parsers of each scanning thread, indexed by the SourceSyntax ordinal */
+    private static final ThreadLocal<SourceParser[]> threadParsers = 
+	new ThreadLocal<SourceParser[]>() {
+	protected SourceParser[] initialValue() {
+	    return new SourceParser[SourceSyntax.values().length];
+	}
+    };
+
+    /**
+     * Creates a parser for the language. Java, C and PHP have parsers of
+     * their own, the other languages are parsed from their syntax rules.
+     */
+    private static SourceParser create(SourceSyntax syntax) {
+
+	if (syntax == SourceSyntax.JAVA) {
+	    return new JavaSourceParser();
+	} else if (syntax == SourceSyntax.C) {
+	    return new CppSourceParser();
+	} else if (syntax == SourceSyntax.PHP) {
+	    return new PHPSourceParser();
+	}
+	return new GenericSourceParser(syntax);
+    }
+
     /**
      * Creates a new SourceParser object that represents the given source type.
      * Detection of the source file is done based on the filename (extension or
-     * the full name).
+     * the full name) in the SourceSyntax table.
      * <li>It's assumed that there are no conflicts in filenames of different
      * source types.
-     * <li>Only one SourceParser object is created per source type, so it's
-     * permitted to use this object to store information required by reference
-     * detection.
+     * <li>A new object is created for each call, use getSourceParser() to
+     * reuse the parsers of the current thread.
      * 
      * @param FileID
      * 				file is the source file candidate
@@ -49,49 +72,42 @@ public class SourceParserFactory {
      */
     public static SourceParser createSourceParser(FileID file) throws Exception  {
 
-	/* Creates New SourceParser Objects */
-	SourceParser parser = null;
-
-
-	try{
-	    if( isSourceFile(file) ){
-		/* Test the type of source code*/
-		parser = new JavaSourceParser();	
-
-		if(!parser.isSourceFile(file)){
-		    /* That was not java source code
-		     * Try cpp
-		     */
-		    parser = new CppSourceParser();
-		    if(!parser.isSourceFile(file)){
-			/* That was not cpp source code
-			 * Try php
-			 */
-
-			/* Add new source code parser here if needed */
-
-			parser = new PHPSourceParser();
-			if(!parser.isSourceFile(file)){
-			    /* Special case:
-			     * That was not any type of source code
-			     * Set parser NULL
-			     */
-			    parser = null;							
-			}											
-		    }					
-		}								
-	    } 
-
-	}catch(Exception e){
-	    /* Exception  */
-	    throw e;
-	}
+	SourceSyntax syntax = SourceSyntax.forFile(file);
+
 	/*
 	 * Parser is null if file was not supported source file,
 	 * otherwise method returns appropriate parser
 	 */
-	return parser;
+	return (syntax == null) ? null : create(syntax);
+    }
 
+    /**
+     * Returns the SourceParser of the current thread for the given source
+     * type. One parser is kept per source type and thread, and scanFile()
+     * resets it for each file, so the parser must not be used for another
+     * file until its comments, markers and references have been read.
+     * 
+     * @param FileID
+     * 				file is the source file candidate
+     * @return SourceParser
+     * 				parser for parsing supported source code, null 
+     * 				if the file is not a supported source file
+     */
+    public static SourceParser getSourceParser(FileID file) throws Exception  {
+
+	SourceSyntax syntax = SourceSyntax.forFile(file);
+	if (syntax == null) {
+	    return null;
+	}
+
+	SourceParser[] parsers = threadParsers.get();
+	SourceParser parser = parsers[syntax.ordinal()];
+	if (parser == null) {
+	    parser = create(syntax);
+	    parsers[syntax.ordinal()] = parser;
+	}
+
+	return parser;
     }
 
     /**
@@ -103,26 +119,8 @@ public class SourceParserFactory {
      */
     public static boolean isSourceFile(FileID file) {
 
-	boolean foundSourceFile = false;
-
-	/* Make sure that all letters are lower case */
-	String fName = file.name.toLowerCase();
-
-	if( fName.endsWith(".java")
-		|| fName.endsWith(".cpp") 
-		|| fName.endsWith(".c")
-		|| fName.endsWith(".cc")
-		|| fName.endsWith(".h")
-		|| fName.endsWith(".hpp")
-
-		/* Add new file name extension here for new source code parser */
-
-		|| fName.endsWith(".php")){ 
-	    /* Found supported source file */
-	    foundSourceFile=true;
-	}
-
-	return foundSourceFile;
+	/* The file names are in the syntax table */
+	return SourceSyntax.forFile(file) != null;
     }
 
 }	
@@ -48,12 +48,6 @@ public class SourceParserLine {
 
 	startPosition = 0;
 
-	commentSection = false;
-
-	apostropheSection = false;
-
-	quotationSection = false;
-
     }
 
     /* Line for source parsing */
@@ -68,13 +62,4 @@ public class SourceParserLine {
     /* Starting position in the line which is used for starting point for writing */
     protected int startPosition;
 
-    /* Indicates comment section in the line */
-    protected boolean commentSection;
-
-    /* Indicates apostrophe section in the line */
-    protected boolean apostropheSection;
-
-    /* Indicates quotation section in the line */
-    protected boolean quotationSection;
-
 }
@@ -0,0 +1,62 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+import checker.CommentLine;
+import checker.Reference;
+
+/**
+ * Receiver of the comments, markers and references of a source file that
+ * is scanned from a Reader or from bytes with SourceParser.scanFile(). They are given
+ * line by line as the file is read, and the scan stops when a method
+ * returns false, so the caller may stop after the part of the file it
+ * needs.
+ */
+public interface SourceSink {
+
+    /**
+     * A comment line was found.
+     * 
+     * @return false to stop the scan
+     */
+    public boolean comment(CommentLine comment);
+
+    /**
+     * A marker was found outside the comments.
+     * 
+     * @return false to stop the scan
+     */
+    public boolean marker(SourceMarker marker);
+
+    /**
+     * A reference was found.
+     * 
+     * @return false to stop the scan
+     */
+    public boolean reference(Reference reference);
+
+    /**
+     * A line has been scanned, its comments, markers and references have
+     * been given to this sink.
+     * 
+     * @param lineNumber Number of the line, starting from 0
+     * @return false to stop the scan
+     */
+    public boolean line(int lineNumber);
+}
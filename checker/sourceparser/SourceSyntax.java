@@ -0,0 +1,218 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package checker.sourceparser;
+
+import java.util.HashMap;
+
+import checker.FileID;
+
+/**
+ * Syntax descriptors of the supported source languages. A descriptor
+ * gives the file names of the language and the rules CommentLexer needs
+ * to find its comments: line comment marks, block comment delimiters,
+ * string quotes and here documents. The key words of the include or
+ * import statements are given to the parser of the language.
+ * <p>
+ * Java, C and PHP have their own parsers for the references, the other
+ * languages are parsed by GenericSourceParser. A new language is added
+ * here, with no changes to the lexer.
+ */
+public enum SourceSyntax {
+
+    C(list("c", "cc", "cpp", "h", "hpp"), list(),
+	    list("//"), "/*", "*/", "\"'", "", null,
+	    list("#include "), null, null, Flags.INCLUDES),
+
+    JAVA(list("java"), list(),
+	    list("//"), "/*", "*/", "\"'", "", null,
+	    list("import ", "package "), null, null, 0),
+
+    PHP(list("php"), list(),
+	    list("//", "#"), "/*", "*/", "\"'", "\"'", null,
+	    list("include", "require"), null, null, Flags.INCLUDES),
+
+    PYTHON(list("py", "pyw"), list(),
+	    list("#"), null, null, "\"'", "", null,
+	    list("import"), ".", ".py", Flags.TRIPLE_QUOTES),
+
+    SHELL(list("sh", "bash", "ksh", "zsh"), list(),
+	    list("#"), null, null, "\"'`", "\"'`", "<<",
+	    list("source"), null, null, Flags.INCLUDES | Flags.WORD_START_COMMENTS),
+
+    PERL(list("pl", "pm"), list(),
+	    list("#"), "=", "=cut", "\"'", "\"'", "<<",
+	    list("use", "require"), "::", ".pm", Flags.LINE_START_BLOCKS),
+
+    JAVASCRIPT(list("js", "mjs", "cjs"), list(),
+	    list("//"), "/*", "*/", "\"'`", "`", null,
+	    list("require", "from"), null, ".js", 0),
+
+    GO(list("go"), list(),
+	    list("//"), "/*", "*/", "\"'`", "`", null,
+	    list("import"), null, null, 0),
+
+    RUST(list("rs"), list(),
+	    list("//"), "/*", "*/", "\"", "\"", null,
+	    list("mod"), "::", ".rs", Flags.NESTED_BLOCKS),
+
+    RUBY(list("rb", "rake"), list("rakefile", "gemfile"),
+	    list("#"), "=begin", "=end", "\"'`", "\"'`", "<<",
+	    list("require_relative", "require", "load"), null, ".rb",
+	    Flags.LINE_START_BLOCKS),
+
+    SQL(list("sql"), list(),
+	    list("--"), "/*", "*/", "\"'", "\"'", null,
+	    list(), null, null, Flags.NO_ESCAPES),
+
+    MAKEFILE(list("mk", "mak"), list("makefile", "gnumakefile"),
+	    list("#"), null, null, "", "", null,
+	    list("include"), null, null, Flags.INCLUDES);
+
+    /**
+     * Flags of the syntax rules.
+     */
+    static class Flags {
+
+	/* Block comments nest, as in Rust */
+	final static int NESTED_BLOCKS = 1;
+
+	/* Block comment delimiters are only found at the start of a line,
+	 * as in Perl POD and Ruby =begin */
+	final static int LINE_START_BLOCKS = 2;
+
+	/* Three quotes start a string that ends at three quotes */
+	final static int TRIPLE_QUOTES = 4;
+
+	/* Backslash does not escape characters in strings */
+	final static int NO_ESCAPES = 8;
+
+	/* Line comment marks only start a comment at the start of a word */
+	final static int WORD_START_COMMENTS = 16;
+
+	/* References are includes of files rather than imports */
+	final static int INCLUDES = 32;
+    }
+
+    /* Lower case file name extensions of the language */
+    final String[] extensions;
+
+    /* Lower case full file names of the language */
+    final String[] fileNames;
+
+    /* Marks that start a comment to the end of the line */
+    final String[] lineComments;
+
+    /* Block comment delimiters, null if the language has none */
+    final String blockStart;
+    final String blockEnd;
+
+    /* Characters that start and end a string */
+    final String quotes;
+
+    /* Quotes of the strings that continue to the next line */
+    final String multiLineQuotes;
+
+    /* Start of a here document, followed by the end word */
+    final String heredoc;
+
+    /* Key words of the include or import statements */
+    final String[] keyWords;
+
+    /* Separator of the module names in a reference, replaced with
+     * the path separator, null if references are file names */
+    final String moduleSeparator;
+
+    /* Extension added to references that have none, null for none */
+    final String moduleSuffix;
+
+    /* Combination of the Flags */
+    final int flags;
+
+    /* Language of each lower case extension and file name */
+    private static final HashMap<String, SourceSyntax> extensionMap =
+	new HashMap<String, SourceSyntax>();
+    private static final HashMap<String, SourceSyntax> fileNameMap =
+	new HashMap<String, SourceSyntax>();
+
+    static {
+	for (SourceSyntax syntax : values()) {
+	    for (String extension : syntax.extensions) {
+		extensionMap.put(extension, syntax);
+	    }
+	    for (String fileName : syntax.fileNames) {
+		fileNameMap.put(fileName, syntax);
+	    }
+	}
+    }
+
+    private SourceSyntax(String[] extensions, String[] fileNames,
+	    String[] lineComments, String blockStart, String blockEnd,
+	    String quotes, String multiLineQuotes, String heredoc,
+	    String[] keyWords, String moduleSeparator, String moduleSuffix,
+	    int flags) {
+	this.extensions = extensions;
+	this.fileNames = fileNames;
+	this.lineComments = lineComments;
+	this.blockStart = blockStart;
+	this.blockEnd = blockEnd;
+	this.quotes = quotes;
+	this.multiLineQuotes = multiLineQuotes;
+	this.heredoc = heredoc;
+	this.keyWords = keyWords;
+	this.moduleSeparator = moduleSeparator;
+	this.moduleSuffix = moduleSuffix;
+	this.flags = flags;
+    }
+
+    /**
+     * Is the flag set for this language?
+     */
+    boolean has(int flag) {
+	return (flags & flag) != 0;
+    }
+
+    /**
+     * Language of a file, from the full file name or the extension.
+     *
+     * @param file
+     * 				source file candidate
+     * @return SourceSyntax
+     * 				language of the file, null if not supported
+     */
+    public static SourceSyntax forFile(FileID file) {
+
+	/* Make sure that all letters are lower case */
+	String fName = file.name.toLowerCase();
+
+	SourceSyntax syntax = fileNameMap.get(fName);
+	if (syntax != null) {
+	    return syntax;
+	}
+
+	int dot = fName.lastIndexOf('.');
+	if (dot < 0) {
+	    return null;
+	}
+	return extensionMap.get(fName.substring(dot + 1));
+    }
+
+    private static String[] list(String... items) {
+	return items;
+    }
+}
@@ -22,6 +22,8 @@
 package checker.sourceparser;
 
 import java.io.File;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 import checker.CommentLine;
@@ -44,16 +46,6 @@ import checker.Reference;
 
 public class TemplateSourceParser {
 
-    /* Example: Start of the comment line*/
-    private final static String COMMENT_LINE = "//"; 
-
-    /* Example: Start of the block comment */
-    private final static String COMMENT_BEGIN = "/*"; 
-
-    /* Length of the comment marks in characters, 
-     * you must declare length of the comment mark here*/
-    private final static int COMMENT_LEN = 2;  
-
     /* Name for reference searching, add your reference key word here
      * Tip: You can leave space after keyword 
      *  */
@@ -62,18 +54,23 @@ public class TemplateSourceParser {
     /* Array list for extracted references, one variable per object */
     private ArrayList<Reference> referenceArray; 
 
-    /* ParserComments object for comment operations and storing */		
-    private ParserComments pComments = null;
+    /* CommentLexer object for comment operations and storing */		
+    private CommentLexer lexer;
 
 
     public TemplateSourceParser() {
 
 	/* Construct SourceParser with reference array
-	 * This array stores all references 
-	 * Note: This object is created only once
+	 * This array stores the references of the scanned file 
+	 * Note: This object is reused for the files of a thread
 	 */
 	referenceArray = new ArrayList<Reference>();
 
+	/* CommentLexer is kept for all files. Add a SourceSyntax with the
+	 * file names, comment rules and reference key words of the new
+	 * language and use it here */
+	lexer = new CommentLexer(SourceSyntax.C);
+
 	/*
 	 * Note: Change SourceParserFactory to include new source parser
 	 * 
@@ -92,10 +89,19 @@ public class TemplateSourceParser {
 	/* Get array from the parserComments object 
 	 * Note: This is called after each source file is parsed
 	 * */
-	commentArray = pComments.getComments();
+	commentArray = lexer.getComments();
 	return commentArray;
     }
 
+    /**
+     * getMarkers returns the markers found outside the comments.
+     */
+
+    public ArrayList<SourceMarker> getMarkers()  {
+
+	return lexer.getMarkers();
+    }
+
     /**
      * getReferences return the detected references.
      */
@@ -276,7 +282,30 @@ public class TemplateSourceParser {
 
 
     /**
-     * scanFile extracts comments and references from given source file content
+     * Start a new file: reset the lexer and the references, and create 
+     * the handler of the key words found in the file.
+     */
+
+    private CommentLexer.KeyWordHandler startFile(final FileID sourceFile) {
+
+	/* Start a new file with the lexer and references of this parser */
+	lexer.reset();
+	referenceArray = new ArrayList<Reference>();
+
+	/* The lexer calls this when it finds a key word in code, outside
+	 * comments and strings. Position in the line is stored to the
+	 * pLine.charPosition. */
+	return new CommentLexer.KeyWordHandler() {
+	    public SourceParserLine keyWord(int word, SourceParserLine pLine) 
+	    	throws Exception {
+		/* Parse and write references from the line */
+		return parseRefenceFromLine(pLine, sourceFile);
+	    }
+	};
+    }
+
+    /**
+     * scanFile extracts comments and references from given source file.
      * 
      * See SourceParser interface
      * 
@@ -284,118 +313,40 @@ public class TemplateSourceParser {
 
     public void scanFile(FileID sourceFile, ArrayList<String> fileContent) throws Exception{
 
-	/* Initialize new ParserComments object */
-	pComments = new ParserComments();
+	/* Find comments, references and markers in one pass */
+	lexer.lexLines(fileContent, startFile(sourceFile));
+    }
 
-	/* Create object containing line information */
-	SourceParserLine pLine;
+    /**
+     * scanFile extracts comments and references from the reader and gives 
+     * them to the sink line by line.
+     * 
+     * See SourceParser interface
+     * 
+     */
 
-	/* Create new source parser line object to store line and positions */
-	pLine = new SourceParserLine();
+    public void scanFile(FileID sourceFile, Reader reader, SourceSink sink) 
+    	throws Exception{
 
+	/* The handler writes the references of each line to the new 
+	 * reference array, the lexer gives them to the sink */
+	CommentLexer.KeyWordHandler handler = startFile(sourceFile);
+	lexer.lexLines(reader, handler, referenceArray, sink);
+    }
 
-	try {
-	    /* Read one object (source code line) at the time */
-	    for (int objectNumber = 0; objectNumber < fileContent.size(); objectNumber++) {
-		/* Get source code line from array */
-		pLine.line = fileContent.get(objectNumber);
-
-
-		/* Search comment start marks and references from the line and check
-		 * if this line is in the comment section set earlier
-		 * 
-		 * This pre-check speed up parsing because only lines that are needed to parse
-		 * are parsed! Set your own key words if needed.
-		 * 
-		 */
-		if( ( ( pLine.line.contains(COMMENT_BEGIN) 
-			|| pLine.line.contains(COMMENT_LINE) )
-			|| pLine.commentSection ) 
-			|| pLine.line.contains(parseWord) ) {
-
-		    /* Line contains comments or references, parse source code line */
-
-		    for (pLine.charPosition = 0; 
-		    pLine.charPosition < (pLine.line.length()); pLine.charPosition++) {
-
-			/* Parse every character to make sure that reference key words or 
-			 * comment marks are not in the quotations or apostrophes
-			 * 
-			 * Position in the line is stored to the pLine.charPosition
-			 * */
-
-			/* Search quotation and apostrophe marks.
-			 * If either is found, section is set to true
-			 * and no comments or references are parsed
-			 */
-			pLine = pComments.findVariableSection(pLine);
-
-
-			if ( ( (  pLine.commentSection 
-				&& !pLine.quotationSection) 
-				&& !pLine.apostropheSection)
-				&& (pLine.charPosition < pLine.line.length() ) ) {
-
-			    /* If we are in the comment section, scan comment section 
-			     * Method receive line of code (pLine) with positions.
-			     * Method parses comments and write them to array
-			     * 
-			     * Note: Check that all comment marks are included, if there
-			     * is additional comment style, create new method for pre-parsing
-			     * and send pLine after that to scanCommentSection if needed
-			     * */
-			    pLine = pComments.scanCommentSection( pLine );
-			}
-
-
-			if ( ( (!pLine.commentSection 
-				&& !pLine.quotationSection) 
-				&& !pLine.apostropheSection)
-				&& (pLine.charPosition <= (pLine.line.length() - COMMENT_LEN))) {
-
-			    /* Nothing found in this line, try to find comment marks or references */
-			    /* Scan line for starting comments 
-			     * 
-			     * Note: Check ParserComments which comment marks are supported
-			     * scanLine method tries to find comment section and writes
-			     * one-line comments immediately to the comment array
-			     * */
-
-			    pLine = pComments.scanLine( pLine );
-
-			    /* Try to find given refences if comment section is not set before */
-			    if(pLine.line.contains(parseWord) && !pLine.commentSection){
-
-				/* Parse and write references from the line */
-				pLine = parseRefenceFromLine(pLine, sourceFile);
-
-			    }
-
-			}
-
-			/* Search quotation and apostrophe second mark.
-			 * If either is found, section is ended and reset to false
-			 */
-			pLine = pComments.endVariableSection( pLine );
-
-		    }
-		}
-		/* Update pLine.line number, position is needed for Comment object */
-		pLine.lineNumber++; 	
-		/* Move start position back to start of the line */
-		pLine.startPosition = 0; 	
-
-		/* Set sections false, if language does not support 
-		 * multiline quotation or apostrophes
-		pLine.quotationSection = false; 
-		pLine.apostropheSection = false;
-		 */
-	    }
+    /**
+     * scanFile extracts comments and references from the bytes and gives 
+     * them to the sink line by line.
+     * 
+     * See SourceParser interface
+     * 
+     */
 
-	} catch (Exception e) {
-	    throw e;
-	} 
+    public void scanFile(FileID sourceFile, ByteBuffer bytes, SourceSink sink) 
+    	throws Exception{
 
+	CommentLexer.KeyWordHandler handler = startFile(sourceFile);
+	lexer.lexLines(bytes, handler, referenceArray, sink);
     }
 
     /** Method isSourceFile
@@ -36,6 +36,7 @@ import checker.CommentLine;
 import checker.FileID;
 import checker.Reference;
 import checker.sourceparser.CppSourceParser;
+import checker.sourceparser.SourceMarker;
 
 /**
  * @author mika 3.2.2007
@@ -224,6 +225,59 @@ public class CppSourceParserTest {
 	}
 
 
+	/**
+	 * Test method for {@link checker.sourceparser.CppSourceParser#getMarkers()}.
+	 */
+	@Test
+	public void testGetMarkers() throws Exception {
+		ArrayList<String> content = new ArrayList<String>();
+		content.add("/* module */");
+		content.add("MODULE_LICENSE(\"Dual BSD/GPL\"); // license");
+		content.add("static char *s = \"MODULE_LICENSE(\";");
+
+		CppSourceParser moduleParser = new CppSourceParser();
+		moduleParser.scanFile(file, content);
+
+		ArrayList<SourceMarker> markers = moduleParser.getMarkers();
+		assertEquals(1, markers.size());
+		assertEquals("MODULE_LICENSE", markers.get(0).getName());
+		assertEquals("Dual BSD/GPL", markers.get(0).getValue());
+		assertEquals(1, markers.get(0).getLineNumber());
+		assertEquals(0, markers.get(0).getStartColumn());
+		assertEquals(30, markers.get(0).getEndColumn());
+
+		/* The comments are found in the same pass */
+		assertEquals(2, moduleParser.getComments().size());
+		assertEquals(" license", moduleParser.getComments().get(1).getContent());
+	}
+
+	/**
+	 * Comment marks inside strings are not comments, and block comment 
+	 * lines have the leading star removed.
+	 */
+	@Test
+	public void testCommentStates() throws Exception {
+		ArrayList<String> content = new ArrayList<String>();
+		content.add("char *s = \"// no\"; /* a */ /* b */");
+		content.add("/**");
+		content.add(" * c");
+		content.add(" */ c = '\\''; // d");
+
+		CppSourceParser lexedParser = new CppSourceParser();
+		lexedParser.scanFile(file, content);
+
+		ArrayList<CommentLine> lexed = lexedParser.getComments();
+		assertEquals(5, lexed.size());
+		assertEquals(" a ", lexed.get(0).getContent());
+		assertEquals(21, lexed.get(0).getCommentStartColumn());
+		assertEquals(" b ", lexed.get(1).getContent());
+		assertEquals(" c", lexed.get(2).getContent());
+		assertEquals(2, lexed.get(2).getCommentStartColumn());
+		assertEquals(" ", lexed.get(3).getContent());
+		assertEquals(" d", lexed.get(4).getContent());
+		assertEquals(3, lexed.get(4).getSourceLineNumber());
+	}
+
 	/**
 	 * Test method for {@link checker.sourceparser.CppSourceParser#isSourceFile(checker.FileID)}.
 	 */
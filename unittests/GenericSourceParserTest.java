@@ -0,0 +1,230 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import checker.CommentLine;
+import checker.FileID;
+import checker.Reference;
+import checker.sourceparser.GenericSourceParser;
+import checker.sourceparser.SourceCollector;
+import checker.sourceparser.SourceSyntax;
+
+/**
+ * JUnit test for GenericSourceParser and the SourceSyntax rules.
+ */
+public class GenericSourceParserTest {
+
+	/**
+	 * Scan the lines with the syntax and return the parser.
+	 */
+	private GenericSourceParser scan(SourceSyntax syntax, String name,
+			String... lines) throws Exception {
+		ArrayList<String> content = new ArrayList<String>();
+		for (String line : lines)
+			content.add(line);
+		
+		GenericSourceParser parser = new GenericSourceParser(syntax);
+		parser.scanFile(new FileID("lib", name), content);
+		return parser;
+	}
+
+	/**
+	 * Assert the contents of the comments.
+	 */
+	private void assertComments(ArrayList<CommentLine> comments,
+			String... expected) {
+		assertEquals(expected.length, comments.size());
+		for (int i = 0; i < expected.length; i++)
+			assertEquals(expected[i], comments.get(i).getContent());
+	}
+
+	/**
+	 * Hash comments, strings and triple quoted strings in Python.
+	 */
+	@Test
+	public void testPython() throws Exception {
+		GenericSourceParser parser = scan(SourceSyntax.PYTHON, "a.py",
+				"# a",
+				"s = '# no'",
+				"\"\"\"",
+				"# in a docstring",
+				"\"\"\" # b",
+				"import os.path");
+		
+		assertComments(parser.getComments(), " a", " b");
+		assertEquals(4, parser.getComments().get(1).getSourceLineNumber());
+		
+		Reference ref = parser.getReferences().get(0);
+		assertEquals("path.py", ref.targetFile.name);
+		assertEquals(new File("lib", "os").getPath(), ref.targetFile.path);
+	}
+
+	/**
+	 * Comments start words in shell, here documents are passed over.
+	 */
+	@Test
+	public void testShell() throws Exception {
+		GenericSourceParser parser = scan(SourceSyntax.SHELL, "a.sh",
+				"#!/bin/sh",
+				"echo ${#x} # c",
+				"cat <<-'EOF'",
+				"# not a comment",
+				"\tEOF",
+				"# d",
+				"source ./common.sh");
+		
+		assertComments(parser.getComments(), "!/bin/sh", " c", " d");
+		assertEquals("common.sh", parser.getReferences().get(0).targetFile.name);
+		assertEquals(Reference.ReferenceType.STATIC_INCLUDE,
+				parser.getReferences().get(0).referenceType);
+	}
+
+	/**
+	 * Block comments nest in Rust.
+	 */
+	@Test
+	public void testRust() throws Exception {
+		GenericSourceParser parser = scan(SourceSyntax.RUST, "a.rs",
+				"/* a /* b */",
+				" c */ let s = \"/*\"; // d",
+				"mod util;");
+		
+		assertComments(parser.getComments(), " a /* b */", " c ", " d");
+		assertEquals("util.rs", parser.getReferences().get(0).targetFile.name);
+	}
+
+	/**
+	 * Block comments that start a line in Ruby and Perl.
+	 */
+	@Test
+	public void testLineStartBlocks() throws Exception {
+		GenericSourceParser parser = scan(SourceSyntax.RUBY, "a.rb",
+				"=begin",
+				"e",
+				"=end",
+				"require 'f' # g");
+		
+		assertComments(parser.getComments(), "e", " g");
+		assertEquals("f.rb", parser.getReferences().get(0).targetFile.name);
+		
+		parser = scan(SourceSyntax.PERL, "a.pl",
+				"use Foo::Bar;",
+				"=head1 LICENSE",
+				"h",
+				"=cut",
+				"my $s = 1; # i");
+		
+		assertComments(parser.getComments(), "head1 LICENSE", "h", " i");
+		Reference ref = parser.getReferences().get(0);
+		assertEquals("Bar.pm", ref.targetFile.name);
+		assertEquals(new File("lib", "Foo").getPath(), ref.targetFile.path);
+	}
+
+	/**
+	 * SQL strings have no escapes.
+	 */
+	@Test
+	public void testSql() throws Exception {
+		GenericSourceParser parser = scan(SourceSyntax.SQL, "a.sql",
+				"SELECT 'c:\\' -- j",
+				"/* k */ SELECT 'it''s -- no';");
+		
+		assertComments(parser.getComments(), " j", " k ");
+	}
+
+	/**
+	 * The streaming scan gives the sink what the line scan keeps.
+	 */
+	@Test
+	public void testStream() throws Exception {
+		GenericSourceParser parser = new GenericSourceParser(SourceSyntax.PYTHON);
+		SourceCollector collector = new SourceCollector();
+		parser.scanFile(new FileID("lib", "a.py"), new StringReader(
+				"# a\nimport os.path\n'''\n# no\n''' # b\n"), collector);
+		
+		assertComments(collector.getComments(), " a", " b");
+		assertEquals(4, collector.getComments().get(1).getSourceLineNumber());
+		assertEquals(1, collector.getReferences().size());
+		assertEquals("path.py", collector.getReferences().get(0).targetFile.name);
+	}
+
+	/**
+	 * The scan of the bytes finds the lines at \n, \r and \r\n, and
+	 * lines that are longer than the blocks that are read.
+	 */
+	@Test
+	public void testBytes() throws Exception {
+		StringBuilder code = new StringBuilder("x = 1");
+		for (int i = 0; i < 40000; i++)
+			code.append(" + 1");
+		
+		GenericSourceParser parser = new GenericSourceParser(SourceSyntax.PYTHON);
+		SourceCollector collector = new SourceCollector();
+		ByteBuffer bytes = ByteBuffer.wrap(("# a\r\nimport os\r" + code 
+				+ " # b\n\n# c").getBytes("US-ASCII"));
+		parser.scanFile(new FileID("lib", "a.py"), bytes, collector);
+		
+		assertComments(collector.getComments(), " a", " b", " c");
+		assertEquals(2, collector.getComments().get(1).getSourceLineNumber());
+		assertEquals(4, collector.getComments().get(2).getSourceLineNumber());
+		assertEquals("os.py", collector.getReferences().get(0).targetFile.name);
+		assertEquals(0, bytes.position());
+	}
+
+	/**
+	 * The sink can stop the streaming scan.
+	 */
+	@Test
+	public void testStreamStop() throws Exception {
+		GenericSourceParser parser = new GenericSourceParser(SourceSyntax.SHELL);
+		final ArrayList<Integer> lines = new ArrayList<Integer>();
+		SourceCollector collector = new SourceCollector() {
+			public boolean comment(CommentLine comment) {
+				super.comment(comment);
+				return false;
+			}
+			public boolean line(int lineNumber) {
+				lines.add(lineNumber);
+				return true;
+			}
+		};
+		parser.scanFile(new FileID("lib", "a.sh"), new StringReader(
+				"echo 1\n# a\n# b\nsource x.sh\n"), collector);
+		
+		assertComments(collector.getComments(), " a");
+		assertEquals(0, collector.getReferences().size());
+		assertEquals(1, lines.size());
+	}
+
+	/**
+	 * Produce a test suite. This is required by Ant because it has a JUnit 3.x runner.
+	 */
+	public static junit.framework.Test suite() {
+		return new junit.framework.JUnit4TestAdapter(GenericSourceParserTest.class);
+	}
+}
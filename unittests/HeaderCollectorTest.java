@@ -0,0 +1,141 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import checker.FileID;
+import checker.sourceparser.HeaderCollector;
+import checker.sourceparser.JavaSourceParser;
+
+/**
+ * JUnit test for stopping the scan of a source file after its header.
+ */
+public class HeaderCollectorTest {
+
+	/**
+	 * Reader that counts the characters read from it.
+	 */
+	private static class CountingReader extends StringReader {
+
+		private int read = 0;
+
+		private final int length;
+
+		CountingReader(String s) {
+			super(s);
+			length = s.length();
+		}
+
+		public int read(char[] cbuf, int off, int len)
+				throws java.io.IOException {
+			int n = super.read(cbuf, off, len);
+			if (n > 0) read += n;
+			return n;
+		}
+
+		boolean atEnd() {
+			return read == length;
+		}
+	}
+
+	/**
+	 * A Java file with a license header and the given lines after it.
+	 */
+	private static String source(String afterHeader, int codeLines) {
+		StringBuffer sb = new StringBuffer();
+		sb.append("/*\n");
+		sb.append(" * Copyright (c) 2026 Example\n");
+		sb.append(" * Licensed under the Example License.\n");
+		sb.append(" */\n");
+		sb.append(afterHeader);
+		sb.append("public class Example {\n");
+		for (int i = 0; i < codeLines; i++)
+			sb.append("    int field" + i + " = " + i + "; // field " + i + "\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * A file without references is not read after the header.
+	 */
+	@Test
+	public void testStopAfterHeader() throws Exception {
+		CountingReader reader = new CountingReader(source("", 5000));
+		HeaderCollector collector = new HeaderCollector(20, 1000);
+
+		new JavaSourceParser().scanFile(new FileID(null, "Example.java"),
+				(Reader) reader, collector);
+
+		assertTrue(collector.isStopped());
+		assertFalse(reader.atEnd());
+		assertTrue(countFields(collector) < 20);
+	}
+
+	/**
+	 * A file with references in its header is scanned to the end, so
+	 * the references and comments after the header are found.
+	 */
+	@Test
+	public void testScanToEndWithReferences() throws Exception {
+		CountingReader reader = new CountingReader(source(
+				"import java.util.ArrayList;\n", 5000));
+		HeaderCollector collector = new HeaderCollector(20, 1000);
+
+		new JavaSourceParser().scanFile(new FileID(null, "Example.java"),
+				(Reader) reader, collector);
+
+		assertFalse(collector.isStopped());
+		assertTrue(reader.atEnd());
+		assertEquals(1, collector.getReferences().size());
+		assertEquals(5000, countFields(collector));
+	}
+
+	/**
+	 * The word budget ends the header before the line budget.
+	 */
+	@Test
+	public void testStopAfterWords() throws Exception {
+		CountingReader reader = new CountingReader(source("", 5000));
+		HeaderCollector collector = new HeaderCollector(1000, 4);
+
+		new JavaSourceParser().scanFile(new FileID(null, "Example.java"),
+				(Reader) reader, collector);
+
+		assertTrue(collector.isStopped());
+		assertFalse(reader.atEnd());
+		assertEquals(0, countFields(collector));
+	}
+
+	private static int countFields(HeaderCollector collector) {
+		int n = 0;
+		for (int i = 0; i < collector.getComments().size(); i++) {
+			if (collector.getComments().get(i).getContent().contains("field"))
+				n++;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,197 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import checker.FileID;
+import checker.LicenseChecker;
+import checker.Reference;
+import checker.matching.LicenseMatch;
+
+/**
+ * JUnit test for the SPDX-License-Identifier lines of LicenseChecker.
+ */
+public class LicenseCheckerSpdxTest {
+
+	private static File dir;
+
+	private static String home;
+
+	private static String resultCache;
+
+	private static LicenseChecker checker;
+
+	@BeforeClass
+	public static void scan() throws Exception {
+		/* keep the settings of the user, saves go to a temporary home */
+		resultCache = LicenseChecker.getSetting("resultCache");
+		home = System.getProperty("user.home");
+		dir = File.createTempFile("spdx", "");
+		dir.delete();
+		dir.mkdir();
+		System.setProperty("user.home", dir.getPath());
+		LicenseChecker.setSetting("resultCache", "off");
+		
+		File src = new File(dir, "src");
+		src.mkdir();
+		write(new File(src, "or.c"),
+				"/* SPDX-License-Identifier: Apache-2.0 OR GPL-2.0-only */",
+				"int a;");
+		write(new File(src, "tri.c"),
+				"// SPDX-License-Identifier: MPL-1.1 OR GPL-2.0-or-later OR LGPL-2.1-or-later",
+				"int b;");
+		write(new File(src, "and.c"),
+				"// SPDX-License-Identifier: Apache-2.0 AND GPL-2.0-only",
+				"int c;");
+		write(new File(src, "unknown.c"),
+				"// SPDX-License-Identifier: Foo-1.0",
+				"int d;");
+		
+		/* an identifier and the license text */
+		ArrayList<String> lines = new ArrayList<String>();
+		lines.add("// SPDX-License-Identifier: MIT");
+		lines.add("/*");
+		BufferedReader in = new BufferedReader(new FileReader("licenses/mit.txt"));
+		String line;
+		while ((line = in.readLine()) != null)
+			lines.add(line);
+		in.close();
+		lines.add("*/");
+		write(new File(src, "text.c"), lines.toArray(new String[lines.size()]));
+		
+		checker = new LicenseChecker();
+		checker.openPackage(src);
+		checker.processPackage();
+	}
+
+	@AfterClass
+	public static void restore() throws Exception {
+		if (resultCache != null)
+			LicenseChecker.setSetting("resultCache", resultCache);
+		System.setProperty("user.home", home);
+		delete(dir);
+	}
+
+	private static void write(File file, String... lines) throws Exception {
+		FileWriter out = new FileWriter(file);
+		for (String line : lines)
+			out.write(line + "\n");
+		out.close();
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files)
+				delete(f);
+		}
+		file.delete();
+	}
+
+	private static FileID file(String name) {
+		for (FileID f : checker.getSourceFiles()) {
+			if (f.name.equals(name)) return f;
+		}
+		return null;
+	}
+
+	/**
+	 * Get the license IDs of the matches of a file.
+	 */
+	private static ArrayList<String> licenses(String name) {
+		ArrayList<String> ids = new ArrayList<String>();
+		ArrayList<LicenseMatch> matches = checker.getLicenseMatches(file(name));
+		if (matches == null) return ids;
+		
+		for (LicenseMatch m : matches)
+			ids.add(m.getLicense().getId());
+		return ids;
+	}
+
+	/**
+	 * The alternatives of an OR expression are matched with each other as
+	 * alternatives and do not conflict.
+	 */
+	@Test
+	public void testOr() throws Exception {
+		ArrayList<LicenseMatch> matches = checker.getLicenseMatches(file("or.c"));
+		assertEquals(2, matches.size());
+		assertEquals("apache-2.0-s", matches.get(0).getLicense().getId());
+		assertEquals("gpl-2.0-only-s", matches.get(1).getLicense().getId());
+		assertTrue(matches.get(0).isAlternative(matches.get(1).getLicense()));
+		assertTrue(matches.get(1).isAlternative(matches.get(0).getLicense()));
+		
+		/* the licenses are not compatible */
+		assertFalse(matches.get(1).getLicense().isCompatible(
+				matches.get(0).getLicense(), Reference.ReferenceType.IMPORT));
+		assertNull(checker.getInternalLicenseConflicts(file("or.c")));
+		
+		assertEquals(3, licenses("tri.c").size());
+		assertNull(checker.getInternalLicenseConflicts(file("tri.c")));
+	}
+
+	/**
+	 * The licenses of an AND expression apply together and conflict.
+	 */
+	@Test
+	public void testAnd() throws Exception {
+		ArrayList<LicenseMatch> matches = checker.getLicenseMatches(file("and.c"));
+		assertEquals(2, matches.size());
+		assertNull(matches.get(0).getAlternatives());
+		assertNotNull(checker.getInternalLicenseConflicts(file("and.c")));
+	}
+
+	/**
+	 * Files with only identifiers are not matched with Diff, other files
+	 * are.
+	 */
+	@Test
+	public void testSpdxOnly() throws Exception {
+		/* matches of the identifier line, no words matched by Diff */
+		for (LicenseMatch m : checker.getLicenseMatches(file("or.c"))) {
+			assertEquals(1.0f, m.getMatchPr(), 0.0f);
+			assertEquals(0, m.getMatchPositions().get(0).getStartLine());
+			assertEquals(0, m.getMatchPositions().get(0).getNumWords());
+		}
+		
+		/* the license text is found by Diff */
+		ArrayList<LicenseMatch> matches = checker.getLicenseMatches(file("text.c"));
+		assertEquals(1, matches.size());
+		assertEquals("mit", matches.get(0).getLicense().getId());
+		assertTrue(matches.get(0).getMatchPositions().get(0).getNumWords() > 0);
+		
+		/* unknown identifiers are not matched */
+		assertEquals(0, licenses("unknown.c").size());
+	}
+}
@@ -0,0 +1,172 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import checker.CommentLine;
+import checker.LicenseChecker;
+import checker.license.License;
+import checker.license.LicenseDatabase;
+import checker.matching.LicenseIndex;
+import checker.matching.LicenseMatch;
+import checker.matching.LicenseMatcher;
+import checker.matching.MatchPosition;
+import checker.matching.LicenseMatcher.MatchAlgorithm;
+
+/**
+ * JUnit test for comparing the licenses with large comments in several
+ * threads.
+ */
+public class LicenseMatcherParallelTest {
+
+	private static File dir;
+
+	private static String home;
+
+	private static String matchThreads;
+
+	private static String parallelMatchWords;
+
+	private static LicenseDatabase database;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		/* keep the settings of the user, saves go to a temporary home */
+		matchThreads = LicenseChecker.getSetting("matchThreads");
+		parallelMatchWords = LicenseChecker.getSetting("parallelMatchWords");
+		home = System.getProperty("user.home");
+		dir = File.createTempFile("parallel", "");
+		dir.delete();
+		dir.mkdir();
+		System.setProperty("user.home", dir.getPath());
+
+		database = new LicenseDatabase("licenses");
+		database.buildLicenseDatabase();
+	}
+
+	@AfterClass
+	public static void restore() throws Exception {
+		if (matchThreads != null)
+			LicenseChecker.setSetting("matchThreads", matchThreads);
+		if (parallelMatchWords != null)
+			LicenseChecker.setSetting("parallelMatchWords", parallelMatchWords);
+		System.setProperty("user.home", home);
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f : files)
+				f.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * Comments with the texts of two licenses, one after the other.
+	 */
+	private static ArrayList<CommentLine> comments() {
+		ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+		String[] ids = { "gpl-2.0-only-s", "apache-2.0-s" };
+		for (String id : ids) {
+			for (String line : database.getLicense(id).getLicenseText())
+				comments.add(new CommentLine(line, comments.size(), 3));
+		}
+		return comments;
+	}
+
+	/**
+	 * Match with an index of its own, so no results come from the match
+	 * cache of an earlier call.
+	 */
+	private static String match(ArrayList<CommentLine> comments,
+			MatchAlgorithm algorithm) {
+		ArrayList<License> all = new ArrayList<License>(database.getLicenses());
+		all.addAll(database.getForbiddenPhrases());
+		LicenseIndex index = LicenseMatcher.compile(all);
+
+		StringBuffer sb = new StringBuffer();
+		for (LicenseMatch m : LicenseMatcher.match(comments, index,
+				algorithm, 0.5)) {
+			sb.append(m.getLicense().getId()).append(' ');
+			sb.append(m.getMatchPr());
+			for (MatchPosition p : m.getMatchPositions()) {
+				sb.append(' ').append(p.getStartLine()).append(':');
+				sb.append(p.getStartCol()).append('-');
+				sb.append(p.getEndLine()).append(':');
+				sb.append(p.getEndCol());
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+
+	private static boolean helpersStarted() {
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.getName().equals("LicenseMatcher")) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The licenses found in several threads are the same as in one
+	 * thread, also when several callers compare at the same time.
+	 */
+	@Test
+	public void testMatchParallel() throws Exception {
+		final ArrayList<CommentLine> comments = comments();
+		MatchAlgorithm[] algorithms = {
+			MatchAlgorithm.EXACT, MatchAlgorithm.RUNS
+		};
+
+		for (final MatchAlgorithm algorithm : algorithms) {
+			LicenseChecker.setSetting("parallelMatchWords", "0");
+			String serial = match(comments, algorithm);
+			assertTrue(serial.startsWith("gpl-2.0-only-s"));
+
+			LicenseChecker.setSetting("parallelMatchWords", "1");
+			LicenseChecker.setSetting("matchThreads", "4");
+			assertEquals(serial, match(comments, algorithm));
+			assertTrue(helpersStarted());
+
+			/* two callers share the four threads */
+			final String[] result = new String[2];
+			Thread[] callers = new Thread[result.length];
+			for (int i = 0; i < callers.length; i++) {
+				final int n = i;
+				callers[i] = new Thread() {
+					public void run() {
+						result[n] = match(comments, algorithm);
+					}
+				};
+				callers[i].start();
+			}
+			for (int i = 0; i < callers.length; i++) {
+				callers[i].join();
+				assertEquals(serial, result[i]);
+			}
+		}
+	}
+}
@@ -29,6 +29,8 @@ import org.junit.Test;
 
 import checker.CommentLine;
 import checker.license.License;
+import checker.license.LicenseDatabase;
+import checker.license.Tag;
 import checker.matching.LicenseMatch;
 import checker.matching.LicenseMatcher;
 import checker.matching.MatchPosition;
@@ -77,7 +79,191 @@ public class LicenseMatcherTest {
 				expectedPositions.get(0)));
 	}
 
+	/**
+	 * PARTIAL matches text that has no unique words.
+	 * 
+	 */
+	@Test
+	public void testMatchRepetitive() throws Exception {
+
+		class TestLicense extends License {
+
+			TestLicense() {
+				name = "TEST";
+
+				ArrayList<String> text = new ArrayList<String>();
+				text.add("one two three one two three");
+				text.add("one two three one two three");
+				setLicenseText(text);
+				
+			}
+		}
+
+		License license = new TestLicense();
+
+		ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+		comments.add(new CommentLine("one two three one two three", 0, 0));
+		comments.add(new CommentLine("one two three one two three", 1, 0));
+
+		LicenseMatch match = LicenseMatcher.match(comments, license,
+				MatchAlgorithm.PARTIAL);
+		
+		assertNotNull(match);
+		assertEquals(1.0f, match.getMatchPr(), 0.0001f);
+		assertEquals(12, match.getLongestLength());
+	}
+
+	/**
+	 * RUNS finds a license between other comment words.
+	 * 
+	 */
+	@Test
+	public void testMatchRuns() throws Exception {
+
+		class TestLicense extends License {
+
+			TestLicense() {
+				name = "TEST";
+
+				ArrayList<String> text = new ArrayList<String>();
+				text.add("the quick brown fox jumps");
+				text.add("over the lazy dog");
+				setLicenseText(text);
+				
+			}
+		}
+
+		License license = new TestLicense();
+
+		ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+		comments.add(new CommentLine("foo bar the quick brown fox", 0, 0));
+		comments.add(new CommentLine("jumps over the lazy dog baz", 1, 0));
+
+		LicenseMatch match = LicenseMatcher.match(comments, license,
+				MatchAlgorithm.RUNS);
+		
+		assertNotNull(match);
+		assertEquals(1.0f, match.getMatchPr(), 0.0001f);
+		assertEquals(9, match.getLongestLength());
+	}
+
+	/**
+	 * Comments that are the template exactly get the tag values.
+	 * 
+	 */
+	@Test
+	public void testMatchTemplateTag() throws Exception {
+
+		class TestLicense extends License {
+
+			TestLicense() {
+				name = "TEST";
+
+				ArrayList<String> text = new ArrayList<String>();
+				text.add("copyright <year> foo corporation");
+				text.add("all rights reserved");
+				setLicenseText(text);
+				
+				ArrayList<Tag> tags = new ArrayList<Tag>();
+				tags.add(new Tag("<year>", this));
+				setTags(tags);
+			}
+		}
+
+		License license = new TestLicense();
+
+		ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+		comments.add(new CommentLine("copyright 2006 2007 foo corporation", 0, 0));
+		comments.add(new CommentLine("all rights reserved", 1, 0));
+
+		LicenseMatch match = LicenseMatcher.match(comments, license,
+				MatchAlgorithm.EXACT);
+		
+		assertNotNull(match);
+		assertEquals(1.0f, match.getMatchPr(), 0.0001f);
+		assertEquals(7, match.getLongestLength());
+		assertEquals("2006 2007", match.getTags().get(license.getTags().get(0)));
+	}
+
+	/**
+	 * RUNS gets the tag value when the words before the tag are shorter
+	 * than a run, as "Copyright (c)" in the Sun and Oracle GPL header.
+	 * 
+	 */
+	@Test
+	public void testMatchRunsTag() throws Exception {
+		
+		LicenseDatabase database = new LicenseDatabase("licenses");
+		database.buildLicenseDatabase();
+		License license = database.getLicense("gpl-2.0-only-s");
+		
+		String[] header = {
+			"Copyright (c) 2005, 2013, Oracle and/or its affiliates. All rights reserved.",
+			"DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.",
+			"",
+			"This code is free software; you can redistribute it and/or modify it",
+			"under the terms of the GNU General Public License version 2 only, as",
+			"published by the Free Software Foundation.",
+			"",
+			"This code is distributed in the hope that it will be useful, but WITHOUT",
+			"ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or",
+			"FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License",
+			"version 2 for more details (a copy is included in the LICENSE file that",
+			"accompanied this code)."
+		};
+		ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+		for (int i = 0; i < header.length; i++)
+			comments.add(new CommentLine(header[i], i, 3));
+		
+		LicenseMatch exact = LicenseMatcher.match(comments, license,
+				MatchAlgorithm.EXACT);
+		LicenseMatch runs = LicenseMatcher.match(comments, license,
+				MatchAlgorithm.RUNS);
+		
+		assertNotNull(exact);
+		assertNotNull(runs);
+		Tag tag = license.getTags().get(0);
+		assertNotNull(exact.getTags().get(tag));
+		assertNotNull(runs.getTags());
+		assertEquals(exact.getTags().get(tag), runs.getTags().get(tag));
+		assertTrue(runs.getTags().get(tag).startsWith("2005 2013 oracle"));
+	}
+
 	
+	/**
+	 * Test that a cached match is not used for comments that differ only
+	 * in words that are not in any license, such as the copyright holder.
+	 * 
+	 */
+	@Test
+	public void testMatchCacheUnknownWords() throws Exception {
+		
+		LicenseDatabase database = new LicenseDatabase("licenses");
+		database.buildLicenseDatabase();
+		License license = database.getLicense("gpl-2.0-only-s");
+		Tag tag = license.getTags().get(0);
+		
+		String[] holders = { "Qzxwvy Pqrstz", "Wvzqxy Zxqvbn" };
+		for (String holder : holders) {
+			ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+			comments.add(new CommentLine("Copyright (c) 2005, " + holder
+					+ ". All rights reserved.", 0, 3));
+			for (int i = 0; i < license.getLicenseText().size(); i++) {
+				String line = license.getLicenseText().get(i);
+				if (line.indexOf('<') < 0)
+					comments.add(new CommentLine(line, i + 1, 3));
+			}
+			
+			String value = null;
+			for (LicenseMatch m : LicenseMatcher.match(comments,
+					database.getIndex(), MatchAlgorithm.EXACT, 0.5)) {
+				if (m.getLicense() == license) value = m.getTags().get(tag);
+			}
+			assertNotNull(value);
+			assertTrue(value, value.indexOf(holder.toLowerCase()) >= 0);
+		}
+	}
+
 	/**
 	 * Test method for
 	 * {@link checker.matching.LicenseMatcher#matchForbiddenPhrases(java.util.ArrayList, java.util.ArrayList)}.
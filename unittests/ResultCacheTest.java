@@ -0,0 +1,242 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import checker.FileID;
+import checker.Reference;
+import checker.ResultCache;
+import checker.license.License;
+import checker.license.LicenseDatabase;
+import checker.license.Tag;
+import checker.matching.LicenseMatch;
+import checker.matching.MatchPosition;
+
+/**
+ * JUnit test for the file format of ResultCache.
+ */
+public class ResultCacheTest {
+
+	private static LicenseDatabase database;
+
+	private static ArrayList<License> licenses;
+
+	private static byte[] digest = new byte[20];
+
+	private File file;
+
+	@BeforeClass
+	public static void loadDatabase() {
+		database = new LicenseDatabase("licenses");
+		database.buildLicenseDatabase();
+		licenses = new ArrayList<License>(database.getLicenses());
+		Arrays.fill(digest, (byte) 1);
+	}
+
+	@Before
+	public void createFile() throws Exception {
+		file = File.createTempFile("cache", "");
+		file.delete();
+	}
+
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+
+	private static FileID fileId(int i) {
+		return new FileID("src", "file" + i + ".c");
+	}
+
+	private static ResultCache.Key key(int i) {
+		ArrayList<String> content = new ArrayList<String>();
+		content.add("int a" + i + ";");
+		return ResultCache.key(fileId(i), content);
+	}
+
+	/**
+	 * Write a cache of count files, each with one MIT match.
+	 */
+	private void write(int count) throws Exception {
+		ResultCache cache = new ResultCache(file, digest, licenses);
+		for (int i = 0; i < count; i++) {
+			ArrayList<MatchPosition> positions = new ArrayList<MatchPosition>();
+			positions.add(new MatchPosition(i, 0, i + 20, 10, 0, 0, 20, 10, 0, 160));
+			ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+			matches.add(new LicenseMatch(database.getLicense("mit"), positions));
+			cache.put(key(i), fileId(i), matches, new ArrayList<Reference>());
+		}
+		cache.close();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		License license = null;
+		for (License l : licenses) {
+			if ((l.getTags() != null) && !l.getTags().isEmpty()) license = l;
+		}
+		assertNotNull(license);
+		Tag tag = license.getTags().get(0);
+		
+		ArrayList<MatchPosition> positions = new ArrayList<MatchPosition>();
+		positions.add(new MatchPosition(3, 2, 12, 40, 1, 0, 9, 38, 3, 120));
+		LicenseMatch match = new LicenseMatch(license, positions);
+		match.setMatchPr(0.75f);
+		match.addTag(tag, "Some One", 7);
+		match.addAlternative(database.getLicense("mit"));
+		ArrayList<LicenseMatch> matches = new ArrayList<LicenseMatch>();
+		matches.add(match);
+
+		ArrayList<Reference> references = new ArrayList<Reference>();
+		Reference reference = new Reference(fileId(1), new FileID(null, "a.h"));
+		reference.referenceType = Reference.ReferenceType.STATIC_INCLUDE;
+		reference.declaration = "#include \"a.h\"";
+		references.add(reference);
+		/* references of other files are not stored */
+		references.add(new Reference(fileId(2), new FileID(null, "b.h")));
+
+		ResultCache cache = new ResultCache(file, digest, licenses);
+		cache.put(key(1), fileId(1), matches, references);
+		cache.close();
+
+		cache = new ResultCache(file, digest, licenses);
+		ResultCache.Result result = cache.get(key(1), fileId(1));
+		assertNotNull(result);
+		assertNull(cache.get(key(2), fileId(2)));
+
+		assertEquals(1, result.matches.size());
+		LicenseMatch m = result.matches.get(0);
+		assertTrue(m.getLicense() == license);
+		assertEquals(0.75f, m.getMatchPr(), 0);
+		MatchPosition p = m.getMatchPositions().get(0);
+		assertEquals(3, p.getStartLine());
+		assertEquals(2, p.getStartCol());
+		assertEquals(12, p.getEndLine());
+		assertEquals(40, p.getEndCol());
+		assertEquals(9, p.getTemplateEndLine());
+		assertEquals(3, p.getCommentStartCol());
+		assertEquals(120, p.getNumWords());
+		assertEquals("Some One", m.getTags().get(tag));
+		assertEquals(7, m.getTagStart(tag));
+		assertTrue(m.isAlternative(database.getLicense("mit")));
+
+		assertEquals(1, result.references.size());
+		Reference r = result.references.get(0);
+		assertEquals("a.h", r.targetFile.name);
+		assertNull(r.targetFile.path);
+		assertEquals(Reference.ReferenceType.STATIC_INCLUDE, r.referenceType);
+		assertEquals("#include \"a.h\"", r.declaration);
+		assertNull(r.information);
+	}
+
+	@Test
+	public void testCrcCorruption() throws Exception {
+		write(3);
+		long length = file.length();
+
+		/* the payload of the last record, before its CRC */
+		flip(length - 5);
+		assertEquals(2, count(3));
+
+		/* reading stops at the first broken record */
+		flip(length / 2);
+		assertEquals(1, count(3));
+
+		/* the broken records are dropped when the file is rewritten */
+		ResultCache cache = new ResultCache(file, digest, licenses);
+		cache.close();
+		assertTrue(file.length() < length / 2);
+		assertEquals(1, count(3));
+	}
+
+	/**
+	 * Count the cached files of the first files.
+	 */
+	private int count(int files) {
+		ResultCache cache = new ResultCache(file, digest, licenses);
+		int count = 0;
+		for (int i = 0; i < files; i++) {
+			if (cache.get(key(i), fileId(i)) != null) count++;
+		}
+		return count;
+	}
+
+	private void flip(long position) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.seek(position);
+		int b = raf.read();
+		raf.seek(position);
+		raf.write(b ^ 0xff);
+		raf.close();
+	}
+
+	@Test
+	public void testDigestMismatch() throws Exception {
+		write(2);
+
+		byte[] other = digest.clone();
+		other[19] = 2;
+		ResultCache cache = new ResultCache(file, other, licenses);
+		assertNull(cache.get(key(0), fileId(0)));
+		assertNull(cache.get(key(1), fileId(1)));
+		assertEquals(2, count(2));
+
+		/* the records of the other database are stale */
+		long length = file.length();
+		cache.close();
+		assertTrue(file.length() < length);
+		assertEquals(0, count(2));
+	}
+
+	@Test
+	public void testCompaction() throws Exception {
+		write(4);
+		long length = file.length();
+		Thread.sleep(10);
+
+		/* nothing is old enough to expire */
+		ResultCache cache = new ResultCache(file, digest, licenses);
+		assertNotNull(cache.get(key(0), fileId(0)));
+		cache.close();
+		assertEquals(length, file.length());
+
+		/* unused records expire */
+		cache = new ResultCache(file, digest, licenses, 0);
+		assertNotNull(cache.get(key(0), fileId(0)));
+		cache.close();
+		assertTrue(file.length() < length);
+
+		assertEquals(1, count(4));
+		assertNotNull(new ResultCache(file, digest, licenses).get(key(0), fileId(0)));
+	}
+}
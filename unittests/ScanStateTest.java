@@ -0,0 +1,252 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.ArrayList;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import checker.FileID;
+import checker.LicenseChecker;
+import checker.Pair;
+import checker.Reference;
+import checker.ScanState;
+import checker.license.License;
+import checker.matching.LicenseMatch;
+
+/**
+ * JUnit test for rescanning a package with the ScanState of an earlier
+ * run, read from the file next to the result cache.
+ */
+public class ScanStateTest {
+
+	private static File dir;
+
+	private static String home;
+
+	private static String resultCache;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		/* keep the settings of the user, saves go to a temporary home */
+		resultCache = LicenseChecker.getSetting("resultCache");
+		home = System.getProperty("user.home");
+		dir = File.createTempFile("state", "");
+		dir.delete();
+		dir.mkdir();
+		System.setProperty("user.home", dir.getPath());
+		LicenseChecker.setSetting("resultCache",
+				new File(dir, "cache").getPath());
+	}
+
+	@AfterClass
+	public static void restore() throws Exception {
+		if (resultCache != null)
+			LicenseChecker.setSetting("resultCache", resultCache);
+		System.setProperty("user.home", home);
+		delete(dir);
+	}
+
+	private static void write(File file, String... lines) throws Exception {
+		file.getParentFile().mkdirs();
+		FileWriter out = new FileWriter(file);
+		for (String line : lines)
+			out.write(line + "\n");
+		out.close();
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File f : files)
+				delete(f);
+		}
+		file.delete();
+	}
+
+	/**
+	 * Scan a package with the state of the previous run, like the
+	 * command line program.
+	 */
+	private static LicenseChecker scan(File root) throws Exception {
+		LicenseChecker checker = new LicenseChecker();
+		checker.openPackage(root);
+		checker.processPackage(checker.readScanState());
+		checker.writeScanState();
+		return checker;
+	}
+
+	private static FileID file(LicenseChecker checker, String name) {
+		for (FileID f : checker.getSourceFiles()) {
+			if (f.name.equals(name)) return f;
+		}
+		return null;
+	}
+
+	private static String licenses(LicenseChecker checker, String name) {
+		StringBuffer sb = new StringBuffer();
+		for (LicenseMatch m : checker.getLicenseMatches(file(checker, name))) {
+			if (sb.length() > 0) sb.append(", ");
+			sb.append(m.getLicense().getId());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Get the names of the target files of the references of a file.
+	 */
+	private static ArrayList<String> targets(LicenseChecker checker,
+			String name) {
+		ArrayList<String> targets = new ArrayList<String>();
+		ArrayList<Reference> refs = checker.getReferences(file(checker, name));
+		if (refs == null) return targets;
+		
+		for (Reference r : refs) {
+			if (r.targetFile != null) targets.add(r.targetFile.name);
+		}
+		return targets;
+	}
+
+	/**
+	 * Get the conflicts of the references of a file.
+	 */
+	private static int referenceConflicts(LicenseChecker checker, String name) {
+		int count = 0;
+		ArrayList<Reference> refs = checker.getReferences(file(checker, name));
+		if (refs == null) return 0;
+		
+		for (Reference r : refs) {
+			ArrayList<Pair<License, License>> c = checker.getLicenseConflicts(r);
+			if (c != null) count += c.size();
+		}
+		return count;
+	}
+
+	private static File createPackage(String name) throws Exception {
+		File root = new File(dir, name);
+		write(new File(root, "a/A.java"),
+				"// SPDX-License-Identifier: GPL-2.0-only",
+				"package a;",
+				"import b.B;",
+				"public class A { }");
+		write(new File(root, "a/A2.java"),
+				"// SPDX-License-Identifier: MIT",
+				"package a;",
+				"import b.*;",
+				"public class A2 { }");
+		write(new File(root, "b/B.java"),
+				"// SPDX-License-Identifier: Apache-2.0",
+				"package b;",
+				"public class B { }");
+		return root;
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		File root = createPackage("reuse");
+		LicenseChecker first = scan(root);
+		assertEquals(0, first.getNumReusedFiles());
+		ScanState state = first.getScanState();
+		assertNotNull(state);
+		assertEquals(3, state.size());
+		
+		LicenseChecker second = scan(root);
+		assertEquals(3, second.getNumReusedFiles());
+		for (String name : new String[] { "A.java", "A2.java", "B.java" })
+			assertEquals(licenses(first, name), licenses(second, name));
+		assertEquals(targets(first, "A.java"), targets(second, "A.java"));
+		
+		/* a state of other settings is not used */
+		String threshold = LicenseChecker.getSetting("matchThreshold");
+		try {
+			LicenseChecker.setSetting("matchThreshold", "0.5");
+			assertEquals(0, scan(root).getNumReusedFiles());
+		} finally {
+			LicenseChecker.setSetting("matchThreshold", threshold);
+		}
+	}
+
+	@Test
+	public void testRemovedFile() throws Exception {
+		File root = createPackage("removed");
+		scan(root);
+		
+		assertTrue(new File(root, "a/A2.java").delete());
+		LicenseChecker checker = scan(root);
+		assertEquals(2, checker.getNumReusedFiles());
+		assertEquals(2, checker.getSourceFiles().size());
+		assertNull(file(checker, "A2.java"));
+		assertEquals(2, checker.getScanState().size());
+	}
+
+	/**
+	 * A "*" reference of an unchanged file is expanded again when a file
+	 * is added to the directory it refers to.
+	 */
+	@Test
+	public void testStarExpansion() throws Exception {
+		File root = createPackage("star");
+		LicenseChecker checker = scan(root);
+		assertTrue(targets(checker, "A2.java").contains("B.java"));
+		assertFalse(targets(checker, "A2.java").contains("C.java"));
+		
+		write(new File(root, "b/C.java"),
+				"package b;",
+				"public class C { }");
+		checker = scan(root);
+		assertEquals(3, checker.getNumReusedFiles());
+		assertTrue(targets(checker, "A2.java").contains("B.java"));
+		assertTrue(targets(checker, "A2.java").contains("C.java"));
+	}
+
+	/**
+	 * The conflicts of an unchanged file are reused only while the files
+	 * it refers to are unchanged.
+	 */
+	@Test
+	public void testUnchangedConflicts() throws Exception {
+		File root = createPackage("conflicts");
+		LicenseChecker checker = scan(root);
+		int conflicts = referenceConflicts(checker, "A.java");
+		assertTrue(conflicts > 0);
+		
+		checker = scan(root);
+		assertEquals(3, checker.getNumReusedFiles());
+		assertEquals(conflicts, referenceConflicts(checker, "A.java"));
+		
+		/* the file A.java refers to is now compatible */
+		write(new File(root, "b/B.java"),
+				"// SPDX-License-Identifier: GPL-2.0-only",
+				"package b;",
+				"public class B { }");
+		checker = scan(root);
+		assertEquals(2, checker.getNumReusedFiles());
+		assertEquals(0, referenceConflicts(checker, "A.java"));
+	}
+}
@@ -92,6 +92,49 @@ public class SourceParserFactoryTest {
 		
 	}
 
+	/**
+	 * Test method for {@link checker.sourceparser.SourceParserFactory#getSourceParser(checker.FileID)}.
+	 */
+	@Test
+	public void testGetSourceParser() throws Exception {
+		
+		/* The same parser is returned for files of the same type */
+		parser = SourceParserFactory.getSourceParser(file1);
+		assertTrue( "Parser for java file", parser.isSourceFile(file1));
+		assertSame( parser, SourceParserFactory.getSourceParser(file2));
+		
+		SourceParser cppParser = SourceParserFactory.getSourceParser(file4);
+		assertTrue( "Parser for cpp file", cppParser.isSourceFile(file4));
+		assertNotSame( parser, cppParser);
+		assertSame( cppParser, SourceParserFactory.getSourceParser(
+				new FileID("test_sources", "Xml.h")));
+		
+		assertNull( SourceParserFactory.getSourceParser(file3));
+		assertNull( SourceParserFactory.getSourceParser(
+				new FileID("test_sources", "README")));
+	}
+
+	/**
+	 * Test method for {@link checker.sourceparser.SourceParserFactory#isSourceFile(checker.FileID)}.
+	 * 
+	 * Languages of the SourceSyntax table, by extension and by full name
+	 */
+	@Test
+	public void testIsSourceFileSyntaxTable() throws Exception {
+		assertTrue( SourceParserFactory.isSourceFile(new FileID(null, "setup.py")));
+		assertTrue( SourceParserFactory.isSourceFile(new FileID(null, "build.SH")));
+		assertTrue( SourceParserFactory.isSourceFile(new FileID(null, "main.rs")));
+		assertTrue( SourceParserFactory.isSourceFile(new FileID(null, "Makefile")));
+		assertTrue( SourceParserFactory.isSourceFile(new FileID(null, "Rakefile")));
+		assertTrue( !SourceParserFactory.isSourceFile(new FileID(null, "README")));
+		assertTrue( !SourceParserFactory.isSourceFile(new FileID(null, "makefile.txt")));
+		
+		parser = SourceParserFactory.createSourceParser(new FileID(null, "schema.sql"));
+		assertTrue( parser instanceof GenericSourceParser);
+		assertTrue( parser.isSourceFile(new FileID(null, "data.SQL")));
+		assertTrue( !parser.isSourceFile(new FileID(null, "data.pl")));
+	}
+
 	/**
 	 * Test method for {@link checker.sourceparser.SourceParserFactory#isSourceFile(checker.FileID)}.
 	 */
@@ -0,0 +1,170 @@
+/**
+ * 
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; 
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. 
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston, 
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import checker.license.License;
+import checker.license.LicenseDatabase;
+import checker.license.SpdxExpression;
+
+/**
+ * JUnit test for SpdxExpression.
+ */
+public class SpdxExpressionTest {
+
+	private static LicenseDatabase database;
+
+	@BeforeClass
+	public static void loadDatabase() {
+		database = new LicenseDatabase("licenses");
+		database.buildLicenseDatabase();
+	}
+
+	/**
+	 * Get the choices of an expression as license IDs, for example
+	 * "[[mit], [bsd, gpl-2.0-s]]".
+	 */
+	private static String choices(String expression, ArrayList<String> unknown) {
+		ArrayList<ArrayList<License>> choices =
+			SpdxExpression.parse(expression).getChoices(database, unknown);
+		
+		StringBuffer sb = new StringBuffer("[");
+		for (ArrayList<License> choice : choices) {
+			if (sb.length() > 1) sb.append(", ");
+			sb.append('[');
+			for (int i = 0; i < choice.size(); i++) {
+				if (i > 0) sb.append(", ");
+				sb.append(choice.get(i).getId());
+			}
+			sb.append(']');
+		}
+		return sb.append(']').toString();
+	}
+
+	private static String choices(String expression) {
+		ArrayList<String> unknown = new ArrayList<String>();
+		String s = choices(expression, unknown);
+		assertEquals("unknown IDs", 0, unknown.size());
+		return s;
+	}
+
+	/**
+	 * Test parsing of the operators and their precedence.
+	 */
+	@Test
+	public void testParse() throws Exception {
+		SpdxExpression e = SpdxExpression.parse("MIT");
+		assertNull(e.getOperator());
+		assertEquals("MIT", e.getId());
+		
+		e = SpdxExpression.parse("MIT or Apache-2.0 OR GPL-2.0+");
+		assertEquals(SpdxExpression.Operator.OR, e.getOperator());
+		assertEquals(3, e.getOperands().size());
+		assertEquals("MIT OR Apache-2.0 OR GPL-2.0+", e.toString());
+		
+		/* AND binds tighter than OR */
+		e = SpdxExpression.parse("MIT OR BSD-3-Clause AND GPL-2.0");
+		assertEquals(SpdxExpression.Operator.OR, e.getOperator());
+		assertEquals(SpdxExpression.Operator.AND,
+				e.getOperands().get(1).getOperator());
+		
+		e = SpdxExpression.parse("(MIT OR BSD-3-Clause) AND GPL-2.0");
+		assertEquals(SpdxExpression.Operator.AND, e.getOperator());
+		assertEquals("(MIT OR BSD-3-Clause) AND GPL-2.0", e.toString());
+		
+		e = SpdxExpression.parse("((MIT))");
+		assertEquals("MIT", e.toString());
+		
+		e = SpdxExpression.parse("GPL-2.0-only WITH Linux-syscall-note OR MIT");
+		assertEquals(SpdxExpression.Operator.OR, e.getOperator());
+		SpdxExpression with = e.getOperands().get(0);
+		assertEquals(SpdxExpression.Operator.WITH, with.getOperator());
+		assertEquals("GPL-2.0-only", with.getId());
+		assertEquals("Linux-syscall-note", with.getException());
+	}
+
+	/**
+	 * Test expressions that are not well formed.
+	 */
+	@Test
+	public void testParseErrors() throws Exception {
+		assertNull(SpdxExpression.parse(""));
+		assertNull(SpdxExpression.parse("MIT OR"));
+		assertNull(SpdxExpression.parse("AND MIT"));
+		assertNull(SpdxExpression.parse("MIT Apache-2.0"));
+		assertNull(SpdxExpression.parse("(MIT OR Apache-2.0"));
+		assertNull(SpdxExpression.parse("MIT)"));
+		assertNull(SpdxExpression.parse("MIT WITH"));
+		assertNull(SpdxExpression.parse("(MIT OR BSD-3-Clause) WITH Foo"));
+	}
+
+	/**
+	 * Test the choices of AND, OR and WITH expressions.
+	 */
+	@Test
+	public void testChoices() throws Exception {
+		assertEquals("[[mit]]", choices("MIT"));
+		assertEquals("[[apache-2.0-s], [gpl-2.0-only-s]]",
+				choices("Apache-2.0 OR GPL-2.0-only"));
+		assertEquals("[[apache-2.0-s, gpl-2.0-only-s]]",
+				choices("Apache-2.0 AND GPL-2.0-only"));
+		assertEquals("[[mpl-1.1-s], [gpl-2.0-s], [lgpl-2.1-s]]",
+				choices("MPL-1.1 OR GPL-2.0-or-later OR LGPL-2.1-or-later"));
+		
+		/* parentheses */
+		assertEquals("[[mit, apache-2.0-s], [bsd, apache-2.0-s]]",
+				choices("(MIT OR BSD-3-Clause) AND Apache-2.0"));
+		assertEquals("[[mit], [bsd, apache-2.0-s]]",
+				choices("MIT OR BSD-3-Clause AND Apache-2.0"));
+		
+		/* known exceptions are added, unknown ones are ignored */
+		assertEquals("[[gpl-2.0-only-s, gpl-2.0-m-classpath]]",
+				choices("GPL-2.0-only WITH Classpath-exception-2.0"));
+		assertEquals("[[gpl-2.0-s]]",
+				choices("GPL-2.0+ WITH Linux-syscall-note"));
+		
+		/* a subexpression with its own entry is one license */
+		assertEquals("[[dual-bsd-gpl-k, mit]]",
+				choices("(GPL-2.0 OR BSD-3-Clause) AND MIT"));
+	}
+
+	/**
+	 * Test expressions with unknown license identifiers.
+	 */
+	@Test
+	public void testUnknownIds() throws Exception {
+		ArrayList<String> unknown = new ArrayList<String>();
+		assertEquals("[[], [mit]]", choices("Foo-1.0 OR MIT", unknown));
+		assertEquals(1, unknown.size());
+		assertEquals("Foo-1.0", unknown.get(0));
+		
+		unknown.clear();
+		assertEquals("[[mit]]", choices("Bar WITH Foo-exception AND MIT", unknown));
+		assertTrue(unknown.contains("Bar"));
+		assertEquals(1, unknown.size());
+	}
+}
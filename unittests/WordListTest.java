@@ -0,0 +1,109 @@
+/**
+ *
+ *   Copyright (C) 2026 OSLC contributors
+ *
+ *   This program is free software; you can redistribute it and/or modify it under the terms of
+ *   the GNU General Public License as published by the Free Software Foundation; either version 2
+ *   of the License, or (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ *   without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ *   See the GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License along with this program;
+ *   if not, write to the Free Software Foundation, Inc., 59 Temple Place, Suite 330, Boston,
+ *   MA 02111-1307 USA
+ *
+ */
+
+package unittests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import checker.CommentLine;
+import checker.matching.WordDictionary;
+import checker.matching.WordList;
+
+/**
+ * JUnit test for WordList
+ */
+public class WordListTest {
+
+	/**
+	 * Words are lowercased and tidied, tags are kept as they are.
+	 * Positions and lengths refer to the original text.
+	 */
+	@Test
+	public void testSplitWords() throws Exception {
+		WordList w = WordList.splitWords("(C) Copyright,  <Year_And_Name> -- \u00c5ke", 3, 2);
+
+		assertEquals(4, w.size());
+		assertEquals("c", w.getWord(0));
+		assertEquals("copyright", w.getWord(1));
+		assertEquals("<year_and_name>", w.getWord(2));
+		assertEquals("ke", w.getWord(3));
+
+		assertEquals(3, w.getRow(1));
+		assertEquals(6, w.getCol(1));
+		assertEquals(10, w.getLength(1));
+
+		/* same word, same ID */
+		assertEquals(WordDictionary.intern("copyright"), w.getToken(1));
+	}
+
+	/**
+	 * Test findWordAt() and countWordsBetween().
+	 */
+	@Test
+	public void testPositions() throws Exception {
+		WordList w = new WordList();
+		w.appendWords("one two three", 0, 0);
+		w.appendWords("four five", 2, 4);
+
+		assertEquals(0, w.findWordAt(0, 0));
+		assertEquals(1, w.findWordAt(0, 1));
+		assertEquals(3, w.findWordAt(1, 100));
+		assertEquals(-1, w.findWordAt(2, 10));
+
+		assertEquals(5, w.countWordsBetween(0, 0, 2, 9));
+		assertEquals(2, w.countWordsBetween(0, 4, 0, 8));
+		assertEquals(0, w.countWordsBetween(1, 0, 1, 10));
+	}
+
+	/**
+	 * Comment words are not added to the WordDictionary. Words that are
+	 * not in it have the ID UNKNOWN and keep their text.
+	 */
+	@Test
+	public void testCommentWords() throws Exception {
+		int copyright = WordDictionary.intern("copyright");
+		int size = WordDictionary.size();
+
+		ArrayList<CommentLine> comments = new ArrayList<CommentLine>();
+		comments.add(new CommentLine("Copyright Qzxwvy-Corp", 0, 3));
+		WordList w = WordList.commentsToWords(comments);
+
+		assertEquals(size, WordDictionary.size());
+		assertEquals(2, w.size());
+		assertEquals(copyright, w.getToken(0));
+		assertEquals(WordDictionary.UNKNOWN, w.getToken(1));
+		assertEquals("qzxwvycorp", w.getWord(1));
+		assertEquals(WordDictionary.UNKNOWN, WordDictionary.lookup("qzxwvycorp"));
+
+		/* the text of unknown words is copied with them */
+		WordList copy = new WordList();
+		copy.addAll(w);
+		assertEquals("qzxwvycorp", copy.getWord(1));
+	}
+
+	/**
+	 * Produce a test suite. This is required by Ant because it has a JUnit 3.x runner.
+	 */
+	public static junit.framework.Test suite() {
+		return new junit.framework.JUnit4TestAdapter(WordListTest.class);
+	}
+}